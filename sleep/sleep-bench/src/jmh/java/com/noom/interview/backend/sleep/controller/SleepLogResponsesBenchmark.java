@@ -0,0 +1,93 @@
+package com.noom.interview.backend.sleep.controller;
+
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.noom.interview.backend.sleep.controller.model.response.AvgSleepLogResponse;
+import com.noom.interview.backend.sleep.controller.model.response.SleepLogResponse;
+import com.noom.interview.backend.sleep.dto.AvgSleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Response building and serialization done by {@link SleepLogController} for every read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SleepLogResponsesBenchmark {
+
+    private final LocalTime sleepStart = LocalTime.of(23, 15);
+    private final LocalTime sleepEnd = LocalTime.of(6, 45);
+
+    private DailySleepLog dailySleepLog;
+    private AvgSleepLog avgSleepLog;
+    private AvgSleepLogResponse avgSleepLogResponse;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        LocalDate today = LocalDate.of(2025, 5, 15);
+        dailySleepLog = DailySleepLog.builder()
+            .id(UUID.randomUUID())
+            .userId(1L)
+            .sleepStart(LocalDateTime.of(today.minusDays(1), sleepStart))
+            .sleepEnd(LocalDateTime.of(today, sleepEnd))
+            .sleepQuality(SleepQuality.GOOD)
+            .build();
+
+        Map<SleepQuality, Integer> sleepQualityCount = new EnumMap<>(SleepQuality.class);
+        sleepQualityCount.put(SleepQuality.BAD, 3);
+        sleepQualityCount.put(SleepQuality.OK, 17);
+        sleepQualityCount.put(SleepQuality.GOOD, 10);
+        avgSleepLog = AvgSleepLog.builder()
+            .userId(1L)
+            .startDate(today.minusMonths(1))
+            .endDate(today)
+            .avgSleepStart(sleepStart)
+            .avgSleepEnd(sleepEnd)
+            .sleepQualityCount(sleepQualityCount)
+            .build();
+        avgSleepLogResponse = SleepLogResponses.toAvgLogResponseDTO(avgSleepLog);
+
+        objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @Benchmark
+    public LocalTime calculateSleepTime() {
+        return SleepLogResponses.calculateSleepTime(sleepStart, sleepEnd);
+    }
+
+    @Benchmark
+    public SleepLogResponse toLogResponseDTO() {
+        return SleepLogResponses.toLogResponseDTO(dailySleepLog);
+    }
+
+    @Benchmark
+    public AvgSleepLogResponse toAvgLogResponseDTO() {
+        return SleepLogResponses.toAvgLogResponseDTO(avgSleepLog);
+    }
+
+    @Benchmark
+    public byte[] serializeAvgSleepLogResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(avgSleepLogResponse);
+    }
+}
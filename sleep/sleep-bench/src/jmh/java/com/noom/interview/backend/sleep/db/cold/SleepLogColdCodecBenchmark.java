@@ -0,0 +1,78 @@
+package com.noom.interview.backend.sleep.db.cold;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Decode and encode throughput of a year of cold months, reported per night, with nights of varying bedtime and
+ * length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SleepLogColdCodecBenchmark {
+
+    private static final YearMonth FIRST_MONTH = YearMonth.of(2024, 6);
+    private static final int MONTHS = 12;
+    private static final int NIGHTS = 365;
+
+    private final List<List<DailySleepLog>> nights = new ArrayList<>(MONTHS);
+    private final byte[][] payloads = new byte[MONTHS][];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int month = 0; month < MONTHS; month++) {
+            YearMonth yearMonth = FIRST_MONTH.plusMonths(month);
+            List<DailySleepLog> monthNights = new ArrayList<>();
+            for (int day = 1; day <= yearMonth.lengthOfMonth(); day++) {
+                LocalDateTime start = yearMonth.atDay(day).atTime(21, 0).minusDays(1).plusMinutes(random.nextInt(240));
+                monthNights.add(DailySleepLog.builder()
+                    .id(UUID.randomUUID())
+                    .userId(1L)
+                    .sleepStart(start)
+                    .sleepEnd(start.plusMinutes(300 + random.nextInt(300)))
+                    .sleepQuality(SleepQuality.values()[random.nextInt(SleepQuality.values().length)])
+                    .build());
+            }
+            nights.add(monthNights);
+            payloads[month] = SleepLogColdCodec.encode(yearMonth, monthNights);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NIGHTS)
+    public int decode() {
+        int decoded = 0;
+        for (int month = 0; month < MONTHS; month++) {
+            decoded += SleepLogColdCodec.decode(1L, FIRST_MONTH.plusMonths(month), payloads[month]).size();
+        }
+        return decoded;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NIGHTS)
+    public int encode() {
+        int bytes = 0;
+        for (int month = 0; month < MONTHS; month++) {
+            bytes += SleepLogColdCodec.encode(FIRST_MONTH.plusMonths(month), nights.get(month)).length;
+        }
+        return bytes;
+    }
+}
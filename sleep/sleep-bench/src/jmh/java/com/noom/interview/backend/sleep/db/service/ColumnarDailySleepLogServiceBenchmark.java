@@ -0,0 +1,64 @@
+package com.noom.interview.backend.sleep.db.service;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogAggregate;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Range lookups of the last {@code logs} nights out of two years of 10,000 users, for comparison with the mapping cost
+ * alone in {@link DailySleepLogServiceImplBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ColumnarDailySleepLogServiceBenchmark {
+
+    private static final LocalDate LAST_NIGHT = LocalDate.of(2025, 5, 15);
+    private static final int USERS = 10_000;
+    private static final int NIGHTS = 730;
+
+    @Param({"1", "30", "365"})
+    private int logs;
+
+    private ColumnarDailySleepLogService service;
+
+    @Setup
+    public void setUp() {
+        service = new ColumnarDailySleepLogService();
+        for (int i = NIGHTS - 1; i >= 0; i--) {
+            LocalDate date = LAST_NIGHT.minusDays(i);
+            for (long userId = 1; userId <= USERS; userId++) {
+                service.save(DailySleepLog.builder()
+                    .userId(userId)
+                    .sleepStart(LocalDateTime.of(date.minusDays(1), LocalTime.of(23, 0)))
+                    .sleepEnd(LocalDateTime.of(date, LocalTime.of(7, 0)))
+                    .sleepQuality(SleepQuality.values()[(int) ((userId + i) % SleepQuality.values().length)])
+                    .build());
+            }
+        }
+    }
+
+    @Benchmark
+    public List<DailySleepLog> findByUserIdAndInterval() {
+        return service.findByUserIdAndInterval(1L, LAST_NIGHT.minusDays(logs).atStartOfDay(), LAST_NIGHT.atTime(LocalTime.MAX));
+    }
+
+    @Benchmark
+    public SleepLogAggregate aggregateByUserIdAndInterval() {
+        return service.aggregateByUserIdAndInterval(1L, LAST_NIGHT.minusDays(logs - 1), LAST_NIGHT);
+    }
+}
@@ -0,0 +1,118 @@
+package com.noom.interview.backend.sleep.db.service;
+
+
+import com.noom.interview.backend.sleep.config.SleepLogColdProperties;
+import com.noom.interview.backend.sleep.db.entity.DailySleepLogEntity;
+import com.noom.interview.backend.sleep.db.entity.DailySleepLogRollupEntity;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogJdbcRepository;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogRepository;
+import com.noom.interview.backend.sleep.db.repository.SleepLogColdRepository;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogColdMonth;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Entity to domain mapping on reads and domain to entity plus rollup increment mapping on batch writes, with the
+ * repositories replaced by in-memory stand-ins.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DailySleepLogServiceImplBenchmark {
+
+    private static final LocalDate LAST_NIGHT = LocalDate.of(2025, 5, 15);
+
+    @Param({"1", "30", "365"})
+    private int logs;
+
+    private DailySleepLogServiceImpl service;
+    private List<DailySleepLog> domainLogs;
+
+    @Setup
+    public void setUp() {
+        List<DailySleepLogEntity> entities = new ArrayList<>(logs);
+        domainLogs = new ArrayList<>(logs);
+        for (int i = 0; i < logs; i++) {
+            LocalDate date = LAST_NIGHT.minusDays(i);
+            LocalDateTime start = LocalDateTime.of(date.minusDays(1), LocalTime.of(23, 0));
+            LocalDateTime end = LocalDateTime.of(date, LocalTime.of(7, 0));
+            SleepQuality quality = SleepQuality.values()[i % SleepQuality.values().length];
+            entities.add(DailySleepLogEntity.builder()
+                .id(UUID.randomUUID())
+                .userId(1L)
+                .sleepStart(start)
+                .sleepEnd(end)
+                .sleepDuration(480L)
+                .sleepQuality(quality)
+                .build());
+            domainLogs.add(DailySleepLog.builder()
+                .id(UUID.randomUUID())
+                .userId(1L)
+                .sleepStart(start)
+                .sleepEnd(end)
+                .sleepQuality(quality)
+                .build());
+        }
+
+        DailySleepLogRepository repository = (DailySleepLogRepository) Proxy.newProxyInstance(
+            DailySleepLogRepository.class.getClassLoader(),
+            new Class<?>[]{DailySleepLogRepository.class},
+            (proxy, method, args) -> entities);
+        service = new DailySleepLogServiceImpl(repository, null, new DiscardingJdbcRepository(), null, new EmptyColdRepository(),
+            new SleepLogColdProperties());
+    }
+
+    @Benchmark
+    public List<DailySleepLog> findByUserIdAndInterval() {
+        return service.findByUserIdAndInterval(1L, LAST_NIGHT.minusDays(logs).atStartOfDay(), LAST_NIGHT.atTime(LocalTime.MAX));
+    }
+
+    @Benchmark
+    public List<DailySleepLog> saveAll() {
+        return service.saveAll(domainLogs);
+    }
+
+    private static class DiscardingJdbcRepository extends DailySleepLogJdbcRepository {
+
+        DiscardingJdbcRepository() {
+            super(null);
+        }
+
+        @Override
+        public void insertAll(List<DailySleepLogEntity> entities) {
+        }
+
+        @Override
+        public void addToRollups(List<DailySleepLogRollupEntity> increments) {
+        }
+    }
+
+    private static class EmptyColdRepository extends SleepLogColdRepository {
+
+        EmptyColdRepository() {
+            super(null);
+        }
+
+        @Override
+        public List<SleepLogColdMonth> findMonths(Long userId, YearMonth from, YearMonth to) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.dto.AvgSleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Aggregation of {@code days} daily rollups, one logged night per day, as served by the rollup table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GetLastXDaysBenchmark {
+
+    @Param({"7", "30", "365", "3650"})
+    private int days;
+
+    private GetLastXDays getLastXDays;
+
+    @Setup
+    public void setUp() {
+        LocalDate today = LocalDate.now();
+        List<DailySleepLogRollup> rollups = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            rollups.add(DailySleepLogRollup.builder()
+                .userId(1L)
+                .sleepDate(today.minusDays(i))
+                .logCount(1)
+                .badCount(i % 3 == 0 ? 1 : 0)
+                .okCount(i % 3 == 1 ? 1 : 0)
+                .goodCount(i % 3 == 2 ? 1 : 0)
+                .sleepStartSecondsSum(23 * 3600 - i % 60 * 60)
+                .sleepEndSecondsSum(7 * 3600 + i % 60 * 60)
+                .sleepDurationSum(480)
+                .build());
+        }
+        getLastXDays = new GetLastXDays(new InMemoryDailySleepLogService(List.of(), rollups), ReplicaReads.disabled(),
+            new SleepLogMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public AvgSleepLog execute() {
+        return getLastXDays.execute(1L, (long) days);
+    }
+}
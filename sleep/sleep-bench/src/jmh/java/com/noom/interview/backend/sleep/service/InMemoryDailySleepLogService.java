@@ -0,0 +1,66 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Answers every query with a prepared result, so the benchmarks measure the service code and not a database.
+ */
+class InMemoryDailySleepLogService implements DailySleepLogService {
+
+    private final List<DailySleepLog> logs;
+    private final List<DailySleepLogRollup> rollups;
+
+    InMemoryDailySleepLogService(List<DailySleepLog> logs, List<DailySleepLogRollup> rollups) {
+        this.logs = logs;
+        this.rollups = rollups;
+    }
+
+    @Override
+    public DailySleepLog save(DailySleepLog dailySleepLog) {
+        return dailySleepLog;
+    }
+
+    @Override
+    public List<DailySleepLog> saveAll(List<DailySleepLog> dailySleepLogs) {
+        return dailySleepLogs;
+    }
+
+    @Override
+    public List<DailySleepLog> findByUserIdAndInterval(Long userId, LocalDateTime start, LocalDateTime end) {
+        return logs;
+    }
+
+    @Override
+    public List<DailySleepLog> findPageByUserId(Long userId, LocalDateTime beforeSleepEnd, UUID beforeId, int limit) {
+        return logs.subList(0, Math.min(limit, logs.size()));
+    }
+
+    @Override
+    public void forEachByUserId(Long userId, Consumer<DailySleepLog> action) {
+        logs.forEach(action);
+    }
+
+    @Override
+    public void lockUser(Long userId) {
+    }
+
+    @Override
+    public Optional<SleepLogVersion> findUserVersion(Long userId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public List<DailySleepLogRollup> findRollupsByUserIdAndInterval(Long userId, LocalDate start, LocalDate end) {
+        return rollups;
+    }
+}
@@ -0,0 +1,69 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.OverlapEnforcement;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Overlap check of a new night against {@code candidates} stored nights, none of which overlap, so every one is compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SaveSleepLogBenchmark {
+
+    private static final LocalDate NEW_NIGHT = LocalDate.of(2025, 5, 15);
+
+    @Param({"1", "10", "1000"})
+    private int candidates;
+
+    private SaveSleepLog saveSleepLog;
+    private DailySleepLog newLog;
+
+    @Setup
+    public void setUp() {
+        List<DailySleepLog> stored = new ArrayList<>(candidates);
+        for (int i = 1; i <= candidates; i++) {
+            LocalDate date = NEW_NIGHT.minusDays(i);
+            stored.add(DailySleepLog.builder()
+                .userId(1L)
+                .sleepStart(LocalDateTime.of(date.minusDays(1), LocalTime.of(23, 0)))
+                .sleepEnd(LocalDateTime.of(date, LocalTime.of(7, 0)))
+                .sleepQuality(SleepQuality.OK)
+                .build());
+        }
+        saveSleepLog = new SaveSleepLog(new InMemoryDailySleepLogService(stored, List.of()),
+            new OverlapEnforcementPolicy(OverlapEnforcement.APPLICATION, false), null, ReplicaReads.disabled(),
+            new SleepLogMetrics(new SimpleMeterRegistry()));
+        newLog = DailySleepLog.builder()
+            .userId(1L)
+            .sleepStart(LocalDateTime.of(NEW_NIGHT.minusDays(1), LocalTime.of(23, 0)))
+            .sleepEnd(LocalDateTime.of(NEW_NIGHT, LocalTime.of(7, 0)))
+            .sleepQuality(SleepQuality.GOOD)
+            .build();
+    }
+
+    @Benchmark
+    public DailySleepLog checkOverlaps() {
+        saveSleepLog.checkOverlaps(newLog);
+        return newLog;
+    }
+}
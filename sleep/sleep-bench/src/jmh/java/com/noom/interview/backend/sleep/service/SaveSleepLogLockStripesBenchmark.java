@@ -0,0 +1,143 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import com.noom.interview.backend.sleep.enums.OverlapEnforcement;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import com.noom.interview.backend.sleep.exception.SleepLogAlreadyExistsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Throughput of 32 threads saving heavily overlapping nights of 50 users through application-enforced overlap checks,
+ * against a store answering after a simulated 200 microsecond database round trip. {@code lockStripes} 256 is the
+ * default striping, 1 a single global lock, and 0 no in-process lock at all, which stores overlaps and only serves as
+ * the upper bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+public class SaveSleepLogLockStripesBenchmark {
+
+    private static final int USERS = 50;
+    private static final LocalDate FIRST_NIGHT = LocalDate.of(2025, 5, 15);
+
+    @Param({"256", "1", "0"})
+    private int lockStripes;
+
+    private SaveSleepLog saveSleepLog;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        DailySleepLogService service = new SlowDailySleepLogService();
+        UserWriteLocks userWriteLocks = new UserWriteLocks(lockStripes, TransactionOperations.withoutTransaction(), service, false);
+        saveSleepLog = new SaveSleepLog(service, new OverlapEnforcementPolicy(OverlapEnforcement.APPLICATION, false), userWriteLocks,
+            ReplicaReads.disabled(), new SleepLogMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public boolean save() {
+        try {
+            saveSleepLog.save(randomNight());
+            return true;
+        } catch (SleepLogAlreadyExistsException e) {
+            return false;
+        }
+    }
+
+    private static DailySleepLog randomNight() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate endDate = FIRST_NIGHT.plusDays(random.nextInt(10));
+        return DailySleepLog.builder()
+            .userId((long) random.nextInt(USERS))
+            .sleepStart(LocalDateTime.of(endDate.minusDays(1), LocalTime.of(20 + random.nextInt(4), 0)))
+            .sleepEnd(LocalDateTime.of(endDate, LocalTime.of(5 + random.nextInt(4), 0)))
+            .sleepQuality(SleepQuality.OK)
+            .build();
+    }
+
+    /**
+     * Stores nights per user, parking every read and write for a database round trip.
+     */
+    private static class SlowDailySleepLogService implements DailySleepLogService {
+
+        private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+        private final Map<Long, List<DailySleepLog>> store = new ConcurrentHashMap<>();
+
+        @Override
+        public DailySleepLog save(DailySleepLog dailySleepLog) {
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            dailySleepLog.setId(UUID.randomUUID());
+            store.computeIfAbsent(dailySleepLog.getUserId(), userId -> new CopyOnWriteArrayList<>()).add(dailySleepLog);
+            return dailySleepLog;
+        }
+
+        @Override
+        public List<DailySleepLog> saveAll(List<DailySleepLog> dailySleepLogs) {
+            dailySleepLogs.forEach(this::save);
+            return dailySleepLogs;
+        }
+
+        @Override
+        public List<DailySleepLog> findByUserIdAndInterval(Long userId, LocalDateTime start, LocalDateTime end) {
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            return store.getOrDefault(userId, List.of()).stream()
+                .filter(log -> !log.getSleepEnd().isBefore(start) && !log.getSleepEnd().isAfter(end))
+                .toList();
+        }
+
+        @Override
+        public List<DailySleepLog> findPageByUserId(Long userId, LocalDateTime beforeSleepEnd, UUID beforeId, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public void forEachByUserId(Long userId, Consumer<DailySleepLog> action) {
+            store.getOrDefault(userId, List.of()).forEach(action);
+        }
+
+        @Override
+        public void lockUser(Long userId) {
+        }
+
+        @Override
+        public Optional<SleepLogVersion> findUserVersion(Long userId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<DailySleepLogRollup> findRollupsByUserIdAndInterval(Long userId, LocalDate start, LocalDate end) {
+            return List.of();
+        }
+    }
+}
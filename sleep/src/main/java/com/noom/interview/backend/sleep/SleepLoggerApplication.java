@@ -2,12 +2,16 @@ package com.noom.interview.backend.sleep;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class SleepLoggerApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(SleepLoggerApplication.class, args);
     }
 
-}
\ No newline at end of file
+}
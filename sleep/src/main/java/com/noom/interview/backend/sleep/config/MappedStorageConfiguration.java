@@ -0,0 +1,23 @@
+package com.noom.interview.backend.sleep.config;
+
+import com.noom.interview.backend.sleep.db.mapped.SleepLogSegmentStore;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * The mmap-storage profile keeps sleep logs in {@link SleepLogSegmentStore} segment files on local disk instead of
+ * Postgres.
+ */
+@Configuration
+@Profile("mmap-storage")
+public class MappedStorageConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public SleepLogSegmentStore sleepLogSegmentStore(SleepLogMmapProperties properties) throws IOException {
+        return new SleepLogSegmentStore(Path.of(properties.getDirectory()), properties.getSegmentRecords(),
+            properties.getCompactAfterSegments(), properties.isForceOnWrite());
+    }
+}
@@ -0,0 +1,27 @@
+package com.noom.interview.backend.sleep.config;
+
+import com.noom.interview.backend.sleep.enums.OverlapEnforcement;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * The no-database profile, grouped into every profile that serves sleep logs without Postgres. There is nothing for a
+ * transaction to span and no exclusion constraint or advisory lock behind the overlap check, so writes run outside
+ * transactions and overlaps are always checked in the application.
+ */
+@Configuration
+@Profile("no-database")
+public class NoDatabaseConfiguration {
+
+    @Bean
+    public OverlapEnforcementPolicy overlapEnforcementPolicy() {
+        return new OverlapEnforcementPolicy(OverlapEnforcement.APPLICATION, false);
+    }
+
+    @Bean
+    public TransactionOperations transactionOperations() {
+        return TransactionOperations.withoutTransaction();
+    }
+}
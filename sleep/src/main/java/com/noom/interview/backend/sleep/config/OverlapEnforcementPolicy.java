@@ -0,0 +1,88 @@
+package com.noom.interview.backend.sleep.config;
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.OverlapEnforcement;
+import java.sql.DatabaseMetaData;
+import java.time.YearMonth;
+import java.util.Collection;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides who rejects overlapping nights. On Postgres AUTO means DATABASE: daily_sleep_log is partitioned by month and
+ * each partition carries its own exclusion constraint, so a save is a single insert. The constraints cannot compare
+ * nights in different partitions, but a night lasts less than a day, so two nights can only overlap across partitions
+ * when both lie within a day of the same month start; those still run the read-before-write check in SaveSleepLog
+ * under the per-user advisory lock. Elsewhere (H2 in tests) every save is checked in the application.
+ */
+@Component
+@Profile("!no-database")
+public class OverlapEnforcementPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(OverlapEnforcementPolicy.class);
+
+    private final OverlapEnforcement enforcement;
+    private final boolean advisoryLocks;
+
+    @Autowired
+    public OverlapEnforcementPolicy(SleepLogWriteProperties properties, DataSource dataSource) {
+        boolean postgres = isPostgres(dataSource);
+        this.enforcement = properties.getOverlapEnforcement() == OverlapEnforcement.AUTO
+            ? postgres ? OverlapEnforcement.DATABASE : OverlapEnforcement.APPLICATION
+            : properties.getOverlapEnforcement();
+        this.advisoryLocks = postgres;
+        log.info("Sleep log overlaps are enforced by the {}", enforcement == OverlapEnforcement.DATABASE ? "database" : "application");
+    }
+
+    public OverlapEnforcementPolicy(OverlapEnforcement enforcement, boolean advisoryLocks) {
+        this.enforcement = enforcement;
+        this.advisoryLocks = advisoryLocks;
+    }
+
+    public OverlapEnforcement getEnforcement() {
+        return enforcement;
+    }
+
+    private boolean checksInApplication() {
+        return enforcement == OverlapEnforcement.APPLICATION;
+    }
+
+    /**
+     * Whether saving the log needs the read-before-write check: always with APPLICATION enforcement, and with DATABASE
+     * enforcement when the log could overlap a night in the neighbouring partition.
+     */
+    public boolean checksInApplication(DailySleepLog dailySleepLog) {
+        return checksInApplication() || mayOverlapAcrossPartitions(dailySleepLog);
+    }
+
+    public boolean checksInApplication(Collection<DailySleepLog> dailySleepLogs) {
+        return checksInApplication() || dailySleepLogs.stream().anyMatch(OverlapEnforcementPolicy::mayOverlapAcrossPartitions);
+    }
+
+    /**
+     * A night overlapping one in another monthly partition either starts in the month before it ends, or ends less
+     * than a day before the next month starts, where such a night can reach back to it.
+     */
+    static boolean mayOverlapAcrossPartitions(DailySleepLog dailySleepLog) {
+        return !YearMonth.from(dailySleepLog.getSleepStart()).equals(YearMonth.from(dailySleepLog.getSleepEnd().plusDays(1)));
+    }
+
+    public boolean usesAdvisoryLocks() {
+        return advisoryLocks;
+    }
+
+    private static boolean isPostgres(DataSource dataSource) {
+        try {
+            return "PostgreSQL".equals(JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+        } catch (MetaDataAccessException e) {
+            log.warn("Could not detect the database product, assuming it is not PostgreSQL", e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.noom.interview.backend.sleep.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Connection pool for the non-blocking read path. The pool is deliberately not exposed as a {@link ConnectionFactory}
+ * bean: Spring Boot backs off the JDBC DataSource (and with it JPA and the write path) as soon as one exists. It
+ * connects to one database, so startup fails when sharding or replicas are enabled as well.
+ */
+@Configuration
+@Profile("r2dbc-reads")
+public class R2dbcReadConfiguration implements DisposableBean {
+
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient readDatabaseClient(SleepLogR2dbcProperties properties, SleepLogShardingProperties shardingProperties,
+                                             SleepLogReplicaProperties replicaProperties) {
+        if (shardingProperties.isEnabled() || replicaProperties.isEnabled()) {
+            throw new IllegalStateException("The r2dbc-reads profile reads from the single sleep-log.r2dbc.url and cannot be combined with "
+                + "sleep-log.sharding.enabled or sleep-log.replicas.enabled");
+        }
+        ConnectionFactory connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(properties.getUrl())
+            .mutate()
+            .option(ConnectionFactoryOptions.USER, properties.getUsername())
+            .option(ConnectionFactoryOptions.PASSWORD, properties.getPassword())
+            .build());
+
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+            .initialSize(properties.getInitialPoolSize())
+            .maxSize(properties.getMaxPoolSize())
+            .maxIdleTime(properties.getMaxIdleTime())
+            .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.noom.interview.backend.sleep.config;
+
+import com.noom.interview.backend.sleep.db.shard.ShardContext;
+import com.noom.interview.backend.sleep.db.shard.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Replaces the single DataSource with one routing to the configured shards by {@link ShardContext}, and runs the
+ * Flyway migrations against every shard instead of only the default one.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "sleep-log.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardingConfiguration.class);
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(SleepLogShardingProperties properties) {
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        for (SleepLogShardingProperties.Shard shard : properties.getShards()) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("shard-" + shard.getName());
+            dataSource.setJdbcUrl(shard.getUrl());
+            dataSource.setUsername(shard.getUsername());
+            dataSource.setPassword(shard.getPassword());
+            dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+            shards.put(shard.getName(), dataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    public FlywayMigrationStrategy shardFlywayMigrationStrategy(ShardRoutingDataSource dataSource) {
+        return flyway -> dataSource.getShards().forEach((name, shard) -> {
+            log.info("Migrating shard {}", name);
+            Flyway.configure().configuration(flyway.getConfiguration()).dataSource(shard).load().migrate();
+        });
+    }
+
+    @Bean
+    public TaskDecorator shardContextTaskDecorator() {
+        return ShardContext::propagate;
+    }
+}
@@ -0,0 +1,18 @@
+package com.noom.interview.backend.sleep.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.cache")
+public class SleepLogCacheProperties {
+
+    private boolean enabled = true;
+
+    private int hotWindowDays = 7;
+
+    private long maximumUsers = 100_000;
+
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+}
@@ -0,0 +1,27 @@
+package com.noom.interview.backend.sleep.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.cold")
+public class SleepLogColdProperties {
+
+    /**
+     * Turns on the nightly compaction and the cold month lookups of every read. Keep it on while any month is
+     * compacted, or those nights disappear from history, export and the overlap checks.
+     */
+    private boolean enabled = false;
+
+    private String cron = "0 0 4 * * *";
+
+    /**
+     * A month is compacted once all of it is at least this many days old.
+     */
+    private int afterDays = 90;
+
+    /**
+     * User months packed per transaction.
+     */
+    private int monthsPerTransaction = 500;
+}
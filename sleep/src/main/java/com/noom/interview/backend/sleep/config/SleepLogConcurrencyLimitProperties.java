@@ -0,0 +1,20 @@
+package com.noom.interview.backend.sleep.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.concurrency-limit")
+public class SleepLogConcurrencyLimitProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Requests allowed to work against the database at once; 0 sizes the limit to the Hikari pool, which
+     * needs a single pool: set it explicitly with sharding or replicas.
+     */
+    private int permits = 0;
+
+    private Duration acquireTimeout = Duration.ofSeconds(2);
+}
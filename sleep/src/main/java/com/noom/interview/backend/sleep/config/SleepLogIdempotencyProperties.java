@@ -0,0 +1,34 @@
+package com.noom.interview.backend.sleep.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.idempotency")
+public class SleepLogIdempotencyProperties {
+
+    private boolean enabled = true;
+
+    private long maximumKeys = 100_000;
+
+    private Duration ttl = Duration.ofHours(24);
+
+    /**
+     * How long a duplicate waits for the in-flight request holding its key before it is answered with 409.
+     */
+    private Duration inFlightTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Also keeps responses in sleep_log_idempotency_key, so replays survive restarts and reach other instances.
+     */
+    private boolean database = false;
+
+    /**
+     * How long a key stays claimed in sleep_log_idempotency_key without a response, after which a retry may run it
+     * again, e.g. when the instance running the request went down.
+     */
+    private Duration claimTimeout = Duration.ofMinutes(1);
+
+    private String purgeCron = "0 */15 * * * *";
+}
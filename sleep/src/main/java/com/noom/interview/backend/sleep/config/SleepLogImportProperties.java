@@ -0,0 +1,16 @@
+package com.noom.interview.backend.sleep.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.import")
+public class SleepLogImportProperties {
+
+    private int chunkSize = 50_000;
+
+    /**
+     * The most users whose rows are loaded in one transaction, each holding a user lock and an advisory lock.
+     */
+    private int usersPerTransaction = 100;
+}
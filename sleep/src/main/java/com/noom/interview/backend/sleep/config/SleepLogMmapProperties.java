@@ -0,0 +1,29 @@
+package com.noom.interview.backend.sleep.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.mmap")
+public class SleepLogMmapProperties {
+
+    private String directory = "data/sleep-log";
+
+    /**
+     * Records per segment file, 64 bytes each.
+     */
+    private int segmentRecords = 1 << 20;
+
+    /**
+     * Sealed segments merged together by a compaction.
+     */
+    private int compactAfterSegments = 4;
+
+    private Duration compactionInterval = Duration.ofMinutes(1);
+
+    /**
+     * Flushes every record to disk before the write returns, instead of leaving it to the page cache.
+     */
+    private boolean forceOnWrite = false;
+}
@@ -0,0 +1,22 @@
+package com.noom.interview.backend.sleep.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.partitions")
+public class SleepLogPartitionProperties {
+
+    private boolean enabled = true;
+
+    private int monthsAhead = 3;
+
+    /**
+     * Months of partitions kept before the current one; 0 keeps everything.
+     */
+    private int retentionMonths = 0;
+
+    private boolean dropExpired = false;
+
+    private String maintenanceCron = "0 0 3 * * *";
+}
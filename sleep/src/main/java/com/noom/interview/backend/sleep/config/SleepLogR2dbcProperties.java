@@ -0,0 +1,22 @@
+package com.noom.interview.backend.sleep.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.r2dbc")
+public class SleepLogR2dbcProperties {
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    private int initialPoolSize = 2;
+
+    private int maxPoolSize = 10;
+
+    private Duration maxIdleTime = Duration.ofMinutes(30);
+}
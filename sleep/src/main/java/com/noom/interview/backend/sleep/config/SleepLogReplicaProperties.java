@@ -0,0 +1,43 @@
+package com.noom.interview.backend.sleep.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.replicas")
+public class SleepLogReplicaProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * How long after a save the user's reads on the same instance stay on the primary. Keep it above {@code maxLag}.
+     * Reads on other instances rely on the write position the save answers with.
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    /**
+     * Replicas lagging further behind, or whose lag cannot be read, get no reads until they catch up.
+     */
+    private Duration maxLag = Duration.ofSeconds(2);
+
+    private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+
+        private String name;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+    }
+}
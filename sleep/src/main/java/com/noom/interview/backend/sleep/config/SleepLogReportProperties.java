@@ -0,0 +1,28 @@
+package com.noom.interview.backend.sleep.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.report")
+public class SleepLogReportProperties {
+
+    private boolean enabled = false;
+
+    private String cron = "0 30 2 * * *";
+
+    /**
+     * Ranges scanned at once, each holding a connection of the shared pool for its whole scan; keep it well below
+     * the pool size.
+     */
+    private int parallelism = 2;
+
+    /**
+     * Users in the range a single worker scans.
+     */
+    private long chunkSize = 10_000;
+
+    private int windowDays = 30;
+
+    private int fetchSize = 1_000;
+}
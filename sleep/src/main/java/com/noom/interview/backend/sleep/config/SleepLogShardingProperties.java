@@ -0,0 +1,50 @@
+package com.noom.interview.backend.sleep.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.sharding")
+public class SleepLogShardingProperties {
+
+    private boolean enabled = false;
+
+    private int virtualNodes = 128;
+
+    /**
+     * How long a user's cached shard is trusted before it is looked up again; must stay below {@code purgeDelay}.
+     */
+    private Duration placementRefresh = Duration.ofSeconds(30);
+
+    private long placementCacheSize = 100_000;
+
+    /**
+     * How long a moved user's rows stay on the old shard, so replicas whose cached placement has not expired yet still
+     * read a complete history from there.
+     */
+    private Duration purgeDelay = Duration.ofMinutes(5);
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+
+        private String name;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+
+        /**
+         * A shard being added: migrated and a move target, but only on the ring once the flag is dropped.
+         */
+        private boolean joining = false;
+    }
+}
@@ -0,0 +1,33 @@
+package com.noom.interview.backend.sleep.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.write-behind")
+public class SleepLogWriteBehindProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Queues users are hashed to, each drained by its own writer thread.
+     */
+    private int queues = 4;
+
+    private int queueCapacity = 10_000;
+
+    private int maxBatchSize = 500;
+
+    /**
+     * How long a writer waits for a batch to fill once its first log arrived.
+     */
+    private Duration maxBatchDelay = Duration.ofMillis(5);
+
+    /**
+     * How long a save waits for its group commit before it is answered as rejected.
+     */
+    private Duration commitTimeout = Duration.ofSeconds(10);
+
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+}
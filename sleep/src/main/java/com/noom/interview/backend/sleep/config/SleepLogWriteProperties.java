@@ -0,0 +1,14 @@
+package com.noom.interview.backend.sleep.config;
+
+import com.noom.interview.backend.sleep.enums.OverlapEnforcement;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "sleep-log.write")
+public class SleepLogWriteProperties {
+
+    private OverlapEnforcement overlapEnforcement = OverlapEnforcement.AUTO;
+
+    private int lockStripes = 256;
+}
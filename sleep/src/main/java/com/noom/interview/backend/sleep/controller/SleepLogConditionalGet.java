@@ -0,0 +1,89 @@
+package com.noom.interview.backend.sleep.controller;
+
+
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.Optional;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+/**
+ * Validators for the per-user reads. Both change with the user's data version and with the date, since the read
+ * windows move at midnight even when no log changes. Responses are private and must be revalidated on every use.
+ */
+final class SleepLogConditionalGet {
+
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+    private static final String VARY = "userId, numberOfDays";
+
+    private SleepLogConditionalGet() {
+    }
+
+    /**
+     * Sets the caching headers and, when the request's validators still match, answers 304.
+     */
+    static boolean notModified(ServletWebRequest request, SleepLogVersion version, Object... variant) {
+        Validators validators = validators(version, variant);
+        HttpServletResponse response = request.getResponse();
+        if (Objects.nonNull(response)) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+            response.setHeader(HttpHeaders.VARY, VARY);
+        }
+        return request.checkNotModified(validators.etag(), validators.lastModified().toEpochMilli());
+    }
+
+    /**
+     * The same check for router functions: a 304 with the caching headers when the request's validators still match.
+     */
+    static Optional<ServerResponse> notModified(ServerRequest request, SleepLogVersion version, Object... variant) {
+        Validators validators = validators(version, variant);
+        return request.checkNotModified(validators.lastModified(), validators.etag())
+            .map(notModified -> ServerResponse.from(notModified)
+                .header(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL)
+                .header(HttpHeaders.VARY, VARY)
+                .build());
+    }
+
+    /**
+     * A 200 carrying the validators and caching headers, for a read that {@link #notModified(ServerRequest, SleepLogVersion, Object...)}
+     * let through.
+     */
+    static ServerResponse.BodyBuilder ok(SleepLogVersion version, Object... variant) {
+        Validators validators = validators(version, variant);
+        return ServerResponse.ok()
+            .eTag(validators.etag())
+            .lastModified(validators.lastModified())
+            .header(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL)
+            .header(HttpHeaders.VARY, VARY);
+    }
+
+    private static Validators validators(SleepLogVersion version, Object... variant) {
+        LocalDate today = LocalDate.now();
+        StringBuilder etag = new StringBuilder("W/\"")
+            .append(version.getUserId()).append('-')
+            .append(version.getVersion()).append('-')
+            .append(today);
+        for (Object part : variant) {
+            etag.append('-').append(part);
+        }
+        etag.append('"');
+
+        LocalDateTime lastModified = today.atStartOfDay();
+        if (Objects.nonNull(version.getModifiedAt()) && version.getModifiedAt().isAfter(lastModified)) {
+            lastModified = version.getModifiedAt();
+        }
+        return new Validators(etag.toString(), lastModified.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private record Validators(String etag, Instant lastModified) {
+    }
+}
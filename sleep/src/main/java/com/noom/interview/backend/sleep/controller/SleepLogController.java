@@ -1,118 +1,265 @@
 package com.noom.interview.backend.sleep.controller;
 
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noom.interview.backend.sleep.controller.filter.IdempotencyKeyFilter;
+import com.noom.interview.backend.sleep.controller.model.request.AddSleepLogBatchRequest;
 import com.noom.interview.backend.sleep.controller.model.request.AddSleepLogRequest;
+import com.noom.interview.backend.sleep.controller.model.request.SleepLogStatsBatchRequest;
 import com.noom.interview.backend.sleep.controller.model.response.AvgSleepLogResponse;
+import com.noom.interview.backend.sleep.controller.model.response.SleepLogBatchItemResponse;
+import com.noom.interview.backend.sleep.controller.model.response.SleepLogBatchResponse;
+import com.noom.interview.backend.sleep.controller.model.response.SleepLogHistoryItemResponse;
+import com.noom.interview.backend.sleep.controller.model.response.SleepLogHistoryResponse;
 import com.noom.interview.backend.sleep.controller.model.response.SleepLogResponse;
+import com.noom.interview.backend.sleep.controller.model.response.SleepLogStatsResponse;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
 import com.noom.interview.backend.sleep.dto.AvgSleepLog;
 import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogBatchItem;
+import com.noom.interview.backend.sleep.dto.SleepLogPage;
+import com.noom.interview.backend.sleep.enums.SleepLogBatchItemStatus;
+import com.noom.interview.backend.sleep.enums.SleepLogExportFormat;
+import com.noom.interview.backend.sleep.service.DailySleepLogFactory;
+import com.noom.interview.backend.sleep.service.ExportSleepLogs;
 import com.noom.interview.backend.sleep.service.GetLastSleep;
 import com.noom.interview.backend.sleep.service.GetLastXDays;
+import com.noom.interview.backend.sleep.service.GetSleepLogHistory;
+import com.noom.interview.backend.sleep.service.GetSleepLogIfModified;
+import com.noom.interview.backend.sleep.service.GetSleepLogStatsBatch;
 import com.noom.interview.backend.sleep.service.SaveSleepLog;
+import com.noom.interview.backend.sleep.service.SaveSleepLogBatch;
+import com.noom.interview.backend.sleep.service.WriteBehindSleepLogs;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
-import java.time.Duration;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/v1/sleeplog")
 public class SleepLogController {
 
+    private static final Logger log = LoggerFactory.getLogger(SleepLogController.class);
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final String PREFER = "Prefer";
+    private static final String PREFERENCE_APPLIED = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final SaveSleepLog saveSleepLog;
     private final GetLastXDays getLastXDays;
     private final GetLastSleep getLastSleep;
+    private final SaveSleepLogBatch saveSleepLogBatch;
+    private final ExportSleepLogs exportSleepLogs;
+    private final GetSleepLogHistory getSleepLogHistory;
+    private final GetSleepLogIfModified getSleepLogIfModified;
+    private final WriteBehindSleepLogs writeBehindSleepLogs;
+    private final GetSleepLogStatsBatch getSleepLogStatsBatch;
+    private final ReplicaReads replicaReads;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * With write-behind, {@code Prefer: respond-async} answers 202 once the log is queued.
+     */
     @PostMapping
-    public ResponseEntity<SleepLogResponse> save(@RequestHeader @NotNull Long userId, @RequestBody @Valid AddSleepLogRequest request) {
-        DailySleepLog result = saveSleepLog.save(toEntityValidate(userId, request));
-        return new ResponseEntity<>(toLogResponseDTO(result), HttpStatus.OK);
+    public ResponseEntity<SleepLogResponse> save(@RequestHeader @NotNull Long userId,
+                                                 @RequestHeader(name = PREFER, required = false) String prefer,
+                                                 @RequestBody @Valid AddSleepLogRequest request, HttpServletRequest servletRequest) {
+        DailySleepLog dailySleepLog = toEntityValidate(userId, request);
+        if (!writeBehindSleepLogs.isEnabled()) {
+            return written(SleepLogResponses.toLogResponseDTO(saveSleepLog.save(dailySleepLog)));
+        }
+        if (Objects.nonNull(prefer) && prefer.contains(RESPOND_ASYNC)) {
+            CompletableFuture<DailySleepLog> write = writeBehindSleepLogs.submit(dailySleepLog)
+                .whenComplete((saved, failure) -> {
+                    if (Objects.nonNull(failure)) {
+                        log.warn("Accepted sleep log {} of user {} was not committed", dailySleepLog.getId(), userId, failure);
+                    }
+                });
+            IdempotencyKeyFilter.deferUntil(servletRequest, write);
+            return ResponseEntity.accepted()
+                .header(PREFERENCE_APPLIED, RESPOND_ASYNC)
+                .body(SleepLogResponses.toLogResponseDTO(dailySleepLog));
+        }
+        return written(SleepLogResponses.toLogResponseDTO(writeBehindSleepLogs.save(dailySleepLog)));
+    }
+
+    @PostMapping(path = "/batch")
+    public ResponseEntity<SleepLogBatchResponse> saveBatch(@RequestHeader @NotNull Long userId, @RequestBody @Valid AddSleepLogBatchRequest request) {
+        List<DailySleepLog> logs = request.getSleepLogs().stream()
+            .map(item -> toEntityValidate(userId, item))
+            .collect(Collectors.toList());
+        List<SleepLogBatchItem> result = saveSleepLogBatch.execute(userId, logs);
+        return written(toBatchResponseDTO(result));
     }
 
     @GetMapping
-    public ResponseEntity<SleepLogResponse> lastSleep(@RequestHeader @NotNull Long userId) {
-        DailySleepLog result = getLastSleep.execute(userId);
-        return new ResponseEntity<>(toLogResponseDTO(result), HttpStatus.OK);
+    public ResponseEntity<SleepLogResponse> lastSleep(@RequestHeader @NotNull Long userId, ServletWebRequest request) {
+        GetSleepLogIfModified.Result<DailySleepLog> result = getSleepLogIfModified.execute(userId,
+            version -> SleepLogConditionalGet.notModified(request, version),
+            () -> getLastSleep.execute(userId));
+        if (!result.modified()) {
+            return null;
+        }
+        return new ResponseEntity<>(SleepLogResponses.toLogResponseDTO(result.value()), HttpStatus.OK);
     }
 
     @GetMapping(path = "/last-x-days")
-    public ResponseEntity<AvgSleepLogResponse> lastXDays(@RequestHeader @NotNull Long userId, @RequestHeader @NotNull Long numberOfDays) {
-        AvgSleepLog result = getLastXDays.execute(userId, numberOfDays);
-        return new ResponseEntity<>(toAvgLogResponseDTO(result), HttpStatus.OK);
+    public ResponseEntity<AvgSleepLogResponse> lastXDays(@RequestHeader @NotNull Long userId, @RequestHeader @NotNull Long numberOfDays,
+                                                         ServletWebRequest request) {
+        GetSleepLogIfModified.Result<AvgSleepLog> result = getSleepLogIfModified.execute(userId,
+            version -> SleepLogConditionalGet.notModified(request, version, numberOfDays),
+            () -> getLastXDays.execute(userId, numberOfDays));
+        if (!result.modified()) {
+            return null;
+        }
+        return new ResponseEntity<>(SleepLogResponses.toAvgLogResponseDTO(result.value()), HttpStatus.OK);
     }
 
+    @GetMapping(path = "/history")
+    public ResponseEntity<SleepLogHistoryResponse> history(@RequestHeader @NotNull Long userId,
+                                                           @RequestParam(required = false) String before,
+                                                           @RequestParam(defaultValue = "" + GetSleepLogHistory.DEFAULT_LIMIT) int limit) {
+        SleepLogCursor cursor = Objects.isNull(before) ? null : SleepLogCursor.decode(before);
+        SleepLogPage result = getSleepLogHistory.execute(userId,
+            Objects.isNull(cursor) ? null : cursor.sleepEnd(),
+            Objects.isNull(cursor) ? null : cursor.id(),
+            limit);
+        return new ResponseEntity<>(toHistoryResponseDTO(result), HttpStatus.OK);
+    }
 
-    private DailySleepLog toEntityValidate(Long userId, AddSleepLogRequest request) {
-        LocalDate sleepDate = Objects.isNull(request.getSleepDate())
-            ? LocalDate.now()
-            : request.getSleepDate();
-
-        LocalDateTime start = getStartFromDayBefore(request, sleepDate);
-        LocalDateTime end = LocalDateTime.of(sleepDate, request.getSleepEnd());
-
-        return DailySleepLog.builder()
-            .userId(userId)
-            .sleepStart(start)
-            .sleepEnd(end)
-            .sleepQuality(request.getSleepQuality())
-            .build();
+    @GetMapping(path = "/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestHeader @NotNull Long userId,
+                                                        @RequestParam(defaultValue = "NDJSON") SleepLogExportFormat format) {
+        StreamingResponseBody body = outputStream -> exportSleepLogs.execute(userId, format, outputStream);
+        String extension = format == SleepLogExportFormat.CSV ? "csv" : "ndjson";
+        return ResponseEntity.ok()
+            .contentType(format == SleepLogExportFormat.CSV ? TEXT_CSV : MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("sleeplog-" + userId + "." + extension)
+                .build()
+                .toString())
+            .body(body);
     }
 
-    @NotNull
-    private static LocalDateTime getStartFromDayBefore(AddSleepLogRequest request, LocalDate sleepDate) {
-        return request.getSleepStart().isAfter(request.getSleepEnd())
-            ? LocalDateTime.of(sleepDate.minusDays(1), request.getSleepStart())
-            : LocalDateTime.of(sleepDate, request.getSleepStart());
+    /**
+     * Streams one NDJSON line per distinct user, each written as soon as its row is read.
+     */
+    @PostMapping(path = "/stats/batch")
+    public ResponseEntity<StreamingResponseBody> statsBatch(@RequestBody @Valid SleepLogStatsBatchRequest request) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                getSleepLogStatsBatch.execute(request.getUserIds(), request.getNumberOfDays(), stats -> {
+                    try {
+                        generator.writeObject(toStatsResponseDTO(stats));
+                        generator.writeRaw('\n');
+                        generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
     }
 
-    private SleepLogResponse toLogResponseDTO(DailySleepLog result) {
-        if(Objects.isNull(result)) {
-            return null;
+    /**
+     * A committed write's response, carrying the write position for the client to send back on its reads.
+     */
+    private <T> ResponseEntity<T> written(T body) {
+        String position = replicaReads.writePosition();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (Objects.nonNull(position)) {
+            response.header(ReplicaReads.WRITE_POSITION_HEADER, position);
         }
-        return SleepLogResponse
+        return response.body(body);
+    }
+
+    private DailySleepLog toEntityValidate(Long userId, AddSleepLogRequest request) {
+        return DailySleepLogFactory.create(userId, request.getSleepDate(), request.getSleepStart(), request.getSleepEnd(),
+            request.getSleepQuality());
+    }
+
+    private SleepLogHistoryResponse toHistoryResponseDTO(SleepLogPage result) {
+        List<SleepLogHistoryItemResponse> items = result.getSleepLogs().stream()
+            .map(item -> SleepLogHistoryItemResponse
+                .builder()
+                .id(item.getId())
+                .sleepDate(item.getSleepEnd().toLocalDate())
+                .sleepStart(item.getSleepStart().toLocalTime())
+                .sleepEnd(item.getSleepEnd().toLocalTime())
+                .sleepQuality(item.getSleepQuality())
+                .build())
+            .collect(Collectors.toList());
+        String nextCursor = result.isHasMore()
+            ? SleepLogCursor.of(result.getSleepLogs().get(result.getSleepLogs().size() - 1)).encode()
+            : null;
+
+        return SleepLogHistoryResponse
             .builder()
-            .id(result.getId())
-            .userId(result.getUserId())
-            .sleepDate(result.getSleepEnd().toLocalDate())
-            .sleepStart(result.getSleepStart().toLocalTime())
-            .sleepEnd(result.getSleepEnd().toLocalTime())
-            .sleepTime(calculateSleepTime(result.getSleepStart().toLocalTime(), result.getSleepEnd().toLocalTime()))
-            .sleepQuality(result.getSleepQuality())
+            .sleepLogs(items)
+            .nextCursor(nextCursor)
             .build();
     }
 
-    private AvgSleepLogResponse toAvgLogResponseDTO(AvgSleepLog result) {
-        if(Objects.isNull(result)) {
-            return null;
-        }
-
-        return AvgSleepLogResponse
+    private SleepLogStatsResponse toStatsResponseDTO(GetSleepLogStatsBatch.UserStats stats) {
+        return SleepLogStatsResponse
             .builder()
-            .userId(result.getUserId())
-            .observationRangeDateStart(result.getStartDate())
-            .observationRangeDateEnd(result.getEndDate())
-            .avgSleepStart(result.getAvgSleepStart())
-            .avgSleepEnd(result.getAvgSleepEnd())
-            .avgSleepTime(calculateSleepTime(result.getAvgSleepStart(), result.getAvgSleepEnd()))
-            .sleepQualityCount(result.getSleepQualityCount())
+            .userId(stats.userId())
+            .avgSleepLog(SleepLogResponses.toAvgLogResponseDTO(stats.avgSleepLog()))
+            .lastSleep(SleepLogResponses.toLogResponseDTO(stats.lastSleep()))
             .build();
     }
 
-    private LocalTime calculateSleepTime(LocalTime sleepStart, LocalTime sleepEnd) {
-        return sleepStart.isAfter(sleepEnd)
-            ? LocalTime.ofSecondOfDay( Duration.between(sleepStart, LocalTime.MAX).toSeconds() + sleepEnd.toSecondOfDay()+1 )
-            : LocalTime.ofSecondOfDay( sleepEnd.toSecondOfDay()+1 - sleepStart.toSecondOfDay() );
+    private SleepLogBatchResponse toBatchResponseDTO(List<SleepLogBatchItem> result) {
+        List<SleepLogBatchItemResponse> items = result.stream()
+            .map(item -> SleepLogBatchItemResponse
+                .builder()
+                .index(item.getIndex())
+                .status(item.getStatus())
+                .sleepLog(SleepLogResponses.toLogResponseDTO(item.getSleepLog()))
+                .error(item.getError())
+                .build())
+            .collect(Collectors.toList());
+        int saved = (int) items.stream().filter(item -> item.getStatus() == SleepLogBatchItemStatus.SAVED).count();
+
+        return SleepLogBatchResponse
+            .builder()
+            .saved(saved)
+            .conflicts(items.size() - saved)
+            .results(items)
+            .build();
     }
 }
@@ -0,0 +1,36 @@
+package com.noom.interview.backend.sleep.controller;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.exception.InvalidSleepLogCursorException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque history cursor: the (sleepEnd, id) of the last log on a page, base64url encoded.
+ */
+record SleepLogCursor(LocalDateTime sleepEnd, UUID id) {
+
+    private static final char SEPARATOR = '|';
+
+    static SleepLogCursor of(DailySleepLog dailySleepLog) {
+        return new SleepLogCursor(dailySleepLog.getSleepEnd(), dailySleepLog.getId());
+    }
+
+    static SleepLogCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            return new SleepLogCursor(LocalDateTime.parse(value.substring(0, separator)), UUID.fromString(value.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidSleepLogCursorException("Invalid cursor");
+        }
+    }
+
+    String encode() {
+        String value = sleepEnd.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
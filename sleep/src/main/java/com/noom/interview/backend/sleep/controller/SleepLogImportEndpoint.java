@@ -0,0 +1,37 @@
+package com.noom.interview.backend.sleep.controller;
+
+
+import com.noom.interview.backend.sleep.dto.SleepLogImportJob;
+import com.noom.interview.backend.sleep.enums.SleepLogImportFormat;
+import com.noom.interview.backend.sleep.service.ImportSleepLogs;
+import java.nio.file.Path;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "sleeplogimports")
+public class SleepLogImportEndpoint {
+
+    private final ImportSleepLogs importSleepLogs;
+
+    @WriteOperation
+    public SleepLogImportJob start(String path, String format) {
+        return importSleepLogs.start(Path.of(path), SleepLogImportFormat.valueOf(format.toUpperCase()));
+    }
+
+    @WriteOperation
+    public SleepLogImportJob resume(@Selector String id) {
+        return importSleepLogs.resume(UUID.fromString(id));
+    }
+
+    @ReadOperation
+    public SleepLogImportJob job(@Selector String id) {
+        return importSleepLogs.find(UUID.fromString(id)).orElse(null);
+    }
+}
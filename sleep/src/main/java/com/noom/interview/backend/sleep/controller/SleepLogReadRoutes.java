@@ -0,0 +1,126 @@
+package com.noom.interview.backend.sleep.controller;
+
+
+import com.noom.interview.backend.sleep.controller.model.response.ErrorResponse;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import com.noom.interview.backend.sleep.exception.GlobalExceptionHandler;
+import com.noom.interview.backend.sleep.exception.InvalidSleepLogCursorException;
+import com.noom.interview.backend.sleep.exception.SleepLogAlreadyExistsException;
+import com.noom.interview.backend.sleep.exception.SleepLogUserMovedException;
+import com.noom.interview.backend.sleep.exception.SleepLogWriteRejectedException;
+import com.noom.interview.backend.sleep.service.ReactiveSleepLogQueries;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves the read endpoints of {@link SleepLogController} from the R2DBC pool without holding a servlet thread while
+ * the query runs. Router functions are mapped ahead of annotated controllers, so these take over the GET routes
+ * while the write endpoints stay on the blocking path. They answer with the same validators, 304s, meters and error
+ * statuses; the single R2DBC pool cannot follow shards or replicas, see
+ * {@link com.noom.interview.backend.sleep.config.R2dbcReadConfiguration}.
+ */
+@Configuration
+@Profile("r2dbc-reads")
+@RequiredArgsConstructor
+public class SleepLogReadRoutes {
+
+    private static final Logger log = LoggerFactory.getLogger(SleepLogReadRoutes.class);
+
+    private final ReactiveSleepLogQueries queries;
+
+    @Bean
+    public RouterFunction<ServerResponse> sleepLogReadRouter() {
+        return RouterFunctions.route()
+            .GET("/v1/sleeplog", this::lastSleep)
+            .GET("/v1/sleeplog/last-x-days", this::lastXDays)
+            .build();
+    }
+
+    private ServerResponse lastSleep(ServerRequest request) {
+        Optional<Long> userId = longHeader(request, "userId");
+        if (userId.isEmpty()) {
+            return missingParameter();
+        }
+        return respond(queries.userVersion(userId.get()).flatMap(version -> SleepLogConditionalGet.notModified(request, version)
+            .map(Mono::just)
+            .orElseGet(() -> ok(queries.lastSleep(userId.get()).map(SleepLogResponses::toLogResponseDTO), version))));
+    }
+
+    private ServerResponse lastXDays(ServerRequest request) {
+        Optional<Long> userId = longHeader(request, "userId");
+        Optional<Long> numberOfDays = longHeader(request, "numberOfDays");
+        if (userId.isEmpty() || numberOfDays.isEmpty()) {
+            return missingParameter();
+        }
+        return respond(queries.userVersion(userId.get()).flatMap(version -> SleepLogConditionalGet.notModified(request, version, numberOfDays.get())
+            .map(Mono::just)
+            .orElseGet(() -> ok(queries.lastXDays(userId.get(), numberOfDays.get()).map(SleepLogResponses::toAvgLogResponseDTO),
+                version, numberOfDays.get()))));
+    }
+
+    private static Mono<ServerResponse> ok(Mono<?> body, SleepLogVersion version, Object... variant) {
+        return body
+            .map(result -> SleepLogConditionalGet.ok(version, variant).body(result))
+            .defaultIfEmpty(SleepLogConditionalGet.ok(version, variant).build());
+    }
+
+    /**
+     * Answers errors the way {@link GlobalExceptionHandler} does for the annotated controllers.
+     */
+    private static ServerResponse respond(Mono<ServerResponse> response) {
+        return ServerResponse.async(response.onErrorResume(e -> Mono.just(errorResponse(e))));
+    }
+
+    private static ServerResponse errorResponse(Throwable e) {
+        if (e instanceof SleepLogUserMovedException || e instanceof SleepLogWriteRejectedException) {
+            log.warn(e.getMessage());
+            return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage()));
+        }
+        if (e instanceof InvalidSleepLogCursorException) {
+            log.warn(e.getMessage());
+            return ServerResponse.badRequest().body(error(HttpStatus.BAD_REQUEST, e.getMessage()));
+        }
+        if (e instanceof SleepLogAlreadyExistsException) {
+            log.warn(e.getMessage());
+            return ServerResponse.status(HttpStatus.NOT_ACCEPTABLE).body(error(HttpStatus.NOT_ACCEPTABLE, e.getMessage()));
+        }
+        log.error(e.getMessage(), e);
+        return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage()));
+    }
+
+    private static Optional<Long> longHeader(ServerRequest request, String name) {
+        try {
+            return Optional.ofNullable(request.headers().firstHeader(name)).map(Long::valueOf);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static ServerResponse missingParameter() {
+        return ServerResponse.badRequest().body(error(HttpStatus.BAD_REQUEST, "Missing required parameter"));
+    }
+
+    private static ErrorResponse error(HttpStatus status, String message) {
+        return ErrorResponse.builder()
+            .timestamp(LocalDateTime.now())
+            .status(status.value())
+            .errors(List.of(message))
+            .build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.noom.interview.backend.sleep.controller;
+
+
+import com.noom.interview.backend.sleep.db.replica.ReplicaRoutingDataSource;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "sleeplogreplicas")
+@ConditionalOnExpression("${sleep-log.replicas.enabled:false} and !${sleep-log.sharding.enabled:false}")
+public class SleepLogReplicaEndpoint {
+
+    private final ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @ReadOperation
+    public Map<String, Object> replicas() {
+        return replicaRoutingDataSource.describe();
+    }
+}
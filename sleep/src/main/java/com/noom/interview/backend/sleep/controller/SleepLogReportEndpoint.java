@@ -0,0 +1,33 @@
+package com.noom.interview.backend.sleep.controller;
+
+
+import com.noom.interview.backend.sleep.db.repository.SleepLogReportRepository;
+import com.noom.interview.backend.sleep.dto.SleepLogCohortReport;
+import com.noom.interview.backend.sleep.service.BuildSleepLogPopulationReport;
+import java.time.LocalDate;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "sleeplogreports")
+public class SleepLogReportEndpoint {
+
+    private final BuildSleepLogPopulationReport buildSleepLogPopulationReport;
+    private final SleepLogReportRepository reportRepository;
+
+    @ReadOperation
+    public List<SleepLogCohortReport> report(@Selector String date) {
+        return reportRepository.findReport(LocalDate.parse(date));
+    }
+
+    @WriteOperation
+    public List<SleepLogCohortReport> build(String date) {
+        return buildSleepLogPopulationReport.execute(LocalDate.parse(date));
+    }
+}
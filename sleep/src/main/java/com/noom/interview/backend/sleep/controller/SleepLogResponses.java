@@ -0,0 +1,55 @@
+package com.noom.interview.backend.sleep.controller;
+
+
+import com.noom.interview.backend.sleep.controller.model.response.AvgSleepLogResponse;
+import com.noom.interview.backend.sleep.controller.model.response.SleepLogResponse;
+import com.noom.interview.backend.sleep.dto.AvgSleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.Objects;
+
+final class SleepLogResponses {
+
+    private SleepLogResponses() {
+    }
+
+    static SleepLogResponse toLogResponseDTO(DailySleepLog result) {
+        if(Objects.isNull(result)) {
+            return null;
+        }
+        return SleepLogResponse
+            .builder()
+            .id(result.getId())
+            .userId(result.getUserId())
+            .sleepDate(result.getSleepEnd().toLocalDate())
+            .sleepStart(result.getSleepStart().toLocalTime())
+            .sleepEnd(result.getSleepEnd().toLocalTime())
+            .sleepTime(calculateSleepTime(result.getSleepStart().toLocalTime(), result.getSleepEnd().toLocalTime()))
+            .sleepQuality(result.getSleepQuality())
+            .build();
+    }
+
+    static AvgSleepLogResponse toAvgLogResponseDTO(AvgSleepLog result) {
+        if(Objects.isNull(result)) {
+            return null;
+        }
+
+        return AvgSleepLogResponse
+            .builder()
+            .userId(result.getUserId())
+            .observationRangeDateStart(result.getStartDate())
+            .observationRangeDateEnd(result.getEndDate())
+            .avgSleepStart(result.getAvgSleepStart())
+            .avgSleepEnd(result.getAvgSleepEnd())
+            .avgSleepTime(calculateSleepTime(result.getAvgSleepStart(), result.getAvgSleepEnd()))
+            .sleepQualityCount(result.getSleepQualityCount())
+            .build();
+    }
+
+    static LocalTime calculateSleepTime(LocalTime sleepStart, LocalTime sleepEnd) {
+        return sleepStart.isAfter(sleepEnd)
+            ? LocalTime.ofSecondOfDay( Duration.between(sleepStart, LocalTime.MAX).toSeconds() + sleepEnd.toSecondOfDay()+1 )
+            : LocalTime.ofSecondOfDay( sleepEnd.toSecondOfDay()+1 - sleepStart.toSecondOfDay() );
+    }
+}
@@ -0,0 +1,30 @@
+package com.noom.interview.backend.sleep.controller;
+
+
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.service.RebuildSleepLogRollups;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "sleeplogrollups")
+public class SleepLogRollupEndpoint {
+
+    private final RebuildSleepLogRollups rebuildSleepLogRollups;
+    private final ShardRouter shardRouter;
+
+    @WriteOperation
+    public Map<String, Object> rebuild(String from, String to) {
+        LocalDate start = LocalDate.parse(from);
+        LocalDate end = LocalDate.parse(to);
+        AtomicInteger rollups = new AtomicInteger();
+        shardRouter.forEachShard(() -> rollups.addAndGet(rebuildSleepLogRollups.execute(start, end)));
+        return Map.of("from", start, "to", end, "rollups", rollups.get());
+    }
+}
@@ -0,0 +1,40 @@
+package com.noom.interview.backend.sleep.controller;
+
+
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.service.RebalanceSleepLogShards;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "sleeplogshards")
+@ConditionalOnProperty(prefix = "sleep-log.sharding", name = "enabled", havingValue = "true")
+public class SleepLogShardEndpoint {
+
+    private final ShardRouter shardRouter;
+    private final RebalanceSleepLogShards rebalanceSleepLogShards;
+
+    @ReadOperation
+    public Map<String, Object> placement(@Selector Long userId) {
+        return Map.of("userId", userId, "shard", shardRouter.shardFor(userId), "ringShard", shardRouter.ringShardFor(userId),
+            "nextRingShard", shardRouter.nextRingShardFor(userId));
+    }
+
+    @WriteOperation
+    public Map<String, Object> move(@Selector Long userId, String shard) {
+        boolean moved = rebalanceSleepLogShards.move(userId, shard);
+        return Map.of("userId", userId, "shard", shard, "moved", moved);
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebalance(String shard) {
+        return Map.of("shard", shard, "moved", rebalanceSleepLogShards.rebalance(shard));
+    }
+}
@@ -0,0 +1,148 @@
+package com.noom.interview.backend.sleep.controller.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noom.interview.backend.sleep.config.SleepLogConcurrencyLimitProperties;
+import com.noom.interview.backend.sleep.controller.model.response.ErrorResponse;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Admits at most as many sleep log requests as there are database connections. With virtual threads Tomcat no longer
+ * caps concurrency, so without this thousands of requests would queue inside Hikari and time out there instead. Runs
+ * after {@link IdempotencyKeyFilter}, so replays and duplicates waiting for an in-flight request do not hold a permit.
+ * A request that went async keeps its permit until the async processing completes.
+ */
+@Component
+@Order(DatabaseConcurrencyLimitFilter.ORDER)
+@ConditionalOnProperty(prefix = "sleep-log.concurrency-limit", name = "enabled", havingValue = "true")
+public class DatabaseConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    static final int ORDER = IdempotencyKeyFilter.ORDER + 1;
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseConcurrencyLimitFilter.class);
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final ObjectMapper objectMapper;
+
+    public DatabaseConcurrencyLimitFilter(SleepLogConcurrencyLimitProperties properties, DataSource dataSource,
+                                          ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        int size = properties.getPermits() > 0 ? properties.getPermits() : poolSize(dataSource);
+        this.permits = new Semaphore(size, true);
+        this.acquireTimeoutNanos = properties.getAcquireTimeout().toNanos();
+        this.objectMapper = objectMapper;
+
+        Gauge.builder("sleeplog.db.concurrency.available", permits, Semaphore::availablePermits).register(meterRegistry);
+        Gauge.builder("sleeplog.db.concurrency.waiting", permits, Semaphore::getQueueLength).register(meterRegistry);
+        log.info("Limiting concurrent sleep log requests to {}", size);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/v1/sleeplog");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            reject(response);
+            return;
+        }
+        AtomicBoolean held = new AtomicBoolean(true);
+        Runnable release = () -> {
+            if (held.getAndSet(false)) {
+                permits.release();
+            }
+        };
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Streamed bodies (export, stats/batch) read the database after the handler returned.
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader("Retry-After", "1");
+        objectMapper.writeValue(response.getOutputStream(), ErrorResponse.builder()
+            .timestamp(LocalDateTime.now())
+            .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+            .errors(List.of("Too many concurrent requests, retry later"))
+            .build());
+    }
+
+    private record ReleasingAsyncListener(Runnable release) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        DataSource target = dataSource;
+        while (target instanceof DelegatingDataSource delegating) {
+            target = delegating.getTargetDataSource();
+        }
+        if (target instanceof HikariDataSource hikari) {
+            return hikari.getMaximumPoolSize();
+        }
+        // Shards and replicas each have their own pool, and no single one of them bounds the requests let through.
+        throw new IllegalStateException("sleep-log.concurrency-limit.permits must be set when the DataSource is not a single Hikari pool"
+            + (target instanceof AbstractRoutingDataSource ? " (sharding or replicas are enabled)" : ""));
+    }
+}
@@ -0,0 +1,387 @@
+package com.noom.interview.backend.sleep.controller.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noom.interview.backend.sleep.config.SleepLogIdempotencyProperties;
+import com.noom.interview.backend.sleep.controller.model.response.ErrorResponse;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.repository.SleepLogIdempotencyRepository;
+import com.noom.interview.backend.sleep.db.shard.ShardContext;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.dto.IdempotentResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Honors the {@code Idempotency-Key} header on the sleep log write endpoints. The first response below 500 for a user's
+ * key, with its {@link #REPLAYED_HEADERS}, is kept for {@code ttl} in a bounded in-memory store (and in sleep_log_idempotency_key when {@code database} is set) and
+ * replayed to retries without running the request again. A duplicate arriving while the first request is still
+ * running waits for its response, also on other instances when {@code database} is set, since the key is claimed there
+ * before the request runs; a key reused with a different request is answered with 422. A response sent before its
+ * write committed, see {@link #deferUntil}, is kept only once the write succeeds.
+ */
+@Component
+@Order(IdempotencyKeyFilter.ORDER)
+@ConditionalOnProperty(prefix = "sleep-log.idempotency", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyKeyFilter extends OncePerRequestFilter {
+
+    static final int ORDER = ShardContextFilter.ORDER + 1;
+
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Set<String> WRITE_PATHS = Set.of("/v1/sleeplog", "/v1/sleeplog/batch");
+    private static final List<String> REPLAYED_HEADERS = List.of(HttpHeaders.LOCATION, HttpHeaders.RETRY_AFTER, "Preference-Applied",
+        ReplicaReads.WRITE_POSITION_HEADER);
+
+    private static final long CLAIM_POLL_MILLIS = 50;
+
+    private static final String PENDING_WRITE = IdempotencyKeyFilter.class.getName() + ".pendingWrite";
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyKeyFilter.class);
+
+    private final Cache<String, CompletableFuture<IdempotentResponse>> responses;
+    private final SleepLogIdempotencyProperties properties;
+    private final SleepLogIdempotencyRepository idempotencyRepository;
+    private final ShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyKeyFilter(SleepLogIdempotencyProperties properties, SleepLogIdempotencyRepository idempotencyRepository,
+                                ShardRouter shardRouter, ObjectMapper objectMapper) {
+        this.responses = Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumKeys())
+            .expireAfterWrite(properties.getTtl())
+            .build();
+        this.properties = properties;
+        this.idempotencyRepository = idempotencyRepository;
+        this.shardRouter = shardRouter;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Keeps the request's key pending until {@code write} completes: its response is stored if the write commits and
+     * forgotten if it fails, so a retry runs the request again instead of replaying an acknowledgement of a lost write.
+     */
+    public static void deferUntil(ServletRequest request, CompletableFuture<?> write) {
+        request.setAttribute(PENDING_WRITE, write);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+            || !WRITE_PATHS.contains(request.getRequestURI())
+            || Objects.isNull(request.getHeader(IDEMPOTENCY_KEY));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        String userId = request.getHeader("userId");
+        if (userId == null || !userId.matches("-?\\d{1,18}")) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String key = request.getHeader(IDEMPOTENCY_KEY);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            reject(response, HttpStatus.BAD_REQUEST, "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String fingerprint = fingerprint(cachedRequest);
+        String storeKey = userId + ":" + key;
+        while (true) {
+            CompletableFuture<IdempotentResponse> owned = new CompletableFuture<>();
+            CompletableFuture<IdempotentResponse> existing = responses.asMap().putIfAbsent(storeKey, owned);
+            if (Objects.isNull(existing)) {
+                execute(cachedRequest, response, filterChain, Long.valueOf(userId), key, fingerprint, owned, storeKey);
+                return;
+            }
+
+            IdempotentResponse stored;
+            try {
+                stored = existing.get(properties.getInFlightTimeout().toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                reject(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is still being processed, retry later");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            } catch (ExecutionException e) {
+                stored = null;
+            }
+            if (Objects.nonNull(stored)) {
+                replay(stored, fingerprint, response);
+                return;
+            }
+            // The request holding the key failed without a response worth keeping, so this one takes the key over.
+        }
+    }
+
+    private void execute(CachedBodyRequest request, HttpServletResponse response, FilterChain filterChain, Long userId, String key,
+                         String fingerprint, CompletableFuture<IdempotentResponse> owned, String storeKey)
+        throws ServletException, IOException {
+        IdempotentResponse stored = null;
+        boolean claimed = false;
+        boolean deferred = false;
+        try {
+            if (properties.isDatabase()) {
+                long deadline = System.nanoTime() + properties.getInFlightTimeout().toNanos();
+                while (!claimDurable(userId, key, fingerprint)) {
+                    Optional<IdempotentResponse> durable = findDurable(userId, key);
+                    if (durable.isPresent()) {
+                        stored = durable.get();
+                        replay(stored, fingerprint, response);
+                        return;
+                    }
+                    if (System.nanoTime() - deadline >= 0) {
+                        reject(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is still being processed, retry later");
+                        return;
+                    }
+                    pause();
+                }
+                claimed = true;
+            }
+
+            ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+            try {
+                filterChain.doFilter(request, cachingResponse);
+                if (cachingResponse.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                    IdempotentResponse captured = IdempotentResponse.builder()
+                        .fingerprint(fingerprint)
+                        .status(cachingResponse.getStatus())
+                        .contentType(cachingResponse.getContentType())
+                        .headers(replayedHeaders(cachingResponse))
+                        .body(cachingResponse.getContentAsByteArray())
+                        .build();
+                    if (request.getAttribute(PENDING_WRITE) instanceof CompletableFuture<?> write) {
+                        deferred = true;
+                        write.whenComplete((result, failure) -> {
+                            if (Objects.isNull(failure)) {
+                                settle(storeKey, owned, saveDurableQuietly(userId, key, captured));
+                            } else {
+                                releaseDurable(userId, key, fingerprint);
+                                settle(storeKey, owned, null);
+                            }
+                        });
+                    } else {
+                        saveDurable(userId, key, captured);
+                        stored = captured;
+                    }
+                }
+            } finally {
+                cachingResponse.copyBodyToResponse();
+            }
+        } finally {
+            if (!deferred) {
+                if (claimed && Objects.isNull(stored)) {
+                    releaseDurable(userId, key, fingerprint);
+                }
+                settle(storeKey, owned, stored);
+            }
+        }
+    }
+
+    private void settle(String storeKey, CompletableFuture<IdempotentResponse> owned, IdempotentResponse stored) {
+        if (Objects.isNull(stored)) {
+            responses.asMap().remove(storeKey, owned);
+        }
+        owned.complete(stored);
+    }
+
+    private IdempotentResponse saveDurableQuietly(Long userId, String key, IdempotentResponse stored) {
+        try {
+            saveDurable(userId, key, stored);
+        } catch (RuntimeException e) {
+            log.warn("Could not store the response for Idempotency-Key {} of user {}, keeping it in memory only", key, userId, e);
+        }
+        return stored;
+    }
+
+    private Optional<IdempotentResponse> findDurable(Long userId, String key) {
+        if (!properties.isDatabase()) {
+            return Optional.empty();
+        }
+        return ShardContext.callOn(shardRouter.shardFor(userId), () -> idempotencyRepository.findResponse(userId, key, LocalDateTime.now()));
+    }
+
+    private boolean claimDurable(Long userId, String key, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        return ShardContext.callOn(shardRouter.shardFor(userId),
+            () -> idempotencyRepository.claim(userId, key, fingerprint, now, now.plus(properties.getClaimTimeout())));
+    }
+
+    private void releaseDurable(Long userId, String key, String fingerprint) {
+        try {
+            ShardContext.runOn(shardRouter.shardFor(userId), () -> idempotencyRepository.release(userId, key, fingerprint));
+        } catch (RuntimeException e) {
+            log.warn("Could not release Idempotency-Key {} of user {}, it stays claimed until it expires", key, userId, e);
+        }
+    }
+
+    private static void pause() throws ServletException {
+        try {
+            Thread.sleep(CLAIM_POLL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException(e);
+        }
+    }
+
+    private void saveDurable(Long userId, String key, IdempotentResponse stored) {
+        if (!properties.isDatabase()) {
+            return;
+        }
+        LocalDateTime expiresAt = LocalDateTime.now().plus(properties.getTtl());
+        ShardContext.runOn(shardRouter.shardFor(userId), () -> idempotencyRepository.saveResponse(userId, key, stored, expiresAt));
+    }
+
+    private void replay(IdempotentResponse stored, String fingerprint, HttpServletResponse response) throws IOException {
+        if (!stored.getFingerprint().equals(fingerprint)) {
+            reject(response, HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used for a different request");
+            return;
+        }
+        response.setStatus(stored.getStatus());
+        if (Objects.nonNull(stored.getContentType())) {
+            response.setContentType(stored.getContentType());
+        }
+        if (Objects.nonNull(stored.getHeaders())) {
+            stored.getHeaders().forEach(response::setHeader);
+        }
+        response.setHeader(IDEMPOTENT_REPLAYED, "true");
+        response.setContentLength(stored.getBody().length);
+        response.getOutputStream().write(stored.getBody());
+    }
+
+    private static Map<String, String> replayedHeaders(HttpServletResponse response) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : REPLAYED_HEADERS) {
+            String value = response.getHeader(name);
+            if (Objects.nonNull(value)) {
+                headers.put(name, value);
+            }
+        }
+        return headers;
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String error) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ErrorResponse.builder()
+            .timestamp(LocalDateTime.now())
+            .status(status.value())
+            .errors(List.of(error))
+            .build());
+    }
+
+    private static String fingerprint(CachedBodyRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(Objects.toString(request.getHeader("Prefer"), "").getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(request.body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the body up front so it can be fingerprinted before the controller reads it again. The whole body is
+     * available at once, so a read listener is told so right away.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException | RuntimeException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                Objects.isNull(encoding) ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.noom.interview.backend.sleep.controller.filter;
+
+import com.noom.interview.backend.sleep.db.replica.ReplicaContext;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.replica.ReplicaRoutingDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Keeps a sleep log request off the replicas that have not replayed the write position its client sent back, so a
+ * user who saved through one instance reads their own night through any other. A malformed token is ignored.
+ */
+@Component
+@Order(ReplicaPositionFilter.ORDER)
+@ConditionalOnExpression("${sleep-log.replicas.enabled:false} and !${sleep-log.sharding.enabled:false}")
+public class ReplicaPositionFilter extends OncePerRequestFilter {
+
+    static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/v1/sleeplog");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        String position = request.getHeader(ReplicaReads.WRITE_POSITION_HEADER);
+        if (position == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try {
+            ReplicaContext.setMinimumPosition(ReplicaRoutingDataSource.parsePosition(position.trim()));
+        } catch (IllegalArgumentException e) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaContext.clear();
+        }
+    }
+}
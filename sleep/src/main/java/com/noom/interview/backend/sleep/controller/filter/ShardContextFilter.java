@@ -0,0 +1,52 @@
+package com.noom.interview.backend.sleep.controller.filter;
+
+import com.noom.interview.backend.sleep.db.shard.ShardContext;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Points every sleep log request at the shard of its {@code userId} header before any transaction is opened.
+ */
+@Component
+@Order(ShardContextFilter.ORDER)
+@ConditionalOnProperty(prefix = "sleep-log.sharding", name = "enabled", havingValue = "true")
+public class ShardContextFilter extends OncePerRequestFilter {
+
+    static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
+
+    private final ShardRouter shardRouter;
+
+    public ShardContextFilter(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/v1/sleeplog");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        String userId = request.getHeader("userId");
+        if (userId == null || !userId.matches("-?\\d{1,18}")) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ShardContext.set(shardRouter.shardFor(Long.valueOf(userId)));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ShardContext.clear();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.noom.interview.backend.sleep.controller.model.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddSleepLogBatchRequest {
+
+    @Valid
+    @NotEmpty(message = "sleepLogs is required")
+    @Size(max = 1000, message = "sleepLogs accepts at most 1000 entries")
+    private List<AddSleepLogRequest> sleepLogs;
+}
@@ -0,0 +1,26 @@
+package com.noom.interview.backend.sleep.controller.model.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SleepLogStatsBatchRequest {
+
+    @NotEmpty(message = "userIds is required")
+    @Size(max = 1000, message = "userIds accepts at most 1000 entries")
+    private List<@NotNull(message = "userIds must not contain null") Long> userIds;
+
+    @NotNull(message = "numberOfDays is required")
+    @Positive(message = "numberOfDays must be positive")
+    private Long numberOfDays;
+}
@@ -0,0 +1,22 @@
+package com.noom.interview.backend.sleep.controller.model.response;
+
+import com.noom.interview.backend.sleep.enums.SleepLogBatchItemStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SleepLogBatchItemResponse {
+
+    private int index;
+
+    private SleepLogBatchItemStatus status;
+
+    private SleepLogResponse sleepLog;
+
+    private String error;
+}
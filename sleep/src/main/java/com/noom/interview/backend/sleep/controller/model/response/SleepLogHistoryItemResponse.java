@@ -0,0 +1,31 @@
+package com.noom.interview.backend.sleep.controller.model.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SleepLogHistoryItemResponse {
+
+    private UUID id;
+
+    @JsonFormat(pattern = "MM/dd/yyyy")
+    private LocalDate sleepDate;
+
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime sleepStart;
+
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime sleepEnd;
+
+    private SleepQuality sleepQuality;
+}
@@ -0,0 +1,18 @@
+package com.noom.interview.backend.sleep.controller.model.response;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SleepLogHistoryResponse {
+
+    private List<SleepLogHistoryItemResponse> sleepLogs;
+
+    private String nextCursor;
+}
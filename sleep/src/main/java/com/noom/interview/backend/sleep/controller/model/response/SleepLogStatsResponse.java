@@ -0,0 +1,19 @@
+package com.noom.interview.backend.sleep.controller.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SleepLogStatsResponse {
+
+    private Long userId;
+
+    private AvgSleepLogResponse avgSleepLog;
+
+    private SleepLogResponse lastSleep;
+}
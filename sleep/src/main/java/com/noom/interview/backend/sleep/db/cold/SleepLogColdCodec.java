@@ -0,0 +1,149 @@
+package com.noom.interview.backend.sleep.db.cold;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Packs one user's month of nights (the month of their {@code sleep_end}, like the partitions) into a blob: a format
+ * byte and the night count, then per night, earliest end first, the zigzag varint minutes from the previous night's
+ * end (the start of the month for the first) to its start and the varint minutes it lasted, followed by the qualities
+ * as 2-bit ordinals, four to a byte. A typical night takes a little over four bytes.
+ * <p>
+ * Only whole-minute timestamps can be packed. Ids are not stored: a decoded night gets a version 8 UUID built from
+ * the user id, its start minute and its length, so the same night always decodes to the same id.
+ */
+public final class SleepLogColdCodec {
+
+    private static final byte FORMAT = 1;
+
+    private static final int MAX_VARINT_BYTES = 10;
+
+    private static final SleepQuality[] QUALITIES = SleepQuality.values();
+
+    private static final Comparator<DailySleepLog> BY_SLEEP_END =
+        Comparator.comparing(DailySleepLog::getSleepEnd).thenComparing(DailySleepLog::getSleepStart);
+
+    private SleepLogColdCodec() {
+    }
+
+    public static boolean isPackable(DailySleepLog dailySleepLog) {
+        return isWholeMinute(dailySleepLog.getSleepStart()) && isWholeMinute(dailySleepLog.getSleepEnd());
+    }
+
+    public static byte[] encode(YearMonth month, List<DailySleepLog> logs) {
+        DailySleepLog[] sorted = logs.toArray(DailySleepLog[]::new);
+        Arrays.sort(sorted, BY_SLEEP_END);
+
+        byte[] buffer = new byte[1 + 5 + sorted.length * 2 * MAX_VARINT_BYTES + (sorted.length + 3) / 4];
+        int position = 0;
+        buffer[position++] = FORMAT;
+        position = writeVarint(buffer, position, sorted.length);
+
+        long previousEnd = epochMinute(month.atDay(1).atStartOfDay());
+        for (DailySleepLog dailySleepLog : sorted) {
+            if (!isPackable(dailySleepLog)) {
+                throw new IllegalArgumentException("Sleep log " + dailySleepLog.getId() + " is not on whole minutes");
+            }
+            long start = epochMinute(dailySleepLog.getSleepStart());
+            long end = epochMinute(dailySleepLog.getSleepEnd());
+            position = writeVarint(buffer, position, zigzag(start - previousEnd));
+            position = writeVarint(buffer, position, end - start);
+            previousEnd = end;
+        }
+
+        for (int i = 0; i < sorted.length; i++) {
+            buffer[position + i / 4] |= (byte) (sorted[i].getSleepQuality().ordinal() << ((i % 4) * 2));
+        }
+        position += (sorted.length + 3) / 4;
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Decodes the nights of the blob, earliest end first.
+     */
+    public static List<DailySleepLog> decode(Long userId, YearMonth month, byte[] payload) {
+        if (payload.length == 0 || payload[0] != FORMAT) {
+            throw new IllegalArgumentException("Unknown cold sleep log format for user " + userId + " in " + month);
+        }
+        int[] position = {1};
+        int count = (int) readVarint(payload, position);
+        long[] starts = new long[count];
+        long[] ends = new long[count];
+        long previousEnd = epochMinute(month.atDay(1).atStartOfDay());
+        for (int i = 0; i < count; i++) {
+            starts[i] = previousEnd + unzigzag(readVarint(payload, position));
+            ends[i] = starts[i] + readVarint(payload, position);
+            previousEnd = ends[i];
+        }
+
+        int qualities = position[0];
+        List<DailySleepLog> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int quality = (payload[qualities + i / 4] >>> ((i % 4) * 2)) & 0b11;
+            logs.add(DailySleepLog.builder()
+                .id(coldId(userId, starts[i], ends[i] - starts[i]))
+                .userId(userId)
+                .sleepStart(fromEpochMinute(starts[i]))
+                .sleepEnd(fromEpochMinute(ends[i]))
+                .sleepQuality(QUALITIES[quality])
+                .build());
+        }
+        return logs;
+    }
+
+    private static UUID coldId(long userId, long startMinute, long lengthMinutes) {
+        long mostSignificant = (userId << 16) | 0x8000L;
+        long leastSignificant = 0x8000_0000_0000_0000L | ((startMinute << 24 | lengthMinutes) & 0x3FFF_FFFF_FFFF_FFFFL);
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    private static boolean isWholeMinute(LocalDateTime timestamp) {
+        return timestamp.getSecond() == 0 && timestamp.getNano() == 0;
+    }
+
+    private static long epochMinute(LocalDateTime timestamp) {
+        return Math.floorDiv(timestamp.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime fromEpochMinute(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarint(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarint(byte[] payload, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte next;
+        do {
+            next = payload[position[0]++];
+            value |= (long) (next & 0x7F) << shift;
+            shift += 7;
+        } while (next < 0);
+        return value;
+    }
+}
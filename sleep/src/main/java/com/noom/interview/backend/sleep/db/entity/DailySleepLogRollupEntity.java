@@ -0,0 +1,33 @@
+package com.noom.interview.backend.sleep.db.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Entity(name = "daily_sleep_log_rollup")
+@IdClass(DailySleepLogRollupId.class)
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySleepLogRollupEntity {
+
+    @Id
+    private Long userId;
+    @Id
+    private LocalDate sleepDate;
+    private Integer logCount;
+    private Integer badCount;
+    private Integer okCount;
+    private Integer goodCount;
+    private Long sleepStartSecondsSum;
+    private Long sleepEndSecondsSum;
+    private Long sleepDurationSum;
+    private LocalDateTime modifiedAt;
+}
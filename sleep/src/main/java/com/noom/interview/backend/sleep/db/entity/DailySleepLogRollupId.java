@@ -0,0 +1,16 @@
+package com.noom.interview.backend.sleep.db.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySleepLogRollupId implements Serializable {
+
+    private Long userId;
+    private LocalDate sleepDate;
+}
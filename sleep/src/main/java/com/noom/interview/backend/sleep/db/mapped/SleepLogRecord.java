@@ -0,0 +1,126 @@
+package com.noom.interview.backend.sleep.db.mapped;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * The fixed-width record of a segment, one cache line per night:
+ * <pre>
+ *  0 int   CRC32C of bytes 4..63
+ *  4 byte  type, 0 for a free slot
+ *  5 byte  sleep quality ordinal
+ *  8 long  user id
+ * 16 long  id, most significant bits
+ * 24 long  id, least significant bits
+ * 32 long  sleep start, microseconds since the epoch
+ * 40 long  sleep end, microseconds since the epoch
+ * 48 long  written at, milliseconds since the epoch
+ * </pre>
+ * Timestamps keep the microsecond precision of the Postgres columns. Fields are read straight out of the mapping,
+ * without copying the record first.
+ */
+public final class SleepLogRecord {
+
+    public static final int SIZE = 64;
+
+    private static final byte LOG = 1;
+
+    private static final int CRC = 0;
+    private static final int TYPE = 4;
+    private static final int QUALITY = 5;
+    private static final int USER_ID = 8;
+    private static final int ID_MOST = 16;
+    private static final int ID_LEAST = 24;
+    private static final int SLEEP_START = 32;
+    private static final int SLEEP_END = 40;
+    private static final int WRITTEN_AT = 48;
+
+    private SleepLogRecord() {
+    }
+
+    static void write(ByteBuffer buffer, int offset, DailySleepLog log, long writtenAt) {
+        buffer.put(offset + TYPE, LOG);
+        buffer.put(offset + QUALITY, (byte) log.getSleepQuality().ordinal());
+        buffer.putShort(offset + QUALITY + 1, (short) 0);
+        buffer.putLong(offset + USER_ID, log.getUserId());
+        buffer.putLong(offset + ID_MOST, log.getId().getMostSignificantBits());
+        buffer.putLong(offset + ID_LEAST, log.getId().getLeastSignificantBits());
+        buffer.putLong(offset + SLEEP_START, toMicros(log.getSleepStart()));
+        buffer.putLong(offset + SLEEP_END, toMicros(log.getSleepEnd()));
+        buffer.putLong(offset + WRITTEN_AT, writtenAt);
+        buffer.putLong(offset + WRITTEN_AT + 8, 0L);
+        buffer.putInt(offset + CRC, crc(buffer, offset));
+    }
+
+    /**
+     * Whether the slot holds a whole record. A write torn by a crash fails its checksum.
+     */
+    static boolean isValid(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + TYPE) == LOG && buffer.getInt(offset + CRC) == crc(buffer, offset);
+    }
+
+    static boolean isEmpty(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < SIZE; i += Long.BYTES) {
+            if (buffer.getLong(offset + i) != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long userId(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + USER_ID);
+    }
+
+    static long sleepEndMicros(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + SLEEP_END);
+    }
+
+    static long writtenAt(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + WRITTEN_AT);
+    }
+
+    static boolean hasId(ByteBuffer buffer, int offset, long mostSignificantBits, long leastSignificantBits) {
+        return buffer.getLong(offset + ID_MOST) == mostSignificantBits && buffer.getLong(offset + ID_LEAST) == leastSignificantBits;
+    }
+
+    static long idMost(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + ID_MOST);
+    }
+
+    static long idLeast(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + ID_LEAST);
+    }
+
+    static DailySleepLog read(ByteBuffer buffer, int offset) {
+        return DailySleepLog.builder()
+            .id(new UUID(buffer.getLong(offset + ID_MOST), buffer.getLong(offset + ID_LEAST)))
+            .userId(buffer.getLong(offset + USER_ID))
+            .sleepStart(fromMicros(buffer.getLong(offset + SLEEP_START)))
+            .sleepEnd(fromMicros(buffer.getLong(offset + SLEEP_END)))
+            .sleepQuality(SleepQuality.values()[buffer.get(offset + QUALITY)])
+            .build();
+    }
+
+    public static long toMicros(LocalDateTime dateTime) {
+        return ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), dateTime);
+    }
+
+    public static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1000,
+            ZoneOffset.UTC);
+    }
+
+    private static int crc(ByteBuffer buffer, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset + TYPE, SIZE - TYPE));
+        return (int) crc.getValue();
+    }
+}
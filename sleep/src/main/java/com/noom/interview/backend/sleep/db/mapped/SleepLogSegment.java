@@ -0,0 +1,93 @@
+package com.noom.interview.backend.sleep.db.mapped;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One segment file of {@code capacity} record slots, mapped whole. Records are appended in slot order and never
+ * changed afterwards. Opening a segment recovers its write position: the first slot that does not hold a valid record
+ * ends the segment, and whatever a torn write left behind it is cleared so that it cannot come back to life once the
+ * slot is written again.
+ */
+final class SleepLogSegment {
+
+    private final int id;
+    private final int capacity;
+    private final MappedByteBuffer buffer;
+    private int count;
+    private final int cleared;
+
+    private SleepLogSegment(int id, int capacity, MappedByteBuffer buffer) {
+        this.id = id;
+        this.capacity = capacity;
+        this.buffer = buffer;
+        while (count < capacity && SleepLogRecord.isValid(buffer, count * SleepLogRecord.SIZE)) {
+            count++;
+        }
+        int slot = count;
+        while (slot < capacity && !SleepLogRecord.isEmpty(buffer, slot * SleepLogRecord.SIZE)) {
+            buffer.put(slot * SleepLogRecord.SIZE, new byte[SleepLogRecord.SIZE]);
+            slot++;
+        }
+        this.cleared = slot - count;
+    }
+
+    static SleepLogSegment open(int id, Path path, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * SleepLogRecord.SIZE);
+            return new SleepLogSegment(id, capacity, buffer);
+        }
+    }
+
+    int id() {
+        return id;
+    }
+
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * Slots past the recovered end that held the remains of a torn write.
+     */
+    int cleared() {
+        return cleared;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    /**
+     * Writes the record to the next slot and returns the slot.
+     */
+    int append(DailySleepLog log, long writtenAt) {
+        SleepLogRecord.write(buffer, count * SleepLogRecord.SIZE, log, writtenAt);
+        return count++;
+    }
+
+    /**
+     * Copies a record of another segment as is, checksum included, and returns the slot.
+     */
+    int copy(SleepLogSegment source, int slot) {
+        buffer.put(count * SleepLogRecord.SIZE, source.buffer, slot * SleepLogRecord.SIZE, SleepLogRecord.SIZE);
+        return count++;
+    }
+
+    void force(int slot) {
+        buffer.force(slot * SleepLogRecord.SIZE, SleepLogRecord.SIZE);
+    }
+
+    void force() {
+        buffer.force();
+    }
+}
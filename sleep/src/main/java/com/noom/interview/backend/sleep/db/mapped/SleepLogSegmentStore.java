@@ -0,0 +1,477 @@
+package com.noom.interview.backend.sleep.db.mapped;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import com.noom.interview.backend.sleep.exception.SleepLogStorageException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sleep logs in append-only, memory-mapped segment files of {@link SleepLogRecord}s. Appends go to the one active
+ * segment and roll over to a new one when it is full. Each user's nights are found through an in-memory index of
+ * record positions ordered by sleep end, rebuilt on open by scanning every segment; a record that fails its checksum
+ * ends its segment, so a write torn by a crash is dropped on the next open.
+ * <p>
+ * Once {@code compactAfterSegments} segments are sealed, {@link #compact()} rewrites them into segments holding each
+ * user's nights next to each other in sleep end order, so reading a user's history touches a few pages instead of one
+ * per night. The new segments are written under temporary names and renamed into place before the old ones are
+ * deleted; a crash in between leaves the same records twice, and the second copy is skipped when the index is rebuilt.
+ */
+public class SleepLogSegmentStore implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SleepLogSegmentStore.class);
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.seg");
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final int compactAfterSegments;
+    private final boolean forceOnWrite;
+
+    private final Map<Integer, SleepLogSegment> segments = new ConcurrentHashMap<>();
+    private final Map<Long, UserIndex> users = new ConcurrentHashMap<>();
+
+    /**
+     * Held shared to resolve or add index positions and exclusively to point them at compacted segments.
+     */
+    private final ReentrantReadWriteLock positionsLock = new ReentrantReadWriteLock();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+
+    private SleepLogSegment active;
+    private int nextSegmentId;
+
+    public SleepLogSegmentStore(Path directory, int segmentRecords, int compactAfterSegments, boolean forceOnWrite) throws IOException {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.compactAfterSegments = compactAfterSegments;
+        this.forceOnWrite = forceOnWrite;
+        open();
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Integer, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.toList()) {
+                String name = path.getFileName().toString();
+                Matcher matcher = SEGMENT_FILE.matcher(name);
+                if (name.endsWith(TEMPORARY_SUFFIX)) {
+                    // The output of a compaction that did not finish; the segments it was merging are still there.
+                    Files.delete(path);
+                } else if (matcher.matches()) {
+                    files.put(Integer.parseInt(matcher.group(1)), path);
+                }
+            }
+        }
+
+        long logs = 0;
+        int cleared = 0;
+        for (Map.Entry<Integer, Path> file : files.entrySet()) {
+            SleepLogSegment segment = SleepLogSegment.open(file.getKey(), file.getValue(), segmentRecords);
+            segments.put(segment.id(), segment);
+            for (int slot = 0; slot < segment.count(); slot++) {
+                int offset = slot * SleepLogRecord.SIZE;
+                if (index(segment, slot, SleepLogRecord.writtenAt(segment.buffer(), offset))) {
+                    logs++;
+                }
+            }
+            cleared += segment.cleared();
+        }
+        nextSegmentId = files.isEmpty() ? 0 : files.lastKey() + 1;
+        active = files.isEmpty() ? newSegment(nextSegmentId++, false) : segments.get(files.lastKey());
+
+        if (cleared > 0) {
+            log.warn("Cleared {} torn sleep log records behind the last valid ones in {}", cleared, directory);
+        }
+        log.info("Opened {} sleep log segments in {} with {} logs of {} users", segments.size(), directory, logs, users.size());
+    }
+
+    /**
+     * Appends the logs in order, giving those without an id a random one.
+     */
+    public List<DailySleepLog> append(List<DailySleepLog> logs) {
+        positionsLock.readLock().lock();
+        appendLock.lock();
+        try {
+            long writtenAt = System.currentTimeMillis();
+            for (DailySleepLog dailySleepLog : logs) {
+                if (Objects.isNull(dailySleepLog.getId())) {
+                    dailySleepLog.setId(UUID.randomUUID());
+                }
+                if (active.isFull()) {
+                    rollOver();
+                }
+                int slot = active.append(dailySleepLog, writtenAt);
+                if (forceOnWrite) {
+                    active.force(slot);
+                }
+                index(active, slot, writtenAt);
+            }
+            return logs;
+        } catch (IOException e) {
+            throw new SleepLogStorageException("Could not roll over to a new sleep log segment in " + directory, e);
+        } finally {
+            appendLock.unlock();
+            positionsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The user's logs ending within {@code [fromEnd, toEnd]}, oldest end first.
+     */
+    public List<DailySleepLog> findByUserId(Long userId, LocalDateTime fromEnd, LocalDateTime toEnd) {
+        UserIndex index = users.get(userId);
+        if (Objects.isNull(index)) {
+            return new ArrayList<>();
+        }
+        return resolve(index.between(boundMicros(fromEnd), boundMicros(toEnd))).read();
+    }
+
+    /**
+     * The user's last {@code limit} logs ending at or before {@code toEnd}, or at all when it is null, oldest end
+     * first, together with every other log ending at the same time as the first of them.
+     */
+    public List<DailySleepLog> findLatestByUserId(Long userId, LocalDateTime toEnd, int limit) {
+        UserIndex index = users.get(userId);
+        if (Objects.isNull(index)) {
+            return new ArrayList<>();
+        }
+        return resolve(index.latest(Objects.isNull(toEnd) ? Long.MAX_VALUE : boundMicros(toEnd), limit)).read();
+    }
+
+    /**
+     * Hands over all the user's logs oldest end first. Records are decoded one at a time and outside any lock.
+     */
+    public void forEachByUserId(Long userId, Consumer<DailySleepLog> action) {
+        UserIndex index = users.get(userId);
+        if (Objects.nonNull(index)) {
+            resolve(index.between(Long.MIN_VALUE, Long.MAX_VALUE)).forEach(action);
+        }
+    }
+
+    /**
+     * The number of logs appended for the user and when the last one was, which survive a restart because every
+     * append adds exactly one record.
+     */
+    public Optional<SleepLogVersion> findVersion(Long userId) {
+        UserIndex index = users.get(userId);
+        if (Objects.isNull(index)) {
+            return Optional.empty();
+        }
+        synchronized (index) {
+            return Optional.of(SleepLogVersion.builder()
+                .userId(userId)
+                .version(index.version)
+                .modifiedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(index.modifiedAt), ZoneId.systemDefault()))
+                .build());
+        }
+    }
+
+    /**
+     * Merges the sealed segments once there are {@code compactAfterSegments} of them and returns how many were merged.
+     * Appends and reads carry on meanwhile, except while the index is pointed at the new segments.
+     */
+    public int compact() {
+        if (!compactionLock.tryLock()) {
+            return 0;
+        }
+        try {
+            List<SleepLogSegment> sealed;
+            appendLock.lock();
+            try {
+                sealed = segments.values().stream()
+                    .filter(segment -> segment != active)
+                    .sorted(Comparator.comparingInt(SleepLogSegment::id))
+                    .toList();
+            } finally {
+                appendLock.unlock();
+            }
+            if (sealed.size() < Math.max(compactAfterSegments, 1)) {
+                return 0;
+            }
+            Set<Integer> sealedIds = sealed.stream().map(SleepLogSegment::id).collect(Collectors.toSet());
+            LongPredicate inSealed = position -> sealedIds.contains(segmentOf(position));
+
+            // Sealed segments never change and new records only go to the active one, so the positions collected here
+            // stay in the same order within each user until they are replaced.
+            Map<Long, long[]> moving = new TreeMap<>();
+            users.forEach((userId, index) -> {
+                long[] positions = index.matching(inSealed);
+                if (positions.length > 0) {
+                    moving.put(userId, positions);
+                }
+            });
+
+            List<SleepLogSegment> compacted = new ArrayList<>();
+            Map<Long, long[]> moved = new TreeMap<>();
+            SleepLogSegment output = null;
+            for (Map.Entry<Long, long[]> user : moving.entrySet()) {
+                long[] positions = user.getValue();
+                long[] newPositions = new long[positions.length];
+                for (int i = 0; i < positions.length; i++) {
+                    if (Objects.isNull(output) || output.isFull()) {
+                        output = newSegment(newSegmentId(), true);
+                        compacted.add(output);
+                    }
+                    newPositions[i] = position(output.id(), output.copy(segments.get(segmentOf(positions[i])), slotOf(positions[i])));
+                }
+                moved.put(user.getKey(), newPositions);
+            }
+            for (SleepLogSegment segment : compacted) {
+                segment.force();
+                Files.move(temporaryPath(segment.id()), segmentPath(segment.id()), StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            positionsLock.writeLock().lock();
+            try {
+                moved.forEach((userId, newPositions) -> users.get(userId).relocate(inSealed, newPositions));
+                compacted.forEach(segment -> segments.put(segment.id(), segment));
+                sealedIds.forEach(segments::remove);
+            } finally {
+                positionsLock.writeLock().unlock();
+            }
+            // Readers still holding old records keep their mapping, which outlives the file.
+            for (Integer id : sealedIds) {
+                Files.deleteIfExists(segmentPath(id));
+            }
+
+            log.info("Compacted {} sleep log segments into {} for {} users", sealed.size(), compacted.size(), moved.size());
+            return sealed.size();
+        } catch (IOException e) {
+            throw new SleepLogStorageException("Could not compact the sleep log segments in " + directory, e);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            segments.values().forEach(SleepLogSegment::force);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Adds the record to its user's index, unless the user already has the same log, and returns whether it did.
+     */
+    private boolean index(SleepLogSegment segment, int slot, long writtenAt) {
+        int offset = slot * SleepLogRecord.SIZE;
+        long idMost = SleepLogRecord.idMost(segment.buffer(), offset);
+        long idLeast = SleepLogRecord.idLeast(segment.buffer(), offset);
+        LongPredicate sameLog = position -> {
+            SleepLogSegment other = segments.get(segmentOf(position));
+            return SleepLogRecord.hasId(other.buffer(), slotOf(position) * SleepLogRecord.SIZE, idMost, idLeast);
+        };
+        return users.computeIfAbsent(SleepLogRecord.userId(segment.buffer(), offset), userId -> new UserIndex())
+            .add(SleepLogRecord.sleepEndMicros(segment.buffer(), offset), position(segment.id(), slot), writtenAt, sameLog);
+    }
+
+    private Records resolve(long[] positions) {
+        positionsLock.readLock().lock();
+        try {
+            SleepLogSegment[] recordSegments = new SleepLogSegment[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                recordSegments[i] = segments.get(segmentOf(positions[i]));
+            }
+            return new Records(recordSegments, positions);
+        } finally {
+            positionsLock.readLock().unlock();
+        }
+    }
+
+    private void rollOver() throws IOException {
+        active.force();
+        active = newSegment(newSegmentId(), false);
+    }
+
+    private int newSegmentId() {
+        appendLock.lock();
+        try {
+            return nextSegmentId++;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private SleepLogSegment newSegment(int id, boolean temporary) throws IOException {
+        SleepLogSegment segment = SleepLogSegment.open(id, temporary ? temporaryPath(id) : segmentPath(id), segmentRecords);
+        if (!temporary) {
+            segments.put(id, segment);
+        }
+        return segment;
+    }
+
+    private Path segmentPath(int id) {
+        return directory.resolve("segment-%010d.seg".formatted(id));
+    }
+
+    private Path temporaryPath(int id) {
+        return directory.resolve("segment-%010d.seg%s".formatted(id, TEMPORARY_SUFFIX));
+    }
+
+    /**
+     * A query bound in microseconds, saturated for times like {@link LocalDateTime#MIN} that do not fit.
+     */
+    private static long boundMicros(LocalDateTime dateTime) {
+        try {
+            return SleepLogRecord.toMicros(dateTime);
+        } catch (ArithmeticException e) {
+            return dateTime.getYear() < 1970 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    private static long position(int segment, int slot) {
+        return (long) segment << 32 | slot;
+    }
+
+    private static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int slotOf(long position) {
+        return (int) position;
+    }
+
+    private record Records(SleepLogSegment[] segments, long[] positions) {
+
+        List<DailySleepLog> read() {
+            List<DailySleepLog> logs = new ArrayList<>(positions.length);
+            forEach(logs::add);
+            return logs;
+        }
+
+        void forEach(Consumer<DailySleepLog> action) {
+            for (int i = 0; i < positions.length; i++) {
+                action.accept(SleepLogRecord.read(segments[i].buffer(), slotOf(positions[i]) * SleepLogRecord.SIZE));
+            }
+        }
+    }
+
+    /**
+     * One user's record positions in sleep end order, as two parallel arrays of 16 bytes per night in all.
+     */
+    private static final class UserIndex {
+
+        private long[] ends = new long[4];
+        private long[] positions = new long[4];
+        private int size;
+        private long version;
+        private long modifiedAt;
+
+        synchronized boolean add(long end, long position, long writtenAt, LongPredicate sameLog) {
+            int at = upperBound(end);
+            for (int i = at - 1; i >= 0 && ends[i] == end; i--) {
+                if (sameLog.test(positions[i])) {
+                    return false;
+                }
+            }
+            if (size == ends.length) {
+                ends = Arrays.copyOf(ends, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            System.arraycopy(ends, at, ends, at + 1, size - at);
+            System.arraycopy(positions, at, positions, at + 1, size - at);
+            ends[at] = end;
+            positions[at] = position;
+            size++;
+            version++;
+            modifiedAt = Math.max(modifiedAt, writtenAt);
+            return true;
+        }
+
+        synchronized long[] between(long fromEnd, long toEnd) {
+            int from = lowerBound(fromEnd);
+            return Arrays.copyOfRange(positions, from, Math.max(from, upperBound(toEnd)));
+        }
+
+        synchronized long[] latest(long toEnd, int limit) {
+            int to = upperBound(toEnd);
+            int from = Math.max(0, to - limit);
+            while (from > 0 && from < to && ends[from - 1] == ends[from]) {
+                from--;
+            }
+            return Arrays.copyOfRange(positions, from, to);
+        }
+
+        synchronized long[] matching(LongPredicate filter) {
+            return Arrays.stream(positions, 0, size).filter(filter).toArray();
+        }
+
+        /**
+         * Replaces, in order, the positions passing {@code filter} with {@code newPositions}.
+         */
+        synchronized void relocate(LongPredicate filter, long[] newPositions) {
+            int next = 0;
+            for (int i = 0; i < size; i++) {
+                if (filter.test(positions[i])) {
+                    positions[i] = newPositions[next++];
+                }
+            }
+        }
+
+        private int lowerBound(long end) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ends[middle] < end) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int upperBound(long end) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ends[middle] <= end) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
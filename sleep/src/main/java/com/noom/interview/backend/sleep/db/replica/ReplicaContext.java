@@ -0,0 +1,63 @@
+package com.noom.interview.backend.sleep.db.replica;
+
+
+import java.util.function.Supplier;
+
+/**
+ * Marks read-only work on the current thread that must still see the primary, e.g. a user's reads right after a save,
+ * and the WAL position a replica must have replayed to serve the current request.
+ */
+public final class ReplicaContext {
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private static final ThreadLocal<Long> MINIMUM_POSITION = new ThreadLocal<>();
+
+    private ReplicaContext() {
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(PINNED_TO_PRIMARY.get());
+    }
+
+    public static <T> T callOnPrimary(Supplier<T> action) {
+        Boolean previous = PINNED_TO_PRIMARY.get();
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            PINNED_TO_PRIMARY.set(previous);
+        }
+    }
+
+    /**
+     * @return the WAL position the client last wrote at, or {@code null} when any healthy replica will do
+     */
+    public static Long minimumPosition() {
+        return MINIMUM_POSITION.get();
+    }
+
+    public static void setMinimumPosition(Long position) {
+        MINIMUM_POSITION.set(position);
+    }
+
+    public static void clear() {
+        MINIMUM_POSITION.remove();
+    }
+
+    /**
+     * Carries the caller's minimum position over to a task run on another thread, e.g. an async MVC response body.
+     */
+    public static Runnable propagate(Runnable task) {
+        Long position = MINIMUM_POSITION.get();
+        return () -> {
+            Long previous = MINIMUM_POSITION.get();
+            MINIMUM_POSITION.set(position);
+            try {
+                task.run();
+            } finally {
+                MINIMUM_POSITION.set(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package com.noom.interview.backend.sleep.db.replica;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noom.interview.backend.sleep.config.SleepLogReplicaProperties;
+import java.util.Collection;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs a user's queries in a read-only transaction so they can be served by a replica, unless the user saved on this
+ * instance within the read-your-writes window, in which case they stay on the primary. Saves also hand the client the
+ * primary's WAL position as a token; reads sending it back, to any instance, skip replicas that have not replayed it.
+ * Without replica routing reads run as they are.
+ */
+@Component
+public class ReplicaReads {
+
+    private static final long MAXIMUM_RECENT_WRITERS = 1_000_000;
+
+    public static final String WRITE_POSITION_HEADER = "Sleep-Log-Write-Position";
+
+    private final ReplicaRoutingDataSource replicaRouting;
+    private final TransactionOperations readOnlyTransaction;
+    private final Cache<Long, Boolean> recentWriters;
+
+    @Autowired
+    public ReplicaReads(SleepLogReplicaProperties properties, ObjectProvider<ReplicaRoutingDataSource> replicaRouting,
+                        PlatformTransactionManager transactionManager) {
+        this.replicaRouting = replicaRouting.getIfAvailable();
+        if (this.replicaRouting == null) {
+            this.readOnlyTransaction = null;
+            this.recentWriters = null;
+            return;
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        this.readOnlyTransaction = transactionTemplate;
+        this.recentWriters = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_RECENT_WRITERS)
+            .expireAfterWrite(properties.getReadYourWritesWindow())
+            .build();
+    }
+
+    private ReplicaReads() {
+        this.replicaRouting = null;
+        this.readOnlyTransaction = null;
+        this.recentWriters = null;
+    }
+
+    public static ReplicaReads disabled() {
+        return new ReplicaReads();
+    }
+
+    public void recordWrite(Long userId) {
+        if (recentWriters != null) {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * The token for a client that just wrote, to be sent back as {@link #WRITE_POSITION_HEADER} on its reads. Call it
+     * once the write has committed.
+     *
+     * @return {@code null} without replica routing
+     */
+    public String writePosition() {
+        return replicaRouting == null ? null : replicaRouting.currentPosition();
+    }
+
+    public <T> T forUser(Long userId, Supplier<T> read) {
+        if (readOnlyTransaction == null) {
+            return read.get();
+        }
+        if (recentWriters.getIfPresent(userId) != null) {
+            return ReplicaContext.callOnPrimary(() -> readOnlyTransaction.execute(status -> read.get()));
+        }
+        return readOnlyTransaction.execute(status -> read.get());
+    }
+
+    /**
+     * A read spanning several users; it stays on the primary if any of them saved within the read-your-writes window.
+     */
+    public <T> T forUsers(Collection<Long> userIds, Supplier<T> read) {
+        if (readOnlyTransaction == null) {
+            return read.get();
+        }
+        if (userIds.stream().anyMatch(userId -> recentWriters.getIfPresent(userId) != null)) {
+            return ReplicaContext.callOnPrimary(() -> readOnlyTransaction.execute(status -> read.get()));
+        }
+        return readOnlyTransaction.execute(status -> read.get());
+    }
+}
@@ -0,0 +1,182 @@
+package com.noom.interview.backend.sleep.db.replica;
+
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends connections of read-only transactions to a replica, round robin over the replicas within {@code maxLag}, and
+ * everything else to the primary. A read carrying a minimum WAL position in {@link ReplicaContext} only goes to the
+ * replicas whose replay position, as of the last lag check, has passed it, otherwise to the primary. Must sit behind a
+ * LazyConnectionDataSourceProxy: the read-only flag of a transaction is only known once it has begun, after JPA would
+ * otherwise already have fetched the connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public static final String PRIMARY = "primary";
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final String REPLICATION_LAG = """
+        SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                    ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+               END
+        """;
+
+    private static final String REPLAY_POSITION = "SELECT pg_last_wal_replay_lsn()";
+
+    private static final String CURRENT_POSITION = "SELECT pg_current_wal_lsn()";
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final Duration maxLag;
+    private final Map<String, Duration> lags = new ConcurrentHashMap<>();
+    private final Map<String, Long> replayPositions = new ConcurrentHashMap<>();
+    private volatile List<String> healthyReplicas = List.of();
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, LongAdder> routedTo = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> reasons = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.maxLag = maxLag;
+        Map<Object, Object> targets = new LinkedHashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String target;
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            target = PRIMARY;
+            count("write");
+        } else if (ReplicaContext.isPinnedToPrimary()) {
+            target = PRIMARY;
+            count("read-your-writes");
+        } else {
+            List<String> healthy = healthyReplicas;
+            List<String> candidates = caughtUp(healthy, ReplicaContext.minimumPosition());
+            if (healthy.isEmpty()) {
+                target = PRIMARY;
+                count("no-healthy-replica");
+            } else if (candidates.isEmpty()) {
+                target = PRIMARY;
+                count("read-your-writes");
+            } else {
+                target = candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+                count("replica");
+            }
+        }
+        routedTo.computeIfAbsent(target, key -> new LongAdder()).increment();
+        return target;
+    }
+
+    private List<String> caughtUp(List<String> replicas, Long minimumPosition) {
+        if (minimumPosition == null) {
+            return replicas;
+        }
+        return replicas.stream().filter(name -> replayPositions.getOrDefault(name, -1L) >= minimumPosition).toList();
+    }
+
+    /**
+     * Reads every replica's replay lag and position, and keeps only those within {@code maxLag} eligible for reads.
+     */
+    @Scheduled(fixedDelayString = "${sleep-log.replicas.lag-check-interval:PT5S}")
+    public void checkLag() {
+        List<String> healthy = new ArrayList<>();
+        replicas.forEach((name, replica) -> {
+            try {
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(replica);
+                Double seconds = jdbcTemplate.queryForObject(REPLICATION_LAG, Double.class);
+                Duration lag = Duration.ofMillis(Math.round((seconds == null ? 0 : seconds) * 1000));
+                lags.put(name, lag);
+                replayPositions.put(name, parsePosition(jdbcTemplate.queryForObject(REPLAY_POSITION, String.class)));
+                if (lag.compareTo(maxLag) <= 0) {
+                    healthy.add(name);
+                }
+            } catch (RuntimeException e) {
+                lags.remove(name);
+                replayPositions.remove(name);
+                log.warn("Could not read the replication lag of replica {}: {}", name, e.getMessage());
+            }
+        });
+        if (!healthy.equals(healthyReplicas)) {
+            log.info("Replicas serving reads: {}", healthy);
+        }
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    /**
+     * The primary's current WAL position, read after a write has committed: a replica that has replayed up to it sees
+     * the write.
+     */
+    public String currentPosition() {
+        return new JdbcTemplate(primary).queryForObject(CURRENT_POSITION, String.class);
+    }
+
+    /**
+     * Parses a {@code pg_lsn} such as {@code 16/B374D848} into a comparable number.
+     *
+     * @throws IllegalArgumentException if it is not one
+     */
+    public static long parsePosition(String lsn) {
+        int slash = lsn == null ? -1 : lsn.indexOf('/');
+        if (slash < 1 || slash == lsn.length() - 1 || slash > 9 || lsn.length() - slash > 9) {
+            throw new IllegalArgumentException("Not a WAL position: " + lsn);
+        }
+        return Long.parseLong(lsn, 0, slash, 16) << 32 | Long.parseLong(lsn, slash + 1, lsn.length(), 16);
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> replicaStates = new LinkedHashMap<>();
+        replicas.keySet().forEach(name -> {
+            Duration lag = lags.get(name);
+            replicaStates.put(name, Map.of(
+                "lagMillis", lag == null ? -1 : lag.toMillis(),
+                "servingReads", healthyReplicas.contains(name)));
+        });
+        return Map.of(
+            "maxLagMillis", maxLag.toMillis(),
+            "replicas", replicaStates,
+            "routedTo", sums(routedTo),
+            "reasons", sums(reasons));
+    }
+
+    private void count(String reason) {
+        reasons.computeIfAbsent(reason, key -> new LongAdder()).increment();
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+        Map<String, Long> sums = new LinkedHashMap<>();
+        counters.forEach((key, count) -> sums.put(key, count.sum()));
+        return sums;
+    }
+
+    @Override
+    public void close() {
+        List<DataSource> all = new ArrayList<>(replicas.values());
+        all.add(primary);
+        all.forEach(dataSource -> {
+            if (dataSource instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,240 @@
+package com.noom.interview.backend.sleep.db.repository;
+
+
+import com.noom.interview.backend.sleep.db.entity.DailySleepLogEntity;
+import com.noom.interview.backend.sleep.db.entity.DailySleepLogRollupEntity;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogAggregate;
+import com.noom.interview.backend.sleep.dto.SleepLogUserStats;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@RequiredArgsConstructor
+public class DailySleepLogJdbcRepository {
+
+    private static final String INSERT_LOG = """
+        INSERT INTO daily_sleep_log (id, user_id, sleep_start, sleep_end, sleep_duration, sleep_quality)
+        VALUES (:id, :userId, :sleepStart, :sleepEnd, :sleepDuration, :sleepQuality)
+        """;
+
+    private static final String ADD_TO_ROLLUP = """
+        INSERT INTO daily_sleep_log_rollup (user_id, sleep_date, log_count, bad_count, ok_count, good_count,
+                                            sleep_start_seconds_sum, sleep_end_seconds_sum, sleep_duration_sum)
+        VALUES (:userId, :sleepDate, :logCount, :badCount, :okCount, :goodCount,
+                :sleepStartSecondsSum, :sleepEndSecondsSum, :sleepDurationSum)
+        ON CONFLICT (user_id, sleep_date) DO UPDATE SET
+            log_count = daily_sleep_log_rollup.log_count + EXCLUDED.log_count,
+            bad_count = daily_sleep_log_rollup.bad_count + EXCLUDED.bad_count,
+            ok_count = daily_sleep_log_rollup.ok_count + EXCLUDED.ok_count,
+            good_count = daily_sleep_log_rollup.good_count + EXCLUDED.good_count,
+            sleep_start_seconds_sum = daily_sleep_log_rollup.sleep_start_seconds_sum + EXCLUDED.sleep_start_seconds_sum,
+            sleep_end_seconds_sum = daily_sleep_log_rollup.sleep_end_seconds_sum + EXCLUDED.sleep_end_seconds_sum,
+            sleep_duration_sum = daily_sleep_log_rollup.sleep_duration_sum + EXCLUDED.sleep_duration_sum,
+            modified_at = CURRENT_TIMESTAMP
+        """;
+
+    static final String AGGREGATE_ROLLUPS = """
+        SELECT COALESCE(SUM(log_count), 0) AS log_count,
+               COALESCE(SUM(bad_count), 0) AS bad_count,
+               COALESCE(SUM(ok_count), 0) AS ok_count,
+               COALESCE(SUM(good_count), 0) AS good_count,
+               COALESCE(SUM(sleep_start_seconds_sum), 0) AS sleep_start_seconds_sum,
+               COALESCE(SUM(sleep_end_seconds_sum), 0) AS sleep_end_seconds_sum
+        FROM daily_sleep_log_rollup
+        WHERE user_id = :userId AND sleep_date BETWEEN :start AND :end
+        """;
+
+    static final String USER_STATS = """
+        WITH stats AS (
+            SELECT user_id,
+                   SUM(log_count) AS log_count,
+                   SUM(bad_count) AS bad_count,
+                   SUM(ok_count) AS ok_count,
+                   SUM(good_count) AS good_count,
+                   SUM(sleep_start_seconds_sum) AS sleep_start_seconds_sum,
+                   SUM(sleep_end_seconds_sum) AS sleep_end_seconds_sum
+            FROM daily_sleep_log_rollup
+            WHERE user_id = ANY(?) AND sleep_date BETWEEN ? AND ?
+            GROUP BY user_id
+        ), last_sleep AS (
+            SELECT DISTINCT ON (user_id) user_id, id, sleep_start, sleep_end, sleep_quality
+            FROM daily_sleep_log
+            WHERE user_id = ANY(?) AND sleep_end BETWEEN ? AND ?
+            ORDER BY user_id, sleep_end DESC, id DESC
+        )
+        SELECT u.user_id,
+               COALESCE(s.log_count, 0) AS log_count,
+               COALESCE(s.bad_count, 0) AS bad_count,
+               COALESCE(s.ok_count, 0) AS ok_count,
+               COALESCE(s.good_count, 0) AS good_count,
+               COALESCE(s.sleep_start_seconds_sum, 0) AS sleep_start_seconds_sum,
+               COALESCE(s.sleep_end_seconds_sum, 0) AS sleep_end_seconds_sum,
+               l.id, l.sleep_start, l.sleep_end, l.sleep_quality
+        FROM unnest(?) AS u(user_id)
+        LEFT JOIN stats s ON s.user_id = u.user_id
+        LEFT JOIN last_sleep l ON l.user_id = u.user_id
+        ORDER BY u.user_id
+        """;
+
+    private static final String BUMP_USER_VERSION = """
+        INSERT INTO sleep_log_user_version (user_id, version, modified_at)
+        VALUES (:userId, 1, CURRENT_TIMESTAMP)
+        ON CONFLICT (user_id) DO UPDATE SET
+            version = sleep_log_user_version.version + 1,
+            modified_at = CURRENT_TIMESTAMP
+        """;
+
+    private static final String FIND_USER_VERSION = "SELECT version, modified_at FROM sleep_log_user_version WHERE user_id = :userId";
+
+    private static final String LOCK_USER = "SELECT pg_advisory_xact_lock(:namespace, :key)";
+
+    private static final String FIND_USER_SHARD = "SELECT shard FROM sleep_log_user_shard WHERE user_id = :userId";
+
+    private static final int USER_LOCK_NAMESPACE = 0x534C4F47;
+
+    private static final int USER_STATS_FETCH_SIZE = 500;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void lockUser(Long userId) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("namespace", USER_LOCK_NAMESPACE)
+            .addValue("key", Long.hashCode(userId));
+        jdbcTemplate.query(LOCK_USER, parameters, (ResultSetExtractor<Void>) resultSet -> null);
+    }
+
+    public Optional<String> findUserShard(Long userId) {
+        return jdbcTemplate.queryForList(FIND_USER_SHARD, new MapSqlParameterSource("userId", userId), String.class).stream().findFirst();
+    }
+
+    public Optional<SleepLogVersion> findUserVersion(Long userId) {
+        return jdbcTemplate.query(FIND_USER_VERSION, new MapSqlParameterSource("userId", userId), (resultSet, rowNum) -> SleepLogVersion.builder()
+            .userId(userId)
+            .version(resultSet.getLong("version"))
+            .modifiedAt(resultSet.getTimestamp("modified_at").toLocalDateTime())
+            .build()).stream().findFirst();
+    }
+
+    /**
+     * Bumps each user's version once, in user id order so concurrent multi-user writes cannot deadlock on the rows.
+     */
+    public void bumpUserVersions(Collection<Long> userIds) {
+        SqlParameterSource[] batch = new TreeSet<>(userIds).stream()
+            .map(userId -> new MapSqlParameterSource("userId", userId))
+            .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(BUMP_USER_VERSION, batch);
+    }
+
+    public SleepLogAggregate aggregateRollups(Long userId, LocalDate start, LocalDate end) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("userId", userId)
+            .addValue("start", start)
+            .addValue("end", end);
+        return jdbcTemplate.queryForObject(AGGREGATE_ROLLUPS, parameters, (resultSet, rowNum) -> SleepLogAggregate.builder()
+            .logCount(resultSet.getLong("log_count"))
+            .badCount(resultSet.getLong("bad_count"))
+            .okCount(resultSet.getLong("ok_count"))
+            .goodCount(resultSet.getLong("good_count"))
+            .sleepStartSecondsSum(resultSet.getLong("sleep_start_seconds_sum"))
+            .sleepEndSecondsSum(resultSet.getLong("sleep_end_seconds_sum"))
+            .build());
+    }
+
+    /**
+     * Reads every user's rollup totals over [start, end] and newest log ending in [lastSleepStart, lastSleepEnd] in
+     * one grouped statement, handing each row to the action as it is read. Users without logs get zero totals and no
+     * last sleep. Postgres only fetches {@code USER_STATS_FETCH_SIZE} rows at a time inside a transaction; outside one
+     * the driver buffers the whole result first, so call it within one.
+     */
+    public void streamUserStats(List<Long> userIds, LocalDate start, LocalDate end, LocalDateTime lastSleepStart,
+                                LocalDateTime lastSleepEnd, Consumer<SleepLogUserStats> action) {
+        Long[] distinctUserIds = new TreeSet<>(userIds).toArray(Long[]::new);
+        jdbcTemplate.getJdbcTemplate().query(connection -> {
+            Array ids = connection.createArrayOf("bigint", distinctUserIds);
+            PreparedStatement statement = connection.prepareStatement(USER_STATS);
+            statement.setFetchSize(USER_STATS_FETCH_SIZE);
+            statement.setArray(1, ids);
+            statement.setObject(2, start);
+            statement.setObject(3, end);
+            statement.setArray(4, ids);
+            statement.setObject(5, lastSleepStart);
+            statement.setObject(6, lastSleepEnd);
+            statement.setArray(7, ids);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> action.accept(toUserStats(resultSet)));
+    }
+
+    public void insertAll(List<DailySleepLogEntity> entities) {
+        SqlParameterSource[] batch = entities.stream()
+            .map(entity -> new MapSqlParameterSource()
+                .addValue("id", entity.getId())
+                .addValue("userId", entity.getUserId())
+                .addValue("sleepStart", entity.getSleepStart())
+                .addValue("sleepEnd", entity.getSleepEnd())
+                .addValue("sleepDuration", entity.getSleepDuration())
+                .addValue("sleepQuality", entity.getSleepQuality().ordinal()))
+            .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(INSERT_LOG, batch);
+    }
+
+    public void addToRollups(List<DailySleepLogRollupEntity> increments) {
+        SqlParameterSource[] batch = increments.stream()
+            .map(increment -> new MapSqlParameterSource()
+                .addValue("userId", increment.getUserId())
+                .addValue("sleepDate", increment.getSleepDate())
+                .addValue("logCount", increment.getLogCount())
+                .addValue("badCount", increment.getBadCount())
+                .addValue("okCount", increment.getOkCount())
+                .addValue("goodCount", increment.getGoodCount())
+                .addValue("sleepStartSecondsSum", increment.getSleepStartSecondsSum())
+                .addValue("sleepEndSecondsSum", increment.getSleepEndSecondsSum())
+                .addValue("sleepDurationSum", increment.getSleepDurationSum()))
+            .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(ADD_TO_ROLLUP, batch);
+    }
+
+    private static SleepLogUserStats toUserStats(ResultSet resultSet) throws SQLException {
+        Long userId = resultSet.getLong("user_id");
+        UUID id = resultSet.getObject("id", UUID.class);
+        DailySleepLog lastSleep = Objects.isNull(id) ? null : DailySleepLog.builder()
+            .id(id)
+            .userId(userId)
+            .sleepStart(resultSet.getObject("sleep_start", LocalDateTime.class))
+            .sleepEnd(resultSet.getObject("sleep_end", LocalDateTime.class))
+            .sleepQuality(SleepQuality.values()[resultSet.getInt("sleep_quality")])
+            .build();
+        return SleepLogUserStats.builder()
+            .userId(userId)
+            .aggregate(SleepLogAggregate.builder()
+                .logCount(resultSet.getLong("log_count"))
+                .badCount(resultSet.getLong("bad_count"))
+                .okCount(resultSet.getLong("ok_count"))
+                .goodCount(resultSet.getLong("good_count"))
+                .sleepStartSecondsSum(resultSet.getLong("sleep_start_seconds_sum"))
+                .sleepEndSecondsSum(resultSet.getLong("sleep_end_seconds_sum"))
+                .build())
+            .lastSleep(lastSleep)
+            .build();
+    }
+}
@@ -0,0 +1,117 @@
+package com.noom.interview.backend.sleep.db.repository;
+
+
+import java.sql.DatabaseMetaData;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Monthly range partitions of {@code daily_sleep_log} on {@code sleep_end}, named {@code daily_sleep_log_pYYYYMM}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DailySleepLogPartitionRepository {
+
+    private static final String PARTITION_PREFIX = "daily_sleep_log_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String IS_PARTITIONED = """
+        SELECT COUNT(*) FROM pg_partitioned_table WHERE partrelid = to_regclass('daily_sleep_log')
+        """;
+
+    private static final String CREATE_PARTITION = "SELECT daily_sleep_log_create_partition(:month)";
+
+    private static final String TRY_LOCK_MAINTENANCE = "SELECT pg_try_advisory_xact_lock(:namespace, 0)";
+
+    private static final String FIND_DEFAULT_PARTITION_MONTHS = """
+        SELECT DISTINCT CAST(date_trunc('month', sleep_end) AS DATE) AS month
+        FROM daily_sleep_log_default
+        ORDER BY month
+        """;
+
+    private static final String FIND_PARTITIONS = """
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = to_regclass('daily_sleep_log')
+          AND c.relname ~ '^daily_sleep_log_p[0-9]{6}$'
+        ORDER BY c.relname
+        """;
+
+    /**
+     * Also hard-coded in daily_sleep_log_create_partition, which refuses to run without the lock.
+     */
+    private static final int MAINTENANCE_LOCK_NAMESPACE = 0x534C5054;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    public boolean isPartitioned() {
+        if (!isPostgres()) {
+            return false;
+        }
+        Integer partitioned = jdbcTemplate.queryForObject(IS_PARTITIONED, new MapSqlParameterSource(), Integer.class);
+        return partitioned != null && partitioned > 0;
+    }
+
+    /**
+     * Takes the partition maintenance lock until the current transaction ends. Returns false when another session
+     * holds it.
+     */
+    public boolean tryLockMaintenance() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_MAINTENANCE,
+            new MapSqlParameterSource("namespace", MAINTENANCE_LOCK_NAMESPACE), Boolean.class));
+    }
+
+    /**
+     * The months of the rows that fell into the default partition for want of their own, e.g. imported history.
+     */
+    public List<YearMonth> findDefaultPartitionMonths() {
+        return jdbcTemplate.queryForList(FIND_DEFAULT_PARTITION_MONTHS, new MapSqlParameterSource(), LocalDate.class).stream()
+            .map(YearMonth::from)
+            .toList();
+    }
+
+    /**
+     * Creates the partition for the month, moving its rows out of the default partition. Returns false when it exists.
+     */
+    public boolean createMonthlyPartition(YearMonth month) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(CREATE_PARTITION,
+            new MapSqlParameterSource("month", month.atDay(1)), Boolean.class));
+    }
+
+    public List<YearMonth> findMonthlyPartitions() {
+        return jdbcTemplate.queryForList(FIND_PARTITIONS, new MapSqlParameterSource(), String.class).stream()
+            .map(name -> YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX))
+            .toList();
+    }
+
+    public void detachMonthlyPartition(YearMonth month) {
+        jdbcTemplate.getJdbcTemplate().execute("ALTER TABLE daily_sleep_log DETACH PARTITION " + partitionName(month));
+    }
+
+    public void dropDetachedPartition(YearMonth month) {
+        jdbcTemplate.getJdbcTemplate().execute("DROP TABLE IF EXISTS " + partitionName(month));
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    private boolean isPostgres() {
+        try {
+            return "PostgreSQL".equals(JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+        } catch (MetaDataAccessException e) {
+            return false;
+        }
+    }
+}
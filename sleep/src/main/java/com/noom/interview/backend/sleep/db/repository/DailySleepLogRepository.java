@@ -2,13 +2,49 @@ package com.noom.interview.backend.sleep.db.repository;
 
 
 import com.noom.interview.backend.sleep.db.entity.DailySleepLogEntity;
+import jakarta.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface DailySleepLogRepository extends JpaRepository<DailySleepLogEntity, Long> {
 
     List<DailySleepLogEntity> findByUserIdAndSleepEndBetweenOrderBySleepEndDesc(Long userId, LocalDateTime start, LocalDateTime end);
+
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<DailySleepLogEntity> streamByUserIdOrderBySleepEndAsc(Long userId);
+
+    @Query("""
+        select l.id as id, l.sleepStart as sleepStart, l.sleepEnd as sleepEnd, l.sleepQuality as sleepQuality
+        from daily_sleep_log l
+        where l.userId = :userId
+        order by l.sleepEnd desc, l.id desc
+        """)
+    List<DailySleepLogSummary> findFirstPageByUserId(@Param("userId") Long userId, Limit limit);
+
+    /**
+     * Keyset page after (sleepEnd, id), newest first; {@code sleepEnd <= :sleepEnd} bounds the index range.
+     */
+    @Query("""
+        select l.id as id, l.sleepStart as sleepStart, l.sleepEnd as sleepEnd, l.sleepQuality as sleepQuality
+        from daily_sleep_log l
+        where l.userId = :userId
+          and l.sleepEnd <= :sleepEnd
+          and (l.sleepEnd < :sleepEnd or l.id < :id)
+        order by l.sleepEnd desc, l.id desc
+        """)
+    List<DailySleepLogSummary> findPageByUserIdBefore(@Param("userId") Long userId, @Param("sleepEnd") LocalDateTime sleepEnd,
+                                                       @Param("id") UUID id, Limit limit);
 }
@@ -0,0 +1,82 @@
+package com.noom.interview.backend.sleep.db.repository;
+
+
+import com.noom.interview.backend.sleep.db.entity.DailySleepLogRollupEntity;
+import com.noom.interview.backend.sleep.db.entity.DailySleepLogRollupId;
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DailySleepLogRollupRepository extends JpaRepository<DailySleepLogRollupEntity, DailySleepLogRollupId> {
+
+    List<DailySleepLogRollupEntity> findByUserIdAndSleepDateBetweenOrderBySleepDateDesc(Long userId, LocalDate start, LocalDate end);
+
+    /**
+     * The users with nights or rollups in the range, i.e. those a rebuild of the range may change.
+     */
+    @Query(nativeQuery = true, value = """
+        SELECT user_id FROM daily_sleep_log WHERE sleep_end >= CAST(:start AS DATE) AND sleep_end < CAST(:end AS DATE) + 1
+        UNION
+        SELECT user_id FROM daily_sleep_log_rollup WHERE sleep_date BETWEEN :start AND :end
+        ORDER BY 1
+        """)
+    List<Long> findUserIdsBySleepDateBetween(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    /**
+     * Bumps the version of every user with rollups in the range, creating it for users that never had one, in user id
+     * order like {@code DailySleepLogJdbcRepository.bumpUserVersions}.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        INSERT INTO sleep_log_user_version (user_id, version, modified_at)
+        SELECT DISTINCT user_id, 1, CURRENT_TIMESTAMP FROM daily_sleep_log_rollup WHERE sleep_date BETWEEN :start AND :end
+        ORDER BY user_id
+        ON CONFLICT (user_id) DO UPDATE SET
+            version = sleep_log_user_version.version + 1,
+            modified_at = CURRENT_TIMESTAMP
+        """)
+    int bumpUserVersionsBySleepDateBetween(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM daily_sleep_log_rollup WHERE sleep_date BETWEEN :start AND :end")
+    int deleteBySleepDateBetween(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    /**
+     * Deletes a user's rollups in the range but keeps those of months packed into the cold tier, whose nights are no
+     * longer in daily_sleep_log to rebuild them from.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        DELETE FROM daily_sleep_log_rollup r
+        WHERE r.user_id = :userId AND r.sleep_date BETWEEN :start AND :end
+          AND NOT EXISTS (SELECT 1 FROM sleep_log_cold_month c
+                          WHERE c.user_id = r.user_id AND c.sleep_month = CAST(date_trunc('month', r.sleep_date) AS DATE))
+        """)
+    int deleteUncompactedByUserIdAndSleepDateBetween(@Param("userId") Long userId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        INSERT INTO daily_sleep_log_rollup (user_id, sleep_date, log_count, bad_count, ok_count, good_count,
+                                            sleep_start_seconds_sum, sleep_end_seconds_sum, sleep_duration_sum)
+        SELECT user_id,
+               sleep_date,
+               COUNT(*),
+               COUNT(*) FILTER (WHERE sleep_quality = 0),
+               COUNT(*) FILTER (WHERE sleep_quality = 1),
+               COUNT(*) FILTER (WHERE sleep_quality = 2),
+               SUM(CAST(FLOOR(EXTRACT(EPOCH FROM CAST(sleep_start AS TIME))) AS BIGINT)),
+               SUM(CAST(FLOOR(EXTRACT(EPOCH FROM CAST(sleep_end AS TIME))) AS BIGINT)),
+               SUM(sleep_duration)
+        FROM daily_sleep_log l
+        WHERE user_id = :userId AND sleep_end >= CAST(:start AS DATE) AND sleep_end < CAST(:end AS DATE) + 1
+          AND NOT EXISTS (SELECT 1 FROM sleep_log_cold_month c
+                          WHERE c.user_id = l.user_id AND c.sleep_month = CAST(date_trunc('month', l.sleep_end) AS DATE))
+        GROUP BY user_id, sleep_date
+        """)
+    int insertFromLogsByUserIdAndSleepDateBetween(@Param("userId") Long userId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+}
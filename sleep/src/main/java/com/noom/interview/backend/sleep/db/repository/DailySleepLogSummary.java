@@ -0,0 +1,17 @@
+package com.noom.interview.backend.sleep.db.repository;
+
+
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface DailySleepLogSummary {
+
+    UUID getId();
+
+    LocalDateTime getSleepStart();
+
+    LocalDateTime getSleepEnd();
+
+    SleepQuality getSleepQuality();
+}
@@ -0,0 +1,170 @@
+package com.noom.interview.backend.sleep.db.repository;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogColdMonth;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The cold tier: per user and month of {@code sleep_end}, the nights packed into one {@code sleep_log_cold_month} row,
+ * and the hot {@code daily_sleep_log} rows the compactor moves there. Only whole-minute rows are compacted; others
+ * stay hot.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SleepLogColdRepository {
+
+    private static final String WHOLE_MINUTES =
+        "sleep_start = date_trunc('minute', sleep_start) AND sleep_end = date_trunc('minute', sleep_end)";
+
+    private static final String FIND_COMPACTABLE_MONTHS = """
+        SELECT DISTINCT l.user_id, CAST(date_trunc('month', l.sleep_end) AS DATE) AS sleep_month
+        FROM daily_sleep_log l
+        WHERE l.sleep_end < :before
+          AND %s
+          AND NOT EXISTS (SELECT 1 FROM sleep_log_user_shard s WHERE s.user_id = l.user_id AND s.shard <> :shard)
+        ORDER BY l.user_id, sleep_month
+        LIMIT :limit
+        """.formatted(WHOLE_MINUTES);
+
+    private static final String FIND_HOT_LOGS = """
+        SELECT id, user_id, sleep_start, sleep_end, sleep_quality
+        FROM daily_sleep_log
+        WHERE user_id = :userId AND sleep_end >= :from AND sleep_end < :to AND %s
+        """.formatted(WHOLE_MINUTES);
+
+    private static final String DELETE_HOT_LOGS = """
+        DELETE FROM daily_sleep_log
+        WHERE user_id = :userId AND sleep_end >= :from AND sleep_end < :to AND id IN (:ids)
+        """;
+
+    private static final String COLUMNS = "user_id, sleep_month, log_count, first_sleep_start, last_sleep_end, payload";
+
+    private static final String FIND_MONTHS = """
+        SELECT %s FROM sleep_log_cold_month
+        WHERE user_id = :userId AND sleep_month BETWEEN :from AND :to
+        ORDER BY sleep_month
+        """.formatted(COLUMNS);
+
+    private static final String FIND_MONTHS_THROUGH = """
+        SELECT %s FROM sleep_log_cold_month
+        WHERE user_id = :userId AND sleep_month <= :through
+        ORDER BY sleep_month DESC
+        LIMIT :limit
+        """.formatted(COLUMNS);
+
+    private static final String FIND_ALL_MONTHS = "SELECT " + COLUMNS + " FROM sleep_log_cold_month WHERE user_id = :userId ORDER BY sleep_month";
+
+    private static final String UPSERT_MONTH = """
+        INSERT INTO sleep_log_cold_month (user_id, sleep_month, log_count, first_sleep_start, last_sleep_end, payload)
+        VALUES (:userId, :month, :logCount, :firstSleepStart, :lastSleepEnd, :payload)
+        ON CONFLICT (user_id, sleep_month) DO UPDATE SET
+            log_count = EXCLUDED.log_count,
+            first_sleep_start = EXCLUDED.first_sleep_start,
+            last_sleep_end = EXCLUDED.last_sleep_end,
+            payload = EXCLUDED.payload,
+            compacted_at = CURRENT_TIMESTAMP
+        """;
+
+    private static final String DELETE_MONTH = "DELETE FROM sleep_log_cold_month WHERE sleep_month = :month";
+
+    private static final RowMapper<SleepLogColdMonth> COLD_MONTH = (resultSet, rowNum) -> SleepLogColdMonth.builder()
+        .userId(resultSet.getLong("user_id"))
+        .month(YearMonth.from(resultSet.getDate("sleep_month").toLocalDate()))
+        .logCount(resultSet.getInt("log_count"))
+        .firstSleepStart(resultSet.getTimestamp("first_sleep_start").toLocalDateTime())
+        .lastSleepEnd(resultSet.getTimestamp("last_sleep_end").toLocalDateTime())
+        .payload(resultSet.getBytes("payload"))
+        .build();
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * User months with hot whole-minute rows ending before {@code before}, leaving out users moved away from
+     * {@code shard}, whose copy here only awaits its purge.
+     */
+    public List<UserMonth> findCompactableMonths(String shard, LocalDateTime before, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("shard", shard)
+            .addValue("before", before)
+            .addValue("limit", limit);
+        return jdbcTemplate.query(FIND_COMPACTABLE_MONTHS, parameters, (resultSet, rowNum) ->
+            new UserMonth(resultSet.getLong("user_id"), YearMonth.from(resultSet.getDate("sleep_month").toLocalDate())));
+    }
+
+    public List<DailySleepLog> findHotLogs(Long userId, YearMonth month) {
+        return jdbcTemplate.query(FIND_HOT_LOGS, monthParameters(userId, month), (resultSet, rowNum) -> DailySleepLog.builder()
+            .id(resultSet.getObject("id", UUID.class))
+            .userId(resultSet.getLong("user_id"))
+            .sleepStart(resultSet.getTimestamp("sleep_start").toLocalDateTime())
+            .sleepEnd(resultSet.getTimestamp("sleep_end").toLocalDateTime())
+            .sleepQuality(SleepQuality.values()[resultSet.getInt("sleep_quality")])
+            .build());
+    }
+
+    public int deleteHotLogs(Long userId, YearMonth month, Collection<UUID> ids) {
+        return jdbcTemplate.update(DELETE_HOT_LOGS, monthParameters(userId, month).addValue("ids", ids));
+    }
+
+    public Optional<SleepLogColdMonth> findMonth(Long userId, YearMonth month) {
+        return findMonths(userId, month, month).stream().findFirst();
+    }
+
+    public List<SleepLogColdMonth> findMonths(Long userId, YearMonth from, YearMonth to) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("userId", userId)
+            .addValue("from", from.atDay(1))
+            .addValue("to", to.atDay(1));
+        return jdbcTemplate.query(FIND_MONTHS, parameters, COLD_MONTH);
+    }
+
+    /**
+     * Up to {@code limit} of the user's months up to and including {@code through}, newest first.
+     */
+    public List<SleepLogColdMonth> findMonthsThrough(Long userId, YearMonth through, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("userId", userId)
+            .addValue("through", through.atDay(1))
+            .addValue("limit", limit);
+        return jdbcTemplate.query(FIND_MONTHS_THROUGH, parameters, COLD_MONTH);
+    }
+
+    public List<SleepLogColdMonth> findAllMonths(Long userId) {
+        return jdbcTemplate.query(FIND_ALL_MONTHS, new MapSqlParameterSource("userId", userId), COLD_MONTH);
+    }
+
+    public void saveMonth(SleepLogColdMonth coldMonth) {
+        jdbcTemplate.update(UPSERT_MONTH, new MapSqlParameterSource()
+            .addValue("userId", coldMonth.getUserId())
+            .addValue("month", coldMonth.getMonth().atDay(1))
+            .addValue("logCount", coldMonth.getLogCount())
+            .addValue("firstSleepStart", coldMonth.getFirstSleepStart())
+            .addValue("lastSleepEnd", coldMonth.getLastSleepEnd())
+            .addValue("payload", coldMonth.getPayload()));
+    }
+
+    public int deleteMonth(YearMonth month) {
+        return jdbcTemplate.update(DELETE_MONTH, new MapSqlParameterSource("month", month.atDay(1)));
+    }
+
+    private static MapSqlParameterSource monthParameters(Long userId, YearMonth month) {
+        return new MapSqlParameterSource()
+            .addValue("userId", userId)
+            .addValue("from", month.atDay(1).atStartOfDay())
+            .addValue("to", month.plusMonths(1).atDay(1).atStartOfDay());
+    }
+
+    public record UserMonth(Long userId, YearMonth month) {
+    }
+}
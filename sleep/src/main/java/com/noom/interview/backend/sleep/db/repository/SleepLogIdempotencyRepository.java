@@ -0,0 +1,139 @@
+package com.noom.interview.backend.sleep.db.repository;
+
+
+import com.noom.interview.backend.sleep.dto.IdempotentResponse;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Responses stored under an {@code Idempotency-Key}, the durable tier behind the in-memory store of
+ * {@link com.noom.interview.backend.sleep.controller.filter.IdempotencyKeyFilter}. A request claims its key with a
+ * pending row before it runs, so duplicates on any instance wait for it; the first response stored for a key wins.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SleepLogIdempotencyRepository {
+
+    private static final String FIND_RESPONSE = """
+        SELECT fingerprint, status, content_type, headers, body
+        FROM sleep_log_idempotency_key
+        WHERE user_id = :userId AND idempotency_key = :key AND status <> 0 AND expires_at > :now
+        """;
+
+    private static final String CLAIM_KEY = """
+        INSERT INTO sleep_log_idempotency_key (user_id, idempotency_key, fingerprint, status, body, expires_at)
+        VALUES (:userId, :key, :fingerprint, 0, :body, :expiresAt)
+        ON CONFLICT (user_id, idempotency_key) DO UPDATE
+        SET fingerprint = EXCLUDED.fingerprint, status = 0, content_type = NULL, headers = NULL, body = EXCLUDED.body,
+            created_at = CURRENT_TIMESTAMP, expires_at = EXCLUDED.expires_at
+        WHERE sleep_log_idempotency_key.expires_at <= :now
+        """;
+
+    private static final String INSERT_RESPONSE = """
+        INSERT INTO sleep_log_idempotency_key (user_id, idempotency_key, fingerprint, status, content_type, headers, body, expires_at)
+        VALUES (:userId, :key, :fingerprint, :status, :contentType, :headers, :body, :expiresAt)
+        ON CONFLICT (user_id, idempotency_key) DO UPDATE
+        SET fingerprint = EXCLUDED.fingerprint, status = EXCLUDED.status, content_type = EXCLUDED.content_type,
+            headers = EXCLUDED.headers, body = EXCLUDED.body, expires_at = EXCLUDED.expires_at
+        WHERE sleep_log_idempotency_key.status = 0
+        """;
+
+    private static final String RELEASE_KEY = """
+        DELETE FROM sleep_log_idempotency_key
+        WHERE user_id = :userId AND idempotency_key = :key AND fingerprint = :fingerprint AND status = 0
+        """;
+
+    private static final String DELETE_EXPIRED = "DELETE FROM sleep_log_idempotency_key WHERE expires_at <= :now";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Optional<IdempotentResponse> findResponse(Long userId, String key, LocalDateTime now) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("userId", userId)
+            .addValue("key", key)
+            .addValue("now", now);
+        return jdbcTemplate.query(FIND_RESPONSE, parameters, (resultSet, rowNum) -> IdempotentResponse.builder()
+                .fingerprint(resultSet.getString("fingerprint"))
+                .status(resultSet.getInt("status"))
+                .contentType(resultSet.getString("content_type"))
+                .headers(parseHeaders(resultSet.getString("headers")))
+                .body(resultSet.getBytes("body"))
+                .build())
+            .stream()
+            .findFirst();
+    }
+
+    /**
+     * Inserts a pending row (status 0) for the key, or takes over an expired one. Returns whether the key was claimed;
+     * if not, another request holds it or has stored its response.
+     */
+    public boolean claim(Long userId, String key, String fingerprint, LocalDateTime now, LocalDateTime expiresAt) {
+        return jdbcTemplate.update(CLAIM_KEY, new MapSqlParameterSource()
+            .addValue("userId", userId)
+            .addValue("key", key)
+            .addValue("fingerprint", fingerprint)
+            .addValue("body", new byte[0])
+            .addValue("now", now)
+            .addValue("expiresAt", expiresAt)) > 0;
+    }
+
+    /**
+     * Deletes the key's pending row, so a retry can claim it again.
+     */
+    public void release(Long userId, String key, String fingerprint) {
+        jdbcTemplate.update(RELEASE_KEY, new MapSqlParameterSource()
+            .addValue("userId", userId)
+            .addValue("key", key)
+            .addValue("fingerprint", fingerprint));
+    }
+
+    public void saveResponse(Long userId, String key, IdempotentResponse response, LocalDateTime expiresAt) {
+        jdbcTemplate.update(INSERT_RESPONSE, new MapSqlParameterSource()
+            .addValue("userId", userId)
+            .addValue("key", key)
+            .addValue("fingerprint", response.getFingerprint())
+            .addValue("status", response.getStatus())
+            .addValue("contentType", response.getContentType())
+            .addValue("headers", formatHeaders(response.getHeaders()))
+            .addValue("body", response.getBody())
+            .addValue("expiresAt", expiresAt));
+    }
+
+    public int deleteExpired(LocalDateTime now) {
+        return jdbcTemplate.update(DELETE_EXPIRED, new MapSqlParameterSource("now", now));
+    }
+
+    /**
+     * Headers are kept one {@code Name: value} per line; header values cannot contain line breaks.
+     */
+    private static String formatHeaders(Map<String, String> headers) {
+        if (Objects.isNull(headers) || headers.isEmpty()) {
+            return null;
+        }
+        return headers.entrySet().stream()
+            .map(header -> header.getKey() + ": " + header.getValue())
+            .collect(Collectors.joining("\n"));
+    }
+
+    private static Map<String, String> parseHeaders(String headers) {
+        Map<String, String> parsed = new LinkedHashMap<>();
+        if (Objects.isNull(headers)) {
+            return parsed;
+        }
+        for (String line : headers.split("\n")) {
+            int separator = line.indexOf(": ");
+            if (separator > 0) {
+                parsed.put(line.substring(0, separator), line.substring(separator + 2));
+            }
+        }
+        return parsed;
+    }
+}
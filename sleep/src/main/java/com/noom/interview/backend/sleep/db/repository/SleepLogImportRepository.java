@@ -0,0 +1,245 @@
+package com.noom.interview.backend.sleep.db.repository;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogColdMonth;
+import com.noom.interview.backend.sleep.dto.SleepLogImportJob;
+import com.noom.interview.backend.sleep.enums.SleepLogImportFormat;
+import com.noom.interview.backend.sleep.enums.SleepLogImportStatus;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Bulk import path: rows are streamed into an unlogged staging table with COPY, overlaps are rejected set-wise and
+ * the survivors are merged into {@code daily_sleep_log} and its rollups. Must run inside a transaction so the COPY
+ * and the merge share one connection. Overlaps with cold months are found by the caller, which decodes the months
+ * whose span reaches a staged row and rejects the rows by position.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SleepLogImportRepository {
+
+    private static final String COPY_TO_STAGING = """
+        COPY sleep_log_import_staging (job_id, position, user_id, sleep_start, sleep_end, sleep_quality, sleep_duration)
+        FROM STDIN (FORMAT csv)
+        """;
+
+    private static final String REJECT_OVERLAPS = """
+        DELETE FROM sleep_log_import_staging s
+        WHERE s.job_id = :jobId
+          AND (EXISTS (SELECT 1 FROM sleep_log_import_staging e
+                       WHERE e.job_id = s.job_id
+                         AND e.user_id = s.user_id
+                         AND e.position < s.position
+                         AND tsrange(e.sleep_start, e.sleep_end, '[]') && tsrange(s.sleep_start, s.sleep_end, '[]'))
+            OR EXISTS (SELECT 1 FROM daily_sleep_log d
+                       WHERE d.user_id = s.user_id
+                         AND tsrange(d.sleep_start, d.sleep_end, '[]') && tsrange(s.sleep_start, s.sleep_end, '[]')))
+        """;
+
+    private static final String FIND_OVERLAPPING_COLD_MONTHS = """
+        SELECT c.user_id, c.sleep_month, c.log_count, c.first_sleep_start, c.last_sleep_end, c.payload
+        FROM sleep_log_cold_month c
+        WHERE EXISTS (SELECT 1 FROM sleep_log_import_staging s
+                      WHERE s.job_id = :jobId
+                        AND s.user_id = c.user_id
+                        AND tsrange(c.first_sleep_start, c.last_sleep_end, '[]') && tsrange(s.sleep_start, s.sleep_end, '[]'))
+        """;
+
+    private static final String REJECT_POSITIONS = "DELETE FROM sleep_log_import_staging WHERE job_id = :jobId AND position IN (:positions)";
+
+    private static final String MERGE_LOGS = """
+        INSERT INTO daily_sleep_log (id, user_id, sleep_start, sleep_end, sleep_quality, sleep_duration)
+        SELECT id, user_id, sleep_start, sleep_end, sleep_quality, sleep_duration
+        FROM sleep_log_import_staging
+        WHERE job_id = :jobId
+        """;
+
+    private static final String MERGE_ROLLUPS = """
+        INSERT INTO daily_sleep_log_rollup (user_id, sleep_date, log_count, bad_count, ok_count, good_count,
+                                            sleep_start_seconds_sum, sleep_end_seconds_sum, sleep_duration_sum)
+        SELECT user_id,
+               CAST(sleep_end AS DATE),
+               COUNT(*),
+               COUNT(*) FILTER (WHERE sleep_quality = 0),
+               COUNT(*) FILTER (WHERE sleep_quality = 1),
+               COUNT(*) FILTER (WHERE sleep_quality = 2),
+               SUM(CAST(FLOOR(EXTRACT(EPOCH FROM CAST(sleep_start AS TIME))) AS BIGINT)),
+               SUM(CAST(FLOOR(EXTRACT(EPOCH FROM CAST(sleep_end AS TIME))) AS BIGINT)),
+               SUM(sleep_duration)
+        FROM sleep_log_import_staging
+        WHERE job_id = :jobId
+        GROUP BY user_id, CAST(sleep_end AS DATE)
+        ON CONFLICT (user_id, sleep_date) DO UPDATE SET
+            log_count = daily_sleep_log_rollup.log_count + EXCLUDED.log_count,
+            bad_count = daily_sleep_log_rollup.bad_count + EXCLUDED.bad_count,
+            ok_count = daily_sleep_log_rollup.ok_count + EXCLUDED.ok_count,
+            good_count = daily_sleep_log_rollup.good_count + EXCLUDED.good_count,
+            sleep_start_seconds_sum = daily_sleep_log_rollup.sleep_start_seconds_sum + EXCLUDED.sleep_start_seconds_sum,
+            sleep_end_seconds_sum = daily_sleep_log_rollup.sleep_end_seconds_sum + EXCLUDED.sleep_end_seconds_sum,
+            sleep_duration_sum = daily_sleep_log_rollup.sleep_duration_sum + EXCLUDED.sleep_duration_sum,
+            modified_at = CURRENT_TIMESTAMP
+        """;
+
+    private static final String MERGE_USER_VERSIONS = """
+        INSERT INTO sleep_log_user_version (user_id, version, modified_at)
+        SELECT DISTINCT user_id, 1, CURRENT_TIMESTAMP
+        FROM sleep_log_import_staging
+        WHERE job_id = :jobId
+        ORDER BY user_id
+        ON CONFLICT (user_id) DO UPDATE SET
+            version = sleep_log_user_version.version + 1,
+            modified_at = CURRENT_TIMESTAMP
+        """;
+
+    private static final String CLEAR_STAGING = "DELETE FROM sleep_log_import_staging WHERE job_id = :jobId";
+
+    private static final String INSERT_JOB = """
+        INSERT INTO sleep_log_import_job (id, source, format, status)
+        VALUES (:id, :source, :format, :status)
+        """;
+
+    private static final String FIND_JOB = """
+        SELECT id, source, format, status, rows_read, rows_loaded, rows_rejected, error, modified_at
+        FROM sleep_log_import_job
+        WHERE id = :id
+        """;
+
+    private static final String CHECKPOINT_JOB = """
+        UPDATE sleep_log_import_job
+        SET rows_read = :rowsRead, rows_loaded = :rowsLoaded, rows_rejected = :rowsRejected, modified_at = CURRENT_TIMESTAMP
+        WHERE id = :id
+        """;
+
+    private static final String UPDATE_JOB_STATUS = """
+        UPDATE sleep_log_import_job
+        SET status = :status, error = :error, modified_at = CURRENT_TIMESTAMP
+        WHERE id = :id
+        """;
+
+    private static final RowMapper<SleepLogImportJob> JOB_ROW_MAPPER = (resultSet, rowNum) -> SleepLogImportJob.builder()
+        .id(resultSet.getObject("id", UUID.class))
+        .source(resultSet.getString("source"))
+        .format(SleepLogImportFormat.valueOf(resultSet.getString("format")))
+        .status(SleepLogImportStatus.valueOf(resultSet.getString("status")))
+        .rowsRead(resultSet.getLong("rows_read"))
+        .rowsLoaded(resultSet.getLong("rows_loaded"))
+        .rowsRejected(resultSet.getLong("rows_rejected"))
+        .error(resultSet.getString("error"))
+        .modifiedAt(resultSet.getTimestamp("modified_at").toLocalDateTime())
+        .build();
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    public void createJob(SleepLogImportJob job) {
+        jdbcTemplate.update(INSERT_JOB, new MapSqlParameterSource()
+            .addValue("id", job.getId())
+            .addValue("source", job.getSource())
+            .addValue("format", job.getFormat().name())
+            .addValue("status", job.getStatus().name()));
+    }
+
+    public Optional<SleepLogImportJob> findJob(UUID id) {
+        return jdbcTemplate.query(FIND_JOB, new MapSqlParameterSource("id", id), JOB_ROW_MAPPER).stream().findFirst();
+    }
+
+    public void checkpoint(UUID id, long rowsRead, long rowsLoaded, long rowsRejected) {
+        jdbcTemplate.update(CHECKPOINT_JOB, new MapSqlParameterSource()
+            .addValue("id", id)
+            .addValue("rowsRead", rowsRead)
+            .addValue("rowsLoaded", rowsLoaded)
+            .addValue("rowsRejected", rowsRejected));
+    }
+
+    public void updateStatus(UUID id, SleepLogImportStatus status, String error) {
+        jdbcTemplate.update(UPDATE_JOB_STATUS, new MapSqlParameterSource()
+            .addValue("id", id)
+            .addValue("status", status.name())
+            .addValue("error", error));
+    }
+
+    public long copyToStaging(UUID jobId, List<DailySleepLog> logs) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_TO_STAGING);
+            try {
+                for (int position = 0; position < logs.size(); position++) {
+                    byte[] row = toCsvRow(jobId, position, logs.get(position)).getBytes(StandardCharsets.UTF_8);
+                    copyIn.writeToCopy(row, 0, row.length);
+                }
+                return copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("COPY into sleep_log_import_staging failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    public int rejectOverlaps(UUID jobId) {
+        return jdbcTemplate.update(REJECT_OVERLAPS, new MapSqlParameterSource("jobId", jobId));
+    }
+
+    /**
+     * Cold months whose span reaches a staged row. Only the nights decoded from them tell whether the row overlaps one.
+     */
+    public List<SleepLogColdMonth> findOverlappingColdMonths(UUID jobId) {
+        return jdbcTemplate.query(FIND_OVERLAPPING_COLD_MONTHS, new MapSqlParameterSource("jobId", jobId), (resultSet, rowNum) -> SleepLogColdMonth.builder()
+            .userId(resultSet.getLong("user_id"))
+            .month(YearMonth.from(resultSet.getDate("sleep_month").toLocalDate()))
+            .logCount(resultSet.getInt("log_count"))
+            .firstSleepStart(resultSet.getTimestamp("first_sleep_start").toLocalDateTime())
+            .lastSleepEnd(resultSet.getTimestamp("last_sleep_end").toLocalDateTime())
+            .payload(resultSet.getBytes("payload"))
+            .build());
+    }
+
+    /**
+     * @return how many of the staged rows at these positions were still staged
+     */
+    public int rejectPositions(UUID jobId, Collection<Integer> positions) {
+        if (positions.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(REJECT_POSITIONS, new MapSqlParameterSource()
+            .addValue("jobId", jobId)
+            .addValue("positions", positions));
+    }
+
+    public int mergeStaged(UUID jobId) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("jobId", jobId);
+        int merged = jdbcTemplate.update(MERGE_LOGS, parameters);
+        jdbcTemplate.update(MERGE_ROLLUPS, parameters);
+        jdbcTemplate.update(MERGE_USER_VERSIONS, parameters);
+        jdbcTemplate.update(CLEAR_STAGING, parameters);
+        return merged;
+    }
+
+    private static String toCsvRow(UUID jobId, int position, DailySleepLog dailySleepLog) {
+        long sleepDuration = Duration.between(dailySleepLog.getSleepStart(), dailySleepLog.getSleepEnd()).toMinutes();
+        return jobId + "," + position + "," + dailySleepLog.getUserId() + "," + dailySleepLog.getSleepStart() + ","
+            + dailySleepLog.getSleepEnd() + "," + dailySleepLog.getSleepQuality().ordinal() + "," + sleepDuration + "\n";
+    }
+}
@@ -0,0 +1,134 @@
+package com.noom.interview.backend.sleep.db.repository;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogCohortReport;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSourceUtils;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads behind the population report: rollups are streamed one range of users at a time, ordered by user and day,
+ * and the merged per-cohort totals are stored in {@code sleep_log_population_report}. Rollup scans skip users that
+ * were moved away from the shard they run on, so a source copy awaiting its purge is not counted twice.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SleepLogReportRepository {
+
+    private static final String FIND_USER_ID_RANGES = """
+        SELECT MIN(user_id), MAX(user_id)
+        FROM (SELECT user_id, (ROW_NUMBER() OVER (ORDER BY user_id) - 1) / :usersPerRange AS user_range
+              FROM (SELECT DISTINCT user_id FROM daily_sleep_log_rollup) users) ranked
+        GROUP BY user_range
+        ORDER BY user_range
+        """;
+
+    private static final String SCAN_ROLLUPS = """
+        SELECT r.user_id, r.sleep_date, r.log_count, r.bad_count, r.ok_count, r.good_count,
+               r.sleep_start_seconds_sum, r.sleep_end_seconds_sum, r.sleep_duration_sum
+        FROM daily_sleep_log_rollup r
+        WHERE r.user_id >= ? AND r.user_id < ?
+          AND r.sleep_date <= ?
+          AND NOT EXISTS (SELECT 1 FROM sleep_log_user_shard s WHERE s.user_id = r.user_id AND s.shard <> ?)
+        ORDER BY r.user_id, r.sleep_date
+        """;
+
+    private static final String DELETE_REPORT = "DELETE FROM sleep_log_population_report WHERE report_date = :reportDate";
+
+    private static final String INSERT_REPORT = """
+        INSERT INTO sleep_log_population_report (report_date, cohort_month, window_start, window_end, user_count, log_count,
+                                                 bad_count, ok_count, good_count, sleep_start_seconds_sum,
+                                                 sleep_end_seconds_sum, sleep_duration_sum, avg_sleep_start, avg_sleep_end)
+        VALUES (:reportDate, :cohortMonth, :windowStart, :windowEnd, :userCount, :logCount, :badCount, :okCount, :goodCount,
+                :sleepStartSecondsSum, :sleepEndSecondsSum, :sleepDurationSum, :avgSleepStart, :avgSleepEnd)
+        """;
+
+    private static final String FIND_REPORT = """
+        SELECT report_date, cohort_month, window_start, window_end, user_count, log_count, bad_count, ok_count, good_count,
+               sleep_start_seconds_sum, sleep_end_seconds_sum, sleep_duration_sum, avg_sleep_start, avg_sleep_end
+        FROM sleep_log_population_report
+        WHERE report_date = :reportDate
+        ORDER BY cohort_month
+        """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Splits the users with rollups into ranges of {@code usersPerRange} users each, however sparse their ids are.
+     */
+    public List<UserIdBounds> findUserIdRanges(long usersPerRange) {
+        return jdbcTemplate.query(FIND_USER_ID_RANGES, new MapSqlParameterSource("usersPerRange", usersPerRange),
+            (resultSet, rowNum) -> new UserIdBounds(resultSet.getLong(1), resultSet.getLong(2)));
+    }
+
+    /**
+     * Streams the rollups of users in [fromUserId, toUserId) up to sleepDate {@code end} to the consumer, fetching
+     * {@code fetchSize} rows at a time. Postgres only uses a cursor inside a transaction, so call it within one.
+     */
+    public void scanRollups(String shard, long fromUserId, long toUserId, LocalDate end, int fetchSize,
+                            Consumer<DailySleepLogRollup> consumer) {
+        jdbcTemplate.getJdbcTemplate().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SCAN_ROLLUPS);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, fromUserId);
+            statement.setLong(2, toUserId);
+            statement.setDate(3, Date.valueOf(end));
+            statement.setString(4, shard);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(toRollup(resultSet)));
+    }
+
+    public void replaceReport(LocalDate reportDate, List<SleepLogCohortReport> reports) {
+        jdbcTemplate.update(DELETE_REPORT, new MapSqlParameterSource("reportDate", reportDate));
+        jdbcTemplate.batchUpdate(INSERT_REPORT, SqlParameterSourceUtils.createBatch(reports));
+    }
+
+    public List<SleepLogCohortReport> findReport(LocalDate reportDate) {
+        return jdbcTemplate.query(FIND_REPORT, new MapSqlParameterSource("reportDate", reportDate), (resultSet, rowNum) ->
+            SleepLogCohortReport.builder()
+                .reportDate(resultSet.getObject("report_date", LocalDate.class))
+                .cohortMonth(resultSet.getObject("cohort_month", LocalDate.class))
+                .windowStart(resultSet.getObject("window_start", LocalDate.class))
+                .windowEnd(resultSet.getObject("window_end", LocalDate.class))
+                .userCount(resultSet.getLong("user_count"))
+                .logCount(resultSet.getLong("log_count"))
+                .badCount(resultSet.getLong("bad_count"))
+                .okCount(resultSet.getLong("ok_count"))
+                .goodCount(resultSet.getLong("good_count"))
+                .sleepStartSecondsSum(resultSet.getLong("sleep_start_seconds_sum"))
+                .sleepEndSecondsSum(resultSet.getLong("sleep_end_seconds_sum"))
+                .sleepDurationSum(resultSet.getLong("sleep_duration_sum"))
+                .avgSleepStart(resultSet.getObject("avg_sleep_start", LocalTime.class))
+                .avgSleepEnd(resultSet.getObject("avg_sleep_end", LocalTime.class))
+                .build());
+    }
+
+    private static DailySleepLogRollup toRollup(ResultSet resultSet) throws SQLException {
+        return DailySleepLogRollup.builder()
+            .userId(resultSet.getLong(1))
+            .sleepDate(resultSet.getDate(2).toLocalDate())
+            .logCount(resultSet.getInt(3))
+            .badCount(resultSet.getInt(4))
+            .okCount(resultSet.getInt(5))
+            .goodCount(resultSet.getInt(6))
+            .sleepStartSecondsSum(resultSet.getLong(7))
+            .sleepEndSecondsSum(resultSet.getLong(8))
+            .sleepDurationSum(resultSet.getLong(9))
+            .build();
+    }
+
+    public record UserIdBounds(long min, long max) {
+    }
+}
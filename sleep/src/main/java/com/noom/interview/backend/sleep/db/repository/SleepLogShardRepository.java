@@ -0,0 +1,186 @@
+package com.noom.interview.backend.sleep.db.repository;
+
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Placement records and row copies used to move a user between shards. Every statement runs on the shard selected by
+ * the caller's {@link com.noom.interview.backend.sleep.db.shard.ShardContext}. Only moved users have
+ * {@code sleep_log_user_shard} rows: one naming the shard itself marks where a user was moved to, one naming another
+ * shard is a tombstone left behind on the source or a forward on the user's ring owner.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SleepLogShardRepository {
+
+    private static final String[] LOG_COLUMNS =
+        {"id", "user_id", "sleep_start", "sleep_end", "sleep_quality", "sleep_duration", "created_at", "modified_at"};
+
+    private static final String[] ROLLUP_COLUMNS =
+        {"user_id", "sleep_date", "log_count", "bad_count", "ok_count", "good_count",
+         "sleep_start_seconds_sum", "sleep_end_seconds_sum", "sleep_duration_sum", "modified_at"};
+
+    private static final String[] COLD_COLUMNS =
+        {"user_id", "sleep_month", "log_count", "first_sleep_start", "last_sleep_end", "payload", "compacted_at"};
+
+    private static final String FIND_PLACEMENTS = "SELECT user_id, shard FROM sleep_log_user_shard WHERE user_id IN (:userIds)";
+
+    private static final String FIND_USERS_WITH_ROWS = """
+        SELECT user_id FROM daily_sleep_log WHERE user_id IN (:userIds)
+        UNION
+        SELECT user_id FROM sleep_log_cold_month WHERE user_id IN (:userIds)
+        """;
+
+    private static final String FIND_UNMOVED_USERS = """
+        SELECT l.user_id
+        FROM (SELECT user_id FROM daily_sleep_log UNION SELECT user_id FROM sleep_log_cold_month) l
+        WHERE NOT EXISTS (SELECT 1 FROM sleep_log_user_shard s WHERE s.user_id = l.user_id AND s.shard <> :shard)
+        """;
+
+    private static final String FIND_PURGEABLE_USERS = """
+        SELECT user_id FROM sleep_log_user_shard
+        WHERE shard <> :shard AND NOT purged AND moved_at < :movedBefore
+        """;
+
+    private static final String FIND_LOGS = "SELECT " + String.join(", ", LOG_COLUMNS) + " FROM daily_sleep_log WHERE user_id = :userId";
+
+    private static final String FIND_ROLLUPS = "SELECT " + String.join(", ", ROLLUP_COLUMNS) + " FROM daily_sleep_log_rollup WHERE user_id = :userId";
+
+    private static final String FIND_COLD_MONTHS = "SELECT " + String.join(", ", COLD_COLUMNS) + " FROM sleep_log_cold_month WHERE user_id = :userId";
+
+    private static final String FIND_VERSION = "SELECT COALESCE(MAX(version), 0) FROM sleep_log_user_version WHERE user_id = :userId";
+
+    private static final String INSERT_LOG = insert("daily_sleep_log", LOG_COLUMNS);
+
+    private static final String INSERT_ROLLUP = insert("daily_sleep_log_rollup", ROLLUP_COLUMNS);
+
+    private static final String INSERT_COLD_MONTH = insert("sleep_log_cold_month", COLD_COLUMNS);
+
+    private static final String DELETE_LOGS = "DELETE FROM daily_sleep_log WHERE user_id = :userId";
+
+    private static final String DELETE_ROLLUPS = "DELETE FROM daily_sleep_log_rollup WHERE user_id = :userId";
+
+    private static final String DELETE_COLD_MONTHS = "DELETE FROM sleep_log_cold_month WHERE user_id = :userId";
+
+    private static final String INSERT_VERSION = "INSERT INTO sleep_log_user_version (user_id, version) VALUES (:userId, :version)";
+
+    private static final String DELETE_VERSION = "DELETE FROM sleep_log_user_version WHERE user_id = :userId";
+
+    private static final String DELETE_PLACEMENT = "DELETE FROM sleep_log_user_shard WHERE user_id = :userId";
+
+    private static final String INSERT_PLACEMENT = "INSERT INTO sleep_log_user_shard (user_id, shard) VALUES (:userId, :shard)";
+
+    private static final String MARK_PURGED = "UPDATE sleep_log_user_shard SET purged = TRUE WHERE user_id = :userId";
+
+    private static final int USER_IDS_PER_QUERY = 1_000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * The placement rows this shard holds for the users, i.e. where the users moved to, if they were moved.
+     */
+    public Map<Long, String> findPlacements(List<Long> userIds) {
+        Map<Long, String> placements = new HashMap<>();
+        for (int from = 0; from < userIds.size(); from += USER_IDS_PER_QUERY) {
+            List<Long> batch = userIds.subList(from, Math.min(from + USER_IDS_PER_QUERY, userIds.size()));
+            jdbcTemplate.query(FIND_PLACEMENTS, new MapSqlParameterSource("userIds", batch),
+                (RowCallbackHandler) resultSet -> placements.put(resultSet.getLong("user_id"), resultSet.getString("shard")));
+        }
+        return placements;
+    }
+
+    public List<Long> findUserIdsWithRows(List<Long> userIds) {
+        List<Long> found = new ArrayList<>();
+        for (int from = 0; from < userIds.size(); from += USER_IDS_PER_QUERY) {
+            List<Long> batch = userIds.subList(from, Math.min(from + USER_IDS_PER_QUERY, userIds.size()));
+            found.addAll(jdbcTemplate.queryForList(FIND_USERS_WITH_ROWS, new MapSqlParameterSource("userIds", batch), Long.class));
+        }
+        return found;
+    }
+
+    /**
+     * Users with logs on this shard that have not been moved away from it.
+     */
+    public List<Long> findUnmovedUserIds(String shard) {
+        return jdbcTemplate.queryForList(FIND_UNMOVED_USERS, new MapSqlParameterSource("shard", shard), Long.class);
+    }
+
+    public List<Long> findPurgeableUserIds(String shard, LocalDateTime movedBefore) {
+        return jdbcTemplate.queryForList(FIND_PURGEABLE_USERS, new MapSqlParameterSource()
+            .addValue("shard", shard)
+            .addValue("movedBefore", movedBefore), Long.class);
+    }
+
+    public UserRows findUserRows(Long userId) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("userId", userId);
+        return new UserRows(
+            jdbcTemplate.query(FIND_LOGS, parameters, columns(LOG_COLUMNS)),
+            jdbcTemplate.query(FIND_ROLLUPS, parameters, columns(ROLLUP_COLUMNS)),
+            jdbcTemplate.query(FIND_COLD_MONTHS, parameters, columns(COLD_COLUMNS)),
+            jdbcTemplate.queryForObject(FIND_VERSION, parameters, Long.class));
+    }
+
+    /**
+     * Replaces whatever this shard holds for the user, e.g. leftovers of an earlier interrupted move, with the rows.
+     * The user's version ends up above both copies' versions, so no ETag handed out by either shard stays valid.
+     */
+    public void replaceUserRows(Long userId, UserRows rows) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("userId", userId);
+        long version = Math.max(rows.version(), jdbcTemplate.queryForObject(FIND_VERSION, parameters, Long.class)) + 1;
+        deleteUserRows(userId);
+        jdbcTemplate.batchUpdate(INSERT_LOG, rows.logs().toArray(SqlParameterSource[]::new));
+        jdbcTemplate.batchUpdate(INSERT_ROLLUP, rows.rollups().toArray(SqlParameterSource[]::new));
+        jdbcTemplate.batchUpdate(INSERT_COLD_MONTH, rows.coldMonths().toArray(SqlParameterSource[]::new));
+        jdbcTemplate.update(INSERT_VERSION, parameters.addValue("version", version));
+    }
+
+    public void purgeUserRows(Long userId) {
+        deleteUserRows(userId);
+        jdbcTemplate.update(MARK_PURGED, new MapSqlParameterSource("userId", userId));
+    }
+
+    public void placeUser(Long userId, String shard) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+            .addValue("userId", userId)
+            .addValue("shard", shard);
+        jdbcTemplate.update(DELETE_PLACEMENT, parameters);
+        jdbcTemplate.update(INSERT_PLACEMENT, parameters);
+    }
+
+    private void deleteUserRows(Long userId) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("userId", userId);
+        jdbcTemplate.update(DELETE_LOGS, parameters);
+        jdbcTemplate.update(DELETE_ROLLUPS, parameters);
+        jdbcTemplate.update(DELETE_COLD_MONTHS, parameters);
+        jdbcTemplate.update(DELETE_VERSION, parameters);
+    }
+
+    private static RowMapper<MapSqlParameterSource> columns(String[] columns) {
+        return (resultSet, rowNum) -> {
+            MapSqlParameterSource row = new MapSqlParameterSource();
+            for (String column : columns) {
+                row.addValue(column, resultSet.getObject(column));
+            }
+            return row;
+        };
+    }
+
+    private static String insert(String table, String[] columns) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (:" + String.join(", :", columns) + ")";
+    }
+
+    public record UserRows(List<MapSqlParameterSource> logs, List<MapSqlParameterSource> rollups, List<MapSqlParameterSource> coldMonths,
+                           long version) {
+    }
+}
@@ -0,0 +1,278 @@
+package com.noom.interview.backend.sleep.db.service;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.noom.interview.backend.sleep.config.SleepLogCacheProperties;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogAggregate;
+import com.noom.interview.backend.sleep.dto.SleepLogUserStats;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the most recent {@code hotWindowDays} of logs per user in memory, so the overlap check on save and the
+ * last-sleep read are answered without a database round trip. Queries reaching outside the window go to the delegate.
+ */
+@Service
+@Primary
+@Profile("!no-database")
+@ConditionalOnProperty(prefix = "sleep-log.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CachingDailySleepLogService implements DailySleepLogService {
+
+    static final String CACHE_NAME = "dailySleepLogHotWindow";
+
+    private final DailySleepLogService delegate;
+    private final int hotWindowDays;
+    private final Cache<Long, HotWindow> cache;
+
+    public CachingDailySleepLogService(DailySleepLogServiceImpl delegate, SleepLogCacheProperties properties, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.hotWindowDays = properties.getHotWindowDays();
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumUsers())
+            .expireAfterWrite(properties.getExpireAfterWrite())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    @Override
+    public DailySleepLog save(DailySleepLog dailySleepLog) {
+        DailySleepLog saved = delegate.save(dailySleepLog);
+        afterCommit(() -> addToWindow(saved));
+        return saved;
+    }
+
+    @Override
+    public List<DailySleepLog> saveAll(List<DailySleepLog> dailySleepLogs) {
+        List<DailySleepLog> saved = delegate.saveAll(dailySleepLogs);
+        afterCommit(() -> saved.forEach(this::addToWindow));
+        return saved;
+    }
+
+    @Override
+    public List<DailySleepLog> findPageByUserId(Long userId, LocalDateTime beforeSleepEnd, UUID beforeId, int limit) {
+        return delegate.findPageByUserId(userId, beforeSleepEnd, beforeId, limit);
+    }
+
+    @Override
+    public void forEachByUserId(Long userId, Consumer<DailySleepLog> action) {
+        delegate.forEachByUserId(userId, action);
+    }
+
+    /**
+     * Keeps the user's hot window for the overlap check under the lock unless another instance moved the user's
+     * version on. The saves patch it after the commit; since nothing else wrote the user meanwhile, the patched window
+     * is then tagged with the version read just before the commit, so the next writer can keep it too.
+     */
+    @Override
+    public void lockUser(Long userId) {
+        delegate.lockUser(userId);
+        if (cache.getIfPresent(userId) != null) {
+            findUserVersion(userId);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TagWindowOnCommit(userId));
+        }
+    }
+
+    @Override
+    public void evictUsers(Collection<Long> userIds) {
+        cache.invalidateAll(userIds);
+    }
+
+    /**
+     * Also drops the user's hot window unless it was loaded at exactly this version, so a read tagged with the version
+     * that follows never answers from an older window, whichever instance, import or compaction moved it on.
+     */
+    @Override
+    public Optional<SleepLogVersion> findUserVersion(Long userId) {
+        Optional<SleepLogVersion> version = delegate.findUserVersion(userId);
+        long current = versionOf(version);
+        cache.asMap().computeIfPresent(userId, (id, window) -> window.version() == current ? window : null);
+        return version;
+    }
+
+    @Override
+    public List<DailySleepLog> findByUserIdAndInterval(Long userId, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime windowStart = windowStart();
+        LocalDateTime windowEnd = windowEnd();
+        if (start.isBefore(windowStart) || end.isAfter(windowEnd)) {
+            return delegate.findByUserIdAndInterval(userId, start, end);
+        }
+
+        HotWindow window = cache.get(userId, id -> load(id, windowStart, windowEnd));
+        if (!window.covers(start, end)) {
+            window = load(userId, windowStart, windowEnd);
+            cache.put(userId, window);
+        }
+        return window.slice(start, end);
+    }
+
+    @Override
+    public List<DailySleepLogRollup> findRollupsByUserIdAndInterval(Long userId, LocalDate start, LocalDate end) {
+        return delegate.findRollupsByUserIdAndInterval(userId, start, end);
+    }
+
+    @Override
+    public SleepLogAggregate aggregateByUserIdAndInterval(Long userId, LocalDate start, LocalDate end) {
+        return delegate.aggregateByUserIdAndInterval(userId, start, end);
+    }
+
+    @Override
+    public void forEachUserStats(List<Long> userIds, LocalDate start, LocalDate end, LocalDateTime lastSleepStart,
+                                 LocalDateTime lastSleepEnd, Consumer<SleepLogUserStats> action) {
+        delegate.forEachUserStats(userIds, start, end, lastSleepStart, lastSleepEnd, action);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private void addToWindow(DailySleepLog saved) {
+        cache.asMap().computeIfPresent(saved.getUserId(), (userId, window) -> window.with(copy(saved)));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Reads the user's version while the transaction still holds the user lock, and once every save of the transaction
+     * has patched the window (afterCompletion runs after all afterCommit callbacks), tags the patched window with it.
+     */
+    private final class TagWindowOnCommit implements TransactionSynchronization {
+
+        private final Long userId;
+        private long committedVersion = HotWindow.UNKNOWN_VERSION;
+
+        private TagWindowOnCommit(Long userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (cache.getIfPresent(userId) != null) {
+                committedVersion = versionOf(delegate.findUserVersion(userId));
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED || committedVersion == HotWindow.UNKNOWN_VERSION) {
+                return;
+            }
+            cache.asMap().computeIfPresent(userId, (id, window) ->
+                window.version() == HotWindow.UNKNOWN_VERSION ? window.at(committedVersion) : window);
+        }
+    }
+
+    /**
+     * The version is read before the logs, so a write landing in between leaves the window tagged older than its
+     * contents and the next version check reloads it.
+     */
+    private HotWindow load(Long userId, LocalDateTime windowStart, LocalDateTime windowEnd) {
+        long version = versionOf(delegate.findUserVersion(userId));
+        return new HotWindow(version, windowStart, windowEnd, delegate.findByUserIdAndInterval(userId, windowStart, windowEnd));
+    }
+
+    private static long versionOf(Optional<SleepLogVersion> version) {
+        return version.map(SleepLogVersion::getVersion).orElse(0L);
+    }
+
+    private LocalDateTime windowStart() {
+        return LocalDate.now().minusDays(hotWindowDays).atStartOfDay();
+    }
+
+    private static LocalDateTime windowEnd() {
+        return LocalDate.now().plusDays(2).atStartOfDay();
+    }
+
+    private static DailySleepLog copy(DailySleepLog dailySleepLog) {
+        return DailySleepLog.builder()
+            .id(dailySleepLog.getId())
+            .userId(dailySleepLog.getUserId())
+            .sleepStart(dailySleepLog.getSleepStart())
+            .sleepEnd(dailySleepLog.getSleepEnd())
+            .sleepQuality(dailySleepLog.getSleepQuality())
+            .build();
+    }
+
+    /**
+     * Logs whose sleepEnd falls in [from, to], newest first, matching the order of the repository query, as of the
+     * user's data {@code version}. A window patched with a saved log no longer matches any stored version.
+     */
+    record HotWindow(long version, LocalDateTime from, LocalDateTime to, List<DailySleepLog> logs) {
+
+        static final long UNKNOWN_VERSION = -1;
+
+        private static final Comparator<DailySleepLog> NEWEST_FIRST = Comparator.comparing(DailySleepLog::getSleepEnd).reversed();
+
+        HotWindow {
+            logs = List.copyOf(logs);
+        }
+
+        boolean covers(LocalDateTime start, LocalDateTime end) {
+            return !start.isBefore(from) && !end.isAfter(to);
+        }
+
+        /**
+         * Replaces any log with the same id, which a window loaded after the save committed already holds. A window
+         * already holding this exact log keeps its version.
+         */
+        HotWindow with(DailySleepLog dailySleepLog) {
+            boolean covered = covers(dailySleepLog.getSleepEnd(), dailySleepLog.getSleepEnd());
+            boolean present = logs.stream().anyMatch(log -> Objects.equals(log.getId(), dailySleepLog.getId()));
+            if (!covered && !present || covered && logs.contains(dailySleepLog)) {
+                return this;
+            }
+            List<DailySleepLog> updated = new ArrayList<>(logs.size() + 1);
+            logs.stream().filter(log -> !Objects.equals(log.getId(), dailySleepLog.getId())).forEach(updated::add);
+            if (covered) {
+                updated.add(dailySleepLog);
+            }
+            updated.sort(NEWEST_FIRST);
+            return new HotWindow(UNKNOWN_VERSION, from, to, updated);
+        }
+
+        HotWindow at(long version) {
+            return new HotWindow(version, from, to, logs);
+        }
+
+        List<DailySleepLog> slice(LocalDateTime start, LocalDateTime end) {
+            return logs.stream()
+                .filter(log -> !log.getSleepEnd().isBefore(start) && !log.getSleepEnd().isAfter(end))
+                .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.noom.interview.backend.sleep.db.service;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogAggregate;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+/**
+ * Every night in memory, as primitive columns per user sorted by sleep end: epoch-second starts and ends, the quality
+ * ordinal and the two halves of the id. That is 33 bytes a night, about 42 with the arrays' headroom, against about
+ * 230 for a {@link DailySleepLog} with its timestamps, id and boxed user id. Ranges are found by binary search and
+ * objects are only created for the nights handed out; stats are summed straight from the columns. Timestamps keep
+ * whole seconds, which is all the API takes. Nothing is persisted, so this serves load tests and trials of an
+ * in-memory front for Postgres.
+ */
+@Service
+@Profile("columnar-memory")
+public class ColumnarDailySleepLogService implements DailySleepLogService {
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private final Map<Long, UserNights> users = new ConcurrentHashMap<>();
+
+    @Override
+    public DailySleepLog save(DailySleepLog dailySleepLog) {
+        if (Objects.isNull(dailySleepLog.getId())) {
+            dailySleepLog.setId(UUID.randomUUID());
+        }
+        users.computeIfAbsent(dailySleepLog.getUserId(), userId -> new UserNights()).add(dailySleepLog);
+        return dailySleepLog;
+    }
+
+    @Override
+    public List<DailySleepLog> saveAll(List<DailySleepLog> dailySleepLogs) {
+        dailySleepLogs.forEach(this::save);
+        return dailySleepLogs;
+    }
+
+    @Override
+    public List<DailySleepLog> findByUserIdAndInterval(Long userId, LocalDateTime start, LocalDateTime end) {
+        UserNights nights = users.get(userId);
+        if (Objects.isNull(nights)) {
+            return new ArrayList<>();
+        }
+        return nights.newestFirst(userId, epochSecond(start) + (start.getNano() > 0 ? 1 : 0), epochSecond(end));
+    }
+
+    @Override
+    public List<DailySleepLog> findPageByUserId(Long userId, LocalDateTime beforeSleepEnd, UUID beforeId, int limit) {
+        UserNights nights = users.get(userId);
+        if (Objects.isNull(nights)) {
+            return new ArrayList<>();
+        }
+        return Objects.isNull(beforeSleepEnd)
+            ? nights.pageBefore(userId, Long.MAX_VALUE, -1L, -1L, limit)
+            : nights.pageBefore(userId, epochSecond(beforeSleepEnd), beforeId.getMostSignificantBits(), beforeId.getLeastSignificantBits(), limit);
+    }
+
+    @Override
+    public void forEachByUserId(Long userId, Consumer<DailySleepLog> action) {
+        UserNights nights = users.get(userId);
+        if (Objects.nonNull(nights)) {
+            nights.snapshot().forEach(userId, action);
+        }
+    }
+
+    /**
+     * Nothing outside this process holds the nights, and UserWriteLocks already queues the writers of a user here.
+     */
+    @Override
+    public void lockUser(Long userId) {
+    }
+
+    @Override
+    public Optional<SleepLogVersion> findUserVersion(Long userId) {
+        UserNights nights = users.get(userId);
+        return Objects.isNull(nights) ? Optional.empty() : Optional.of(nights.version(userId));
+    }
+
+    @Override
+    public List<DailySleepLogRollup> findRollupsByUserIdAndInterval(Long userId, LocalDate start, LocalDate end) {
+        UserNights nights = users.get(userId);
+        if (Objects.isNull(nights)) {
+            return new ArrayList<>();
+        }
+        return nights.rollups(userId, start.toEpochDay() * SECONDS_PER_DAY, (end.toEpochDay() + 1) * SECONDS_PER_DAY - 1);
+    }
+
+    @Override
+    public SleepLogAggregate aggregateByUserIdAndInterval(Long userId, LocalDate start, LocalDate end) {
+        UserNights nights = users.get(userId);
+        if (Objects.isNull(nights)) {
+            return SleepLogAggregate.builder().build();
+        }
+        return nights.aggregate(start.toEpochDay() * SECONDS_PER_DAY, (end.toEpochDay() + 1) * SECONDS_PER_DAY - 1);
+    }
+
+    private static long epochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Orders nights by end, then by id the way Postgres orders uuids, so the reverse is DailySleepLogServiceImpl's
+     * history order.
+     */
+    private static int compare(long end, long idMost, long idLeast, long otherEnd, long otherIdMost, long otherIdLeast) {
+        int byEnd = Long.compare(end, otherEnd);
+        if (byEnd != 0) {
+            return byEnd;
+        }
+        int byMost = Long.compareUnsigned(idMost, otherIdMost);
+        return byMost != 0 ? byMost : Long.compareUnsigned(idLeast, otherIdLeast);
+    }
+
+    /**
+     * One user's nights as parallel columns in ascending {@link #compare} order.
+     */
+    private static final class UserNights {
+
+        private long[] starts = new long[8];
+        private long[] ends = new long[8];
+        private byte[] qualities = new byte[8];
+        private long[] idMosts = new long[8];
+        private long[] idLeasts = new long[8];
+        private int size;
+        private long version;
+        private long modifiedAt;
+
+        synchronized void add(DailySleepLog log) {
+            long end = epochSecond(log.getSleepEnd());
+            long idMost = log.getId().getMostSignificantBits();
+            long idLeast = log.getId().getLeastSignificantBits();
+            int at = size;
+            if (size > 0 && compare(end, idMost, idLeast, ends[size - 1], idMosts[size - 1], idLeasts[size - 1]) < 0) {
+                at = firstNotBefore(end, idMost, idLeast);
+            }
+            if (size == ends.length) {
+                int capacity = size + (size >> 1);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                qualities = Arrays.copyOf(qualities, capacity);
+                idMosts = Arrays.copyOf(idMosts, capacity);
+                idLeasts = Arrays.copyOf(idLeasts, capacity);
+            }
+            int moved = size - at;
+            System.arraycopy(starts, at, starts, at + 1, moved);
+            System.arraycopy(ends, at, ends, at + 1, moved);
+            System.arraycopy(qualities, at, qualities, at + 1, moved);
+            System.arraycopy(idMosts, at, idMosts, at + 1, moved);
+            System.arraycopy(idLeasts, at, idLeasts, at + 1, moved);
+            starts[at] = epochSecond(log.getSleepStart());
+            ends[at] = end;
+            qualities[at] = (byte) log.getSleepQuality().ordinal();
+            idMosts[at] = idMost;
+            idLeasts[at] = idLeast;
+            size++;
+            version++;
+            modifiedAt = System.currentTimeMillis();
+        }
+
+        synchronized List<DailySleepLog> newestFirst(Long userId, long fromEnd, long toEnd) {
+            int from = firstEndingAtOrAfter(fromEnd);
+            int to = firstEndingAfter(toEnd);
+            List<DailySleepLog> logs = new ArrayList<>(Math.max(0, to - from));
+            for (int i = to - 1; i >= from; i--) {
+                logs.add(toDomain(userId, i));
+            }
+            return logs;
+        }
+
+        /**
+         * Up to {@code limit} nights coming before the cursor in ascending order, i.e. after it in history order.
+         */
+        synchronized List<DailySleepLog> pageBefore(Long userId, long end, long idMost, long idLeast, int limit) {
+            int to = end == Long.MAX_VALUE ? size : firstNotBefore(end, idMost, idLeast);
+            List<DailySleepLog> logs = new ArrayList<>(Math.min(limit, to));
+            for (int i = to - 1; i >= Math.max(0, to - limit); i--) {
+                logs.add(toDomain(userId, i));
+            }
+            return logs;
+        }
+
+        synchronized List<DailySleepLogRollup> rollups(Long userId, long fromEnd, long toEnd) {
+            List<DailySleepLogRollup> rollups = new ArrayList<>();
+            DailySleepLogRollup rollup = null;
+            for (int i = firstEndingAfter(toEnd) - 1; i >= 0 && ends[i] >= fromEnd; i--) {
+                long sleepDate = Math.floorDiv(ends[i], SECONDS_PER_DAY);
+                if (Objects.isNull(rollup) || rollup.getSleepDate().toEpochDay() != sleepDate) {
+                    rollup = DailySleepLogRollup.builder().userId(userId).sleepDate(LocalDate.ofEpochDay(sleepDate)).build();
+                    rollups.add(rollup);
+                }
+                rollup.setLogCount(rollup.getLogCount() + 1);
+                switch (SleepQuality.values()[qualities[i]]) {
+                    case BAD -> rollup.setBadCount(rollup.getBadCount() + 1);
+                    case OK -> rollup.setOkCount(rollup.getOkCount() + 1);
+                    case GOOD -> rollup.setGoodCount(rollup.getGoodCount() + 1);
+                }
+                rollup.setSleepStartSecondsSum(rollup.getSleepStartSecondsSum() + Math.floorMod(starts[i], SECONDS_PER_DAY));
+                rollup.setSleepEndSecondsSum(rollup.getSleepEndSecondsSum() + Math.floorMod(ends[i], SECONDS_PER_DAY));
+                rollup.setSleepDurationSum(rollup.getSleepDurationSum() + (ends[i] - starts[i]) / 60);
+            }
+            return rollups;
+        }
+
+        synchronized SleepLogAggregate aggregate(long fromEnd, long toEnd) {
+            long[] qualityCounts = new long[SleepQuality.values().length];
+            long sleepStartSecondsSum = 0;
+            long sleepEndSecondsSum = 0;
+            int from = firstEndingAtOrAfter(fromEnd);
+            int to = firstEndingAfter(toEnd);
+            for (int i = from; i < to; i++) {
+                qualityCounts[qualities[i]]++;
+                sleepStartSecondsSum += Math.floorMod(starts[i], SECONDS_PER_DAY);
+                sleepEndSecondsSum += Math.floorMod(ends[i], SECONDS_PER_DAY);
+            }
+            return SleepLogAggregate.builder()
+                .logCount(Math.max(0, to - from))
+                .badCount(qualityCounts[SleepQuality.BAD.ordinal()])
+                .okCount(qualityCounts[SleepQuality.OK.ordinal()])
+                .goodCount(qualityCounts[SleepQuality.GOOD.ordinal()])
+                .sleepStartSecondsSum(sleepStartSecondsSum)
+                .sleepEndSecondsSum(sleepEndSecondsSum)
+                .build();
+        }
+
+        synchronized SleepLogVersion version(Long userId) {
+            return SleepLogVersion.builder()
+                .userId(userId)
+                .version(version)
+                .modifiedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(modifiedAt), ZoneId.systemDefault()))
+                .build();
+        }
+
+        /**
+         * A copy of the columns, so a long walk over them does not hold up writers.
+         */
+        synchronized UserNights snapshot() {
+            UserNights copy = new UserNights();
+            copy.starts = Arrays.copyOf(starts, size);
+            copy.ends = Arrays.copyOf(ends, size);
+            copy.qualities = Arrays.copyOf(qualities, size);
+            copy.idMosts = Arrays.copyOf(idMosts, size);
+            copy.idLeasts = Arrays.copyOf(idLeasts, size);
+            copy.size = size;
+            return copy;
+        }
+
+        void forEach(Long userId, Consumer<DailySleepLog> action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(toDomain(userId, i));
+            }
+        }
+
+        private DailySleepLog toDomain(Long userId, int i) {
+            return DailySleepLog.builder()
+                .id(new UUID(idMosts[i], idLeasts[i]))
+                .userId(userId)
+                .sleepStart(fromEpochSecond(starts[i]))
+                .sleepEnd(fromEpochSecond(ends[i]))
+                .sleepQuality(SleepQuality.values()[qualities[i]])
+                .build();
+        }
+
+        private int firstEndingAtOrAfter(long end) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ends[middle] < end) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int firstEndingAfter(long end) {
+            return end == Long.MAX_VALUE ? size : firstEndingAtOrAfter(end + 1);
+        }
+
+        private int firstNotBefore(long end, long idMost, long idLeast) {
+            int low = firstEndingAtOrAfter(end);
+            int high = firstEndingAfter(end);
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(ends[middle], idMosts[middle], idLeasts[middle], end, idMost, idLeast) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -2,12 +2,55 @@ package com.noom.interview.backend.sleep.db.service;
 
 
 import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogAggregate;
+import com.noom.interview.backend.sleep.dto.SleepLogUserStats;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface DailySleepLogService {
 
     DailySleepLog save(DailySleepLog dailySleepLog);
 
+    List<DailySleepLog> saveAll(List<DailySleepLog> dailySleepLogs);
+
     List<DailySleepLog> findByUserIdAndInterval(Long userId, LocalDateTime start, LocalDateTime end);
+
+    List<DailySleepLog> findPageByUserId(Long userId, LocalDateTime beforeSleepEnd, UUID beforeId, int limit);
+
+    void forEachByUserId(Long userId, Consumer<DailySleepLog> action);
+
+    void lockUser(Long userId);
+
+    Optional<SleepLogVersion> findUserVersion(Long userId);
+
+    /**
+     * Forgets whatever is cached for the users after a write that went around this service, e.g. a bulk import.
+     */
+    default void evictUsers(Collection<Long> userIds) {
+    }
+
+    List<DailySleepLogRollup> findRollupsByUserIdAndInterval(Long userId, LocalDate start, LocalDate end);
+
+    default SleepLogAggregate aggregateByUserIdAndInterval(Long userId, LocalDate start, LocalDate end) {
+        return SleepLogAggregate.fromRollups(findRollupsByUserIdAndInterval(userId, start, end));
+    }
+
+    /**
+     * Each user's aggregate over [start, end] and last log in [lastSleepStart, lastSleepEnd], in user id order.
+     */
+    default void forEachUserStats(List<Long> userIds, LocalDate start, LocalDate end, LocalDateTime lastSleepStart,
+                                  LocalDateTime lastSleepEnd, Consumer<SleepLogUserStats> action) {
+        userIds.stream().sorted().forEach(userId -> action.accept(SleepLogUserStats.builder()
+            .userId(userId)
+            .aggregate(aggregateByUserIdAndInterval(userId, start, end))
+            .lastSleep(findByUserIdAndInterval(userId, lastSleepStart, lastSleepEnd).stream().findFirst().orElse(null))
+            .build()));
+    }
 }
@@ -1,36 +1,292 @@
 package com.noom.interview.backend.sleep.db.service;
 
 
+import com.noom.interview.backend.sleep.config.SleepLogColdProperties;
+import com.noom.interview.backend.sleep.db.cold.SleepLogColdCodec;
 import com.noom.interview.backend.sleep.db.entity.DailySleepLogEntity;
+import com.noom.interview.backend.sleep.db.entity.DailySleepLogRollupEntity;
+import com.noom.interview.backend.sleep.db.entity.DailySleepLogRollupId;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogJdbcRepository;
 import com.noom.interview.backend.sleep.db.repository.DailySleepLogRepository;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogRollupRepository;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogSummary;
+import com.noom.interview.backend.sleep.db.repository.SleepLogColdRepository;
+import com.noom.interview.backend.sleep.db.shard.ShardContext;
 import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogAggregate;
+import com.noom.interview.backend.sleep.dto.SleepLogColdMonth;
+import com.noom.interview.backend.sleep.dto.SleepLogUserStats;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import com.noom.interview.backend.sleep.exception.SleepLogUserMovedException;
+import jakarta.persistence.EntityManager;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
+@Profile("!no-database")
 @AllArgsConstructor
 public class DailySleepLogServiceImpl implements DailySleepLogService {
 
+    private static final int COLD_MONTHS_PER_READ = 12;
+
+    /**
+     * History order: newest end first, then ids descending the way Postgres orders uuids, byte by byte.
+     */
+    static final Comparator<DailySleepLog> NEWEST_FIRST = Comparator.comparing(DailySleepLog::getSleepEnd)
+        .thenComparing(DailySleepLog::getId, (left, right) -> {
+            int most = Long.compareUnsigned(left.getMostSignificantBits(), right.getMostSignificantBits());
+            return most != 0 ? most : Long.compareUnsigned(left.getLeastSignificantBits(), right.getLeastSignificantBits());
+        })
+        .reversed();
+
     private final DailySleepLogRepository repository;
+    private final DailySleepLogRollupRepository rollupRepository;
+    private final DailySleepLogJdbcRepository jdbcRepository;
+    private final EntityManager entityManager;
+    private final SleepLogColdRepository coldRepository;
+    private final SleepLogColdProperties coldProperties;
 
     @Override
+    @Transactional
     public DailySleepLog save(DailySleepLog dailySleepLog) {
-        DailySleepLogEntity data = repository.save(toEntity(dailySleepLog));
+        DailySleepLogEntity data = insert(toEntity(dailySleepLog));
+        jdbcRepository.addToRollups(List.of(toRollupIncrement(data)));
+        jdbcRepository.bumpUserVersions(List.of(data.getUserId()));
 
         dailySleepLog.setId(data.getId());
         return dailySleepLog;
     }
 
+    @Override
+    @Transactional
+    public List<DailySleepLog> saveAll(List<DailySleepLog> dailySleepLogs) {
+        List<DailySleepLogEntity> entities = new ArrayList<>(dailySleepLogs.size());
+        for (DailySleepLog dailySleepLog : dailySleepLogs) {
+            DailySleepLogEntity entity = toEntity(dailySleepLog);
+            entity.setId(Objects.isNull(dailySleepLog.getId()) ? UUID.randomUUID() : dailySleepLog.getId());
+            entities.add(entity);
+        }
+        try {
+            jdbcRepository.insertAll(entities);
+        } catch (DataIntegrityViolationException e) {
+            throw SleepLogOverlapViolations.translate(e);
+        }
+
+        Map<DailySleepLogRollupId, DailySleepLogRollupEntity> increments = new LinkedHashMap<>();
+        entities.forEach(entity -> increments.merge(
+            new DailySleepLogRollupId(entity.getUserId(), entity.getSleepEnd().toLocalDate()),
+            toRollupIncrement(entity),
+            DailySleepLogServiceImpl::mergeRollupIncrements));
+        jdbcRepository.addToRollups(List.copyOf(increments.values()));
+        jdbcRepository.bumpUserVersions(entities.stream().map(DailySleepLogEntity::getUserId).collect(Collectors.toSet()));
+
+        for (int i = 0; i < dailySleepLogs.size(); i++) {
+            dailySleepLogs.get(i).setId(entities.get(i).getId());
+        }
+        return dailySleepLogs;
+    }
+
+    /**
+     * Hot rows first, then the cold months, so a concurrent compaction duplicates nights rather than losing them.
+     */
     @Override
     public List<DailySleepLog> findByUserIdAndInterval(Long userId, LocalDateTime start, LocalDateTime end) {
         List<DailySleepLogEntity> result = repository.findByUserIdAndSleepEndBetweenOrderBySleepEndDesc(userId,
             start , end);
+        List<DailySleepLog> logs = result.stream().map(this::toDomain).collect(Collectors.toList());
+
+        if (!coldProperties.isEnabled()) {
+            return logs;
+        }
+        List<SleepLogColdMonth> coldMonths = coldRepository.findMonths(userId, YearMonth.from(start), YearMonth.from(end));
+        if (coldMonths.isEmpty()) {
+            return logs;
+        }
+        addCold(logs, coldMonths, log -> !log.getSleepEnd().isBefore(start) && !log.getSleepEnd().isAfter(end));
+        logs.sort(NEWEST_FIRST);
+        return logs;
+    }
+
+    @Override
+    public List<DailySleepLog> findPageByUserId(Long userId, LocalDateTime beforeSleepEnd, UUID beforeId, int limit) {
+        List<DailySleepLogSummary> result = Objects.isNull(beforeSleepEnd)
+            ? repository.findFirstPageByUserId(userId, Limit.of(limit))
+            : repository.findPageByUserIdBefore(userId, beforeSleepEnd, beforeId, Limit.of(limit));
+
+        List<DailySleepLog> logs = result.stream()
+            .map(summary -> DailySleepLog.builder()
+                .id(summary.getId())
+                .userId(userId)
+                .sleepStart(summary.getSleepStart())
+                .sleepEnd(summary.getSleepEnd())
+                .sleepQuality(summary.getSleepQuality())
+                .build())
+            .collect(Collectors.toList());
+        if (!coldProperties.isEnabled()) {
+            return logs;
+        }
+
+        // Cold months never reach past the current one, and every night of a month ends after those of the months
+        // before it, so months are read newest first until the page is full.
+        DailySleepLog cursor = Objects.isNull(beforeSleepEnd) ? null : DailySleepLog.builder().sleepEnd(beforeSleepEnd).id(beforeId).build();
+        Predicate<DailySleepLog> afterCursor = Objects.isNull(cursor) ? log -> true : log -> NEWEST_FIRST.compare(log, cursor) > 0;
+        YearMonth through = Objects.isNull(cursor) ? YearMonth.now() : YearMonth.from(beforeSleepEnd);
+        int hotCount = logs.size();
+        while (logs.size() - hotCount < limit) {
+            List<SleepLogColdMonth> coldMonths = coldRepository.findMonthsThrough(userId, through, COLD_MONTHS_PER_READ);
+            addCold(logs, coldMonths, afterCursor);
+            if (coldMonths.size() < COLD_MONTHS_PER_READ) {
+                break;
+            }
+            through = coldMonths.get(coldMonths.size() - 1).getMonth().minusMonths(1);
+        }
+        if (logs.size() == hotCount) {
+            return logs;
+        }
+        logs.sort(NEWEST_FIRST);
+        return new ArrayList<>(logs.subList(0, Math.min(limit, logs.size())));
+    }
+
+    /**
+     * Streams the whole history oldest first, interleaving cold months by sleep end.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachByUserId(Long userId, Consumer<DailySleepLog> action) {
+        try (Stream<DailySleepLogEntity> result = repository.streamByUserIdOrderBySleepEndAsc(userId)) {
+            ColdNights cold = new ColdNights(coldProperties.isEnabled()
+                ? coldRepository.findAllMonths(userId).iterator()
+                : Collections.emptyIterator());
+            result.forEach(entity -> {
+                entityManager.detach(entity);
+                DailySleepLog log = toDomain(entity);
+                cold.emitEndingBefore(log, action);
+                action.accept(log);
+            });
+            cold.emitEndingBefore(null, action);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockUser(Long userId) {
+        jdbcRepository.lockUser(userId);
+        String shard = ShardContext.current();
+        if (Objects.nonNull(shard)) {
+            Optional<String> placement = jdbcRepository.findUserShard(userId);
+            if (placement.isPresent() && !shard.equals(placement.get())) {
+                throw new SleepLogUserMovedException(userId, placement.get());
+            }
+        }
+    }
+
+    @Override
+    public Optional<SleepLogVersion> findUserVersion(Long userId) {
+        return jdbcRepository.findUserVersion(userId);
+    }
+
+    @Override
+    public List<DailySleepLogRollup> findRollupsByUserIdAndInterval(Long userId, LocalDate start, LocalDate end) {
+        List<DailySleepLogRollupEntity> result = rollupRepository.findByUserIdAndSleepDateBetweenOrderBySleepDateDesc(userId,
+            start, end);
+
+        return result.stream().map(DailySleepLogServiceImpl::toDomain).collect(Collectors.toList());
+    }
+
+    @Override
+    public SleepLogAggregate aggregateByUserIdAndInterval(Long userId, LocalDate start, LocalDate end) {
+        return jdbcRepository.aggregateRollups(userId, start, end);
+    }
+
+    /**
+     * Hot rows only: the last-sleep window ends today, which is never compacted.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachUserStats(List<Long> userIds, LocalDate start, LocalDate end, LocalDateTime lastSleepStart,
+                                 LocalDateTime lastSleepEnd, Consumer<SleepLogUserStats> action) {
+        jdbcRepository.streamUserStats(userIds, start, end, lastSleepStart, lastSleepEnd, action);
+    }
+
+    private DailySleepLogEntity insert(DailySleepLogEntity entity) {
+        try {
+            return repository.saveAndFlush(entity);
+        } catch (DataIntegrityViolationException e) {
+            throw SleepLogOverlapViolations.translate(e);
+        }
+    }
+
+    private static void addCold(List<DailySleepLog> logs, List<SleepLogColdMonth> coldMonths, Predicate<DailySleepLog> filter) {
+        Set<String> hot = new HashSet<>();
+        logs.forEach(log -> hot.add(nightKey(log)));
+        for (SleepLogColdMonth coldMonth : coldMonths) {
+            for (DailySleepLog log : SleepLogColdCodec.decode(coldMonth.getUserId(), coldMonth.getMonth(), coldMonth.getPayload())) {
+                if (filter.test(log) && !hot.contains(nightKey(log))) {
+                    logs.add(log);
+                }
+            }
+        }
+    }
+
+    private static String nightKey(DailySleepLog log) {
+        return log.getSleepStart() + "/" + log.getSleepEnd();
+    }
 
-        return result.stream().map(this::toDomain).collect(Collectors.toList());
+    private static DailySleepLogRollupEntity toRollupIncrement(DailySleepLogEntity entity) {
+        return DailySleepLogRollupEntity.builder()
+            .userId(entity.getUserId())
+            .sleepDate(entity.getSleepEnd().toLocalDate())
+            .logCount(1)
+            .badCount(entity.getSleepQuality() == SleepQuality.BAD ? 1 : 0)
+            .okCount(entity.getSleepQuality() == SleepQuality.OK ? 1 : 0)
+            .goodCount(entity.getSleepQuality() == SleepQuality.GOOD ? 1 : 0)
+            .sleepStartSecondsSum((long) entity.getSleepStart().toLocalTime().toSecondOfDay())
+            .sleepEndSecondsSum((long) entity.getSleepEnd().toLocalTime().toSecondOfDay())
+            .sleepDurationSum(entity.getSleepDuration())
+            .build();
+    }
+
+    private static DailySleepLogRollupEntity mergeRollupIncrements(DailySleepLogRollupEntity left, DailySleepLogRollupEntity right) {
+        return DailySleepLogRollupEntity.builder()
+            .userId(left.getUserId())
+            .sleepDate(left.getSleepDate())
+            .logCount(left.getLogCount() + right.getLogCount())
+            .badCount(left.getBadCount() + right.getBadCount())
+            .okCount(left.getOkCount() + right.getOkCount())
+            .goodCount(left.getGoodCount() + right.getGoodCount())
+            .sleepStartSecondsSum(left.getSleepStartSecondsSum() + right.getSleepStartSecondsSum())
+            .sleepEndSecondsSum(left.getSleepEndSecondsSum() + right.getSleepEndSecondsSum())
+            .sleepDurationSum(left.getSleepDurationSum() + right.getSleepDurationSum())
+            .build();
     }
 
     private static DailySleepLogEntity toEntity(DailySleepLog dailySleepLog) {
@@ -53,4 +309,55 @@ public class DailySleepLogServiceImpl implements DailySleepLogService {
             .sleepQuality(dailySleepLogEntity.getSleepQuality())
             .build();
     }
+
+    private static DailySleepLogRollup toDomain(DailySleepLogRollupEntity rollupEntity) {
+        return DailySleepLogRollup.builder()
+            .userId(rollupEntity.getUserId())
+            .sleepDate(rollupEntity.getSleepDate())
+            .logCount(rollupEntity.getLogCount())
+            .badCount(rollupEntity.getBadCount())
+            .okCount(rollupEntity.getOkCount())
+            .goodCount(rollupEntity.getGoodCount())
+            .sleepStartSecondsSum(rollupEntity.getSleepStartSecondsSum())
+            .sleepEndSecondsSum(rollupEntity.getSleepEndSecondsSum())
+            .sleepDurationSum(rollupEntity.getSleepDurationSum())
+            .build();
+    }
+
+    /**
+     * The nights of cold months in sleep end order, decoding a month only once its nights are due.
+     */
+    private static final class ColdNights {
+
+        private final Iterator<SleepLogColdMonth> months;
+        private final Deque<DailySleepLog> nights = new ArrayDeque<>();
+
+        ColdNights(Iterator<SleepLogColdMonth> months) {
+            this.months = months;
+        }
+
+        /**
+         * Emits the nights ending before {@code next}, or all when it is null, dropping a cold copy of it.
+         */
+        void emitEndingBefore(DailySleepLog next, Consumer<DailySleepLog> action) {
+            while (fill()) {
+                DailySleepLog night = nights.peekFirst();
+                if (Objects.nonNull(next) && !night.getSleepEnd().isBefore(next.getSleepEnd())) {
+                    if (night.getSleepEnd().equals(next.getSleepEnd()) && night.getSleepStart().equals(next.getSleepStart())) {
+                        nights.pollFirst();
+                    }
+                    return;
+                }
+                action.accept(nights.pollFirst());
+            }
+        }
+
+        private boolean fill() {
+            while (nights.isEmpty() && months.hasNext()) {
+                SleepLogColdMonth month = months.next();
+                nights.addAll(SleepLogColdCodec.decode(month.getUserId(), month.getMonth(), month.getPayload()));
+            }
+            return !nights.isEmpty();
+        }
+    }
 }
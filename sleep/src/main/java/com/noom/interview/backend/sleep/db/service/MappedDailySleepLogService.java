@@ -0,0 +1,124 @@
+package com.noom.interview.backend.sleep.db.service;
+
+
+import com.noom.interview.backend.sleep.db.mapped.SleepLogSegmentStore;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sleep logs kept in a {@link SleepLogSegmentStore} on local disk instead of Postgres, for single-node deployments and
+ * load tests that should not need a database. Rollups are summed from the nights when asked for.
+ */
+@Service
+@Profile("mmap-storage")
+public class MappedDailySleepLogService implements DailySleepLogService {
+
+    private final SleepLogSegmentStore store;
+
+    @Autowired
+    public MappedDailySleepLogService(SleepLogSegmentStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public DailySleepLog save(DailySleepLog dailySleepLog) {
+        store.append(List.of(dailySleepLog));
+        return dailySleepLog;
+    }
+
+    @Override
+    public List<DailySleepLog> saveAll(List<DailySleepLog> dailySleepLogs) {
+        return store.append(dailySleepLogs);
+    }
+
+    @Override
+    public List<DailySleepLog> findByUserIdAndInterval(Long userId, LocalDateTime start, LocalDateTime end) {
+        List<DailySleepLog> logs = store.findByUserId(userId, start, end);
+        logs.sort(DailySleepLogServiceImpl.NEWEST_FIRST);
+        return logs;
+    }
+
+    /**
+     * Nights ending at the cursor's time are fetched along with the page but may lie before the cursor, so the window
+     * is widened until the page is full or the history runs out.
+     */
+    @Override
+    public List<DailySleepLog> findPageByUserId(Long userId, LocalDateTime beforeSleepEnd, UUID beforeId, int limit) {
+        DailySleepLog cursor = Objects.isNull(beforeSleepEnd) ? null : DailySleepLog.builder().sleepEnd(beforeSleepEnd).id(beforeId).build();
+        Predicate<DailySleepLog> afterCursor = Objects.isNull(cursor)
+            ? log -> true
+            : log -> DailySleepLogServiceImpl.NEWEST_FIRST.compare(log, cursor) > 0;
+        for (int window = limit; ; window *= 2) {
+            List<DailySleepLog> candidates = store.findLatestByUserId(userId, beforeSleepEnd, window);
+            List<DailySleepLog> page = candidates.stream()
+                .filter(afterCursor)
+                .sorted(DailySleepLogServiceImpl.NEWEST_FIRST)
+                .limit(limit)
+                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+            if (page.size() == limit || candidates.size() < window) {
+                return page;
+            }
+        }
+    }
+
+    @Override
+    public void forEachByUserId(Long userId, Consumer<DailySleepLog> action) {
+        store.forEachByUserId(userId, action);
+    }
+
+    /**
+     * Nothing outside this process writes the segments, and UserWriteLocks already queues the writers of a user here.
+     */
+    @Override
+    public void lockUser(Long userId) {
+    }
+
+    @Override
+    public Optional<SleepLogVersion> findUserVersion(Long userId) {
+        return store.findVersion(userId);
+    }
+
+    @Override
+    public List<DailySleepLogRollup> findRollupsByUserIdAndInterval(Long userId, LocalDate start, LocalDate end) {
+        Map<LocalDate, DailySleepLogRollup> rollups = new TreeMap<>(Comparator.reverseOrder());
+        for (DailySleepLog log : store.findByUserId(userId, start.atStartOfDay(), end.atTime(LocalTime.MAX))) {
+            DailySleepLogRollup rollup = rollups.computeIfAbsent(log.getSleepEnd().toLocalDate(), sleepDate -> DailySleepLogRollup.builder()
+                .userId(userId)
+                .sleepDate(sleepDate)
+                .build());
+            rollup.setLogCount(rollup.getLogCount() + 1);
+            rollup.setBadCount(rollup.getBadCount() + (log.getSleepQuality() == SleepQuality.BAD ? 1 : 0));
+            rollup.setOkCount(rollup.getOkCount() + (log.getSleepQuality() == SleepQuality.OK ? 1 : 0));
+            rollup.setGoodCount(rollup.getGoodCount() + (log.getSleepQuality() == SleepQuality.GOOD ? 1 : 0));
+            rollup.setSleepStartSecondsSum(rollup.getSleepStartSecondsSum() + log.getSleepStart().toLocalTime().toSecondOfDay());
+            rollup.setSleepEndSecondsSum(rollup.getSleepEndSecondsSum() + log.getSleepEnd().toLocalTime().toSecondOfDay());
+            rollup.setSleepDurationSum(rollup.getSleepDurationSum() + Duration.between(log.getSleepStart(), log.getSleepEnd()).toMinutes());
+        }
+        return new ArrayList<>(rollups.values());
+    }
+
+    @Scheduled(fixedDelayString = "${sleep-log.mmap.compaction-interval:PT1M}")
+    public void compactSegments() {
+        store.compact();
+    }
+}
@@ -0,0 +1,98 @@
+package com.noom.interview.backend.sleep.db.service;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import io.r2dbc.spi.Readable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@Profile("r2dbc-reads")
+@AllArgsConstructor
+public class R2dbcDailySleepLogService implements ReactiveDailySleepLogService {
+
+    private static final String FIND_BY_USER_ID_AND_INTERVAL = """
+        SELECT id, user_id, sleep_start, sleep_end, sleep_quality
+        FROM daily_sleep_log
+        WHERE user_id = :userId AND sleep_end BETWEEN :start AND :end
+        ORDER BY sleep_end DESC
+        """;
+
+    private static final String FIND_ROLLUPS_BY_USER_ID_AND_INTERVAL = """
+        SELECT user_id, sleep_date, log_count, bad_count, ok_count, good_count,
+               sleep_start_seconds_sum, sleep_end_seconds_sum, sleep_duration_sum
+        FROM daily_sleep_log_rollup
+        WHERE user_id = :userId AND sleep_date BETWEEN :start AND :end
+        ORDER BY sleep_date DESC
+        """;
+
+    private static final String FIND_USER_VERSION = "SELECT version, modified_at FROM sleep_log_user_version WHERE user_id = :userId";
+
+    private final DatabaseClient readDatabaseClient;
+
+    @Override
+    public Flux<DailySleepLog> findByUserIdAndInterval(Long userId, LocalDateTime start, LocalDateTime end) {
+        return readDatabaseClient.sql(FIND_BY_USER_ID_AND_INTERVAL)
+            .bind("userId", userId)
+            .bind("start", start)
+            .bind("end", end)
+            .map(R2dbcDailySleepLogService::toDomain)
+            .all();
+    }
+
+    @Override
+    public Flux<DailySleepLogRollup> findRollupsByUserIdAndInterval(Long userId, LocalDate start, LocalDate end) {
+        return readDatabaseClient.sql(FIND_ROLLUPS_BY_USER_ID_AND_INTERVAL)
+            .bind("userId", userId)
+            .bind("start", start)
+            .bind("end", end)
+            .map(R2dbcDailySleepLogService::toRollup)
+            .all();
+    }
+
+    @Override
+    public Mono<SleepLogVersion> findUserVersion(Long userId) {
+        return readDatabaseClient.sql(FIND_USER_VERSION)
+            .bind("userId", userId)
+            .map(row -> SleepLogVersion.builder()
+                .userId(userId)
+                .version(row.get("version", Long.class))
+                .modifiedAt(row.get("modified_at", LocalDateTime.class))
+                .build())
+            .one();
+    }
+
+    private static DailySleepLog toDomain(Readable row) {
+        return DailySleepLog.builder()
+            .id(row.get("id", UUID.class))
+            .userId(row.get("user_id", Long.class))
+            .sleepStart(row.get("sleep_start", LocalDateTime.class))
+            .sleepEnd(row.get("sleep_end", LocalDateTime.class))
+            .sleepQuality(SleepQuality.values()[row.get("sleep_quality", Integer.class)])
+            .build();
+    }
+
+    private static DailySleepLogRollup toRollup(Readable row) {
+        return DailySleepLogRollup.builder()
+            .userId(row.get("user_id", Long.class))
+            .sleepDate(row.get("sleep_date", LocalDate.class))
+            .logCount(row.get("log_count", Integer.class))
+            .badCount(row.get("bad_count", Integer.class))
+            .okCount(row.get("ok_count", Integer.class))
+            .goodCount(row.get("good_count", Integer.class))
+            .sleepStartSecondsSum(row.get("sleep_start_seconds_sum", Long.class))
+            .sleepEndSecondsSum(row.get("sleep_end_seconds_sum", Long.class))
+            .sleepDurationSum(row.get("sleep_duration_sum", Long.class))
+            .build();
+    }
+}
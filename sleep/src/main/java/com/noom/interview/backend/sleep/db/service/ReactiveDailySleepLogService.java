@@ -0,0 +1,19 @@
+package com.noom.interview.backend.sleep.db.service;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveDailySleepLogService {
+
+    Flux<DailySleepLog> findByUserIdAndInterval(Long userId, LocalDateTime start, LocalDateTime end);
+
+    Flux<DailySleepLogRollup> findRollupsByUserIdAndInterval(Long userId, LocalDate start, LocalDate end);
+
+    Mono<SleepLogVersion> findUserVersion(Long userId);
+}
@@ -0,0 +1,59 @@
+package com.noom.interview.backend.sleep.db.service;
+
+
+import com.noom.interview.backend.sleep.exception.SleepLogAlreadyExistsException;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * Translates violations of the per-partition no_overlap exclusion constraints of daily_sleep_log into
+ * SleepLogAlreadyExistsException, reading both intervals from the Postgres error detail.
+ */
+final class SleepLogOverlapViolations {
+
+    static final Pattern CONSTRAINT_NAME = Pattern.compile("daily_sleep_log_(p\\d{6}|default)_no_overlap");
+
+    private static final String EXCLUSION_VIOLATION = "23P01";
+
+    private static final Pattern KEYS = Pattern.compile(
+        "\\)=\\(\\d+, \\[\"([^\"]+)\",\"([^\"]+)\"\\]\\) conflicts with existing key \\(.*\\)=\\(\\d+, \\[\"([^\"]+)\",\"([^\"]+)\"\\]\\)");
+
+    private SleepLogOverlapViolations() {
+    }
+
+    static RuntimeException translate(DataIntegrityViolationException e) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+        if (!(cause instanceof PSQLException psqlException)
+            || !EXCLUSION_VIOLATION.equals(psqlException.getSQLState())) {
+            return e;
+        }
+
+        ServerErrorMessage serverError = psqlException.getServerErrorMessage();
+        if (Objects.isNull(serverError) || Objects.isNull(serverError.getConstraint())
+            || !CONSTRAINT_NAME.matcher(serverError.getConstraint()).matches()) {
+            return e;
+        }
+        return new SleepLogAlreadyExistsException(describe(serverError.getDetail()));
+    }
+
+    static String describe(String detail) {
+        Matcher matcher = Objects.isNull(detail) ? null : KEYS.matcher(detail);
+        if (Objects.isNull(matcher) || !matcher.find()) {
+            return "You already have a log overlapping this period.";
+        }
+        return "You already have a log between " +
+            toDateTime(matcher.group(3)) + " and " + toDateTime(matcher.group(4)) +
+            ". The conflicting period is " +
+            toDateTime(matcher.group(1)) + " to " + toDateTime(matcher.group(2)) + ".";
+    }
+
+    private static LocalDateTime toDateTime(String postgresTimestamp) {
+        return LocalDateTime.parse(postgresTimestamp.replace(' ', 'T'));
+    }
+}
@@ -0,0 +1,49 @@
+package com.noom.interview.backend.sleep.db.shard;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Consistent hashing of user ids onto shard names. Every shard owns {@code virtualNodes} points on a 64-bit ring and a
+ * user belongs to the first point at or after its hash, so adding a shard only takes users away from the others,
+ * roughly 1/n of them, and never moves a user between two existing shards.
+ */
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<String> shards, int virtualNodes) {
+        if (shards.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A hash ring needs at least one shard and one virtual node per shard");
+        }
+        for (String shard : shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(shard + "#" + i), shard);
+            }
+        }
+    }
+
+    public String shardFor(long userId) {
+        Map.Entry<Long, String> owner = ring.ceilingEntry(mix(userId));
+        return (owner != null ? owner : ring.firstEntry()).getValue();
+    }
+
+    private static long hash(String point) {
+        return UUID.nameUUIDFromBytes(point.getBytes(StandardCharsets.UTF_8)).getMostSignificantBits();
+    }
+
+    private static long mix(long userId) {
+        long h = userId;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,53 @@
+package com.noom.interview.backend.sleep.db.shard;
+
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread's next transaction or statement runs on. {@code null} means the default shard, which
+ * is also what every caller sees while sharding is disabled.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static void set(String shard) {
+        CURRENT.set(shard);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static void runOn(String shard, Runnable action) {
+        callOn(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public static <T> T callOn(String shard, Supplier<T> action) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Carries the caller's shard over to a task run on another thread, e.g. an async MVC response body.
+     */
+    public static Runnable propagate(Runnable task) {
+        String shard = CURRENT.get();
+        return () -> runOn(shard, task);
+    }
+}
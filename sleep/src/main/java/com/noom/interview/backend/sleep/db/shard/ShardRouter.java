@@ -0,0 +1,157 @@
+package com.noom.interview.backend.sleep.db.shard;
+
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.noom.interview.backend.sleep.config.SleepLogShardingProperties;
+import com.noom.interview.backend.sleep.db.repository.SleepLogShardRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps a user id to the shard holding the user's logs. A user lives on their owner on the consistent hash ring unless
+ * they were moved: a move leaves a placement row naming the new shard on the ring owner, so only moved users have
+ * placements, and they are looked up per user on the ring owner and kept in a bounded cache for
+ * {@code placement-refresh}.
+ * <p>
+ * Shards configured as {@code joining} are already migrated and receive moves, but are only on the next ring. While one
+ * is joining, a user whose next ring owner differs is looked up there first, and new users go straight to it; the
+ * users already living on their current owner stay there until a rebalance moves them, before the joining flag is
+ * dropped. With sharding disabled every user maps to {@code null}, the single database.
+ */
+@Component
+public class ShardRouter {
+
+    private final List<String> shardNames;
+    private final ConsistentHashRing ring;
+    private final ConsistentHashRing nextRing;
+    private final SleepLogShardRepository shardRepository;
+    private final LoadingCache<Long, String> placements;
+
+    @Autowired
+    public ShardRouter(SleepLogShardingProperties properties, SleepLogShardRepository shardRepository) {
+        this.shardRepository = shardRepository;
+        if (!properties.isEnabled()) {
+            this.shardNames = List.of();
+            this.ring = null;
+            this.nextRing = null;
+            this.placements = null;
+            return;
+        }
+        this.shardNames = properties.getShards().stream().map(SleepLogShardingProperties.Shard::getName).toList();
+        List<String> ringShards = properties.getShards().stream()
+            .filter(shard -> !shard.isJoining())
+            .map(SleepLogShardingProperties.Shard::getName)
+            .toList();
+        this.ring = new ConsistentHashRing(ringShards, properties.getVirtualNodes());
+        this.nextRing = ringShards.size() == shardNames.size() ? ring : new ConsistentHashRing(shardNames, properties.getVirtualNodes());
+        this.placements = Caffeine.newBuilder()
+            .maximumSize(properties.getPlacementCacheSize())
+            .expireAfterWrite(properties.getPlacementRefresh())
+            .build(new CacheLoader<>() {
+                @Override
+                public String load(Long userId) {
+                    return resolve(List.of(userId)).get(userId);
+                }
+
+                @Override
+                public Map<Long, String> loadAll(Set<? extends Long> userIds) {
+                    return resolve(userIds);
+                }
+            });
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    public List<String> shardNames() {
+        return shardNames;
+    }
+
+    public String shardFor(Long userId) {
+        return isEnabled() ? placements.get(userId) : null;
+    }
+
+    public String ringShardFor(Long userId) {
+        return isEnabled() ? ring.shardFor(userId) : null;
+    }
+
+    /**
+     * The user's owner once the joining shards are on the ring, the same as {@link #ringShardFor} when none is joining.
+     */
+    public String nextRingShardFor(Long userId) {
+        return isEnabled() ? nextRing.shardFor(userId) : null;
+    }
+
+    public void place(Long userId, String shard) {
+        if (isEnabled()) {
+            placements.put(userId, shard);
+        }
+    }
+
+    public void forEachShard(Runnable action) {
+        if (!isEnabled()) {
+            action.run();
+            return;
+        }
+        shardNames.forEach(shard -> ShardContext.runOn(shard, action));
+    }
+
+    public <T> Map<String, List<T>> groupByShard(List<T> items, Function<T, Long> userId) {
+        Map<Long, String> shards = isEnabled() ? placements.getAll(items.stream().map(userId).toList()) : Map.of();
+        Map<String, List<T>> groups = new LinkedHashMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shards.get(userId.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * One placement query per ring owner for the users missing from the cache. While a shard is joining, users without
+     * a placement on their next owner are looked up on their current owner as well, and stay there if it holds rows
+     * for them.
+     */
+    private Map<Long, String> resolve(Collection<? extends Long> userIds) {
+        Map<Long, String> resolved = new HashMap<>();
+        Map<String, List<Long>> byNextOwner = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            byNextOwner.computeIfAbsent(nextRing.shardFor(userId), shard -> new ArrayList<>()).add(userId);
+        }
+        Map<String, List<Long>> byOwner = new LinkedHashMap<>();
+        byNextOwner.forEach((nextOwner, shardUserIds) -> {
+            Map<Long, String> moved = ShardContext.callOn(nextOwner, () -> shardRepository.findPlacements(shardUserIds));
+            for (Long userId : shardUserIds) {
+                String owner = ring.shardFor(userId);
+                if (moved.containsKey(userId)) {
+                    resolved.put(userId, moved.get(userId));
+                } else if (owner.equals(nextOwner)) {
+                    resolved.put(userId, owner);
+                } else {
+                    byOwner.computeIfAbsent(owner, shard -> new ArrayList<>()).add(userId);
+                }
+            }
+        });
+        byOwner.forEach((owner, shardUserIds) -> ShardContext.runOn(owner, () -> {
+            Map<Long, String> moved = shardRepository.findPlacements(shardUserIds);
+            Set<Long> resident = new HashSet<>(shardRepository.findUserIdsWithRows(
+                shardUserIds.stream().filter(userId -> !moved.containsKey(userId)).toList()));
+            for (Long userId : shardUserIds) {
+                String placed = moved.get(userId);
+                resolved.put(userId, Objects.nonNull(placed) ? placed : resident.contains(userId) ? owner : nextRing.shardFor(userId));
+            }
+        }));
+        return resolved;
+    }
+}
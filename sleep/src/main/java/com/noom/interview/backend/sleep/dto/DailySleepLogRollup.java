@@ -0,0 +1,19 @@
+package com.noom.interview.backend.sleep.dto;
+
+import java.time.LocalDate;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class DailySleepLogRollup {
+    private Long userId;
+    private LocalDate sleepDate;
+    private int logCount;
+    private int badCount;
+    private int okCount;
+    private int goodCount;
+    private long sleepStartSecondsSum;
+    private long sleepEndSecondsSum;
+    private long sleepDurationSum;
+}
@@ -0,0 +1,15 @@
+package com.noom.interview.backend.sleep.dto;
+
+import java.util.Map;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class IdempotentResponse {
+    private String fingerprint;
+    private int status;
+    private String contentType;
+    private Map<String, String> headers;
+    private byte[] body;
+}
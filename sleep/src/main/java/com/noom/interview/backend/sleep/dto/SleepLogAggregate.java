@@ -0,0 +1,43 @@
+package com.noom.interview.backend.sleep.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SleepLogAggregate {
+    private long logCount;
+    private long badCount;
+    private long okCount;
+    private long goodCount;
+    private long sleepStartSecondsSum;
+    private long sleepEndSecondsSum;
+
+    public static SleepLogAggregate fromRollups(List<DailySleepLogRollup> rollups) {
+        long logCount = 0;
+        long badCount = 0;
+        long okCount = 0;
+        long goodCount = 0;
+        long sleepStartSecondsSum = 0;
+        long sleepEndSecondsSum = 0;
+
+        for (DailySleepLogRollup rollup : rollups) {
+            logCount += rollup.getLogCount();
+            badCount += rollup.getBadCount();
+            okCount += rollup.getOkCount();
+            goodCount += rollup.getGoodCount();
+            sleepStartSecondsSum += rollup.getSleepStartSecondsSum();
+            sleepEndSecondsSum += rollup.getSleepEndSecondsSum();
+        }
+
+        return SleepLogAggregate.builder()
+            .logCount(logCount)
+            .badCount(badCount)
+            .okCount(okCount)
+            .goodCount(goodCount)
+            .sleepStartSecondsSum(sleepStartSecondsSum)
+            .sleepEndSecondsSum(sleepEndSecondsSum)
+            .build();
+    }
+}
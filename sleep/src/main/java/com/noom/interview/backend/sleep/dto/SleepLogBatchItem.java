@@ -0,0 +1,14 @@
+package com.noom.interview.backend.sleep.dto;
+
+import com.noom.interview.backend.sleep.enums.SleepLogBatchItemStatus;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SleepLogBatchItem {
+    private int index;
+    private SleepLogBatchItemStatus status;
+    private DailySleepLog sleepLog;
+    private String error;
+}
@@ -0,0 +1,25 @@
+package com.noom.interview.backend.sleep.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SleepLogCohortReport {
+    private LocalDate reportDate;
+    private LocalDate cohortMonth;
+    private LocalDate windowStart;
+    private LocalDate windowEnd;
+    private long userCount;
+    private long logCount;
+    private long badCount;
+    private long okCount;
+    private long goodCount;
+    private long sleepStartSecondsSum;
+    private long sleepEndSecondsSum;
+    private long sleepDurationSum;
+    private LocalTime avgSleepStart;
+    private LocalTime avgSleepEnd;
+}
@@ -0,0 +1,20 @@
+package com.noom.interview.backend.sleep.dto;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * One user's month of nights packed by {@link com.noom.interview.backend.sleep.db.cold.SleepLogColdCodec}.
+ */
+@Data
+@Builder
+public class SleepLogColdMonth {
+    private Long userId;
+    private YearMonth month;
+    private int logCount;
+    private LocalDateTime firstSleepStart;
+    private LocalDateTime lastSleepEnd;
+    private byte[] payload;
+}
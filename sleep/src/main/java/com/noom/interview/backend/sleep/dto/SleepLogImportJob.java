@@ -0,0 +1,22 @@
+package com.noom.interview.backend.sleep.dto;
+
+import com.noom.interview.backend.sleep.enums.SleepLogImportFormat;
+import com.noom.interview.backend.sleep.enums.SleepLogImportStatus;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SleepLogImportJob {
+    private UUID id;
+    private String source;
+    private SleepLogImportFormat format;
+    private SleepLogImportStatus status;
+    private long rowsRead;
+    private long rowsLoaded;
+    private long rowsRejected;
+    private String error;
+    private LocalDateTime modifiedAt;
+}
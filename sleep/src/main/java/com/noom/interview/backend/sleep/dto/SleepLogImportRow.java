@@ -0,0 +1,33 @@
+package com.noom.interview.backend.sleep.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of an import file: an {@code AddSleepLogRequest} plus the user it belongs to.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SleepLogImportRow {
+
+    private Long userId;
+
+    @JsonFormat(pattern = "MM/dd/yyyy")
+    private LocalDate sleepDate;
+
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime sleepStart;
+
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime sleepEnd;
+
+    private SleepQuality sleepQuality;
+}
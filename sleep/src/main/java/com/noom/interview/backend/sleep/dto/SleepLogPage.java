@@ -0,0 +1,12 @@
+package com.noom.interview.backend.sleep.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SleepLogPage {
+    private List<DailySleepLog> sleepLogs;
+    private boolean hasMore;
+}
@@ -0,0 +1,16 @@
+package com.noom.interview.backend.sleep.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * One user's line of the batch stats: the aggregate over the window and the last log, the latter {@code null} when
+ * the user has not logged a night ending today.
+ */
+@Data
+@Builder
+public class SleepLogUserStats {
+    private Long userId;
+    private SleepLogAggregate aggregate;
+    private DailySleepLog lastSleep;
+}
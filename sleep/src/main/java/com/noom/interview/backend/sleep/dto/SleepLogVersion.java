@@ -0,0 +1,16 @@
+package com.noom.interview.backend.sleep.dto;
+
+import java.time.LocalDateTime;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Per-user data version, bumped by every write that changes what the user's reads return.
+ */
+@Data
+@Builder
+public class SleepLogVersion {
+    private Long userId;
+    private long version;
+    private LocalDateTime modifiedAt;
+}
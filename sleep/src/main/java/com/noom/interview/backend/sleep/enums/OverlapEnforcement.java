@@ -0,0 +1,6 @@
+package com.noom.interview.backend.sleep.enums;
+
+
+public enum OverlapEnforcement {
+    AUTO, DATABASE, APPLICATION;
+}
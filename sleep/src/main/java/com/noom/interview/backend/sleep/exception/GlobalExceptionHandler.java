@@ -42,7 +42,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     @ExceptionHandler(SleepLogAlreadyExistsException.class)
     @ResponseStatus(HttpStatus.NOT_ACCEPTABLE)
     public ErrorResponse handleSleepLogAlreadyExistsException(Exception e) {
-        log.error(e.getMessage(), e);
+        log.warn(e.getMessage());
         return ErrorResponse.builder()
           .timestamp(LocalDateTime.now())
           .status(HttpStatus.NOT_ACCEPTABLE.value())
@@ -50,6 +50,42 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
           .build();
     }
 
+    @ResponseBody
+    @ExceptionHandler(InvalidSleepLogCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleInvalidSleepLogCursorException(Exception e) {
+        log.warn(e.getMessage());
+        return ErrorResponse.builder()
+          .timestamp(LocalDateTime.now())
+          .status(HttpStatus.BAD_REQUEST.value())
+          .errors(List.of(e.getMessage()))
+          .build();
+    }
+
+    @ExceptionHandler(SleepLogUserMovedException.class)
+    public ResponseEntity<ErrorResponse> handleSleepLogUserMovedException(Exception e) {
+        log.warn(e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, "1")
+          .body(ErrorResponse.builder()
+            .timestamp(LocalDateTime.now())
+            .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+            .errors(List.of(e.getMessage()))
+            .build());
+    }
+
+    @ExceptionHandler(SleepLogWriteRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleSleepLogWriteRejectedException(Exception e) {
+        log.warn(e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, "1")
+          .body(ErrorResponse.builder()
+            .timestamp(LocalDateTime.now())
+            .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+            .errors(List.of(e.getMessage()))
+            .build());
+    }
+
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException e, HttpHeaders headers, HttpStatus status, WebRequest request) {
         log.error(e.getMessage(), e);
         List<String> errors = e.getBindingResult().getFieldErrors().stream().map(FieldError::getDefaultMessage).collect(Collectors.toList());
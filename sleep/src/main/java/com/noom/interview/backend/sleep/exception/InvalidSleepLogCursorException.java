@@ -0,0 +1,8 @@
+package com.noom.interview.backend.sleep.exception;
+
+public class InvalidSleepLogCursorException extends RuntimeException {
+
+    public InvalidSleepLogCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.noom.interview.backend.sleep.exception;
+
+public class SleepLogStorageException extends RuntimeException {
+
+    public SleepLogStorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,8 @@
+package com.noom.interview.backend.sleep.exception;
+
+public class SleepLogUserMovedException extends RuntimeException {
+
+    public SleepLogUserMovedException(Long userId, String shard) {
+        super("Sleep logs of user " + userId + " moved to shard " + shard + ", retry later");
+    }
+}
@@ -0,0 +1,8 @@
+package com.noom.interview.backend.sleep.exception;
+
+public class SleepLogWriteRejectedException extends RuntimeException {
+
+    public SleepLogWriteRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,243 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.config.SleepLogReportProperties;
+import com.noom.interview.backend.sleep.db.repository.SleepLogReportRepository;
+import com.noom.interview.backend.sleep.db.shard.ShardContext;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogCohortReport;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Nightly population statistics: quality distribution and average bedtime of the last {@code windowDays} days per
+ * cohort, a cohort being the month of a user's first logged night. Each shard's users are split into ranges of
+ * {@code chunkSize} users, bounded by the ids actually present, that a fixed pool of {@code parallelism} workers scans
+ * with streaming reads, one read-only transaction per range, so the job never holds more than {@code parallelism}
+ * connections; the per-range totals are merged and stored in {@code sleep_log_population_report} on the default shard.
+ */
+@Service
+public class BuildSleepLogPopulationReport {
+
+    private static final Logger log = LoggerFactory.getLogger(BuildSleepLogPopulationReport.class);
+
+    private final SleepLogReportRepository reportRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final SleepLogReportProperties properties;
+    private final ShardRouter shardRouter;
+
+    @Autowired
+    public BuildSleepLogPopulationReport(SleepLogReportRepository reportRepository, PlatformTransactionManager transactionManager,
+                                         SleepLogReportProperties properties, ShardRouter shardRouter) {
+        this.reportRepository = reportRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+    }
+
+    @Scheduled(cron = "${sleep-log.report.cron:0 30 2 * * *}")
+    public void nightly() {
+        if (properties.isEnabled()) {
+            execute(LocalDate.now());
+        }
+    }
+
+    public List<SleepLogCohortReport> execute(LocalDate reportDate) {
+        LocalDate windowStart = reportDate.minusDays(properties.getWindowDays());
+        LocalDate windowEnd = reportDate.minusDays(1);
+        long started = System.nanoTime();
+
+        Map<LocalDate, CohortTotals> totals = new TreeMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, properties.getParallelism()));
+        try {
+            shardRouter.forEachShard(() -> merge(totals, scanShard(pool, windowStart, windowEnd)));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<SleepLogCohortReport> reports = totals.entrySet().stream()
+            .map(cohort -> cohort.getValue().toReport(reportDate, cohort.getKey(), windowStart, windowEnd))
+            .toList();
+        ShardContext.runOn(null, () -> transactionTemplate.executeWithoutResult(status -> reportRepository.replaceReport(reportDate, reports)));
+
+        log.info("Sleep log population report for {}: {} cohorts, {} users in {}", reportDate, reports.size(),
+            reports.stream().mapToLong(SleepLogCohortReport::getUserCount).sum(), Duration.ofNanos(System.nanoTime() - started));
+        return reports;
+    }
+
+    private Map<LocalDate, CohortTotals> scanShard(ExecutorService pool, LocalDate windowStart, LocalDate windowEnd) {
+        String shard = ShardContext.current();
+        List<Future<Map<LocalDate, CohortTotals>>> scans = reportRepository.findUserIdRanges(Math.max(1, properties.getChunkSize())).stream()
+            .map(range -> pool.submit(new RangeScan(shard, range.min(), range.max() + 1, windowStart, windowEnd)))
+            .toList();
+        Map<LocalDate, CohortTotals> totals = new TreeMap<>();
+        for (Future<Map<LocalDate, CohortTotals>> scan : scans) {
+            merge(totals, await(scan));
+        }
+        return totals;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the population report", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Map<LocalDate, CohortTotals> merge(Map<LocalDate, CohortTotals> into, Map<LocalDate, CohortTotals> from) {
+        from.forEach((cohortMonth, totals) -> into.computeIfAbsent(cohortMonth, month -> new CohortTotals()).add(totals));
+        return into;
+    }
+
+    /**
+     * Scans [fromUserId, toUserId) on the captured shard, since pool workers do not inherit the caller's
+     * {@link ShardContext}.
+     */
+    private class RangeScan implements Callable<Map<LocalDate, CohortTotals>> {
+
+        private final String shard;
+        private final long fromUserId;
+        private final long toUserId;
+        private final LocalDate windowStart;
+        private final LocalDate windowEnd;
+
+        RangeScan(String shard, long fromUserId, long toUserId, LocalDate windowStart, LocalDate windowEnd) {
+            this.shard = shard;
+            this.fromUserId = fromUserId;
+            this.toUserId = toUserId;
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+        }
+
+        @Override
+        public Map<LocalDate, CohortTotals> call() {
+            return ShardContext.callOn(shard, () -> readOnlyTransactionTemplate.execute(status -> {
+                RangeTotals rangeTotals = new RangeTotals(windowStart);
+                reportRepository.scanRollups(shard, fromUserId, toUserId, windowEnd, properties.getFetchSize(), rangeTotals);
+                return rangeTotals.finish();
+            }));
+        }
+    }
+
+    /**
+     * Folds a range's rollups, ordered by user and day, into cohort totals one user at a time. The first row of a user
+     * fixes the cohort; only rows inside the window are counted, and users without any are left out.
+     */
+    private static class RangeTotals implements Consumer<DailySleepLogRollup> {
+
+        private final LocalDate windowStart;
+        private final Map<LocalDate, CohortTotals> cohorts = new TreeMap<>();
+        private Long userId;
+        private LocalDate cohortMonth;
+        private CohortTotals user = new CohortTotals();
+
+        RangeTotals(LocalDate windowStart) {
+            this.windowStart = windowStart;
+        }
+
+        @Override
+        public void accept(DailySleepLogRollup rollup) {
+            if (!rollup.getUserId().equals(userId)) {
+                flushUser();
+                userId = rollup.getUserId();
+                cohortMonth = rollup.getSleepDate().withDayOfMonth(1);
+            }
+            if (!rollup.getSleepDate().isBefore(windowStart)) {
+                user.add(rollup);
+            }
+        }
+
+        Map<LocalDate, CohortTotals> finish() {
+            flushUser();
+            return cohorts;
+        }
+
+        private void flushUser() {
+            if (user.logCount > 0) {
+                user.userCount = 1;
+                cohorts.computeIfAbsent(cohortMonth, month -> new CohortTotals()).add(user);
+                user = new CohortTotals();
+            }
+        }
+    }
+
+    private static class CohortTotals {
+
+        private long userCount;
+        private long logCount;
+        private long badCount;
+        private long okCount;
+        private long goodCount;
+        private long sleepStartSecondsSum;
+        private long sleepEndSecondsSum;
+        private long sleepDurationSum;
+
+        void add(DailySleepLogRollup rollup) {
+            logCount += rollup.getLogCount();
+            badCount += rollup.getBadCount();
+            okCount += rollup.getOkCount();
+            goodCount += rollup.getGoodCount();
+            sleepStartSecondsSum += rollup.getSleepStartSecondsSum();
+            sleepEndSecondsSum += rollup.getSleepEndSecondsSum();
+            sleepDurationSum += rollup.getSleepDurationSum();
+        }
+
+        void add(CohortTotals other) {
+            userCount += other.userCount;
+            logCount += other.logCount;
+            badCount += other.badCount;
+            okCount += other.okCount;
+            goodCount += other.goodCount;
+            sleepStartSecondsSum += other.sleepStartSecondsSum;
+            sleepEndSecondsSum += other.sleepEndSecondsSum;
+            sleepDurationSum += other.sleepDurationSum;
+        }
+
+        SleepLogCohortReport toReport(LocalDate reportDate, LocalDate cohortMonth, LocalDate windowStart, LocalDate windowEnd) {
+            return SleepLogCohortReport.builder()
+                .reportDate(reportDate)
+                .cohortMonth(cohortMonth)
+                .windowStart(windowStart)
+                .windowEnd(windowEnd)
+                .userCount(userCount)
+                .logCount(logCount)
+                .badCount(badCount)
+                .okCount(okCount)
+                .goodCount(goodCount)
+                .sleepStartSecondsSum(sleepStartSecondsSum)
+                .sleepEndSecondsSum(sleepEndSecondsSum)
+                .sleepDurationSum(sleepDurationSum)
+                .avgSleepStart(LocalTime.ofSecondOfDay(sleepStartSecondsSum / logCount))
+                .avgSleepEnd(LocalTime.ofSecondOfDay(sleepEndSecondsSum / logCount))
+                .build();
+        }
+    }
+}
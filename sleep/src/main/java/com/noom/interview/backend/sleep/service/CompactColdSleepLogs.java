@@ -0,0 +1,125 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.config.SleepLogColdProperties;
+import com.noom.interview.backend.sleep.db.cold.SleepLogColdCodec;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogJdbcRepository;
+import com.noom.interview.backend.sleep.db.repository.SleepLogColdRepository;
+import com.noom.interview.backend.sleep.db.shard.ShardContext;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogColdMonth;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Moves nights to the cold tier: every night, on every shard, each user's month that lies entirely {@code afterDays}
+ * in the past is packed with {@link SleepLogColdCodec} into its sleep_log_cold_month row, merged with what an earlier
+ * run packed there, and its daily_sleep_log rows are deleted. Rollups are left alone, so the stats stay as they are.
+ * Users are locked as for a save, so an overlap check never sees a night in neither or both tiers.
+ */
+@Service
+@ConditionalOnProperty(prefix = "sleep-log.cold", name = "enabled", havingValue = "true")
+public class CompactColdSleepLogs {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactColdSleepLogs.class);
+
+    private final SleepLogColdRepository coldRepository;
+    private final DailySleepLogJdbcRepository jdbcRepository;
+    private final TransactionOperations transactionOperations;
+    private final ShardRouter shardRouter;
+    private final SleepLogMetrics metrics;
+    private final SleepLogColdProperties properties;
+
+    @Autowired
+    public CompactColdSleepLogs(SleepLogColdRepository coldRepository, DailySleepLogJdbcRepository jdbcRepository,
+                                TransactionOperations transactionOperations, ShardRouter shardRouter, SleepLogMetrics metrics,
+                                SleepLogColdProperties properties) {
+        this.coldRepository = coldRepository;
+        this.jdbcRepository = jdbcRepository;
+        this.transactionOperations = transactionOperations;
+        this.shardRouter = shardRouter;
+        this.metrics = metrics;
+        this.properties = properties;
+    }
+
+    @Scheduled(cron = "${sleep-log.cold.cron:0 0 4 * * *}")
+    public void compact() {
+        YearMonth firstHotMonth = YearMonth.from(LocalDate.now().minusDays(properties.getAfterDays()));
+        shardRouter.forEachShard(() -> execute(firstHotMonth.atDay(1).atStartOfDay()));
+    }
+
+    Result execute(LocalDateTime before) {
+        String shard = ShardContext.current();
+        Result total = new Result(0, 0, 0);
+        while (true) {
+            List<SleepLogColdRepository.UserMonth> months =
+                coldRepository.findCompactableMonths(shard, before, properties.getMonthsPerTransaction());
+            if (months.isEmpty()) {
+                break;
+            }
+            total = total.plus(transactionOperations.execute(status -> compact(months)));
+            if (months.size() < properties.getMonthsPerTransaction()) {
+                break;
+            }
+        }
+
+        log.info("Compacted {} sleep logs ending before {} into {} cold months of {} bytes", total.logs(), before, total.months(),
+            total.payloadBytes());
+        return total;
+    }
+
+    private Result compact(List<SleepLogColdRepository.UserMonth> months) {
+        Set<Long> userIds = new TreeSet<>();
+        months.forEach(month -> userIds.add(month.userId()));
+        userIds.forEach(jdbcRepository::lockUser);
+
+        Result result = new Result(0, 0, 0);
+        for (SleepLogColdRepository.UserMonth month : months) {
+            List<DailySleepLog> hot = coldRepository.findHotLogs(month.userId(), month.month());
+            if (hot.isEmpty()) {
+                continue;
+            }
+            List<DailySleepLog> nights = new ArrayList<>(hot);
+            Optional<SleepLogColdMonth> packed = coldRepository.findMonth(month.userId(), month.month());
+            packed.ifPresent(cold -> nights.addAll(SleepLogColdCodec.decode(cold.getUserId(), cold.getMonth(), cold.getPayload())));
+
+            byte[] payload = SleepLogColdCodec.encode(month.month(), nights);
+            coldRepository.saveMonth(SleepLogColdMonth.builder()
+                .userId(month.userId())
+                .month(month.month())
+                .logCount(nights.size())
+                .firstSleepStart(nights.stream().map(DailySleepLog::getSleepStart).min(Comparator.naturalOrder()).get())
+                .lastSleepEnd(nights.stream().map(DailySleepLog::getSleepEnd).max(Comparator.naturalOrder()).get())
+                .payload(payload)
+                .build());
+            coldRepository.deleteHotLogs(month.userId(), month.month(), hot.stream().map(DailySleepLog::getId).toList());
+            metrics.recordColdMonth(hot.size(), payload.length);
+            result = result.plus(new Result(1, hot.size(), payload.length));
+        }
+        // Compacted nights come back with new ids, so cached responses naming the old ones must not be revalidated.
+        jdbcRepository.bumpUserVersions(userIds);
+        return result;
+    }
+
+    record Result(int months, long logs, long payloadBytes) {
+
+        Result plus(Result other) {
+            return new Result(months + other.months, logs + other.logs, payloadBytes + other.payloadBytes);
+        }
+    }
+}
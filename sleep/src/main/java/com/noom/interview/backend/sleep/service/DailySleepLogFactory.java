@@ -0,0 +1,37 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Objects;
+
+/**
+ * Turns a night as users report it (the date they woke up, bed and wake-up times) into a {@link DailySleepLog}.
+ * Shared by the API and the bulk import so both read the same input the same way.
+ */
+public final class DailySleepLogFactory {
+
+    private DailySleepLogFactory() {
+    }
+
+    public static DailySleepLog create(Long userId, LocalDate sleepDate, LocalTime sleepStart, LocalTime sleepEnd, SleepQuality sleepQuality) {
+        LocalDate date = Objects.isNull(sleepDate)
+            ? LocalDate.now()
+            : sleepDate;
+
+        LocalDateTime start = sleepStart.isAfter(sleepEnd)
+            ? LocalDateTime.of(date.minusDays(1), sleepStart)
+            : LocalDateTime.of(date, sleepStart);
+        LocalDateTime end = LocalDateTime.of(date, sleepEnd);
+
+        return DailySleepLog.builder()
+            .userId(userId)
+            .sleepStart(start)
+            .sleepEnd(end)
+            .sleepQuality(sleepQuality)
+            .build();
+    }
+}
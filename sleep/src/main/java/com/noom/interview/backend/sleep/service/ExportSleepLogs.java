@@ -0,0 +1,94 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.SleepLogExportFormat;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ExportSleepLogs {
+
+    static final String CSV_HEADER = "id,user_id,sleep_start,sleep_end,sleep_quality";
+
+    private final DailySleepLogService service;
+    private final ObjectMapper objectMapper;
+    private final ReplicaReads replicaReads;
+
+    @Autowired
+    public ExportSleepLogs(DailySleepLogService service, ObjectMapper objectMapper, ReplicaReads replicaReads) {
+        this.service = service;
+        this.objectMapper = objectMapper;
+        this.replicaReads = replicaReads;
+    }
+
+    public void execute(Long userId, SleepLogExportFormat format, OutputStream outputStream) throws IOException {
+        try {
+            replicaReads.forUser(userId, () -> {
+                try {
+                    switch (format) {
+                        case NDJSON -> writeNdjson(userId, outputStream);
+                        case CSV -> writeCsv(userId, outputStream);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeNdjson(Long userId, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            service.forEachByUserId(userId, dailySleepLog -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeStringField("id", String.valueOf(dailySleepLog.getId()));
+                    generator.writeNumberField("userId", dailySleepLog.getUserId());
+                    generator.writeStringField("sleepStart", dailySleepLog.getSleepStart().toString());
+                    generator.writeStringField("sleepEnd", dailySleepLog.getSleepEnd().toString());
+                    generator.writeStringField("sleepQuality", dailySleepLog.getSleepQuality().name());
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void writeCsv(Long userId, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        service.forEachByUserId(userId, dailySleepLog -> {
+            try {
+                writer.write(toCsvLine(dailySleepLog));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private static String toCsvLine(DailySleepLog dailySleepLog) {
+        return dailySleepLog.getId() + "," + dailySleepLog.getUserId() + "," + dailySleepLog.getSleepStart() + ","
+            + dailySleepLog.getSleepEnd() + "," + dailySleepLog.getSleepQuality() + "\n";
+    }
+}
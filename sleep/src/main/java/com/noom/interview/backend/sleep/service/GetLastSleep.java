@@ -1,9 +1,11 @@
 package com.noom.interview.backend.sleep.service;
 
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
 import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
 import com.noom.interview.backend.sleep.dto.DailySleepLog;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -11,17 +13,21 @@ import org.springframework.stereotype.Service;
 public class GetLastSleep {
 
     private final DailySleepLogService service;
+    private final ReplicaReads replicaReads;
+    private final SleepLogMetrics metrics;
 
     @Autowired
-    public GetLastSleep(DailySleepLogService service) {
+    public GetLastSleep(DailySleepLogService service, ReplicaReads replicaReads, SleepLogMetrics metrics) {
         this.service = service;
+        this.replicaReads = replicaReads;
+        this.metrics = metrics;
     }
 
     public DailySleepLog execute(Long userId) {
-        return service
-            .findByUserIdAndInterval(userId, LocalDate.now().atStartOfDay(), LocalDateTime.now())
-            .stream()
-            .findFirst()
-            .orElse(null);
+        return metrics.timeGetLastSleep(() -> replicaReads.forUser(userId, () -> {
+            List<DailySleepLog> today = service.findByUserIdAndInterval(userId, LocalDate.now().atStartOfDay(), LocalDateTime.now());
+            metrics.recordWindowRows("get_last_sleep", 1, today.size());
+            return today.stream().findFirst().orElse(null);
+        }));
     }
 }
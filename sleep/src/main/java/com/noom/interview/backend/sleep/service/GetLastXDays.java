@@ -1,18 +1,18 @@
 package com.noom.interview.backend.sleep.service;
 
 
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
 import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
 import com.noom.interview.backend.sleep.dto.AvgSleepLog;
-import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogAggregate;
 import com.noom.interview.backend.sleep.enums.SleepQuality;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -20,34 +20,45 @@ import org.springframework.stereotype.Service;
 public class GetLastXDays {
 
     private final DailySleepLogService service;
+    private final ReplicaReads replicaReads;
+    private final SleepLogMetrics metrics;
 
     @Autowired
-    public GetLastXDays(DailySleepLogService service) {
+    public GetLastXDays(DailySleepLogService service, ReplicaReads replicaReads, SleepLogMetrics metrics) {
         this.service = service;
+        this.replicaReads = replicaReads;
+        this.metrics = metrics;
     }
 
     public AvgSleepLog execute(Long userId, Long numberOfDays) {
-        List<DailySleepLog> result = service.findByUserIdAndInterval(userId, LocalDate.now().atStartOfDay().minusDays(numberOfDays), LocalDateTime.now());
+        return metrics.timeGetLastXDays(numberOfDays, () -> {
+            LocalDate today = LocalDate.now();
+            SleepLogAggregate aggregate = replicaReads.forUser(userId,
+                () -> service.aggregateByUserIdAndInterval(userId, today.minusDays(numberOfDays), today));
+            metrics.recordWindowRows("get_last_x_days", numberOfDays, Objects.isNull(aggregate) ? 0 : aggregate.getLogCount());
+            return toAvgSleepLog(userId, aggregate);
+        });
+    }
 
+    public static AvgSleepLog summarize(Long userId, List<DailySleepLogRollup> result) {
         if (Objects.isNull(result) || result.isEmpty()) {
             return null;
         }
+        return toAvgSleepLog(userId, SleepLogAggregate.fromRollups(result));
+    }
 
-        AtomicInteger totalSleepStart = new AtomicInteger();
-        AtomicInteger totalSleepEnd = new AtomicInteger();
-        Map<SleepQuality, Integer> sleepQualityCount = new HashMap<>();
-        sleepQualityCount.put(SleepQuality.BAD, 0);
-        sleepQualityCount.put(SleepQuality.OK, 0);
-        sleepQualityCount.put(SleepQuality.GOOD, 0);
-
-        result.forEach(log -> {
-            totalSleepStart.addAndGet(log.getSleepStart().toLocalTime().toSecondOfDay());
-            totalSleepEnd.addAndGet(log.getSleepEnd().toLocalTime().toSecondOfDay());
-            sleepQualityCount.put(log.getSleepQuality(), sleepQualityCount.get(log.getSleepQuality()) + 1);
-        });
+    static AvgSleepLog toAvgSleepLog(Long userId, SleepLogAggregate aggregate) {
+        if (Objects.isNull(aggregate) || aggregate.getLogCount() == 0) {
+            return null;
+        }
+
+        Map<SleepQuality, Integer> sleepQualityCount = new EnumMap<>(SleepQuality.class);
+        sleepQualityCount.put(SleepQuality.BAD, Math.toIntExact(aggregate.getBadCount()));
+        sleepQualityCount.put(SleepQuality.OK, Math.toIntExact(aggregate.getOkCount()));
+        sleepQualityCount.put(SleepQuality.GOOD, Math.toIntExact(aggregate.getGoodCount()));
 
-        LocalTime avgSleepStart = LocalTime.ofSecondOfDay(totalSleepStart.get() / result.size());
-        LocalTime avgSleepEnd = LocalTime.ofSecondOfDay(totalSleepEnd.get() / result.size());
+        LocalTime avgSleepStart = LocalTime.ofSecondOfDay(aggregate.getSleepStartSecondsSum() / aggregate.getLogCount());
+        LocalTime avgSleepEnd = LocalTime.ofSecondOfDay(aggregate.getSleepEndSecondsSum() / aggregate.getLogCount());
 
         return AvgSleepLog.builder()
           .userId(userId)
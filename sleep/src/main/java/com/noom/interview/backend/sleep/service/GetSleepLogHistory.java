@@ -0,0 +1,35 @@
+package com.noom.interview.backend.sleep.service;
+
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogPage;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class GetSleepLogHistory {
+
+    public static final int DEFAULT_LIMIT = 30;
+    public static final int MAX_LIMIT = 100;
+
+    private final DailySleepLogService service;
+
+    @Autowired
+    public GetSleepLogHistory(DailySleepLogService service) {
+        this.service = service;
+    }
+
+    public SleepLogPage execute(Long userId, LocalDateTime beforeSleepEnd, UUID beforeId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<DailySleepLog> result = service.findPageByUserId(userId, beforeSleepEnd, beforeId, pageSize + 1);
+
+        boolean hasMore = result.size() > pageSize;
+        return SleepLogPage.builder()
+            .sleepLogs(hasMore ? result.subList(0, pageSize) : result)
+            .hasMore(hasMore)
+            .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.noom.interview.backend.sleep.service;
+
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs a read only when the user's data version fails the caller's not-modified check. The version is read first on
+ * the same connection as the data, and reading it drops a cached hot window loaded at any other version, so the data
+ * is never older than the version it is tagged with.
+ */
+@Service
+public class GetSleepLogIfModified {
+
+    private final DailySleepLogService service;
+    private final ReplicaReads replicaReads;
+
+    @Autowired
+    public GetSleepLogIfModified(DailySleepLogService service, ReplicaReads replicaReads) {
+        this.service = service;
+        this.replicaReads = replicaReads;
+    }
+
+    public <T> Result<T> execute(Long userId, Predicate<SleepLogVersion> notModified, Supplier<T> read) {
+        return replicaReads.forUser(userId, () -> {
+            SleepLogVersion version = service.findUserVersion(userId)
+                .orElseGet(() -> SleepLogVersion.builder().userId(userId).version(0).build());
+            if (notModified.test(version)) {
+                return new Result<T>(false, null);
+            }
+            return new Result<>(true, read.get());
+        });
+    }
+
+    public record Result<T>(boolean modified, T value) {
+    }
+}
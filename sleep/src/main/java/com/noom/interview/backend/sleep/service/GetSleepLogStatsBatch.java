@@ -0,0 +1,49 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.db.shard.ShardContext;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.dto.AvgSleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Last-sleep and last-x-days for many users at once, for coach dashboards. The users are grouped by shard and each
+ * group is read with one statement, so results reach the caller shard by shard, in user id order within a shard.
+ */
+@Service
+public class GetSleepLogStatsBatch {
+
+    private final DailySleepLogService service;
+    private final ReplicaReads replicaReads;
+    private final ShardRouter shardRouter;
+
+    @Autowired
+    public GetSleepLogStatsBatch(DailySleepLogService service, ReplicaReads replicaReads, ShardRouter shardRouter) {
+        this.service = service;
+        this.replicaReads = replicaReads;
+        this.shardRouter = shardRouter;
+    }
+
+    public void execute(List<Long> userIds, Long numberOfDays, Consumer<UserStats> action) {
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        shardRouter.groupByShard(userIds.stream().distinct().toList(), userId -> userId).forEach((shard, shardUserIds) ->
+            ShardContext.runOn(shard, () -> replicaReads.forUsers(shardUserIds, () -> {
+                service.forEachUserStats(shardUserIds, today.minusDays(numberOfDays), today, today.atStartOfDay(), now,
+                    stats -> action.accept(new UserStats(stats.getUserId(),
+                        GetLastXDays.toAvgSleepLog(stats.getUserId(), stats.getAggregate()), stats.getLastSleep())));
+                return null;
+            })));
+    }
+
+    public record UserStats(Long userId, AvgSleepLog avgSleepLog, DailySleepLog lastSleep) {
+    }
+}
@@ -0,0 +1,317 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noom.interview.backend.sleep.config.SleepLogImportProperties;
+import com.noom.interview.backend.sleep.db.cold.SleepLogColdCodec;
+import com.noom.interview.backend.sleep.db.repository.SleepLogImportRepository;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.db.shard.ShardContext;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogColdMonth;
+import com.noom.interview.backend.sleep.dto.SleepLogImportJob;
+import com.noom.interview.backend.sleep.dto.SleepLogImportRow;
+import com.noom.interview.backend.sleep.enums.SleepLogImportFormat;
+import com.noom.interview.backend.sleep.enums.SleepLogImportStatus;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Loads a partner's history from an NDJSON or CSV file of {@link SleepLogImportRow}s. The file is processed in
+ * chunks, and a failed or interrupted job resumes after the last checkpointed chunk. Rows that do not parse, or overlap
+ * an earlier row or a stored night, are counted as rejected. Each chunk is split by shard and into batches of at most
+ * {@code users-per-transaction} users; a batch is copied, de-overlapped and merged in one transaction holding the write
+ * locks of its users, taken in user id order, so the overlap check cannot miss an API save of the same user that has
+ * not committed yet, while the lock set stays small. The users' hot windows are evicted once the chunk is loaded. The
+ * checkpoint commits after the batches, so rows of a chunk that is retried after a partial failure are rejected as
+ * overlaps of themselves instead of being loaded twice.
+ */
+@Service
+public class ImportSleepLogs {
+
+    static final String CSV_HEADER = "user_id,sleep_date,sleep_start,sleep_end,sleep_quality";
+
+    private static final Logger log = LoggerFactory.getLogger(ImportSleepLogs.class);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final SleepLogImportRepository importRepository;
+    private final UserWriteLocks userWriteLocks;
+    private final DailySleepLogService service;
+    private final TaskExecutor taskExecutor;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+    private final int chunkSize;
+    private final int usersPerTransaction;
+    private final Set<UUID> runningJobs = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ImportSleepLogs(SleepLogImportRepository importRepository, UserWriteLocks userWriteLocks, DailySleepLogService service,
+                           TaskExecutor taskExecutor, ObjectMapper objectMapper, SleepLogImportProperties properties,
+                           ShardRouter shardRouter) {
+        this.importRepository = importRepository;
+        this.userWriteLocks = userWriteLocks;
+        this.service = service;
+        this.taskExecutor = taskExecutor;
+        this.objectMapper = objectMapper;
+        this.shardRouter = shardRouter;
+        this.chunkSize = properties.getChunkSize();
+        this.usersPerTransaction = properties.getUsersPerTransaction();
+    }
+
+    public SleepLogImportJob start(Path source, SleepLogImportFormat format) {
+        if (!Files.isReadable(source)) {
+            throw new IllegalArgumentException("Import source " + source + " is not a readable file");
+        }
+        SleepLogImportJob job = SleepLogImportJob.builder()
+            .id(UUID.randomUUID())
+            .source(source.toAbsolutePath().toString())
+            .format(format)
+            .status(SleepLogImportStatus.RUNNING)
+            .build();
+        importRepository.createJob(job);
+        submit(job.getId());
+        return job;
+    }
+
+    public SleepLogImportJob resume(UUID jobId) {
+        SleepLogImportJob job = find(jobId)
+            .orElseThrow(() -> new IllegalArgumentException("Import job " + jobId + " does not exist"));
+        if (job.getStatus() == SleepLogImportStatus.COMPLETED) {
+            throw new IllegalStateException("Import job " + jobId + " is already completed");
+        }
+        importRepository.updateStatus(jobId, SleepLogImportStatus.RUNNING, null);
+        submit(jobId);
+        job.setStatus(SleepLogImportStatus.RUNNING);
+        job.setError(null);
+        return job;
+    }
+
+    public Optional<SleepLogImportJob> find(UUID jobId) {
+        return importRepository.findJob(jobId);
+    }
+
+    private void submit(UUID jobId) {
+        if (!runningJobs.add(jobId)) {
+            throw new IllegalStateException("Import job " + jobId + " is already running");
+        }
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    run(jobId);
+                } finally {
+                    runningJobs.remove(jobId);
+                }
+            });
+        } catch (RuntimeException e) {
+            runningJobs.remove(jobId);
+            throw e;
+        }
+    }
+
+    void run(UUID jobId) {
+        SleepLogImportJob job = importRepository.findJob(jobId).orElseThrow();
+        long rowsRead = job.getRowsRead();
+        long rowsLoaded = job.getRowsLoaded();
+        long rowsRejected = job.getRowsRejected();
+
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(job.getSource()), StandardCharsets.UTF_8)) {
+            if (job.getFormat() == SleepLogImportFormat.CSV) {
+                reader.readLine();
+            }
+            for (long skipped = 0; skipped < rowsRead; skipped++) {
+                if (reader.readLine() == null) {
+                    break;
+                }
+            }
+            log.info("Import {} from {} starting after row {}", jobId, job.getSource(), rowsRead);
+
+            List<DailySleepLog> chunk = new ArrayList<>(chunkSize);
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                chunk.clear();
+                int linesInChunk = 0;
+                int unparsable = 0;
+                while (linesInChunk < chunkSize) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        endOfFile = true;
+                        break;
+                    }
+                    linesInChunk++;
+                    Optional<DailySleepLog> dailySleepLog = parse(job.getFormat(), line, rowsRead + linesInChunk);
+                    if (dailySleepLog.isPresent()) {
+                        chunk.add(dailySleepLog.get());
+                    } else {
+                        unparsable++;
+                    }
+                }
+                if (linesInChunk == 0) {
+                    break;
+                }
+
+                long chunkRowsRead = rowsRead + linesInChunk;
+                long loadedBefore = rowsLoaded;
+                long rejectedBefore = rowsRejected + unparsable;
+                ChunkResult result = new ChunkResult(0, 0);
+                for (Map.Entry<String, List<DailySleepLog>> shardChunk : shardRouter.groupByShard(chunk, DailySleepLog::getUserId).entrySet()) {
+                    for (List<DailySleepLog> batch : byUsers(shardChunk.getValue())) {
+                        result = result.plus(ShardContext.callOn(shardChunk.getKey(),
+                            () -> userWriteLocks.withUsersLock(userIds(batch), () -> load(jobId, batch))));
+                    }
+                }
+                importRepository.checkpoint(jobId, chunkRowsRead, loadedBefore + result.loaded(), rejectedBefore + result.rejected());
+                service.evictUsers(userIds(chunk));
+
+                rowsRead = chunkRowsRead;
+                rowsLoaded = loadedBefore + result.loaded();
+                rowsRejected = rejectedBefore + result.rejected();
+                log.info("Import {}: {} rows read, {} loaded, {} rejected", jobId, rowsRead, rowsLoaded, rowsRejected);
+            }
+
+            importRepository.updateStatus(jobId, SleepLogImportStatus.COMPLETED, null);
+            log.info("Import {} completed: {} rows read, {} loaded, {} rejected", jobId, rowsRead, rowsLoaded, rowsRejected);
+        } catch (IOException | RuntimeException e) {
+            log.error("Import {} failed after row {}, resume it to continue from there", jobId, rowsRead, e);
+            importRepository.updateStatus(jobId, SleepLogImportStatus.FAILED, e.getMessage());
+        }
+    }
+
+    private ChunkResult load(UUID jobId, List<DailySleepLog> rows) {
+        if (rows.isEmpty()) {
+            return new ChunkResult(0, 0);
+        }
+        importRepository.copyToStaging(jobId, rows);
+        int overlapping = importRepository.rejectOverlaps(jobId);
+        overlapping += importRepository.rejectPositions(jobId, coldOverlaps(jobId, rows));
+        int loaded = importRepository.mergeStaged(jobId);
+        return new ChunkResult(loaded, overlapping);
+    }
+
+    /**
+     * Positions of the rows overlapping a night packed into a cold month, compared against the decoded nights rather
+     * than the month's span, which would also reject rows falling between two nights.
+     */
+    private List<Integer> coldOverlaps(UUID jobId, List<DailySleepLog> rows) {
+        Map<Long, List<DailySleepLog>> coldLogs = new HashMap<>();
+        for (SleepLogColdMonth coldMonth : importRepository.findOverlappingColdMonths(jobId)) {
+            coldLogs.computeIfAbsent(coldMonth.getUserId(), userId -> new ArrayList<>())
+                .addAll(SleepLogColdCodec.decode(coldMonth.getUserId(), coldMonth.getMonth(), coldMonth.getPayload()));
+        }
+        if (coldLogs.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<Integer>> positionsByUser = new LinkedHashMap<>();
+        for (int position = 0; position < rows.size(); position++) {
+            Long userId = rows.get(position).getUserId();
+            if (coldLogs.containsKey(userId)) {
+                positionsByUser.computeIfAbsent(userId, key -> new ArrayList<>()).add(position);
+            }
+        }
+        List<Integer> overlapping = new ArrayList<>();
+        positionsByUser.forEach((userId, positions) -> {
+            List<DailySleepLog> conflicts = SleepLogOverlapSweep.findConflicts(positions.stream().map(rows::get).toList(), coldLogs.get(userId));
+            for (int i = 0; i < positions.size(); i++) {
+                if (Objects.nonNull(conflicts.get(i))) {
+                    overlapping.add(positions.get(i));
+                }
+            }
+        });
+        return overlapping;
+    }
+
+    /**
+     * Splits the rows into batches of at most {@code usersPerTransaction} users, each user's rows kept together and in
+     * file order, so the overlap check still sees all of a user's rows in the chunk at once.
+     */
+    private List<List<DailySleepLog>> byUsers(List<DailySleepLog> rows) {
+        Map<Long, List<DailySleepLog>> rowsByUser = new LinkedHashMap<>();
+        rows.forEach(row -> rowsByUser.computeIfAbsent(row.getUserId(), userId -> new ArrayList<>()).add(row));
+        List<List<DailySleepLog>> batches = new ArrayList<>();
+        List<DailySleepLog> batch = new ArrayList<>();
+        int users = 0;
+        for (List<DailySleepLog> userRows : rowsByUser.values()) {
+            if (users == usersPerTransaction) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                users = 0;
+            }
+            batch.addAll(userRows);
+            users++;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private static List<Long> userIds(List<DailySleepLog> rows) {
+        return rows.stream().map(DailySleepLog::getUserId).distinct().toList();
+    }
+
+    private Optional<DailySleepLog> parse(SleepLogImportFormat format, String line, long rowNumber) {
+        if (line.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            SleepLogImportRow row = format == SleepLogImportFormat.CSV
+                ? parseCsv(line)
+                : objectMapper.readValue(line, SleepLogImportRow.class);
+            if (Objects.isNull(row.getUserId()) || Objects.isNull(row.getSleepStart())
+                || Objects.isNull(row.getSleepEnd()) || Objects.isNull(row.getSleepQuality())) {
+                log.debug("Import row {} is missing a required field", rowNumber);
+                return Optional.empty();
+            }
+            return Optional.of(DailySleepLogFactory.create(row.getUserId(), row.getSleepDate(), row.getSleepStart(),
+                row.getSleepEnd(), row.getSleepQuality()));
+        } catch (IOException | RuntimeException e) {
+            log.debug("Import row {} could not be parsed: {}", rowNumber, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static SleepLogImportRow parseCsv(String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != 5) {
+            throw new IllegalArgumentException("expected 5 columns, got " + columns.length);
+        }
+        return SleepLogImportRow.builder()
+            .userId(Long.valueOf(columns[0].trim()))
+            .sleepDate(columns[1].isBlank() ? null : LocalDate.parse(columns[1].trim(), DATE_FORMAT))
+            .sleepStart(LocalTime.parse(columns[2].trim(), TIME_FORMAT))
+            .sleepEnd(LocalTime.parse(columns[3].trim(), TIME_FORMAT))
+            .sleepQuality(SleepQuality.valueOf(columns[4].trim()))
+            .build();
+    }
+
+    private record ChunkResult(int loaded, int rejected) {
+
+        ChunkResult plus(ChunkResult other) {
+            return new ChunkResult(loaded + other.loaded(), rejected + other.rejected());
+        }
+    }
+}
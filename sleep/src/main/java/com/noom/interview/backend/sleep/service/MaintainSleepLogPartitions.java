@@ -0,0 +1,126 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.config.SleepLogPartitionProperties;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogPartitionRepository;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogRollupRepository;
+import com.noom.interview.backend.sleep.db.repository.SleepLogColdRepository;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Keeps the monthly partitions of daily_sleep_log ahead of the clock: on startup and every night it creates the
+ * partitions for the next {@code monthsAhead} months and for the months of rows sitting in the default partition, and
+ * once {@code retentionMonths} is set it detaches (or drops) the partitions that fell out of retention together with
+ * their rollups and cold months. Each shard is maintained in one transaction holding an advisory lock, so of several
+ * instances only one does the work.
+ */
+@Service
+@ConditionalOnProperty(prefix = "sleep-log.partitions", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MaintainSleepLogPartitions {
+
+    private static final Logger log = LoggerFactory.getLogger(MaintainSleepLogPartitions.class);
+
+    private final DailySleepLogPartitionRepository partitionRepository;
+    private final DailySleepLogRollupRepository rollupRepository;
+    private final SleepLogColdRepository coldRepository;
+    private final TransactionOperations transactionOperations;
+    private final SleepLogPartitionProperties properties;
+    private final ShardRouter shardRouter;
+
+    @Autowired
+    public MaintainSleepLogPartitions(DailySleepLogPartitionRepository partitionRepository, DailySleepLogRollupRepository rollupRepository,
+                                      SleepLogColdRepository coldRepository, TransactionOperations transactionOperations, SleepLogPartitionProperties properties,
+                                      ShardRouter shardRouter) {
+        this.partitionRepository = partitionRepository;
+        this.rollupRepository = rollupRepository;
+        this.coldRepository = coldRepository;
+        this.transactionOperations = transactionOperations;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * A failed run only leaves rows in the default partition until the next one, so it does not fail startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.error("Sleep log partition maintenance failed on startup, retrying on schedule", e);
+        }
+    }
+
+    @Scheduled(cron = "${sleep-log.partitions.maintenance-cron:0 0 3 * * *}")
+    public void maintain() {
+        if (!partitionRepository.isPartitioned()) {
+            log.info("daily_sleep_log is not partitioned, skipping partition maintenance");
+            return;
+        }
+        YearMonth currentMonth = YearMonth.now();
+        shardRouter.forEachShard(() -> transactionOperations.executeWithoutResult(status -> {
+            if (partitionRepository.tryLockMaintenance()) {
+                execute(currentMonth);
+            } else {
+                log.info("Sleep log partitions are being maintained by another instance, skipping");
+            }
+        }));
+    }
+
+    Result execute(YearMonth currentMonth) {
+        SortedSet<YearMonth> months = new TreeSet<>(partitionRepository.findDefaultPartitionMonths());
+        for (int i = 0; i <= properties.getMonthsAhead(); i++) {
+            months.add(currentMonth.plusMonths(i));
+        }
+        List<YearMonth> created = new ArrayList<>();
+        for (YearMonth month : months) {
+            if (partitionRepository.createMonthlyPartition(month)) {
+                created.add(month);
+            }
+        }
+
+        List<YearMonth> expired = new ArrayList<>();
+        if (properties.getRetentionMonths() > 0) {
+            YearMonth oldestKept = currentMonth.minusMonths(properties.getRetentionMonths());
+            partitionRepository.findMonthlyPartitions().stream()
+                .filter(month -> month.isBefore(oldestKept))
+                .forEach(month -> {
+                    expire(month);
+                    expired.add(month);
+                });
+        }
+
+        log.info("Sleep log partition maintenance for {}: created {}, {} {}",
+            currentMonth, created, properties.isDropExpired() ? "dropped" : "detached", expired);
+        return new Result(created, expired);
+    }
+
+    private void expire(YearMonth month) {
+        transactionOperations.executeWithoutResult(status -> {
+            partitionRepository.detachMonthlyPartition(month);
+            rollupRepository.bumpUserVersionsBySleepDateBetween(month.atDay(1), month.atEndOfMonth());
+            rollupRepository.deleteBySleepDateBetween(month.atDay(1), month.atEndOfMonth());
+            coldRepository.deleteMonth(month);
+        });
+        if (properties.isDropExpired()) {
+            partitionRepository.dropDetachedPartition(month);
+        }
+    }
+
+    record Result(List<YearMonth> created, List<YearMonth> expired) {
+    }
+}
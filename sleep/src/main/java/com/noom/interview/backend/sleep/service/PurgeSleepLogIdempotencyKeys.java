@@ -0,0 +1,42 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.db.repository.SleepLogIdempotencyRepository;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import java.time.LocalDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Deletes stored Idempotency-Key responses past their expiry from every shard.
+ */
+@Service
+@ConditionalOnProperty(prefix = "sleep-log.idempotency", name = "database", havingValue = "true")
+public class PurgeSleepLogIdempotencyKeys {
+
+    private static final Logger log = LoggerFactory.getLogger(PurgeSleepLogIdempotencyKeys.class);
+
+    private final SleepLogIdempotencyRepository idempotencyRepository;
+    private final ShardRouter shardRouter;
+
+    @Autowired
+    public PurgeSleepLogIdempotencyKeys(SleepLogIdempotencyRepository idempotencyRepository, ShardRouter shardRouter) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.shardRouter = shardRouter;
+    }
+
+    @Scheduled(cron = "${sleep-log.idempotency.purge-cron:0 */15 * * * *}")
+    public void purge() {
+        LocalDateTime now = LocalDateTime.now();
+        shardRouter.forEachShard(() -> {
+            int purged = idempotencyRepository.deleteExpired(now);
+            if (purged > 0) {
+                log.info("Purged {} expired idempotency keys", purged);
+            }
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.db.service.ReactiveDailySleepLogService;
+import com.noom.interview.backend.sleep.dto.AvgSleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterparts of {@link GetLastSleep} and {@link GetLastXDays}, with the same windows, aggregation and
+ * meters.
+ */
+@Service
+@Profile("r2dbc-reads")
+public class ReactiveSleepLogQueries {
+
+    private final ReactiveDailySleepLogService service;
+    private final SleepLogMetrics metrics;
+
+    @Autowired
+    public ReactiveSleepLogQueries(ReactiveDailySleepLogService service, SleepLogMetrics metrics) {
+        this.service = service;
+        this.metrics = metrics;
+    }
+
+    /**
+     * The user's data version, read before the data like {@link GetSleepLogIfModified} does, so the data is never
+     * older than the version it is tagged with.
+     */
+    public Mono<SleepLogVersion> userVersion(Long userId) {
+        return service.findUserVersion(userId)
+            .defaultIfEmpty(SleepLogVersion.builder().userId(userId).version(0).build());
+    }
+
+    public Mono<DailySleepLog> lastSleep(Long userId) {
+        return metrics.timeGetLastSleep(service
+            .findByUserIdAndInterval(userId, LocalDate.now().atStartOfDay(), LocalDateTime.now())
+            .collectList()
+            .doOnNext(today -> metrics.recordWindowRows("get_last_sleep", 1, today.size()))
+            .mapNotNull(today -> today.isEmpty() ? null : today.get(0)));
+    }
+
+    public Mono<AvgSleepLog> lastXDays(Long userId, Long numberOfDays) {
+        LocalDate today = LocalDate.now();
+        return metrics.timeGetLastXDays(numberOfDays, service
+            .findRollupsByUserIdAndInterval(userId, today.minusDays(numberOfDays), today)
+            .collectList()
+            .doOnNext(rollups -> metrics.recordWindowRows("get_last_x_days", numberOfDays,
+                rollups.stream().mapToLong(DailySleepLogRollup::getLogCount).sum()))
+            .mapNotNull(rollups -> GetLastXDays.summarize(userId, rollups)));
+    }
+}
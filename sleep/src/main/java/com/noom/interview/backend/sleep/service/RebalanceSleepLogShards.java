@@ -0,0 +1,156 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.config.SleepLogShardingProperties;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogJdbcRepository;
+import com.noom.interview.backend.sleep.db.repository.SleepLogShardRepository;
+import com.noom.interview.backend.sleep.db.shard.ShardContext;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves users between shards while they keep using the API. A move copies the user's logs and rollups to the target
+ * under the user's write lock on the source, places the user on the target, forwards the user's ring owners there and
+ * leaves a tombstone on the source: from then on writes that still reach the source are refused with a retry, while
+ * reads there see the complete history until every instance's cached placement has expired and the source copy is
+ * purged.
+ */
+@Service
+@ConditionalOnProperty(prefix = "sleep-log.sharding", name = "enabled", havingValue = "true")
+public class RebalanceSleepLogShards {
+
+    private static final Logger log = LoggerFactory.getLogger(RebalanceSleepLogShards.class);
+
+    private final ShardRouter shardRouter;
+    private final SleepLogShardRepository shardRepository;
+    private final DailySleepLogJdbcRepository jdbcRepository;
+    private final TransactionTemplate sourceTransaction;
+    private final TransactionTemplate targetTransaction;
+    private final boolean advisoryLocks;
+    private final Duration purgeDelay;
+
+    @Autowired
+    public RebalanceSleepLogShards(ShardRouter shardRouter, SleepLogShardRepository shardRepository, DailySleepLogJdbcRepository jdbcRepository,
+                                   PlatformTransactionManager transactionManager, OverlapEnforcementPolicy overlapEnforcementPolicy,
+                                   SleepLogShardingProperties properties) {
+        this.shardRouter = shardRouter;
+        this.shardRepository = shardRepository;
+        this.jdbcRepository = jdbcRepository;
+        this.sourceTransaction = new TransactionTemplate(transactionManager);
+        this.targetTransaction = new TransactionTemplate(transactionManager);
+        this.targetTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.advisoryLocks = overlapEnforcementPolicy.usesAdvisoryLocks();
+        this.purgeDelay = properties.getPurgeDelay();
+    }
+
+    /**
+     * @return false when the user already lives on {@code target}
+     */
+    public boolean move(Long userId, String target) {
+        return move(userId, shardRouter.shardFor(userId), target);
+    }
+
+    /**
+     * Moves the user's rows from {@code source}, where the scan found them, to {@code target}.
+     *
+     * @return false when the user already lives on {@code target} or was moved away from {@code source} meanwhile
+     */
+    public boolean move(Long userId, String source, String target) {
+        if (!shardRouter.shardNames().contains(target)) {
+            throw new IllegalArgumentException("Unknown shard " + target);
+        }
+        if (Objects.equals(source, target)) {
+            return false;
+        }
+
+        Boolean moved = ShardContext.callOn(source, () -> sourceTransaction.execute(sourceStatus -> {
+            if (advisoryLocks) {
+                jdbcRepository.lockUser(userId);
+            }
+            if (jdbcRepository.findUserShard(userId).filter(placement -> !placement.equals(source)).isPresent()) {
+                return false;
+            }
+            SleepLogShardRepository.UserRows rows = shardRepository.findUserRows(userId);
+            ShardContext.runOn(target, () -> targetTransaction.executeWithoutResult(targetStatus -> {
+                shardRepository.replaceUserRows(userId, rows);
+                shardRepository.placeUser(userId, target);
+            }));
+            for (String owner : Stream.of(shardRouter.ringShardFor(userId), shardRouter.nextRingShardFor(userId)).distinct().toList()) {
+                if (!owner.equals(source) && !owner.equals(target)) {
+                    ShardContext.runOn(owner, () -> targetTransaction.executeWithoutResult(ownerStatus -> shardRepository.placeUser(userId, target)));
+                }
+            }
+            shardRepository.placeUser(userId, target);
+            log.info("Moved user {} from shard {} to {}: {} logs, {} rollups, {} cold months", userId, source, target, rows.logs().size(),
+                rows.rollups().size(), rows.coldMonths().size());
+            return true;
+        }));
+        if (!Boolean.TRUE.equals(moved)) {
+            return false;
+        }
+        shardRouter.place(userId, target);
+        return true;
+    }
+
+    /**
+     * Moves every user on {@code shard} that the next hash ring assigns elsewhere to that owner, e.g. to a joining shard
+     * before it is put on the ring.
+     */
+    public int rebalance(String shard) {
+        List<Long> userIds = ShardContext.callOn(shard, () -> shardRepository.findUnmovedUserIds(shard));
+        int moved = 0;
+        for (Long userId : userIds) {
+            String owner = shardRouter.nextRingShardFor(userId);
+            if (!owner.equals(shard) && move(userId, shard, owner)) {
+                moved++;
+            }
+        }
+        log.info("Rebalanced shard {}: {} of {} users moved", shard, moved, userIds.size());
+        return moved;
+    }
+
+    @Scheduled(fixedDelayString = "${sleep-log.sharding.placement-refresh:PT30S}")
+    public void purgeMovedUsers() {
+        purgeMovedBefore(LocalDateTime.now().minus(purgeDelay));
+    }
+
+    int purgeMovedBefore(LocalDateTime movedBefore) {
+        int purged = 0;
+        for (String shard : shardRouter.shardNames()) {
+            List<Long> userIds = ShardContext.callOn(shard, () -> shardRepository.findPurgeableUserIds(shard, movedBefore));
+            for (Long userId : userIds) {
+                boolean stillMovedAway = ShardContext.callOn(shard, () -> sourceTransaction.execute(status -> {
+                    if (advisoryLocks) {
+                        jdbcRepository.lockUser(userId);
+                    }
+                    if (jdbcRepository.findUserShard(userId).filter(placement -> !placement.equals(shard)).isEmpty()) {
+                        return false;
+                    }
+                    shardRepository.purgeUserRows(userId);
+                    return true;
+                }));
+                if (Boolean.TRUE.equals(stillMovedAway)) {
+                    purged++;
+                }
+            }
+        }
+        if (purged > 0) {
+            log.info("Purged the old shard copies of {} moved users", purged);
+        }
+        return purged;
+    }
+}
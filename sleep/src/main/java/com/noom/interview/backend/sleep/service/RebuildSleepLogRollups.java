@@ -0,0 +1,63 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogJdbcRepository;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogRollupRepository;
+import com.noom.interview.backend.sleep.exception.SleepLogUserMovedException;
+import java.time.LocalDate;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Recomputes the rollups of a sleep date range from daily_sleep_log, one user at a time under the user's write lock,
+ * so saves of other users go on while a range is rebuilt. User months already packed into the cold tier keep their
+ * rollups, which hold the only per-day totals left for them.
+ */
+@Service
+public class RebuildSleepLogRollups {
+
+    private static final Logger log = LoggerFactory.getLogger(RebuildSleepLogRollups.class);
+
+    private final DailySleepLogRollupRepository rollupRepository;
+    private final DailySleepLogJdbcRepository jdbcRepository;
+    private final UserWriteLocks userWriteLocks;
+
+    @Autowired
+    public RebuildSleepLogRollups(DailySleepLogRollupRepository rollupRepository, DailySleepLogJdbcRepository jdbcRepository,
+                                  UserWriteLocks userWriteLocks) {
+        this.rollupRepository = rollupRepository;
+        this.jdbcRepository = jdbcRepository;
+        this.userWriteLocks = userWriteLocks;
+    }
+
+    public int execute(LocalDate start, LocalDate end) {
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Rebuild range start " + start + " is after end " + end);
+        }
+
+        int deleted = 0;
+        int inserted = 0;
+        for (Long userId : rollupRepository.findUserIdsBySleepDateBetween(start, end)) {
+            try {
+                int[] counts = userWriteLocks.withUserLock(userId, () -> rebuild(userId, start, end));
+                deleted += counts[0];
+                inserted += counts[1];
+            } catch (SleepLogUserMovedException e) {
+                log.info("Skipped rollup rebuild of user {}: {}", userId, e.getMessage());
+            }
+        }
+
+        log.info("Rebuilt sleep log rollups between {} and {}: {} rows removed, {} rows written", start, end, deleted, inserted);
+        return inserted;
+    }
+
+    private int[] rebuild(Long userId, LocalDate start, LocalDate end) {
+        int deleted = rollupRepository.deleteUncompactedByUserIdAndSleepDateBetween(userId, start, end);
+        int inserted = rollupRepository.insertFromLogsByUserIdAndSleepDateBetween(userId, start, end);
+        jdbcRepository.bumpUserVersions(List.of(userId));
+        return new int[] {deleted, inserted};
+    }
+}
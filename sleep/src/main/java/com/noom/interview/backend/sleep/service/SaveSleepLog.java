@@ -1,11 +1,12 @@
 package com.noom.interview.backend.sleep.service;
 
 
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
 import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
 import com.noom.interview.backend.sleep.dto.DailySleepLog;
 import com.noom.interview.backend.sleep.exception.SleepLogAlreadyExistsException;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -14,30 +15,63 @@ import org.springframework.stereotype.Service;
 public class SaveSleepLog {
 
     private final DailySleepLogService service;
+    private final OverlapEnforcementPolicy overlapEnforcementPolicy;
+    private final UserWriteLocks userWriteLocks;
+    private final ReplicaReads replicaReads;
+    private final SleepLogMetrics metrics;
 
 
     @Autowired
-    public SaveSleepLog(DailySleepLogService service) {
+    public SaveSleepLog(DailySleepLogService service, OverlapEnforcementPolicy overlapEnforcementPolicy, UserWriteLocks userWriteLocks,
+                        ReplicaReads replicaReads, SleepLogMetrics metrics) {
         this.service = service;
+        this.overlapEnforcementPolicy = overlapEnforcementPolicy;
+        this.userWriteLocks = userWriteLocks;
+        this.replicaReads = replicaReads;
+        this.metrics = metrics;
     }
 
     public DailySleepLog save(DailySleepLog dailySleepLog) {
-        checkOverlaps(dailySleepLog);
-        return service.save(dailySleepLog);
+        replicaReads.recordWrite(dailySleepLog.getUserId());
+        return metrics.timeSave(() -> {
+            if (!overlapEnforcementPolicy.checksInApplication(dailySleepLog)) {
+                return store(dailySleepLog);
+            }
+            return userWriteLocks.withUserLock(dailySleepLog.getUserId(), () -> {
+                checkOverlaps(dailySleepLog);
+                return store(dailySleepLog);
+            });
+        });
+    }
+
+    private DailySleepLog store(DailySleepLog dailySleepLog) {
+        try {
+            return service.save(dailySleepLog);
+        } catch (SleepLogAlreadyExistsException e) {
+            metrics.overlapRejected("database");
+            throw e;
+        }
     }
 
     void checkOverlaps(DailySleepLog dailySleepLog) {
+        metrics.timeCheckOverlaps(() -> rejectOverlaps(dailySleepLog));
+    }
+
+    private void rejectOverlaps(DailySleepLog dailySleepLog) {
         Long userId = dailySleepLog.getUserId();
         LocalDateTime newLogStart = dailySleepLog.getSleepStart();
         LocalDateTime newLogEnd = dailySleepLog.getSleepEnd();
-        LocalDateTime queryRangeStart = newLogStart.toLocalDate().atStartOfDay();
-        LocalDateTime queryRangeEnd = newLogEnd.toLocalDate().atTime(LocalTime.MAX);
+        // A stored night can only reach the new one if it ends no earlier than the new one starts and no later than a
+        // day after it ends, whichever day or month that is.
+        LocalDateTime queryRangeStart = newLogStart;
+        LocalDateTime queryRangeEnd = newLogEnd.plusDays(1);
 
         List<DailySleepLog> potentialConflicts = service.findByUserIdAndInterval(
           userId,
           queryRangeStart,
           queryRangeEnd
         );
+        metrics.recordOverlapCandidates(potentialConflicts.size());
 
         for (DailySleepLog existingLog : potentialConflicts) {
             if (dailySleepLog.getId() != null && dailySleepLog.getId().equals(existingLog.getId())) {
@@ -51,12 +85,8 @@ public class SaveSleepLog {
             boolean newLogStartsStrictlyAfterExistingEnds = newLogStart.isAfter(existingLogEnd);
 
             if (!(newLogEndsStrictlyBeforeExistingStarts || newLogStartsStrictlyAfterExistingEnds)) {
-                throw new SleepLogAlreadyExistsException(
-                  "You already have a log between " +
-                    existingLogStart.toString() + " and " + existingLogEnd.toString() +
-                    ". The conflicting period is " +
-                    newLogStart.toString() + " to " + newLogEnd.toString() + "."
-                );
+                metrics.overlapRejected("application");
+                throw new SleepLogAlreadyExistsException(SleepLogOverlapSweep.describeConflict(existingLog, dailySleepLog));
             }
         }
     }
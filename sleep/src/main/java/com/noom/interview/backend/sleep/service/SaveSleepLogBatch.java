@@ -0,0 +1,85 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogBatchItem;
+import com.noom.interview.backend.sleep.enums.SleepLogBatchItemStatus;
+import com.noom.interview.backend.sleep.exception.SleepLogAlreadyExistsException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class SaveSleepLogBatch {
+
+    private final DailySleepLogService service;
+    private final OverlapEnforcementPolicy overlapEnforcementPolicy;
+    private final UserWriteLocks userWriteLocks;
+    private final ReplicaReads replicaReads;
+
+    @Autowired
+    public SaveSleepLogBatch(DailySleepLogService service, OverlapEnforcementPolicy overlapEnforcementPolicy, UserWriteLocks userWriteLocks,
+                             ReplicaReads replicaReads) {
+        this.service = service;
+        this.overlapEnforcementPolicy = overlapEnforcementPolicy;
+        this.userWriteLocks = userWriteLocks;
+        this.replicaReads = replicaReads;
+    }
+
+    public List<SleepLogBatchItem> execute(Long userId, List<DailySleepLog> dailySleepLogs) {
+        if (dailySleepLogs.isEmpty()) {
+            return List.of();
+        }
+        replicaReads.recordWrite(userId);
+        if (!overlapEnforcementPolicy.checksInApplication(dailySleepLogs)) {
+            try {
+                return checkAndSave(userId, dailySleepLogs);
+            } catch (SleepLogAlreadyExistsException e) {
+                // A night saved concurrently since the sweep rolled the batch back; sweep again under the user's lock
+                // so the caller still gets a result per item.
+                return userWriteLocks.withUserLock(userId, () -> checkAndSave(userId, dailySleepLogs));
+            }
+        }
+        return userWriteLocks.withUserLock(userId, () -> checkAndSave(userId, dailySleepLogs));
+    }
+
+    private List<SleepLogBatchItem> checkAndSave(Long userId, List<DailySleepLog> dailySleepLogs) {
+
+        LocalDateTime rangeStart = dailySleepLogs.stream().map(DailySleepLog::getSleepStart).min(Comparator.naturalOrder()).get();
+        LocalDateTime rangeEnd = dailySleepLogs.stream().map(DailySleepLog::getSleepEnd).max(Comparator.naturalOrder()).get();
+
+        // A stored night can only reach into the batch if it ends no later than a day after the batch does.
+        List<DailySleepLog> stored = service.findByUserIdAndInterval(userId, rangeStart, rangeEnd.plusDays(1));
+        List<DailySleepLog> conflicts = SleepLogOverlapSweep.findConflicts(dailySleepLogs, stored);
+
+        List<DailySleepLog> accepted = new ArrayList<>();
+        for (int i = 0; i < dailySleepLogs.size(); i++) {
+            if (Objects.isNull(conflicts.get(i))) {
+                accepted.add(dailySleepLogs.get(i));
+            }
+        }
+        if (!accepted.isEmpty()) {
+            service.saveAll(accepted);
+        }
+
+        List<SleepLogBatchItem> result = new ArrayList<>(dailySleepLogs.size());
+        for (int i = 0; i < dailySleepLogs.size(); i++) {
+            DailySleepLog dailySleepLog = dailySleepLogs.get(i);
+            DailySleepLog conflict = conflicts.get(i);
+            result.add(SleepLogBatchItem.builder()
+              .index(i)
+              .sleepLog(dailySleepLog)
+              .status(Objects.isNull(conflict) ? SleepLogBatchItemStatus.SAVED : SleepLogBatchItemStatus.CONFLICT)
+              .error(Objects.isNull(conflict) ? null : SleepLogOverlapSweep.describeConflict(conflict, dailySleepLog))
+              .build());
+        }
+        return result;
+    }
+}
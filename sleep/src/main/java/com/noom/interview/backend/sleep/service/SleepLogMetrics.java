@@ -0,0 +1,154 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Domain meters of the sleep log use cases. Timers and summaries publish percentile histograms, so latency quantiles
+ * can be aggregated across instances in Prometheus. Repository calls are timed by Spring Data as
+ * {@code spring.data.repository.invocations}.
+ */
+@Component
+public class SleepLogMetrics {
+
+    static final String USE_CASE_TIMER = "sleeplog.use.case";
+    static final String OVERLAP_CANDIDATES = "sleeplog.overlap.candidates";
+    static final String WINDOW_ROWS = "sleeplog.window.rows";
+    static final String OVERLAP_REJECTIONS = "sleeplog.overlap.rejections";
+    static final String WRITE_BEHIND_BATCH = "sleeplog.write.behind.batch";
+    static final String WRITE_BEHIND_QUEUED = "sleeplog.write.behind.queued";
+    static final String COLD_COMPACTED_LOGS = "sleeplog.cold.compacted.logs";
+    static final String COLD_PAYLOAD_BYTES = "sleeplog.cold.payload.bytes";
+
+    private static final long[] DAYS_BUCKETS = {1, 7, 14, 30, 90, 180, 365};
+
+    private final MeterRegistry meterRegistry;
+    private final Timer saveTimer;
+    private final Timer checkOverlapsTimer;
+    private final Timer getLastSleepTimer;
+    private final DistributionSummary overlapCandidates;
+    private final DistributionSummary writeBehindBatch;
+    private final Counter coldCompactedLogs;
+    private final DistributionSummary coldPayloadBytes;
+
+    public SleepLogMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.saveTimer = useCaseTimer("save", "none");
+        this.checkOverlapsTimer = useCaseTimer("check_overlaps", "none");
+        this.getLastSleepTimer = useCaseTimer("get_last_sleep", "none");
+        this.overlapCandidates = DistributionSummary.builder(OVERLAP_CANDIDATES)
+            .description("Stored logs compared against a new log by the overlap check")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.writeBehindBatch = DistributionSummary.builder(WRITE_BEHIND_BATCH)
+            .description("Logs committed together by a write-behind writer")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.coldCompactedLogs = Counter.builder(COLD_COMPACTED_LOGS)
+            .description("Hot logs packed into cold months")
+            .register(meterRegistry);
+        this.coldPayloadBytes = DistributionSummary.builder(COLD_PAYLOAD_BYTES)
+            .description("Size of a packed cold month")
+            .baseUnit("bytes")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    public <T> T timeSave(Supplier<T> save) {
+        return saveTimer.record(save);
+    }
+
+    public void timeCheckOverlaps(Runnable checkOverlaps) {
+        checkOverlapsTimer.record(checkOverlaps);
+    }
+
+    public <T> T timeGetLastSleep(Supplier<T> getLastSleep) {
+        return getLastSleepTimer.record(getLastSleep);
+    }
+
+    public <T> Mono<T> timeGetLastSleep(Mono<T> getLastSleep) {
+        return time(getLastSleepTimer, getLastSleep);
+    }
+
+    public <T> T timeGetLastXDays(long numberOfDays, Supplier<T> getLastXDays) {
+        return useCaseTimer("get_last_x_days", daysBucket(numberOfDays)).record(getLastXDays);
+    }
+
+    public <T> Mono<T> timeGetLastXDays(long numberOfDays, Mono<T> getLastXDays) {
+        return time(useCaseTimer("get_last_x_days", daysBucket(numberOfDays)), getLastXDays);
+    }
+
+    public void recordOverlapCandidates(int candidates) {
+        overlapCandidates.record(candidates);
+    }
+
+    public void recordWindowRows(String useCase, long numberOfDays, long rows) {
+        DistributionSummary.builder(WINDOW_ROWS)
+            .description("Logs falling into the window a read use case aggregates")
+            .tag("use_case", useCase)
+            .tag("days", daysBucket(numberOfDays))
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(rows);
+    }
+
+    public void overlapRejected(String enforcement) {
+        Counter.builder(OVERLAP_REJECTIONS)
+            .description("Saves rejected with SleepLogAlreadyExistsException")
+            .tag("enforcement", enforcement)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    public void recordWriteBehindBatch(int logs) {
+        writeBehindBatch.record(logs);
+    }
+
+    public void gaugeWriteBehindQueue(int queue, Collection<?> pending) {
+        Gauge.builder(WRITE_BEHIND_QUEUED, pending, Collection::size)
+            .description("Logs waiting in a write-behind queue")
+            .tag("queue", String.valueOf(queue))
+            .register(meterRegistry);
+    }
+
+    public void recordColdMonth(int compactedLogs, int payloadBytes) {
+        coldCompactedLogs.increment(compactedLogs);
+        coldPayloadBytes.record(payloadBytes);
+    }
+
+    /**
+     * Bounds the days tag to a handful of values, e.g. 10 days is reported as "le_14".
+     */
+    static String daysBucket(long numberOfDays) {
+        for (long bucket : DAYS_BUCKETS) {
+            if (numberOfDays <= bucket) {
+                return "le_" + bucket;
+            }
+        }
+        return "gt_" + DAYS_BUCKETS[DAYS_BUCKETS.length - 1];
+    }
+
+    private <T> Mono<T> time(Timer timer, Mono<T> useCase) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return useCase.doFinally(signal -> sample.stop(timer));
+        });
+    }
+
+    private Timer useCaseTimer(String useCase, String days) {
+        return Timer.builder(USE_CASE_TIMER)
+            .description("Latency of the sleep log use cases")
+            .tag("use_case", useCase)
+            .tag("days", days)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,89 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorted sweep over sleep intervals: finds, for every candidate, a stored log or an earlier-starting accepted
+ * candidate it overlaps, in O((n + m) log m) instead of comparing every pair.
+ * Two logs overlap unless one ends strictly before the other starts, the same rule as {@link SaveSleepLog#checkOverlaps}.
+ */
+public final class SleepLogOverlapSweep {
+
+    private static final Comparator<DailySleepLog> BY_START = Comparator
+        .comparing(DailySleepLog::getSleepStart)
+        .thenComparing(DailySleepLog::getSleepEnd);
+
+    private SleepLogOverlapSweep() {
+    }
+
+    /**
+     * @return a list parallel to {@code candidates} holding the conflicting log, or {@code null} where the candidate can be saved
+     */
+    public static List<DailySleepLog> findConflicts(List<DailySleepLog> candidates, List<DailySleepLog> stored) {
+        List<DailySleepLog> storedByStart = new ArrayList<>(stored);
+        storedByStart.sort(BY_START);
+        int[] latestEndingUpTo = latestEndingPrefix(storedByStart);
+
+        Integer[] order = new Integer[candidates.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparing(candidates::get, BY_START));
+
+        DailySleepLog[] conflicts = new DailySleepLog[candidates.size()];
+        DailySleepLog lastAccepted = null;
+        for (int index : order) {
+            DailySleepLog candidate = candidates.get(index);
+
+            int startedBeforeEnd = countStartingNotAfter(storedByStart, candidate.getSleepEnd());
+            if (startedBeforeEnd > 0) {
+                DailySleepLog latestEnding = storedByStart.get(latestEndingUpTo[startedBeforeEnd - 1]);
+                if (!latestEnding.getSleepEnd().isBefore(candidate.getSleepStart())) {
+                    conflicts[index] = latestEnding;
+                    continue;
+                }
+            }
+            if (lastAccepted != null && !lastAccepted.getSleepEnd().isBefore(candidate.getSleepStart())) {
+                conflicts[index] = lastAccepted;
+                continue;
+            }
+            lastAccepted = candidate;
+        }
+        return Arrays.asList(conflicts);
+    }
+
+    public static String describeConflict(DailySleepLog existingLog, DailySleepLog newLog) {
+        return "You already have a log between " +
+            existingLog.getSleepStart().toString() + " and " + existingLog.getSleepEnd().toString() +
+            ". The conflicting period is " +
+            newLog.getSleepStart().toString() + " to " + newLog.getSleepEnd().toString() + ".";
+    }
+
+    private static int[] latestEndingPrefix(List<DailySleepLog> logsByStart) {
+        int[] latestEnding = new int[logsByStart.size()];
+        for (int i = 0; i < logsByStart.size(); i++) {
+            latestEnding[i] = i == 0 || logsByStart.get(i).getSleepEnd().isAfter(logsByStart.get(latestEnding[i - 1]).getSleepEnd())
+                ? i
+                : latestEnding[i - 1];
+        }
+        return latestEnding;
+    }
+
+    private static int countStartingNotAfter(List<DailySleepLog> logsByStart, LocalDateTime time) {
+        int low = 0;
+        int high = logsByStart.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (logsByStart.get(middle).getSleepStart().isAfter(time)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+}
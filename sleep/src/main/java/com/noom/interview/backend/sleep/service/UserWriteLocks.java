@@ -0,0 +1,95 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.config.SleepLogWriteProperties;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Serializes check-and-insert per user. A striped in-process lock queues writers of the same user on this replica
+ * without holding a connection, then a transaction-scoped Postgres advisory lock serializes them across replicas.
+ */
+@Component
+public class UserWriteLocks {
+
+    private final ReentrantLock[] stripes;
+    private final TransactionOperations transactionOperations;
+    private final DailySleepLogService service;
+    private final boolean advisoryLocks;
+
+    @Autowired
+    public UserWriteLocks(SleepLogWriteProperties properties, TransactionOperations transactionOperations,
+                          DailySleepLogService service, OverlapEnforcementPolicy overlapEnforcementPolicy) {
+        this(properties.getLockStripes(), transactionOperations, service, overlapEnforcementPolicy.usesAdvisoryLocks());
+    }
+
+    public UserWriteLocks(int lockStripes, TransactionOperations transactionOperations, DailySleepLogService service, boolean advisoryLocks) {
+        this.stripes = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.transactionOperations = transactionOperations;
+        this.service = service;
+        this.advisoryLocks = advisoryLocks;
+    }
+
+    public <T> T withUserLock(Long userId, Supplier<T> action) {
+        if (stripes.length == 0) {
+            return inLockedTransaction(userId, action);
+        }
+
+        ReentrantLock stripe = stripes[stripeIndex(userId)];
+        stripe.lock();
+        try {
+            return inLockedTransaction(userId, action);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Holds the locks of several users at once, e.g. for a group commit. Stripes and advisory locks are both taken in
+     * ascending order, so two multi-user writers cannot deadlock each other.
+     */
+    public <T> T withUsersLock(Collection<Long> userIds, Supplier<T> action) {
+        List<Long> users = userIds.stream().distinct().sorted().toList();
+        int[] lockedStripes = stripes.length == 0
+            ? new int[0]
+            : users.stream().mapToInt(this::stripeIndex).distinct().sorted().toArray();
+        for (int stripe : lockedStripes) {
+            stripes[stripe].lock();
+        }
+        try {
+            return transactionOperations.execute(status -> {
+                if (advisoryLocks) {
+                    users.forEach(service::lockUser);
+                }
+                return action.get();
+            });
+        } finally {
+            for (int i = lockedStripes.length - 1; i >= 0; i--) {
+                stripes[lockedStripes[i]].unlock();
+            }
+        }
+    }
+
+    private <T> T inLockedTransaction(Long userId, Supplier<T> action) {
+        return transactionOperations.execute(status -> {
+            if (advisoryLocks) {
+                service.lockUser(userId);
+            }
+            return action.get();
+        });
+    }
+
+    private int stripeIndex(Long userId) {
+        return Math.floorMod(Long.hashCode(userId) * 0x9E3779B9, stripes.length);
+    }
+}
@@ -0,0 +1,282 @@
+package com.noom.interview.backend.sleep.service;
+
+
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.config.SleepLogWriteBehindProperties;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.db.shard.ShardContext;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.exception.SleepLogAlreadyExistsException;
+import com.noom.interview.backend.sleep.exception.SleepLogWriteRejectedException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Write-behind ingestion for single logs. Validated logs are queued by user on one of a few bounded queues, each
+ * drained by its own writer thread: a writer takes up to {@code maxBatchSize} logs, waiting at most
+ * {@code maxBatchDelay} for a batch to fill, checks them with the same sweep as the batch endpoint and commits them in
+ * one transaction per shard. A group commit rejected by a constraint, e.g. an overlap only the exclusion constraint saw,
+ * is split in halves and retried until the failing log is alone, so it does not fail its neighbours; any other failure
+ * fails the whole batch at once. Saves are timed and overlap
+ * rejections counted like those of {@link SaveSleepLog}. A full queue rejects the log with
+ * {@link SleepLogWriteRejectedException}; on shutdown new logs are rejected and the queues are drained first.
+ */
+@Service
+public class WriteBehindSleepLogs implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindSleepLogs.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final DailySleepLogService service;
+    private final OverlapEnforcementPolicy overlapEnforcementPolicy;
+    private final UserWriteLocks userWriteLocks;
+    private final ReplicaReads replicaReads;
+    private final ShardRouter shardRouter;
+    private final SleepLogMetrics metrics;
+    private final SleepLogWriteBehindProperties properties;
+    private final List<BlockingQueue<Pending>> queues = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean accepting;
+
+    @Autowired
+    public WriteBehindSleepLogs(DailySleepLogService service, OverlapEnforcementPolicy overlapEnforcementPolicy, UserWriteLocks userWriteLocks,
+                                ReplicaReads replicaReads, ShardRouter shardRouter, SleepLogMetrics metrics,
+                                SleepLogWriteBehindProperties properties) {
+        this.service = service;
+        this.overlapEnforcementPolicy = overlapEnforcementPolicy;
+        this.userWriteLocks = userWriteLocks;
+        this.replicaReads = replicaReads;
+        this.shardRouter = shardRouter;
+        this.metrics = metrics;
+        this.properties = properties;
+        if (!properties.isEnabled()) {
+            return;
+        }
+        accepting = true;
+        for (int i = 0; i < properties.getQueues(); i++) {
+            BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+            metrics.gaugeWriteBehindQueue(i, queue);
+            queues.add(queue);
+            writers.add(Thread.ofPlatform().name("sleep-log-writer-" + i).daemon().start(() -> drain(queue)));
+        }
+        log.info("Writing sleep logs behind through {} queues of {}", properties.getQueues(), properties.getQueueCapacity());
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Queues the log, assigning its id up front, and returns a future completed once it has been committed.
+     */
+    public CompletableFuture<DailySleepLog> submit(DailySleepLog dailySleepLog) {
+        if (!accepting) {
+            throw new SleepLogWriteRejectedException("Sleep log writes are not accepted while shutting down, retry later");
+        }
+        if (Objects.isNull(dailySleepLog.getId())) {
+            dailySleepLog.setId(UUID.randomUUID());
+        }
+        Pending pending = new Pending(dailySleepLog, new CompletableFuture<>());
+        BlockingQueue<Pending> queue = queues.get(Math.floorMod(Long.hashCode(dailySleepLog.getUserId()) * 0x9E3779B9, queues.size()));
+        if (!queue.offer(pending)) {
+            throw new SleepLogWriteRejectedException("Sleep log write queue is full, retry later");
+        }
+        // destroy may have stopped the writers and drained the queues between the check above and the offer; if the
+        // log is still there nobody will take it, and if destroy drained it first, it has already been failed
+        if (!accepting && queue.remove(pending)) {
+            throw new SleepLogWriteRejectedException("Sleep log writes are not accepted while shutting down, retry later");
+        }
+        replicaReads.recordWrite(dailySleepLog.getUserId());
+        return pending.result();
+    }
+
+    /**
+     * Queues the log and waits up to {@code commitTimeout} for its group commit. A log timed out may still be
+     * committed later.
+     */
+    public DailySleepLog save(DailySleepLog dailySleepLog) {
+        return metrics.timeSave(() -> {
+            try {
+                return submit(dailySleepLog).get(properties.getCommitTimeout().toNanos(), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (TimeoutException e) {
+                throw new SleepLogWriteRejectedException("Sleep log write was not committed in time, retry later");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SleepLogWriteRejectedException("Sleep log write was interrupted, retry later");
+            }
+        });
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (!accepting) {
+            return;
+        }
+        accepting = false;
+        long deadline = System.nanoTime() + properties.getShutdownTimeout().toNanos();
+        for (Thread writer : writers) {
+            writer.join(Duration.ofNanos(Math.max(1, deadline - System.nanoTime())));
+        }
+        List<Pending> abandoned = new ArrayList<>();
+        queues.forEach(queue -> queue.drainTo(abandoned));
+        abandoned.forEach(pending -> pending.result().completeExceptionally(
+            new SleepLogWriteRejectedException("Sleep log write was not committed before shutdown, retry later")));
+        log.info("Sleep log writers stopped, {} queued logs abandoned", abandoned.size());
+    }
+
+    private void drain(BlockingQueue<Pending> queue) {
+        List<Pending> batch = new ArrayList<>(properties.getMaxBatchSize());
+        while (accepting || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (Objects.isNull(first)) {
+                    continue;
+                }
+                batch.add(first);
+                fill(queue, batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void fill(BlockingQueue<Pending> queue, List<Pending> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + properties.getMaxBatchDelay().toNanos();
+        while (batch.size() < properties.getMaxBatchSize()) {
+            queue.drainTo(batch, properties.getMaxBatchSize() - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= properties.getMaxBatchSize() || remaining <= 0 || !accepting) {
+                return;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (Objects.isNull(next)) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    void write(List<Pending> batch) {
+        metrics.recordWriteBehindBatch(batch.size());
+        try {
+            shardRouter.groupByShard(batch, pending -> pending.log().getUserId())
+                .forEach((shard, shardBatch) -> ShardContext.runOn(shard, () -> commit(shardBatch)));
+        } catch (RuntimeException e) {
+            log.error("Sleep log group commit failed", e);
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        List<DailySleepLog> logs = batch.stream().map(Pending::log).toList();
+        List<DailySleepLog> conflicts;
+        try {
+            conflicts = overlapEnforcementPolicy.checksInApplication(logs)
+                ? userWriteLocks.withUsersLock(logs.stream().map(DailySleepLog::getUserId).toList(), () -> checkAndSave(logs))
+                : saveUnchecked(logs);
+        } catch (SleepLogAlreadyExistsException | DataIntegrityViolationException e) {
+            if (batch.size() == 1) {
+                if (e instanceof SleepLogAlreadyExistsException) {
+                    metrics.overlapRejected("database");
+                }
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            log.warn("Group commit of {} sleep logs failed, retrying them in halves: {}", batch.size(), e.getMessage());
+            int half = batch.size() / 2;
+            commit(batch.subList(0, half));
+            commit(batch.subList(half, batch.size()));
+            return;
+        } catch (RuntimeException e) {
+            // Not caused by one of the logs, e.g. a lost connection, so retrying smaller batches would only repeat it.
+            log.error("Group commit of {} sleep logs failed", batch.size(), e);
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            DailySleepLog conflict = conflicts.get(i);
+            if (Objects.isNull(conflict)) {
+                batch.get(i).result().complete(logs.get(i));
+            } else {
+                metrics.overlapRejected("application");
+                batch.get(i).result().completeExceptionally(
+                    new SleepLogAlreadyExistsException(SleepLogOverlapSweep.describeConflict(conflict, logs.get(i))));
+            }
+        }
+    }
+
+    private List<DailySleepLog> checkAndSave(List<DailySleepLog> logs) {
+        Map<Long, List<Integer>> positionsByUser = new LinkedHashMap<>();
+        for (int i = 0; i < logs.size(); i++) {
+            positionsByUser.computeIfAbsent(logs.get(i).getUserId(), userId -> new ArrayList<>()).add(i);
+        }
+
+        DailySleepLog[] conflicts = new DailySleepLog[logs.size()];
+        metrics.timeCheckOverlaps(() -> positionsByUser.forEach((userId, positions) -> {
+            List<DailySleepLog> userLogs = positions.stream().map(logs::get).toList();
+            LocalDateTime rangeStart = userLogs.stream().map(DailySleepLog::getSleepStart).min(Comparator.naturalOrder()).get();
+            LocalDateTime rangeEnd = userLogs.stream().map(DailySleepLog::getSleepEnd).max(Comparator.naturalOrder()).get();
+
+            // A stored night can only reach into the batch if it ends no later than a day after the batch does.
+            List<DailySleepLog> stored = service.findByUserIdAndInterval(userId, rangeStart, rangeEnd.plusDays(1));
+            metrics.recordOverlapCandidates(stored.size());
+            List<DailySleepLog> userConflicts = SleepLogOverlapSweep.findConflicts(userLogs, stored);
+            for (int i = 0; i < positions.size(); i++) {
+                conflicts[positions.get(i)] = userConflicts.get(i);
+            }
+        }));
+
+        List<DailySleepLog> accepted = new ArrayList<>(logs.size());
+        for (int i = 0; i < logs.size(); i++) {
+            if (Objects.isNull(conflicts[i])) {
+                accepted.add(logs.get(i));
+            }
+        }
+        if (!accepted.isEmpty()) {
+            service.saveAll(accepted);
+        }
+        return Arrays.asList(conflicts);
+    }
+
+    private List<DailySleepLog> saveUnchecked(List<DailySleepLog> logs) {
+        service.saveAll(logs);
+        return Arrays.asList(new DailySleepLog[logs.size()]);
+    }
+
+    record Pending(DailySleepLog log, CompletableFuture<DailySleepLog> result) {
+    }
+}
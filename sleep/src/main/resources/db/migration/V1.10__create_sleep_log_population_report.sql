@@ -0,0 +1,18 @@
+CREATE TABLE IF NOT EXISTS sleep_log_population_report (
+    report_date DATE NOT NULL,
+    cohort_month DATE NOT NULL,
+    window_start DATE NOT NULL,
+    window_end DATE NOT NULL,
+    user_count BIGINT NOT NULL,
+    log_count BIGINT NOT NULL,
+    bad_count BIGINT NOT NULL,
+    ok_count BIGINT NOT NULL,
+    good_count BIGINT NOT NULL,
+    sleep_start_seconds_sum BIGINT NOT NULL,
+    sleep_end_seconds_sum BIGINT NOT NULL,
+    sleep_duration_sum BIGINT NOT NULL,
+    avg_sleep_start TIME NOT NULL,
+    avg_sleep_end TIME NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (report_date, cohort_month)
+);
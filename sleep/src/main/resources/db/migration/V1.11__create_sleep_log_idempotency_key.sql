@@ -0,0 +1,13 @@
+CREATE TABLE IF NOT EXISTS sleep_log_idempotency_key (
+    user_id INT NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    fingerprint VARCHAR(64) NOT NULL,
+    status INT NOT NULL,
+    content_type VARCHAR(255),
+    body BYTEA NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_sleep_log_idempotency_key_expires_at ON sleep_log_idempotency_key (expires_at);
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS sleep_log_cold_month (
+    user_id INT NOT NULL,
+    sleep_month DATE NOT NULL,
+    log_count INT NOT NULL,
+    first_sleep_start TIMESTAMP NOT NULL,
+    last_sleep_end TIMESTAMP NOT NULL,
+    payload BYTEA NOT NULL,
+    compacted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, sleep_month)
+);
@@ -0,0 +1,2 @@
+ALTER TABLE sleep_log_idempotency_key
+    ADD COLUMN IF NOT EXISTS headers TEXT;
@@ -0,0 +1,2 @@
+ALTER TABLE daily_sleep_log
+    ADD COLUMN IF NOT EXISTS sleep_date DATE GENERATED ALWAYS AS (CAST(sleep_end AS DATE)) STORED;
@@ -0,0 +1,3 @@
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_daily_sleep_log_user_id_sleep_end
+    ON daily_sleep_log (user_id, sleep_end DESC)
+    INCLUDE (id, sleep_start, sleep_quality, sleep_duration, created_at, modified_at);
@@ -0,0 +1,28 @@
+CREATE TABLE IF NOT EXISTS daily_sleep_log_rollup (
+    user_id INT NOT NULL,
+    sleep_date DATE NOT NULL,
+    log_count INT NOT NULL,
+    bad_count INT NOT NULL,
+    ok_count INT NOT NULL,
+    good_count INT NOT NULL,
+    sleep_start_seconds_sum BIGINT NOT NULL,
+    sleep_end_seconds_sum BIGINT NOT NULL,
+    sleep_duration_sum BIGINT NOT NULL,
+    modified_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, sleep_date)
+);
+
+INSERT INTO daily_sleep_log_rollup (user_id, sleep_date, log_count, bad_count, ok_count, good_count,
+                                    sleep_start_seconds_sum, sleep_end_seconds_sum, sleep_duration_sum)
+SELECT user_id,
+       sleep_date,
+       COUNT(*),
+       COUNT(*) FILTER (WHERE sleep_quality = 0),
+       COUNT(*) FILTER (WHERE sleep_quality = 1),
+       COUNT(*) FILTER (WHERE sleep_quality = 2),
+       SUM(CAST(FLOOR(EXTRACT(EPOCH FROM CAST(sleep_start AS TIME))) AS BIGINT)),
+       SUM(CAST(FLOOR(EXTRACT(EPOCH FROM CAST(sleep_end AS TIME))) AS BIGINT)),
+       SUM(sleep_duration)
+FROM daily_sleep_log
+GROUP BY user_id, sleep_date
+ON CONFLICT (user_id, sleep_date) DO NOTHING;
@@ -0,0 +1,56 @@
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- Logs saved before this constraint went through a racy read-before-write check and may already overlap, which
+-- would make adding it fail. Every log overlapping one that starts earlier (ties broken by id) is moved to
+-- daily_sleep_log_overlap_quarantine for manual review, and the rollups of the days it touched are recomputed.
+-- Review the quarantined rows and re-insert the ones to keep through the API or the import.
+CREATE TABLE IF NOT EXISTS daily_sleep_log_overlap_quarantine (LIKE daily_sleep_log);
+ALTER TABLE daily_sleep_log_overlap_quarantine
+    ADD COLUMN IF NOT EXISTS quarantined_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+WITH quarantined AS (
+    DELETE FROM daily_sleep_log d
+    WHERE EXISTS (SELECT 1
+                  FROM daily_sleep_log e
+                  WHERE e.user_id = d.user_id
+                    AND (e.sleep_start, e.id) < (d.sleep_start, d.id)
+                    AND tsrange(e.sleep_start, e.sleep_end, '[]') && tsrange(d.sleep_start, d.sleep_end, '[]'))
+    RETURNING d.*
+)
+INSERT INTO daily_sleep_log_overlap_quarantine (id, sleep_start, sleep_end, sleep_quality, sleep_duration, user_id,
+                                                created_at, modified_at, sleep_date)
+SELECT id, sleep_start, sleep_end, sleep_quality, sleep_duration, user_id, created_at, modified_at, sleep_date
+FROM quarantined;
+
+DELETE FROM daily_sleep_log_rollup r
+USING (SELECT DISTINCT user_id, sleep_date FROM daily_sleep_log_overlap_quarantine) q
+WHERE r.user_id = q.user_id AND r.sleep_date = q.sleep_date;
+
+INSERT INTO daily_sleep_log_rollup (user_id, sleep_date, log_count, bad_count, ok_count, good_count,
+                                    sleep_start_seconds_sum, sleep_end_seconds_sum, sleep_duration_sum)
+SELECT user_id,
+       sleep_date,
+       COUNT(*),
+       COUNT(*) FILTER (WHERE sleep_quality = 0),
+       COUNT(*) FILTER (WHERE sleep_quality = 1),
+       COUNT(*) FILTER (WHERE sleep_quality = 2),
+       SUM(CAST(FLOOR(EXTRACT(EPOCH FROM CAST(sleep_start AS TIME))) AS BIGINT)),
+       SUM(CAST(FLOOR(EXTRACT(EPOCH FROM CAST(sleep_end AS TIME))) AS BIGINT)),
+       SUM(sleep_duration)
+FROM daily_sleep_log
+WHERE (user_id, sleep_date) IN (SELECT user_id, sleep_date FROM daily_sleep_log_overlap_quarantine)
+GROUP BY user_id, sleep_date;
+
+DO $$
+DECLARE
+    quarantined BIGINT;
+BEGIN
+    SELECT COUNT(*) INTO quarantined FROM daily_sleep_log_overlap_quarantine;
+    IF quarantined > 0 THEN
+        RAISE WARNING '% overlapping sleep logs were moved to daily_sleep_log_overlap_quarantine for review', quarantined;
+    END IF;
+END $$;
+
+ALTER TABLE daily_sleep_log
+    ADD CONSTRAINT daily_sleep_log_no_overlap
+    EXCLUDE USING gist (user_id WITH =, tsrange(sleep_start, sleep_end, '[]') WITH &&);
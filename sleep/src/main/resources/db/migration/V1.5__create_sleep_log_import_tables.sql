@@ -0,0 +1,26 @@
+CREATE TABLE IF NOT EXISTS sleep_log_import_job (
+    id UUID PRIMARY KEY NOT NULL,
+    source TEXT NOT NULL,
+    format VARCHAR(16) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    rows_read BIGINT NOT NULL DEFAULT 0,
+    rows_loaded BIGINT NOT NULL DEFAULT 0,
+    rows_rejected BIGINT NOT NULL DEFAULT 0,
+    error TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    modified_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE UNLOGGED TABLE IF NOT EXISTS sleep_log_import_staging (
+    job_id UUID NOT NULL,
+    position INT NOT NULL,
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    user_id INT NOT NULL,
+    sleep_start TIMESTAMP NOT NULL,
+    sleep_end TIMESTAMP NOT NULL,
+    sleep_quality INT NOT NULL,
+    sleep_duration INT NOT NULL,
+    PRIMARY KEY (job_id, position)
+);
+
+CREATE INDEX IF NOT EXISTS idx_sleep_log_import_staging_job_user ON sleep_log_import_staging (job_id, user_id, sleep_start);
@@ -0,0 +1,5 @@
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_daily_sleep_log_user_id_sleep_end_id
+    ON daily_sleep_log (user_id, sleep_end DESC, id DESC)
+    INCLUDE (sleep_start, sleep_quality, sleep_duration, created_at, modified_at);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_daily_sleep_log_user_id_sleep_end;
@@ -0,0 +1,86 @@
+ALTER TABLE daily_sleep_log RENAME TO daily_sleep_log_unpartitioned;
+ALTER TABLE daily_sleep_log_unpartitioned RENAME CONSTRAINT daily_sleep_log_pkey TO daily_sleep_log_unpartitioned_pkey;
+ALTER TABLE daily_sleep_log_unpartitioned DROP CONSTRAINT daily_sleep_log_no_overlap;
+DROP INDEX idx_daily_sleep_log_user_id_sleep_end_id;
+
+CREATE TABLE daily_sleep_log (
+    id UUID NOT NULL,
+    sleep_start TIMESTAMP NOT NULL,
+    sleep_end TIMESTAMP NOT NULL,
+    sleep_quality INT NOT NULL,
+    sleep_duration INT NOT NULL,
+    user_id INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    modified_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    sleep_date DATE GENERATED ALWAYS AS (CAST(sleep_end AS DATE)) STORED,
+    CONSTRAINT daily_sleep_log_pkey PRIMARY KEY (id, sleep_end)
+) PARTITION BY RANGE (sleep_end);
+
+CREATE INDEX idx_daily_sleep_log_user_id_sleep_end_id
+    ON daily_sleep_log (user_id, sleep_end DESC, id DESC)
+    INCLUDE (sleep_start, sleep_quality, sleep_duration, created_at, modified_at);
+
+-- Exclusion constraints cannot be declared on a partitioned table, so every partition carries its own.
+CREATE TABLE daily_sleep_log_default PARTITION OF daily_sleep_log DEFAULT;
+ALTER TABLE daily_sleep_log_default
+    ADD CONSTRAINT daily_sleep_log_default_no_overlap
+    EXCLUDE USING gist (user_id WITH =, tsrange(sleep_start, sleep_end, '[]') WITH &&);
+
+-- Creates the partition holding sleep_end in the month of partition_month, moving any rows of that month out of the
+-- default partition first. Returns false when the partition already exists. Refuses to run while another session
+-- maintains the partitions; the app takes the same transaction-scoped advisory lock around its maintenance run.
+CREATE OR REPLACE FUNCTION daily_sleep_log_create_partition(partition_month DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    partition_start DATE := date_trunc('month', partition_month);
+    partition_end DATE := partition_start + INTERVAL '1 month';
+    partition_name TEXT := 'daily_sleep_log_p' || to_char(partition_start, 'YYYYMM');
+BEGIN
+    IF NOT pg_try_advisory_xact_lock(1397510228, 0) THEN
+        RAISE EXCEPTION 'daily_sleep_log partitions are being maintained by another session';
+    END IF;
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    CREATE TEMP TABLE daily_sleep_log_moved (LIKE daily_sleep_log_default);
+    WITH moved AS (
+        DELETE FROM daily_sleep_log_default
+        WHERE sleep_end >= partition_start AND sleep_end < partition_end
+        RETURNING *
+    )
+    INSERT INTO daily_sleep_log_moved SELECT * FROM moved;
+
+    EXECUTE format('CREATE TABLE %I PARTITION OF daily_sleep_log FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, partition_start, partition_end);
+    EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I EXCLUDE USING gist (user_id WITH =, tsrange(sleep_start, sleep_end, ''[]'') WITH &&)',
+                   partition_name, partition_name || '_no_overlap');
+
+    INSERT INTO daily_sleep_log (id, sleep_start, sleep_end, sleep_quality, sleep_duration, user_id, created_at, modified_at)
+    SELECT id, sleep_start, sleep_end, sleep_quality, sleep_duration, user_id, created_at, modified_at
+    FROM daily_sleep_log_moved;
+    DROP TABLE daily_sleep_log_moved;
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    partition_month DATE;
+BEGIN
+    FOR partition_month IN
+        SELECT CAST(month AS DATE)
+        FROM (SELECT MIN(sleep_end) AS first_end FROM daily_sleep_log_unpartitioned) bounds,
+             generate_series(date_trunc('month', LEAST(COALESCE(bounds.first_end, LOCALTIMESTAMP), LOCALTIMESTAMP)),
+                             date_trunc('month', LOCALTIMESTAMP) + INTERVAL '3 months',
+                             INTERVAL '1 month') AS month
+    LOOP
+        PERFORM daily_sleep_log_create_partition(partition_month);
+    END LOOP;
+END;
+$$;
+
+INSERT INTO daily_sleep_log (id, sleep_start, sleep_end, sleep_quality, sleep_duration, user_id, created_at, modified_at)
+SELECT id, sleep_start, sleep_end, sleep_quality, sleep_duration, user_id, created_at, modified_at
+FROM daily_sleep_log_unpartitioned;
+
+DROP TABLE daily_sleep_log_unpartitioned;
@@ -0,0 +1,6 @@
+CREATE TABLE IF NOT EXISTS sleep_log_user_shard (
+    user_id INT PRIMARY KEY NOT NULL,
+    shard VARCHAR(64) NOT NULL,
+    moved_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    purged BOOLEAN NOT NULL DEFAULT FALSE
+);
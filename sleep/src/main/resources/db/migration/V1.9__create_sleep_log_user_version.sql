@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS sleep_log_user_version (
+    user_id INT PRIMARY KEY NOT NULL,
+    version BIGINT NOT NULL,
+    modified_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO sleep_log_user_version (user_id, version, modified_at)
+SELECT user_id, 1, COALESCE(MAX(modified_at), CURRENT_TIMESTAMP)
+FROM daily_sleep_log_rollup
+GROUP BY user_id;
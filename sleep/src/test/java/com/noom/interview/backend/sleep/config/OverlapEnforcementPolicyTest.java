@@ -0,0 +1,55 @@
+package com.noom.interview.backend.sleep.config;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.OverlapEnforcement;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class OverlapEnforcementPolicyTest {
+
+    private final OverlapEnforcementPolicy databasePolicy = new OverlapEnforcementPolicy(OverlapEnforcement.DATABASE, true);
+
+    private DailySleepLog createSleepLog(LocalDateTime sleepStart, LocalDateTime sleepEnd) {
+        return DailySleepLog.builder()
+          .userId(1L)
+          .sleepStart(sleepStart)
+          .sleepEnd(sleepEnd)
+          .sleepQuality(SleepQuality.GOOD)
+          .build();
+    }
+
+    @Test
+    void checksInApplication_withDatabaseEnforcement_shouldTrustTheConstraintWithinAMonth() {
+        DailySleepLog midMonth = createSleepLog(LocalDateTime.of(2025, 5, 14, 23, 0), LocalDateTime.of(2025, 5, 15, 7, 0));
+
+        assertFalse(databasePolicy.checksInApplication(midMonth));
+    }
+
+    @Test
+    void checksInApplication_withDatabaseEnforcement_shouldCheckNightsCrossingIntoTheNextMonth() {
+        DailySleepLog crossing = createSleepLog(LocalDateTime.of(2025, 5, 31, 23, 0), LocalDateTime.of(2025, 6, 1, 7, 0));
+
+        assertTrue(databasePolicy.checksInApplication(crossing));
+    }
+
+    @Test
+    void checksInApplication_withDatabaseEnforcement_shouldCheckNightsEndingOnTheLastDayOfTheMonth() {
+        DailySleepLog lastNightOfMonth = createSleepLog(LocalDateTime.of(2025, 5, 30, 23, 0), LocalDateTime.of(2025, 5, 31, 7, 0));
+        DailySleepLog firstMidMonth = createSleepLog(LocalDateTime.of(2025, 5, 14, 23, 0), LocalDateTime.of(2025, 5, 15, 7, 0));
+
+        assertTrue(databasePolicy.checksInApplication(lastNightOfMonth));
+        assertTrue(databasePolicy.checksInApplication(List.of(firstMidMonth, lastNightOfMonth)));
+    }
+
+    @Test
+    void checksInApplication_withApplicationEnforcement_shouldAlwaysCheck() {
+        OverlapEnforcementPolicy policy = new OverlapEnforcementPolicy(OverlapEnforcement.APPLICATION, true);
+
+        assertTrue(policy.checksInApplication(createSleepLog(LocalDateTime.of(2025, 5, 14, 23, 0), LocalDateTime.of(2025, 5, 15, 7, 0))));
+    }
+}
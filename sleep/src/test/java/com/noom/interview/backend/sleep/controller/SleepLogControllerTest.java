@@ -2,36 +2,69 @@ package com.noom.interview.backend.sleep.controller;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.noom.interview.backend.sleep.controller.model.request.AddSleepLogBatchRequest;
 import com.noom.interview.backend.sleep.controller.model.request.AddSleepLogRequest;
+import com.noom.interview.backend.sleep.controller.model.request.SleepLogStatsBatchRequest;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
 import com.noom.interview.backend.sleep.dto.AvgSleepLog;
 import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogBatchItem;
+import com.noom.interview.backend.sleep.dto.SleepLogPage;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import com.noom.interview.backend.sleep.enums.SleepLogBatchItemStatus;
+import com.noom.interview.backend.sleep.enums.SleepLogExportFormat;
 import com.noom.interview.backend.sleep.enums.SleepQuality;
 import com.noom.interview.backend.sleep.exception.GlobalExceptionHandler;
+import com.noom.interview.backend.sleep.service.ExportSleepLogs;
 import com.noom.interview.backend.sleep.service.GetLastSleep;
 import com.noom.interview.backend.sleep.service.GetLastXDays;
+import com.noom.interview.backend.sleep.service.GetSleepLogHistory;
+import com.noom.interview.backend.sleep.service.GetSleepLogIfModified;
+import com.noom.interview.backend.sleep.service.GetSleepLogStatsBatch;
 import com.noom.interview.backend.sleep.service.SaveSleepLog;
+import com.noom.interview.backend.sleep.service.SaveSleepLogBatch;
+import com.noom.interview.backend.sleep.service.WriteBehindSleepLogs;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 
@@ -49,18 +82,47 @@ class SleepLogControllerTest {
     @Mock
     private GetLastSleep getLastSleep;
 
+    @Mock
+    private SaveSleepLogBatch saveSleepLogBatch;
+
+    @Mock
+    private ExportSleepLogs exportSleepLogs;
+
+    @Mock
+    private GetSleepLogHistory getSleepLogHistory;
+
+    @Mock
+    private GetSleepLogIfModified getSleepLogIfModified;
+
+    @Mock
+    private WriteBehindSleepLogs writeBehindSleepLogs;
+
+    @Mock
+    private GetSleepLogStatsBatch getSleepLogStatsBatch;
+
+    @Mock
+    private ReplicaReads replicaReads;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
     @InjectMocks
     private SleepLogController sleepLogController;
 
-    private ObjectMapper objectMapper;
-
     @BeforeEach
     void setUp() {
         mockMvc = MockMvcBuilders.standaloneSetup(sleepLogController)
            .setControllerAdvice(new GlobalExceptionHandler())
           .build();
-        objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
+
+        lenient().when(getSleepLogIfModified.execute(any(), any(), any())).thenAnswer(invocation -> {
+            Predicate<SleepLogVersion> notModified = invocation.getArgument(1);
+            Supplier<?> read = invocation.getArgument(2);
+            SleepLogVersion version = SleepLogVersion.builder().userId(invocation.getArgument(0)).version(DEFAULT_VERSION).build();
+            return notModified.test(version)
+                ? new GetSleepLogIfModified.Result<>(false, null)
+                : new GetSleepLogIfModified.Result<>(true, read.get());
+        });
     }
 
     // --- Test Data ---
@@ -70,6 +132,7 @@ class SleepLogControllerTest {
     private final LocalTime DEFAULT_SLEEP_END = LocalTime.of(6, 0);
     private final SleepQuality DEFAULT_SLEEP_QUALITY = SleepQuality.GOOD;
     private final UUID DEFAULT_LOG_ID = UUID.randomUUID();
+    private final long DEFAULT_VERSION = 3L;
 
     private AddSleepLogRequest createValidAddSleepLogRequest() {
         return AddSleepLogRequest.builder()
@@ -121,6 +184,28 @@ class SleepLogControllerTest {
           .andExpect(jsonPath("$.sleepTime", is("08:00")));
     }
 
+    @Test
+    void save_withWriteBehindAndRespondAsync_shouldReturnAcceptedOnceQueued() throws Exception {
+        when(writeBehindSleepLogs.isEnabled()).thenReturn(true);
+        when(writeBehindSleepLogs.submit(any(DailySleepLog.class))).thenAnswer(invocation -> {
+            DailySleepLog queued = invocation.getArgument(0);
+            queued.setId(DEFAULT_LOG_ID);
+            return new CompletableFuture<>();
+        });
+
+        mockMvc.perform(post("/v1/sleeplog")
+            .header("userId", DEFAULT_USER_ID)
+            .header("Prefer", "respond-async")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(createValidAddSleepLogRequest())))
+          .andExpect(status().isAccepted())
+          .andExpect(header().string("Preference-Applied", "respond-async"))
+          .andExpect(jsonPath("$.id", is(DEFAULT_LOG_ID.toString())))
+          .andExpect(jsonPath("$.sleepTime", is("08:00")));
+
+        verify(saveSleepLog, never()).save(any());
+    }
+
     @Test
     void save_whenSleepStartIsAfterSleepEndAndSameDay_shouldCorrectlyCalculateSleepTime() throws Exception {
         AddSleepLogRequest request = AddSleepLogRequest.builder()
@@ -294,6 +379,42 @@ class SleepLogControllerTest {
           .andExpect(jsonPath("$").doesNotExist());
     }
 
+    @Test
+    void lastSleep_shouldSendValidatorsAndCacheControl() throws Exception {
+        when(getLastSleep.execute(DEFAULT_USER_ID)).thenReturn(createDailySleepLogSameDay());
+
+        mockMvc.perform(get("/v1/sleeplog")
+            .header("userId", DEFAULT_USER_ID))
+          .andExpect(status().isOk())
+          .andExpect(header().string("ETag", "W/\"1-3-" + LocalDate.now() + "\""))
+          .andExpect(header().exists("Last-Modified"))
+          .andExpect(header().string("Cache-Control", "no-cache, private"))
+          .andExpect(header().string("Vary", "userId, numberOfDays"));
+    }
+
+    @Test
+    void lastSleep_whenETagMatches_shouldReturnNotModifiedWithoutQuerying() throws Exception {
+        mockMvc.perform(get("/v1/sleeplog")
+            .header("userId", DEFAULT_USER_ID)
+            .header("If-None-Match", "W/\"1-3-" + LocalDate.now() + "\""))
+          .andExpect(status().isNotModified())
+          .andExpect(content().string(""));
+
+        verify(getLastSleep, never()).execute(any());
+    }
+
+    @Test
+    void lastXDays_whenETagOfOtherNumberOfDays_shouldReturnOk() throws Exception {
+        when(getLastXDays.execute(DEFAULT_USER_ID, 7L)).thenReturn(null);
+
+        mockMvc.perform(get("/v1/sleeplog/last-x-days")
+            .header("userId", DEFAULT_USER_ID)
+            .header("numberOfDays", 7L)
+            .header("If-None-Match", "W/\"1-3-" + LocalDate.now() + "-30\""))
+          .andExpect(status().isOk())
+          .andExpect(header().string("ETag", "W/\"1-3-" + LocalDate.now() + "-7\""));
+    }
+
     @Test
     void lastSleep_whenUserIdHeaderMissing_shouldReturnBadRequest() throws Exception {
         mockMvc.perform(get("/v1/sleeplog"))
@@ -353,4 +474,135 @@ class SleepLogControllerTest {
             .header("userId", DEFAULT_USER_ID))
           .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    void saveBatch_whenOneItemConflicts_shouldReportPerItemStatus() throws Exception {
+        AddSleepLogBatchRequest request = AddSleepLogBatchRequest.builder()
+          .sleepLogs(List.of(createValidAddSleepLogRequest(), createValidAddSleepLogRequest()))
+          .build();
+        DailySleepLog savedLog = createDailySleepLog();
+
+        when(saveSleepLogBatch.execute(eq(DEFAULT_USER_ID), anyList())).thenReturn(List.of(
+          SleepLogBatchItem.builder().index(0).status(SleepLogBatchItemStatus.SAVED).sleepLog(savedLog).build(),
+          SleepLogBatchItem.builder().index(1).status(SleepLogBatchItemStatus.CONFLICT).sleepLog(savedLog).error("overlap").build()));
+
+        mockMvc.perform(post("/v1/sleeplog/batch")
+            .header("userId", DEFAULT_USER_ID)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.saved", is(1)))
+          .andExpect(jsonPath("$.conflicts", is(1)))
+          .andExpect(jsonPath("$.results[0].status", is("SAVED")))
+          .andExpect(jsonPath("$.results[0].sleepLog.id", is(DEFAULT_LOG_ID.toString())))
+          .andExpect(jsonPath("$.results[1].status", is("CONFLICT")))
+          .andExpect(jsonPath("$.results[1].error", is("overlap")));
+    }
+
+    @Test
+    void saveBatch_whenEmpty_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/v1/sleeplog/batch")
+            .header("userId", DEFAULT_USER_ID)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"sleepLogs\":[]}"))
+          .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void export_asCsv_shouldStreamAttachment() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(2);
+            outputStream.write("id,user_id,sleep_start,sleep_end,sleep_quality\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportSleepLogs).execute(eq(DEFAULT_USER_ID), eq(SleepLogExportFormat.CSV), any());
+
+        MvcResult result = mockMvc.perform(get("/v1/sleeplog/export")
+            .header("userId", DEFAULT_USER_ID)
+            .param("format", "CSV"))
+          .andExpect(request().asyncStarted())
+          .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+          .andExpect(status().isOk())
+          .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+          .andExpect(header().string("Content-Disposition", "attachment; filename=\"sleeplog-1.csv\""))
+          .andExpect(content().string("id,user_id,sleep_start,sleep_end,sleep_quality\n"));
+    }
+
+    @Test
+    void statsBatch_shouldStreamOneLinePerUser() throws Exception {
+        AvgSleepLog avgSleepLog = AvgSleepLog.builder()
+          .userId(DEFAULT_USER_ID)
+          .avgSleepStart(DEFAULT_SLEEP_START)
+          .avgSleepEnd(DEFAULT_SLEEP_END)
+          .sleepQualityCount(Map.of(SleepQuality.GOOD, 7))
+          .build();
+        doAnswer(invocation -> {
+            Consumer<GetSleepLogStatsBatch.UserStats> action = invocation.getArgument(2);
+            action.accept(new GetSleepLogStatsBatch.UserStats(DEFAULT_USER_ID, avgSleepLog, createDailySleepLog()));
+            action.accept(new GetSleepLogStatsBatch.UserStats(2L, null, null));
+            return null;
+        }).when(getSleepLogStatsBatch).execute(eq(List.of(DEFAULT_USER_ID, 2L)), eq(7L), any());
+
+        MvcResult result = mockMvc.perform(post("/v1/sleeplog/stats/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(SleepLogStatsBatchRequest.builder()
+              .userIds(List.of(DEFAULT_USER_ID, 2L))
+              .numberOfDays(7L)
+              .build())))
+          .andExpect(request().asyncStarted())
+          .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+          .andExpect(status().isOk())
+          .andExpect(header().string("Content-Type", MediaType.APPLICATION_NDJSON_VALUE))
+          .andExpect(content().string(
+            "{\"userId\":1,\"avgSleepLog\":{\"userId\":1,\"observationRangeDateStart\":null,\"observationRangeDateEnd\":null,"
+              + "\"avgSleepStart\":\"22:00\",\"avgSleepEnd\":\"06:00\",\"avgSleepTime\":\"08:00\",\"sleepQualityCount\":{\"GOOD\":7}},"
+              + "\"lastSleep\":{\"id\":\"" + DEFAULT_LOG_ID + "\",\"userId\":1,\"sleepDate\":\"05/15/2025\",\"sleepStart\":\"22:00\","
+              + "\"sleepEnd\":\"06:00\",\"sleepTime\":\"08:00\",\"sleepQuality\":\"GOOD\"}}\n"
+              + "{\"userId\":2,\"avgSleepLog\":null,\"lastSleep\":null}\n"));
+    }
+
+    @Test
+    void statsBatch_whenUserIdsEmpty_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/v1/sleeplog/stats/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"userIds\":[],\"numberOfDays\":7}"))
+          .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void history_whenMorePagesExist_shouldReturnCursorOfLastLog() throws Exception {
+        DailySleepLog lastLog = createDailySleepLog();
+        when(getSleepLogHistory.execute(DEFAULT_USER_ID, null, null, 1))
+          .thenReturn(SleepLogPage.builder().sleepLogs(List.of(lastLog)).hasMore(true).build());
+        String cursor = SleepLogCursor.of(lastLog).encode();
+        when(getSleepLogHistory.execute(DEFAULT_USER_ID, lastLog.getSleepEnd(), lastLog.getId(), 1))
+          .thenReturn(SleepLogPage.builder().sleepLogs(List.of()).hasMore(false).build());
+
+        mockMvc.perform(get("/v1/sleeplog/history")
+            .header("userId", DEFAULT_USER_ID)
+            .param("limit", "1"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.sleepLogs[0].id", is(lastLog.getId().toString())))
+          .andExpect(jsonPath("$.sleepLogs[0].sleepDate", is(lastLog.getSleepEnd().toLocalDate().format(DateTimeFormatter.ofPattern("MM/dd/yyyy")))))
+          .andExpect(jsonPath("$.nextCursor", is(cursor)));
+
+        mockMvc.perform(get("/v1/sleeplog/history")
+            .header("userId", DEFAULT_USER_ID)
+            .param("before", cursor)
+            .param("limit", "1"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.sleepLogs").isEmpty())
+          .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void history_whenCursorIsMalformed_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/sleeplog/history")
+            .header("userId", DEFAULT_USER_ID)
+            .param("before", "not-a-cursor"))
+          .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,95 @@
+package com.noom.interview.backend.sleep.controller;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import com.noom.interview.backend.sleep.exception.SleepLogUserMovedException;
+import com.noom.interview.backend.sleep.service.ReactiveSleepLogQueries;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class SleepLogReadRoutesTest {
+
+    private static final Long DEFAULT_USER_ID = 1L;
+
+    @Mock
+    private ReactiveSleepLogQueries queries;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.routerFunctions(new SleepLogReadRoutes(queries).sleepLogReadRouter()).build();
+        when(queries.userVersion(DEFAULT_USER_ID)).thenReturn(Mono.just(SleepLogVersion.builder().userId(DEFAULT_USER_ID).version(3).build()));
+    }
+
+    /**
+     * Follows the async dispatch when the query had not completed by the time the handler returned.
+     */
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)) : actions;
+    }
+
+    @Test
+    void lastSleep_shouldSendTheValidatorsOfTheUsersVersion() throws Exception {
+        LocalDate today = LocalDate.now();
+        when(queries.lastSleep(DEFAULT_USER_ID)).thenReturn(Mono.just(DailySleepLog.builder()
+            .id(UUID.randomUUID())
+            .userId(DEFAULT_USER_ID)
+            .sleepStart(today.minusDays(1).atTime(LocalTime.of(23, 0)))
+            .sleepEnd(today.atTime(LocalTime.of(7, 0)))
+            .sleepQuality(SleepQuality.GOOD)
+            .build()));
+
+        perform(get("/v1/sleeplog").header("userId", DEFAULT_USER_ID))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "W/\"1-3-" + today + "\""))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+            .andExpect(jsonPath("$.sleepTime", is("08:00")));
+    }
+
+    @Test
+    void lastSleep_withMatchingETag_shouldAnswerNotModifiedWithoutReading() throws Exception {
+        perform(get("/v1/sleeplog")
+                .header("userId", DEFAULT_USER_ID)
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"1-3-" + LocalDate.now() + "\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+        verify(queries, never()).lastSleep(DEFAULT_USER_ID);
+    }
+
+    @Test
+    void lastSleep_whenUserIsBeingMoved_shouldAnswerRetryableUnavailable() throws Exception {
+        when(queries.lastSleep(DEFAULT_USER_ID)).thenReturn(Mono.error(new SleepLogUserMovedException(DEFAULT_USER_ID, "b")));
+
+        perform(get("/v1/sleeplog").header("userId", DEFAULT_USER_ID))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.noom.interview.backend.sleep.controller.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noom.interview.backend.sleep.config.SleepLogConcurrencyLimitProperties;
+import com.noom.interview.backend.sleep.db.shard.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class DatabaseConcurrencyLimitFilterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private static HikariDataSource pool(int size) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(size);
+        return dataSource;
+    }
+
+    private DatabaseConcurrencyLimitFilter createFilter(int permits, DataSource dataSource) {
+        SleepLogConcurrencyLimitProperties properties = new SleepLogConcurrencyLimitProperties();
+        properties.setPermits(permits);
+        return new DatabaseConcurrencyLimitFilter(properties, dataSource, new ObjectMapper(), meterRegistry);
+    }
+
+    private double availablePermits() {
+        return meterRegistry.get("sleeplog.db.concurrency.available").gauge().value();
+    }
+
+    @Test
+    void permitsUnset_withPoolBehindLazyProxy_shouldUseTheTargetPoolSize() {
+        try (HikariDataSource pool = pool(7)) {
+            createFilter(0, new LazyConnectionDataSourceProxy(pool));
+
+            assertEquals(7, availablePermits());
+        }
+    }
+
+    @Test
+    void permitsUnset_withShards_shouldFailAtStartup() {
+        try (ShardRoutingDataSource shards = new ShardRoutingDataSource(Map.of("a", pool(5), "b", pool(5)))) {
+            assertThrows(IllegalStateException.class, () -> createFilter(0, shards));
+        }
+    }
+
+    @Test
+    void permitsSet_withShards_shouldUseThem() {
+        try (ShardRoutingDataSource shards = new ShardRoutingDataSource(Map.of("a", pool(5), "b", pool(5)))) {
+            createFilter(12, shards);
+
+            assertEquals(12, availablePermits());
+        }
+    }
+
+    @Test
+    void doFilter_whenTheBodyIsStreamedAsync_shouldHoldThePermitUntilItCompletes() throws Exception {
+        DatabaseConcurrencyLimitFilter filter = createFilter(2, new LazyConnectionDataSourceProxy());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/sleeplog/export");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (servletRequest, servletResponse) -> servletRequest.startAsync());
+
+        assertEquals(1, availablePermits());
+        request.getAsyncContext().complete();
+        assertEquals(2, availablePermits());
+    }
+
+    @Test
+    void doFilter_whenTheHandlerAnswersSynchronously_shouldReleaseThePermitOnReturn() throws Exception {
+        DatabaseConcurrencyLimitFilter filter = createFilter(2, new LazyConnectionDataSourceProxy());
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/v1/sleeplog"), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertEquals(2, availablePermits());
+    }
+}
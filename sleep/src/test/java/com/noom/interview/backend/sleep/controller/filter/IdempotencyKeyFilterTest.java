@@ -0,0 +1,302 @@
+package com.noom.interview.backend.sleep.controller.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.noom.interview.backend.sleep.config.SleepLogIdempotencyProperties;
+import com.noom.interview.backend.sleep.config.SleepLogShardingProperties;
+import com.noom.interview.backend.sleep.db.repository.SleepLogIdempotencyRepository;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.dto.IdempotentResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class IdempotencyKeyFilterTest {
+
+    private static final String BODY = "{\"sleepStart\":\"23:00\",\"sleepEnd\":\"07:00\",\"sleepQuality\":\"GOOD\"}";
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private IdempotencyKeyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotencyKeyFilter(new SleepLogIdempotencyProperties(), null,
+            new ShardRouter(new SleepLogShardingProperties(), null), new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+
+    private SleepLogIdempotencyRepository useDatabase() {
+        SleepLogIdempotencyProperties properties = new SleepLogIdempotencyProperties();
+        properties.setDatabase(true);
+        SleepLogIdempotencyRepository repository = mock(SleepLogIdempotencyRepository.class);
+        filter = new IdempotencyKeyFilter(properties, repository,
+            new ShardRouter(new SleepLogShardingProperties(), null), new ObjectMapper().registerModule(new JavaTimeModule()));
+        return repository;
+    }
+
+    private MockHttpServletRequest request(String key, String body) {
+        return request("/v1/sleeplog", key, body);
+    }
+
+    private MockHttpServletRequest request(String uri, String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.addHeader("userId", "1");
+        request.addHeader(IdempotencyKeyFilter.IDEMPOTENCY_KEY, key);
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private FilterChain saving(int status) {
+        return (request, response) -> {
+            String body = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            ((HttpServletResponse) response).setStatus(status);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"execution\":" + executions.incrementAndGet() + ",\"length\":" + body.length() + "}");
+        };
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    @Test
+    void retry_withSameKey_shouldReplayFirstResponseWithoutExecuting() throws Exception {
+        MockHttpServletResponse first = perform(request("key-1", BODY), saving(200));
+        MockHttpServletResponse retry = perform(request("key-1", BODY), saving(200));
+
+        assertEquals(1, executions.get());
+        assertEquals("{\"execution\":1,\"length\":" + BODY.length() + "}", first.getContentAsString());
+        assertNull(first.getHeader(IdempotencyKeyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals(200, retry.getStatus());
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertEquals("true", retry.getHeader(IdempotencyKeyFilter.IDEMPOTENT_REPLAYED));
+    }
+
+    @Test
+    void retry_ofAcceptedWrite_shouldReplayItsHeaders() throws Exception {
+        FilterChain accepting = (request, response) -> {
+            ((HttpServletResponse) response).setHeader("Preference-Applied", "respond-async");
+            ((HttpServletResponse) response).setHeader(HttpHeaders.LOCATION, "/v1/sleeplog/last");
+            saving(202).doFilter(request, response);
+        };
+        perform(request("key-1", BODY), accepting);
+
+        MockHttpServletResponse retry = perform(request("key-1", BODY), accepting);
+
+        assertEquals(1, executions.get());
+        assertEquals(202, retry.getStatus());
+        assertEquals("respond-async", retry.getHeader("Preference-Applied"));
+        assertEquals("/v1/sleeplog/last", retry.getHeader(HttpHeaders.LOCATION));
+    }
+
+    @Test
+    void retry_whileAcceptedWriteIsNotCommitted_shouldWaitAndReplayOnceItCommits() throws Exception {
+        CompletableFuture<Void> write = new CompletableFuture<>();
+        FilterChain accepting = (request, response) -> {
+            IdempotencyKeyFilter.deferUntil(request, write);
+            saving(202).doFilter(request, response);
+        };
+        MockHttpServletResponse first = perform(request("key-1", BODY), accepting);
+        assertEquals(202, first.getStatus());
+
+        CompletableFuture<MockHttpServletResponse> retry = CompletableFuture.supplyAsync(() -> performUnchecked(request("key-1", BODY), accepting));
+        write.complete(null);
+
+        assertEquals("true", retry.get(5, TimeUnit.SECONDS).getHeader(IdempotencyKeyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void retry_afterAcceptedWriteFailedToCommit_shouldExecuteAgain() throws Exception {
+        CompletableFuture<Void> write = new CompletableFuture<>();
+        perform(request("key-1", BODY), (request, response) -> {
+            IdempotencyKeyFilter.deferUntil(request, write);
+            saving(202).doFilter(request, response);
+        });
+        write.completeExceptionally(new IllegalStateException("connection lost"));
+
+        MockHttpServletResponse retry = perform(request("key-1", BODY), saving(200));
+
+        assertEquals(2, executions.get());
+        assertEquals(200, retry.getStatus());
+        assertNull(retry.getHeader(IdempotencyKeyFilter.IDEMPOTENT_REPLAYED));
+    }
+
+    @Test
+    void post_toNonWriteEndpoint_shouldNotBeDeduplicated() throws Exception {
+        perform(request("/v1/sleeplog/stats/batch", "key-1", BODY), saving(200));
+        MockHttpServletResponse second = perform(request("/v1/sleeplog/stats/batch", "key-1", BODY), saving(200));
+
+        assertEquals(2, executions.get());
+        assertNull(second.getHeader(IdempotencyKeyFilter.IDEMPOTENT_REPLAYED));
+    }
+
+    @Test
+    void retry_withSameKeyAndDifferentBody_shouldBeRejected() throws Exception {
+        perform(request("key-1", BODY), saving(200));
+
+        MockHttpServletResponse reused = perform(request("key-1", BODY.replace("GOOD", "BAD")), saving(200));
+
+        assertEquals(1, executions.get());
+        assertEquals(422, reused.getStatus());
+    }
+
+    @Test
+    void retry_afterServerError_shouldExecuteAgain() throws Exception {
+        perform(request("key-1", BODY), saving(503));
+
+        MockHttpServletResponse retry = perform(request("key-1", BODY), saving(200));
+
+        assertEquals(2, executions.get());
+        assertEquals(200, retry.getStatus());
+    }
+
+    @Test
+    void concurrentDuplicate_shouldWaitForInFlightResponse() throws Exception {
+        CountDownLatch executing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (request, response) -> {
+            executing.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            saving(200).doFilter(request, response);
+        };
+
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> performUnchecked(request("key-1", BODY), slow));
+        assertTrue(executing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<MockHttpServletResponse> duplicate = CompletableFuture.supplyAsync(() -> performUnchecked(request("key-1", BODY), slow));
+        release.countDown();
+
+        assertEquals(first.get(5, TimeUnit.SECONDS).getContentAsString(), duplicate.get(5, TimeUnit.SECONDS).getContentAsString());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void retry_withSameKeyAndDifferentPreferHeader_shouldBeRejected() throws Exception {
+        perform(request("key-1", BODY), saving(201));
+
+        MockHttpServletRequest async = request("key-1", BODY);
+        async.addHeader("Prefer", "respond-async");
+        MockHttpServletResponse reused = perform(async, saving(202));
+
+        assertEquals(1, executions.get());
+        assertEquals(422, reused.getStatus());
+    }
+
+    @Test
+    void readListener_shouldBeToldTheWholeBodyIsAvailable() throws Exception {
+        AtomicBoolean dataAvailable = new AtomicBoolean();
+        AtomicBoolean allDataRead = new AtomicBoolean();
+        perform(request("key-1", BODY), (request, response) -> request.getInputStream().setReadListener(new ReadListener() {
+
+            @Override
+            public void onDataAvailable() {
+                dataAvailable.set(true);
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allDataRead.set(true);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new AssertionError(t);
+            }
+        }));
+
+        assertTrue(dataAvailable.get());
+        assertTrue(allDataRead.get());
+    }
+
+    @Test
+    void duplicate_whileKeyIsClaimedOnAnotherInstance_shouldWaitAndReplayItsResponse() throws Exception {
+        SleepLogIdempotencyRepository repository = useDatabase();
+        AtomicReference<String> claimedFingerprint = new AtomicReference<>();
+        when(repository.claim(eq(1L), eq("key-1"), anyString(), any(), any())).thenAnswer(invocation -> {
+            claimedFingerprint.set(invocation.getArgument(2));
+            return false;
+        });
+        when(repository.findResponse(eq(1L), eq("key-1"), any())).thenReturn(Optional.empty());
+
+        CompletableFuture<MockHttpServletResponse> duplicate = CompletableFuture.supplyAsync(() -> performUnchecked(request("key-1", BODY), saving(200)));
+        Thread.sleep(200);
+        assertFalse(duplicate.isDone());
+        when(repository.findResponse(eq(1L), eq("key-1"), any())).thenReturn(Optional.of(IdempotentResponse.builder()
+            .fingerprint(claimedFingerprint.get())
+            .status(201)
+            .contentType(MediaType.APPLICATION_JSON_VALUE)
+            .headers(Map.of())
+            .body("{\"execution\":0}".getBytes(StandardCharsets.UTF_8))
+            .build()));
+
+        MockHttpServletResponse replayed = duplicate.get(5, TimeUnit.SECONDS);
+        assertEquals(201, replayed.getStatus());
+        assertEquals("{\"execution\":0}", replayed.getContentAsString());
+        assertEquals("true", replayed.getHeader(IdempotencyKeyFilter.IDEMPOTENT_REPLAYED));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void request_afterClaimingKey_shouldStoreItsResponse() throws Exception {
+        SleepLogIdempotencyRepository repository = useDatabase();
+        when(repository.claim(eq(1L), eq("key-1"), anyString(), any(), any())).thenReturn(true);
+
+        perform(request("key-1", BODY), saving(201));
+
+        verify(repository).saveResponse(eq(1L), eq("key-1"), any(), any());
+        verify(repository, never()).release(eq(1L), eq("key-1"), anyString());
+    }
+
+    @Test
+    void request_failingAfterClaimingKey_shouldReleaseIt() throws Exception {
+        SleepLogIdempotencyRepository repository = useDatabase();
+        when(repository.claim(eq(1L), eq("key-1"), anyString(), any(), any())).thenReturn(true);
+
+        perform(request("key-1", BODY), saving(503));
+
+        verify(repository).release(eq(1L), eq("key-1"), anyString());
+        verify(repository, never()).saveResponse(eq(1L), eq("key-1"), any(), any());
+    }
+
+    private MockHttpServletResponse performUnchecked(MockHttpServletRequest request, FilterChain chain) {
+        try {
+            return perform(request, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.noom.interview.backend.sleep.db.cold;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class SleepLogColdCodecTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2025, 1);
+
+    private DailySleepLog createSleepLog(LocalDateTime sleepStart, LocalDateTime sleepEnd, SleepQuality sleepQuality) {
+        return DailySleepLog.builder()
+          .id(UUID.randomUUID())
+          .userId(7L)
+          .sleepStart(sleepStart)
+          .sleepEnd(sleepEnd)
+          .sleepQuality(sleepQuality)
+          .build();
+    }
+
+    private List<DailySleepLog> month() {
+        List<DailySleepLog> logs = new ArrayList<>();
+        for (int day = MONTH.lengthOfMonth(); day >= 1; day--) {
+            LocalDateTime start = MONTH.atDay(day).minusDays(1).atTime(22, 17).plusMinutes(day * 3L);
+            logs.add(createSleepLog(start, start.plusMinutes(420 + day), SleepQuality.values()[day % 3]));
+        }
+        return logs;
+    }
+
+    @Test
+    void decode_shouldReturnEncodedNightsOldestFirst() {
+        List<DailySleepLog> logs = month();
+
+        List<DailySleepLog> decoded = SleepLogColdCodec.decode(7L, MONTH, SleepLogColdCodec.encode(MONTH, logs));
+
+        assertEquals(logs.size(), decoded.size());
+        for (int i = 0; i < decoded.size(); i++) {
+            DailySleepLog expected = logs.get(logs.size() - 1 - i);
+            assertEquals(7L, decoded.get(i).getUserId());
+            assertEquals(expected.getSleepStart(), decoded.get(i).getSleepStart());
+            assertEquals(expected.getSleepEnd(), decoded.get(i).getSleepEnd());
+            assertEquals(expected.getSleepQuality(), decoded.get(i).getSleepQuality());
+        }
+    }
+
+    @Test
+    void encode_shouldTakeFewBytesPerNight() {
+        List<DailySleepLog> logs = month();
+
+        byte[] payload = SleepLogColdCodec.encode(MONTH, logs);
+
+        assertTrue(payload.length <= 2 + logs.size() * 5, "payload of " + payload.length + " bytes");
+    }
+
+    @Test
+    void decode_shouldGiveTheSameNightTheSameId() {
+        List<DailySleepLog> logs = month();
+        List<DailySleepLog> fewer = logs.subList(0, 10);
+
+        List<DailySleepLog> all = SleepLogColdCodec.decode(7L, MONTH, SleepLogColdCodec.encode(MONTH, logs));
+        List<DailySleepLog> some = SleepLogColdCodec.decode(7L, MONTH, SleepLogColdCodec.encode(MONTH, fewer));
+
+        assertEquals(all.get(all.size() - 1).getId(), some.get(some.size() - 1).getId());
+        assertNotEquals(all.get(0).getId(), all.get(1).getId());
+        assertEquals(8, all.get(0).getId().version());
+    }
+
+    @Test
+    void encode_withSecondsInTimestamps_shouldBeRejected() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 10, 23, 0, 30);
+        DailySleepLog log = createSleepLog(start, start.plusHours(8), SleepQuality.OK);
+
+        assertFalse(SleepLogColdCodec.isPackable(log));
+        assertThrows(IllegalArgumentException.class, () -> SleepLogColdCodec.encode(MONTH, List.of(log)));
+    }
+}
@@ -0,0 +1,133 @@
+package com.noom.interview.backend.sleep.db.mapped;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SleepLogSegmentStoreTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+
+    @TempDir
+    Path directory;
+
+    private DailySleepLog createSleepLog(Long userId, int day) {
+        return DailySleepLog.builder()
+          .userId(userId)
+          .sleepStart(LocalDateTime.of(FIRST_DAY.plusDays(day - 1), LocalTime.of(23, 0, 0, 123_456_000)))
+          .sleepEnd(LocalDateTime.of(FIRST_DAY.plusDays(day), LocalTime.of(7, 0)))
+          .sleepQuality(SleepQuality.values()[day % 3])
+          .build();
+    }
+
+    private DailySleepLog retried(DailySleepLog log) {
+        return DailySleepLog.builder()
+          .id(log.getId())
+          .userId(log.getUserId())
+          .sleepStart(log.getSleepStart())
+          .sleepEnd(log.getSleepEnd())
+          .sleepQuality(log.getSleepQuality())
+          .build();
+    }
+
+    private List<UUID> ids(List<DailySleepLog> logs) {
+        return logs.stream().map(DailySleepLog::getId).toList();
+    }
+
+    @Test
+    void findByUserId_shouldReturnTheUsersLogsInTheIntervalOldestFirst() throws IOException {
+        try (SleepLogSegmentStore store = new SleepLogSegmentStore(directory, 16, 4, false)) {
+            List<DailySleepLog> logs = new ArrayList<>();
+            for (int day = 10; day >= 1; day--) {
+                logs.add(createSleepLog(1L, day));
+                logs.add(createSleepLog(2L, day));
+            }
+            store.append(logs);
+
+            List<DailySleepLog> found = store.findByUserId(1L, FIRST_DAY.plusDays(3).atStartOfDay(), FIRST_DAY.plusDays(5).atTime(7, 0));
+
+            assertEquals(List.of(logs.get(14), logs.get(12), logs.get(10)), found);
+            assertEquals(2, store.segmentCount());
+            assertEquals(10, store.findVersion(1L).orElseThrow().getVersion());
+        }
+    }
+
+    @Test
+    void open_shouldRebuildTheIndexAndDropATornLastRecord() throws IOException {
+        List<DailySleepLog> logs = List.of(createSleepLog(1L, 1), createSleepLog(1L, 2), createSleepLog(1L, 3));
+        try (SleepLogSegmentStore store = new SleepLogSegmentStore(directory, 16, 4, true)) {
+            store.append(new ArrayList<>(logs));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {42}), 2L * SleepLogRecord.SIZE + 20);
+        }
+
+        try (SleepLogSegmentStore store = new SleepLogSegmentStore(directory, 16, 4, false)) {
+            assertEquals(ids(logs.subList(0, 2)), ids(store.findByUserId(1L, LocalDateTime.MIN, LocalDateTime.MAX)));
+            assertEquals(2, store.findVersion(1L).orElseThrow().getVersion());
+
+            store.append(new ArrayList<>(List.of(createSleepLog(1L, 4))));
+        }
+
+        try (SleepLogSegmentStore store = new SleepLogSegmentStore(directory, 16, 4, false)) {
+            List<DailySleepLog> found = new ArrayList<>();
+            store.forEachByUserId(1L, found::add);
+            assertEquals(3, found.size());
+            assertEquals(logs.get(0), found.get(0));
+            assertEquals(FIRST_DAY.plusDays(4).atTime(7, 0), found.get(2).getSleepEnd());
+        }
+    }
+
+    @Test
+    void compact_shouldDropRetriedCopiesAndKeepEveryLog() throws IOException {
+        List<DailySleepLog> logs = new ArrayList<>();
+        for (int day = 1; day <= 10; day++) {
+            for (long userId = 1; userId <= 3; userId++) {
+                logs.add(createSleepLog(userId, day));
+            }
+        }
+        try (SleepLogSegmentStore store = new SleepLogSegmentStore(directory, 10, 4, false)) {
+            store.append(logs);
+            store.append(logs.stream().map(this::retried).toList());
+            assertEquals(6, store.segmentCount());
+            assertEquals(10, store.findVersion(1L).orElseThrow().getVersion());
+
+            assertEquals(5, store.compact());
+
+            assertEquals(4, store.segmentCount());
+            assertEquals(0, store.compact());
+            for (long userId = 1; userId <= 3; userId++) {
+                long user = userId;
+                assertEquals(ids(logs.stream().filter(log -> log.getUserId() == user).toList()),
+                    ids(store.findLatestByUserId(userId, null, 10)));
+            }
+        }
+
+        try (SleepLogSegmentStore store = new SleepLogSegmentStore(directory, 10, 4, false)) {
+            assertEquals(4, store.segmentCount());
+            assertEquals(10, store.findVersion(2L).orElseThrow().getVersion());
+            assertEquals(ids(logs.stream().filter(log -> log.getUserId() == 2L).toList()),
+                ids(store.findByUserId(2L, LocalDateTime.MIN, LocalDateTime.MAX)));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.noom.interview.backend.sleep.db.replica;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.noom.interview.backend.sleep.config.SleepLogReplicaProperties;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Routes reads between two in-memory H2 databases, the replica faking the Postgres replication functions.
+ */
+class ReplicaReadsTest {
+
+    private final Long DEFAULT_USER_ID = 1L;
+
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ReplicaReads replicaReads;
+
+    @BeforeEach
+    void setUp() {
+        ReplicationFunctions.replayedLsn = "0/100";
+        ReplicationFunctions.replayedAt = Timestamp.valueOf(LocalDateTime.now());
+        JdbcDataSource primary = database("primary");
+        JdbcDataSource replica = database("replica");
+        new JdbcTemplate(primary).execute(
+            "CREATE ALIAS pg_current_wal_lsn FOR 'com.noom.interview.backend.sleep.db.replica.ReplicaReadsTest$ReplicationFunctions.currentLsn'");
+        new JdbcTemplate(replica).execute("""
+            CREATE ALIAS pg_last_wal_receive_lsn FOR 'com.noom.interview.backend.sleep.db.replica.ReplicaReadsTest$ReplicationFunctions.receivedLsn';
+            CREATE ALIAS pg_last_wal_replay_lsn FOR 'com.noom.interview.backend.sleep.db.replica.ReplicaReadsTest$ReplicationFunctions.replayedLsn';
+            CREATE ALIAS pg_last_xact_replay_timestamp FOR 'com.noom.interview.backend.sleep.db.replica.ReplicaReadsTest$ReplicationFunctions.replayedAt';
+            """);
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, Map.of("r1", replica), Duration.ofSeconds(2));
+        routingDataSource.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("replicaRoutingDataSource", routingDataSource));
+        replicaReads = new ReplicaReads(new SleepLogReplicaProperties(), beanFactory.getBeanProvider(ReplicaRoutingDataSource.class),
+            new DataSourceTransactionManager(dataSource));
+    }
+
+    private static JdbcDataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        new JdbcTemplate(dataSource).execute("CREATE TABLE server (name VARCHAR(16)); INSERT INTO server VALUES ('" + name + "')");
+        return dataSource;
+    }
+
+    private String readServer(Long userId) {
+        return replicaReads.forUser(userId, () -> jdbcTemplate.queryForObject("SELECT name FROM server", String.class));
+    }
+
+    @Test
+    void forUser_withReplicaCaughtUp_shouldReadFromReplica() {
+        routingDataSource.checkLag();
+
+        assertEquals("replica", readServer(DEFAULT_USER_ID));
+    }
+
+    @Test
+    void forUser_afterWrite_shouldReadFromPrimaryWithinWindow() {
+        routingDataSource.checkLag();
+
+        replicaReads.recordWrite(DEFAULT_USER_ID);
+
+        assertEquals("primary", readServer(DEFAULT_USER_ID));
+        assertEquals("replica", readServer(DEFAULT_USER_ID + 1));
+    }
+
+    @Test
+    void forUsers_afterWriteOfAnyUser_shouldReadFromPrimaryWithinWindow() {
+        routingDataSource.checkLag();
+
+        replicaReads.recordWrite(DEFAULT_USER_ID + 1);
+
+        assertEquals("primary", replicaReads.forUsers(List.of(DEFAULT_USER_ID, DEFAULT_USER_ID + 1),
+            () -> jdbcTemplate.queryForObject("SELECT name FROM server", String.class)));
+        assertEquals("replica", replicaReads.forUsers(List.of(DEFAULT_USER_ID, DEFAULT_USER_ID + 2),
+            () -> jdbcTemplate.queryForObject("SELECT name FROM server", String.class)));
+    }
+
+    @Test
+    void forUser_withReplicaBehindMaxLag_shouldReadFromPrimary() {
+        ReplicationFunctions.replayedLsn = "0/80";
+        ReplicationFunctions.replayedAt = Timestamp.valueOf(LocalDateTime.now().minusSeconds(30));
+        routingDataSource.checkLag();
+
+        assertEquals("primary", readServer(DEFAULT_USER_ID));
+        assertEquals(1L, ((Map<?, ?>) routingDataSource.describe().get("reasons")).get("no-healthy-replica"));
+    }
+
+    @Test
+    void forUser_withWritePositionAheadOfReplica_shouldReadFromPrimaryUntilReplayed() {
+        routingDataSource.checkLag();
+        ReplicaContext.setMinimumPosition(ReplicaRoutingDataSource.parsePosition(replicaReads.writePosition()));
+        try {
+            assertEquals("primary", readServer(DEFAULT_USER_ID));
+
+            ReplicationFunctions.replayedLsn = "0/200";
+            routingDataSource.checkLag();
+
+            assertEquals("replica", readServer(DEFAULT_USER_ID));
+        } finally {
+            ReplicaContext.clear();
+        }
+        assertEquals(1L, ((Map<?, ?>) routingDataSource.describe().get("reasons")).get("read-your-writes"));
+    }
+
+    @Test
+    void parsePosition_shouldOrderWalPositions() {
+        assertEquals(0x16_B374D848L, ReplicaRoutingDataSource.parsePosition("16/B374D848"));
+        assertTrue(ReplicaRoutingDataSource.parsePosition("1/0") > ReplicaRoutingDataSource.parsePosition("0/FFFFFFFF"));
+        assertThrows(IllegalArgumentException.class, () -> ReplicaRoutingDataSource.parsePosition("16B374D848"));
+        assertThrows(IllegalArgumentException.class, () -> ReplicaRoutingDataSource.parsePosition("0/xyz"));
+    }
+
+    /**
+     * Stand-ins for the Postgres functions the routing calls, registered as H2 aliases.
+     */
+    public static class ReplicationFunctions {
+
+        static volatile String replayedLsn;
+        static volatile Timestamp replayedAt;
+
+        public static String currentLsn() {
+            return "0/200";
+        }
+
+        public static String receivedLsn() {
+            return "0/100";
+        }
+
+        public static String replayedLsn() {
+            return replayedLsn;
+        }
+
+        public static Timestamp replayedAt() {
+            return replayedAt;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.noom.interview.backend.sleep.db.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.noom.interview.backend.sleep.db.entity.DailySleepLogEntity;
+import com.noom.interview.backend.sleep.db.entity.DailySleepLogRollupEntity;
+import jakarta.persistence.EntityManager;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs EXPLAIN for every {@link DailySleepLogRepository} and {@link DailySleepLogJdbcRepository} read query against a seeded Postgres and fails when the
+ * planner falls back to a sequential scan or an explicit sort, and checks that a sleep_end window is pruned to the
+ * monthly partitions it touches. The Spring Data queries are explained as Hibernate generates them, captured by
+ * calling the repositories once; the JDBC ones from their SQL constants.
+ * Enabled only when {@code SLEEP_PLAN_TEST_DB_URL} points at a local database, e.g. the docker-compose one.
+ */
+@EnabledIfEnvironmentVariable(named = "SLEEP_PLAN_TEST_DB_URL", matches = ".+")
+class DailySleepLogRepositoryQueryPlanTest {
+
+    private static final String SCHEMA = "sleep_plan_test";
+    private static final int SEEDED_USERS = 2_000;
+    private static final int SEEDED_NIGHTS_PER_USER = 365;
+    private static final LocalDate SEED_LAST_DATE = LocalDate.of(2025, 5, 15);
+
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan");
+    private static final Pattern SORT = Pattern.compile("^\\s*(->\\s+)?(Incremental )?Sort\\b", Pattern.MULTILINE);
+    private static final Pattern PARTITION = Pattern.compile("daily_sleep_log_(p\\d{6}|default)");
+
+    private static final UUID LAST_ID = UUID.fromString("ffffffff-ffff-ffff-ffff-ffffffffffff");
+
+    private static final Map<String, String> hibernateSql = new HashMap<>();
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        String url = System.getenv("SLEEP_PLAN_TEST_DB_URL");
+        String user = Objects.requireNonNullElse(System.getenv("SLEEP_PLAN_TEST_DB_USER"), "user");
+        String password = Objects.requireNonNullElse(System.getenv("SLEEP_PLAN_TEST_DB_PASSWORD"), "password");
+
+        Flyway flyway = Flyway.configure()
+            .dataSource(url, user, password)
+            .schemas(SCHEMA)
+            .cleanDisabled(false)
+            .load();
+        flyway.clean();
+        flyway.migrate();
+
+        connection = DriverManager.getConnection(url, user, password);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET search_path TO " + SCHEMA);
+            statement.execute(
+                "SELECT daily_sleep_log_create_partition(CAST(m AS DATE)) " +
+                "FROM generate_series(DATE '" + SEED_LAST_DATE.minusDays(SEEDED_NIGHTS_PER_USER) + "', DATE '" + SEED_LAST_DATE + "', INTERVAL '1 month') m");
+            statement.execute(
+                "INSERT INTO daily_sleep_log (id, user_id, sleep_start, sleep_end, sleep_quality, sleep_duration) " +
+                "SELECT gen_random_uuid(), u, " +
+                "       (DATE '" + SEED_LAST_DATE + "' - d) - INTERVAL '2 hours', " +
+                "       (DATE '" + SEED_LAST_DATE + "' - d) + INTERVAL '6 hours', " +
+                "       (u + d) % 3, 480 " +
+                "FROM generate_series(1, " + SEEDED_USERS + ") u, generate_series(0, " + (SEEDED_NIGHTS_PER_USER - 1) + ") d");
+            statement.execute(
+                "INSERT INTO daily_sleep_log_rollup (user_id, sleep_date, log_count, bad_count, ok_count, good_count, " +
+                "sleep_start_seconds_sum, sleep_end_seconds_sum, sleep_duration_sum) " +
+                "SELECT user_id, sleep_date, 1, 0, 0, 1, 79200, 21600, sleep_duration FROM daily_sleep_log");
+            statement.execute("VACUUM ANALYZE daily_sleep_log");
+            statement.execute("VACUUM ANALYZE daily_sleep_log_rollup");
+        }
+        captureHibernateSql(url, user, password);
+    }
+
+    private static void captureHibernateSql(String url, String user, String password) {
+        List<String> statements = new ArrayList<>();
+        Configuration configuration = new Configuration()
+            .addAnnotatedClass(DailySleepLogEntity.class)
+            .addAnnotatedClass(DailySleepLogRollupEntity.class)
+            .setPhysicalNamingStrategy(new CamelCaseToUnderscoresNamingStrategy())
+            .setStatementInspector(sql -> {
+                statements.add(sql);
+                return sql;
+            })
+            .setProperty(AvailableSettings.JAKARTA_JDBC_URL, url)
+            .setProperty(AvailableSettings.JAKARTA_JDBC_USER, user)
+            .setProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD, password)
+            .setProperty(AvailableSettings.DEFAULT_SCHEMA, SCHEMA);
+        try (SessionFactory sessionFactory = configuration.buildSessionFactory()) {
+            EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(sessionFactory);
+            JpaRepositoryFactory repositoryFactory = new JpaRepositoryFactory(entityManager);
+            DailySleepLogRepository logs = repositoryFactory.getRepository(DailySleepLogRepository.class);
+            DailySleepLogRollupRepository rollups = repositoryFactory.getRepository(DailySleepLogRollupRepository.class);
+            TransactionTemplate transaction = new TransactionTemplate(new JpaTransactionManager(sessionFactory));
+            transaction.setReadOnly(true);
+            LocalDateTime windowEnd = SEED_LAST_DATE.atTime(LocalTime.MAX);
+
+            Map<String, Runnable> calls = Map.of(
+                "findByUserIdAndSleepEndBetweenOrderBySleepEndDesc",
+                () -> logs.findByUserIdAndSleepEndBetweenOrderBySleepEndDesc(42L, windowEnd.minusDays(30), windowEnd),
+                "streamByUserIdOrderBySleepEndAsc",
+                () -> {
+                    try (Stream<DailySleepLogEntity> nights = logs.streamByUserIdOrderBySleepEndAsc(42L)) {
+                        nights.findFirst();
+                    }
+                },
+                "findFirstPageByUserId",
+                () -> logs.findFirstPageByUserId(42L, Limit.of(31)),
+                "findPageByUserIdBefore",
+                () -> logs.findPageByUserIdBefore(42L, windowEnd.minusDays(300), LAST_ID, Limit.of(31)),
+                "findByUserIdAndSleepDateBetweenOrderBySleepDateDesc",
+                () -> rollups.findByUserIdAndSleepDateBetweenOrderBySleepDateDesc(42L, SEED_LAST_DATE.minusDays(30), SEED_LAST_DATE));
+            calls.forEach((name, call) -> {
+                statements.clear();
+                transaction.executeWithoutResult(status -> call.run());
+                assertEquals(1, statements.size(), name + " ran " + statements);
+                hibernateSql.put(name, statements.get(0));
+            });
+        }
+    }
+
+    @AfterAll
+    static void close() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    static Stream<Arguments> repositoryQueries() {
+        LocalDateTime windowEnd = SEED_LAST_DATE.atTime(LocalTime.MAX);
+        return Stream.of(
+            hibernate("findByUserIdAndSleepEndBetweenOrderBySleepEndDesc", List.of(42L, windowEnd.minusDays(30), windowEnd), true),
+            hibernate("streamByUserIdOrderBySleepEndAsc", List.of(42L), true),
+            hibernate("findFirstPageByUserId", List.of(42L, 31), true),
+            hibernate("findPageByUserIdBefore", List.of(42L, windowEnd.minusDays(300), windowEnd.minusDays(300), LAST_ID, 31), true),
+            hibernate("findByUserIdAndSleepDateBetweenOrderBySleepDateDesc", List.of(42L, SEED_LAST_DATE.minusDays(30), SEED_LAST_DATE), false),
+            jdbc("aggregateRollups", DailySleepLogJdbcRepository.AGGREGATE_ROLLUPS, new MapSqlParameterSource()
+                .addValue("userId", 42L)
+                .addValue("start", SEED_LAST_DATE.minusDays(30))
+                .addValue("end", SEED_LAST_DATE), false)
+        );
+    }
+
+    private static Arguments hibernate(String name, List<Object> parameters, boolean indexOnly) {
+        return Arguments.of(name, hibernateSql.get(name), parameters, indexOnly);
+    }
+
+    private static Arguments jdbc(String name, String sql, MapSqlParameterSource parameters, boolean indexOnly) {
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        return Arguments.of(name, NamedParameterUtils.substituteNamedParameters(parsedSql, parameters),
+            List.of(NamedParameterUtils.buildValueArray(parsedSql, parameters, null)), indexOnly);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryQueries")
+    void explain_shouldUseIndexWithoutSeqScanOrSort(String name, String sql, List<Object> parameters, boolean indexOnly) throws SQLException {
+        String plan = explain(sql, parameters);
+
+        assertFalse(SEQ_SCAN.matcher(plan).find(), name + " falls back to a sequential scan:\n" + plan);
+        assertFalse(SORT.matcher(plan).find(), name + " needs an explicit sort:\n" + plan);
+        if (indexOnly) {
+            assertTrue(plan.contains("Index Only Scan"), name + " is not answered by an index-only scan:\n" + plan);
+        }
+    }
+
+    @Test
+    void explain_sleepEndWindow_shouldOnlyScanPartitionsInWindow() throws SQLException {
+        LocalDateTime windowEnd = SEED_LAST_DATE.atTime(LocalTime.MAX);
+        String plan = explain(hibernateSql.get("findByUserIdAndSleepEndBetweenOrderBySleepEndDesc"),
+            List.of(42L, windowEnd.minusDays(30), windowEnd));
+
+        Set<String> partitions = PARTITION.matcher(plan).results().map(match -> match.group()).collect(Collectors.toSet());
+        assertEquals(Set.of("daily_sleep_log_p202504", "daily_sleep_log_p202505"), partitions, "window query is not pruned:\n" + plan);
+    }
+
+    @Test
+    void explain_userStats_shouldReadOnlyTheRequestedUsersThroughIndexes() throws SQLException {
+        LocalDateTime windowEnd = SEED_LAST_DATE.atTime(LocalTime.MAX);
+        Array userIds = connection.createArrayOf("bigint", LongStream.rangeClosed(1, 200).map(userId -> userId * 7).boxed().toArray());
+        String plan = explain(DailySleepLogJdbcRepository.USER_STATS, List.of(userIds, SEED_LAST_DATE.minusDays(7), SEED_LAST_DATE,
+            userIds, SEED_LAST_DATE.atStartOfDay(), windowEnd, userIds));
+
+        assertFalse(SEQ_SCAN.matcher(plan).find(), "user stats fall back to a sequential scan:\n" + plan);
+        Set<String> partitions = PARTITION.matcher(plan).results().map(match -> match.group()).collect(Collectors.toSet());
+        assertEquals(Set.of("daily_sleep_log_p202505"), partitions, "last sleep lookup is not pruned:\n" + plan);
+    }
+
+    private static String explain(String sql, List<Object> parameters) throws SQLException {
+        assertEquals(parameters.size(), sql.chars().filter(c -> c == '?').count(), "parameters do not match " + sql);
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            }
+        }
+        return plan.toString();
+    }
+}
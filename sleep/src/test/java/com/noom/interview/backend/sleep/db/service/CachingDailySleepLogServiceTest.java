@@ -0,0 +1,222 @@
+package com.noom.interview.backend.sleep.db.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.noom.interview.backend.sleep.config.SleepLogCacheProperties;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogVersion;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import com.noom.interview.backend.sleep.service.GetSleepLogIfModified;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@ExtendWith(MockitoExtension.class)
+class CachingDailySleepLogServiceTest {
+
+    @Mock
+    private DailySleepLogServiceImpl delegate;
+
+    private CachingDailySleepLogService service;
+
+    private final Long DEFAULT_USER_ID = 1L;
+    private final LocalDate TODAY = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        SleepLogCacheProperties properties = new SleepLogCacheProperties();
+        properties.setHotWindowDays(7);
+        service = new CachingDailySleepLogService(delegate, properties, new SimpleMeterRegistry());
+    }
+
+    private DailySleepLog createSleepLog(LocalDate date, SleepQuality quality) {
+        return DailySleepLog.builder()
+          .id(UUID.randomUUID())
+          .userId(DEFAULT_USER_ID)
+          .sleepStart(LocalDateTime.of(date.minusDays(1), LocalTime.of(23, 0)))
+          .sleepEnd(LocalDateTime.of(date, LocalTime.of(7, 0)))
+          .sleepQuality(quality)
+          .build();
+    }
+
+    @Test
+    void findByUserIdAndInterval_withinHotWindow_shouldQueryDelegateOnce() {
+        DailySleepLog yesterday = createSleepLog(TODAY.minusDays(1), SleepQuality.OK);
+        when(delegate.findByUserIdAndInterval(eq(DEFAULT_USER_ID), any(LocalDateTime.class), any(LocalDateTime.class)))
+          .thenReturn(List.of(yesterday));
+
+        List<DailySleepLog> first = service.findByUserIdAndInterval(DEFAULT_USER_ID, TODAY.minusDays(2).atStartOfDay(), TODAY.atTime(LocalTime.MAX));
+        List<DailySleepLog> second = service.findByUserIdAndInterval(DEFAULT_USER_ID, TODAY.atStartOfDay(), LocalDateTime.now());
+
+        assertEquals(List.of(yesterday), first);
+        assertEquals(List.of(), second);
+        verify(delegate, times(1)).findByUserIdAndInterval(eq(DEFAULT_USER_ID), any(LocalDateTime.class), any(LocalDateTime.class));
+        assertEquals(1, service.stats().hitCount());
+        assertEquals(1, service.stats().missCount());
+    }
+
+    @Test
+    void findByUserIdAndInterval_outsideHotWindow_shouldBypassCache() {
+        LocalDateTime start = TODAY.minusDays(30).atStartOfDay();
+        LocalDateTime end = LocalDateTime.now();
+        when(delegate.findByUserIdAndInterval(DEFAULT_USER_ID, start, end)).thenReturn(new ArrayList<>());
+
+        service.findByUserIdAndInterval(DEFAULT_USER_ID, start, end);
+        service.findByUserIdAndInterval(DEFAULT_USER_ID, start, end);
+
+        verify(delegate, times(2)).findByUserIdAndInterval(DEFAULT_USER_ID, start, end);
+        assertEquals(0, service.stats().requestCount());
+    }
+
+    @Test
+    void save_whenUserIsCached_shouldAddLogToHotWindowNewestFirst() {
+        DailySleepLog yesterday = createSleepLog(TODAY.minusDays(1), SleepQuality.OK);
+        DailySleepLog today = createSleepLog(TODAY, SleepQuality.GOOD);
+        when(delegate.findByUserIdAndInterval(eq(DEFAULT_USER_ID), any(LocalDateTime.class), any(LocalDateTime.class)))
+          .thenReturn(List.of(yesterday));
+        when(delegate.save(today)).thenReturn(today);
+
+        service.findByUserIdAndInterval(DEFAULT_USER_ID, TODAY.minusDays(1).atStartOfDay(), TODAY.atTime(LocalTime.MAX));
+        service.save(today);
+        List<DailySleepLog> result = service.findByUserIdAndInterval(DEFAULT_USER_ID, TODAY.minusDays(1).atStartOfDay(), TODAY.atTime(LocalTime.MAX));
+
+        assertEquals(List.of(today, yesterday), result);
+        verify(delegate, times(1)).findByUserIdAndInterval(eq(DEFAULT_USER_ID), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void save_whenWindowAlreadyHoldsTheLog_shouldNotDuplicateIt() {
+        DailySleepLog yesterday = createSleepLog(TODAY.minusDays(1), SleepQuality.OK);
+        DailySleepLog today = createSleepLog(TODAY, SleepQuality.GOOD);
+        when(delegate.findByUserIdAndInterval(eq(DEFAULT_USER_ID), any(LocalDateTime.class), any(LocalDateTime.class)))
+          .thenReturn(List.of(today, yesterday));
+        when(delegate.save(today)).thenReturn(today);
+
+        service.findByUserIdAndInterval(DEFAULT_USER_ID, TODAY.minusDays(1).atStartOfDay(), TODAY.atTime(LocalTime.MAX));
+        service.save(today);
+        List<DailySleepLog> result = service.findByUserIdAndInterval(DEFAULT_USER_ID, TODAY.minusDays(1).atStartOfDay(), TODAY.atTime(LocalTime.MAX));
+
+        assertEquals(List.of(today, yesterday), result);
+    }
+
+    @Test
+    void findUserVersion_whenAnotherInstanceSaved_shouldReloadTheStaleWindowForTheTaggedRead() {
+        DailySleepLog yesterday = createSleepLog(TODAY.minusDays(1), SleepQuality.OK);
+        DailySleepLog today = createSleepLog(TODAY, SleepQuality.GOOD);
+        AtomicLong storedVersion = new AtomicLong(1);
+        List<DailySleepLog> stored = new ArrayList<>(List.of(yesterday));
+        when(delegate.findUserVersion(DEFAULT_USER_ID)).thenAnswer(invocation ->
+            Optional.of(SleepLogVersion.builder().userId(DEFAULT_USER_ID).version(storedVersion.get()).build()));
+        when(delegate.findByUserIdAndInterval(eq(DEFAULT_USER_ID), any(LocalDateTime.class), any(LocalDateTime.class)))
+          .thenAnswer(invocation -> List.copyOf(stored));
+        GetSleepLogIfModified getSleepLogIfModified = new GetSleepLogIfModified(service, ReplicaReads.disabled());
+        LocalDateTime start = TODAY.minusDays(1).atStartOfDay();
+        LocalDateTime end = TODAY.atTime(LocalTime.MAX);
+
+        GetSleepLogIfModified.Result<List<DailySleepLog>> first = getSleepLogIfModified.execute(DEFAULT_USER_ID,
+            version -> false, () -> service.findByUserIdAndInterval(DEFAULT_USER_ID, start, end));
+        stored.add(0, today);
+        storedVersion.set(2);
+        List<DailySleepLog> cached = service.findByUserIdAndInterval(DEFAULT_USER_ID, start, end);
+        GetSleepLogIfModified.Result<List<DailySleepLog>> second = getSleepLogIfModified.execute(DEFAULT_USER_ID,
+            version -> version.getVersion() == 1, () -> service.findByUserIdAndInterval(DEFAULT_USER_ID, start, end));
+
+        assertEquals(List.of(yesterday), first.value());
+        assertEquals(List.of(yesterday), cached);
+        assertTrue(second.modified());
+        assertEquals(List.of(today, yesterday), second.value());
+    }
+
+    @Test
+    void lockUser_withCurrentWindow_shouldCheckOverlapsInMemoryAndKeepThePatchedWindowAfterCommit() {
+        DailySleepLog yesterday = createSleepLog(TODAY.minusDays(1), SleepQuality.OK);
+        DailySleepLog today = createSleepLog(TODAY, SleepQuality.GOOD);
+        AtomicLong storedVersion = new AtomicLong(1);
+        List<DailySleepLog> stored = new ArrayList<>(List.of(yesterday));
+        when(delegate.findUserVersion(DEFAULT_USER_ID)).thenAnswer(invocation ->
+            Optional.of(SleepLogVersion.builder().userId(DEFAULT_USER_ID).version(storedVersion.get()).build()));
+        when(delegate.findByUserIdAndInterval(eq(DEFAULT_USER_ID), any(LocalDateTime.class), any(LocalDateTime.class)))
+          .thenAnswer(invocation -> List.copyOf(stored));
+        when(delegate.save(today)).thenAnswer(invocation -> {
+            stored.add(0, today);
+            storedVersion.incrementAndGet();
+            return today;
+        });
+        LocalDateTime start = TODAY.minusDays(1).atStartOfDay();
+        LocalDateTime end = TODAY.atTime(LocalTime.MAX);
+        service.findByUserIdAndInterval(DEFAULT_USER_ID, start, end);
+
+        inCommittedTransaction(() -> {
+            service.lockUser(DEFAULT_USER_ID);
+            assertEquals(List.of(yesterday), service.findByUserIdAndInterval(DEFAULT_USER_ID, start, end));
+            service.save(today);
+        });
+
+        inCommittedTransaction(() -> {
+            service.lockUser(DEFAULT_USER_ID);
+            assertEquals(List.of(today, yesterday), service.findByUserIdAndInterval(DEFAULT_USER_ID, start, end));
+        });
+        verify(delegate, times(1)).findByUserIdAndInterval(eq(DEFAULT_USER_ID), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void lockUser_whenAnotherInstanceSaved_shouldReloadTheWindowForTheOverlapCheck() {
+        DailySleepLog yesterday = createSleepLog(TODAY.minusDays(1), SleepQuality.OK);
+        DailySleepLog today = createSleepLog(TODAY, SleepQuality.GOOD);
+        AtomicLong storedVersion = new AtomicLong(1);
+        List<DailySleepLog> stored = new ArrayList<>(List.of(yesterday));
+        when(delegate.findUserVersion(DEFAULT_USER_ID)).thenAnswer(invocation ->
+            Optional.of(SleepLogVersion.builder().userId(DEFAULT_USER_ID).version(storedVersion.get()).build()));
+        when(delegate.findByUserIdAndInterval(eq(DEFAULT_USER_ID), any(LocalDateTime.class), any(LocalDateTime.class)))
+          .thenAnswer(invocation -> List.copyOf(stored));
+        LocalDateTime start = TODAY.minusDays(1).atStartOfDay();
+        LocalDateTime end = TODAY.atTime(LocalTime.MAX);
+        service.findByUserIdAndInterval(DEFAULT_USER_ID, start, end);
+        stored.add(0, today);
+        storedVersion.set(2);
+
+        inCommittedTransaction(() -> {
+            service.lockUser(DEFAULT_USER_ID);
+            assertEquals(List.of(today, yesterday), service.findByUserIdAndInterval(DEFAULT_USER_ID, start, end));
+        });
+        // loaded, then reloaded under the lock
+        verify(delegate, times(2)).findByUserIdAndInterval(eq(DEFAULT_USER_ID), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    /**
+     * Runs the action with transaction synchronization active and then fires the commit callbacks in the order a
+     * committed transaction would.
+     */
+    private static void inCommittedTransaction(Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.noom.interview.backend.sleep.db.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogAggregate;
+import com.noom.interview.backend.sleep.dto.SleepLogUserStats;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class ColumnarDailySleepLogServiceTest {
+
+    private static final LocalDate LAST_NIGHT = LocalDate.of(2025, 5, 15);
+
+    private final ColumnarDailySleepLogService service = new ColumnarDailySleepLogService();
+
+    private DailySleepLog createSleepLog(Long userId, LocalDate date, SleepQuality sleepQuality) {
+        return DailySleepLog.builder()
+          .userId(userId)
+          .sleepStart(LocalDateTime.of(date.minusDays(1), LocalTime.of(23, 0)))
+          .sleepEnd(LocalDateTime.of(date, LocalTime.of(7, 0)))
+          .sleepQuality(sleepQuality)
+          .build();
+    }
+
+    private List<DailySleepLog> saveNights(int nights) {
+        List<DailySleepLog> saved = new ArrayList<>();
+        // Saved out of order, as backfilled nights arrive.
+        for (int i = 0; i < nights; i++) {
+            int daysAgo = (i * 7) % nights;
+            saved.add(service.save(createSleepLog(1L, LAST_NIGHT.minusDays(daysAgo), SleepQuality.values()[daysAgo % 3])));
+            service.save(createSleepLog(2L, LAST_NIGHT.minusDays(daysAgo), SleepQuality.GOOD));
+        }
+        saved.sort(DailySleepLogServiceImpl.NEWEST_FIRST);
+        return saved;
+    }
+
+    @Test
+    void findByUserIdAndInterval_shouldReturnTheNightsEndingInTheIntervalNewestFirst() {
+        List<DailySleepLog> saved = saveNights(30);
+
+        List<DailySleepLog> found = service.findByUserIdAndInterval(1L, LAST_NIGHT.minusDays(6).atStartOfDay(),
+            LAST_NIGHT.atTime(LocalTime.MAX));
+
+        assertEquals(saved.subList(0, 7), found);
+        assertTrue(service.findByUserIdAndInterval(3L, LocalDateTime.MIN, LocalDateTime.MAX).isEmpty());
+    }
+
+    @Test
+    void findPageByUserId_shouldContinueAfterTheCursorAcrossNightsEndingTogether() {
+        List<DailySleepLog> saved = new ArrayList<>(saveNights(10));
+        for (int i = 0; i < 3; i++) {
+            DailySleepLog sameEnd = createSleepLog(1L, LAST_NIGHT.minusDays(4), SleepQuality.OK);
+            sameEnd.setId(UUID.randomUUID());
+            saved.add(service.save(sameEnd));
+        }
+        saved.sort(DailySleepLogServiceImpl.NEWEST_FIRST);
+
+        List<DailySleepLog> paged = new ArrayList<>();
+        List<DailySleepLog> page = service.findPageByUserId(1L, null, null, 4);
+        while (!page.isEmpty()) {
+            paged.addAll(page);
+            DailySleepLog last = page.get(page.size() - 1);
+            page = service.findPageByUserId(1L, last.getSleepEnd(), last.getId(), 4);
+        }
+
+        assertEquals(saved, paged);
+    }
+
+    @Test
+    void rollupsAndAggregate_shouldMatchTheNightsOfTheDays() {
+        saveNights(30);
+        LocalDate start = LAST_NIGHT.minusDays(2);
+
+        List<DailySleepLogRollup> rollups = service.findRollupsByUserIdAndInterval(1L, start, LAST_NIGHT);
+        SleepLogAggregate aggregate = service.aggregateByUserIdAndInterval(1L, start, LAST_NIGHT);
+
+        assertEquals(List.of(LAST_NIGHT, LAST_NIGHT.minusDays(1), LAST_NIGHT.minusDays(2)),
+            rollups.stream().map(DailySleepLogRollup::getSleepDate).toList());
+        assertEquals(480, rollups.get(0).getSleepDurationSum());
+        assertEquals(23 * 3600, rollups.get(0).getSleepStartSecondsSum());
+        assertEquals(SleepLogAggregate.fromRollups(rollups), aggregate);
+        assertEquals(3, aggregate.getLogCount());
+        assertEquals(1, aggregate.getBadCount());
+        assertEquals(7 * 3600 * 3, aggregate.getSleepEndSecondsSum());
+    }
+
+    @Test
+    void forEachUserStats_shouldReportEveryUserInUserIdOrder() {
+        List<DailySleepLog> saved = saveNights(30);
+        LocalDate start = LAST_NIGHT.minusDays(6);
+        List<SleepLogUserStats> stats = new ArrayList<>();
+
+        service.forEachUserStats(List.of(3L, 1L), start, LAST_NIGHT, LAST_NIGHT.atStartOfDay(), LAST_NIGHT.atTime(LocalTime.MAX), stats::add);
+
+        assertEquals(List.of(1L, 3L), stats.stream().map(SleepLogUserStats::getUserId).toList());
+        assertEquals(service.aggregateByUserIdAndInterval(1L, start, LAST_NIGHT), stats.get(0).getAggregate());
+        assertEquals(saved.get(0), stats.get(0).getLastSleep());
+        assertEquals(0, stats.get(1).getAggregate().getLogCount());
+        assertNull(stats.get(1).getLastSleep());
+    }
+}
@@ -0,0 +1,71 @@
+package com.noom.interview.backend.sleep.db.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.noom.interview.backend.sleep.config.SleepLogColdProperties;
+import com.noom.interview.backend.sleep.db.entity.DailySleepLogEntity;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogRepository;
+import com.noom.interview.backend.sleep.db.repository.SleepLogColdRepository;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class DailySleepLogServiceImplTest {
+
+    @Mock
+    private DailySleepLogRepository repository;
+
+    @Mock
+    private SleepLogColdRepository coldRepository;
+
+    private final SleepLogColdProperties coldProperties = new SleepLogColdProperties();
+
+    private DailySleepLogServiceImpl service;
+
+    private final Long DEFAULT_USER_ID = 1L;
+    private final LocalDate TODAY = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        service = new DailySleepLogServiceImpl(repository, null, null, null, coldRepository, coldProperties);
+        when(repository.findByUserIdAndSleepEndBetweenOrderBySleepEndDesc(eq(DEFAULT_USER_ID), any(LocalDateTime.class), any(LocalDateTime.class)))
+          .thenReturn(List.of(DailySleepLogEntity.builder()
+            .id(UUID.randomUUID())
+            .userId(DEFAULT_USER_ID)
+            .sleepStart(TODAY.minusDays(1).atTime(23, 0))
+            .sleepEnd(TODAY.atTime(7, 0))
+            .sleepQuality(SleepQuality.GOOD)
+            .build()));
+    }
+
+    @Test
+    void findByUserIdAndInterval_whenColdStorageDisabled_shouldNotLookUpColdMonths() {
+        assertEquals(1, service.findByUserIdAndInterval(DEFAULT_USER_ID, TODAY.atStartOfDay(), TODAY.atTime(LocalTime.MAX)).size());
+
+        verifyNoInteractions(coldRepository);
+    }
+
+    @Test
+    void findByUserIdAndInterval_whenColdStorageEnabled_shouldMergeColdMonths() {
+        coldProperties.setEnabled(true);
+
+        assertEquals(1, service.findByUserIdAndInterval(DEFAULT_USER_ID, TODAY.atStartOfDay(), TODAY.atTime(LocalTime.MAX)).size());
+
+        verify(coldRepository).findMonths(DEFAULT_USER_ID, YearMonth.from(TODAY), YearMonth.from(TODAY));
+    }
+}
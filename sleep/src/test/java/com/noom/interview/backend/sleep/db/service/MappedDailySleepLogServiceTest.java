@@ -0,0 +1,61 @@
+package com.noom.interview.backend.sleep.db.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.nio.file.Path;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Boots the mmap-storage profile against a datasource nothing listens on, and saves and reads a night through the API.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:postgresql://127.0.0.1:9/none")
+@AutoConfigureMockMvc
+@ActiveProfiles("mmap-storage")
+class MappedDailySleepLogServiceTest {
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("sleep-log.mmap.directory", directory::toString);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void saveAndLastSleep_shouldNotTouchTheDatabase() throws Exception {
+        mockMvc.perform(post("/v1/sleeplog")
+            .header("userId", 1L)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"sleepStart\": \"23:00\", \"sleepEnd\": \"07:00\", \"sleepQuality\": \"GOOD\"}"))
+          .andExpect(status().isOk());
+
+        mockMvc.perform(get("/v1/sleeplog").header("userId", 1L))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.sleepQuality").value("GOOD"));
+        mockMvc.perform(get("/v1/sleeplog/last-x-days").header("userId", 1L).header("numberOfDays", 7L))
+          .andExpect(status().isOk());
+
+        assertFalse(dataSource.unwrap(HikariDataSource.class).isRunning());
+    }
+}
@@ -0,0 +1,23 @@
+package com.noom.interview.backend.sleep.db.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class SleepLogOverlapViolationsTest {
+
+    @Test
+    void describe_exclusionViolationDetail_shouldNameBothIntervals() {
+        String detail = "Key (user_id, tsrange(sleep_start, sleep_end, '[]'::text))=(1, [\"2025-05-14 23:00:00\",\"2025-05-15 07:00:00\"]) " +
+          "conflicts with existing key (user_id, tsrange(sleep_start, sleep_end, '[]'::text))=(1, [\"2025-05-14 22:00:00\",\"2025-05-15 06:00:00\"]).";
+
+        assertEquals(
+          "You already have a log between 2025-05-14T22:00 and 2025-05-15T06:00. The conflicting period is 2025-05-14T23:00 to 2025-05-15T07:00.",
+          SleepLogOverlapViolations.describe(detail));
+    }
+
+    @Test
+    void describe_unknownDetail_shouldFallBackToGenericMessage() {
+        assertEquals("You already have a log overlapping this period.", SleepLogOverlapViolations.describe(null));
+    }
+}
@@ -0,0 +1,44 @@
+package com.noom.interview.backend.sleep.db.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRingTest {
+
+    private static final int USERS = 100_000;
+
+    @Test
+    void shardFor_shouldSpreadUsersEvenlyAcrossShards() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+
+        Map<String, Integer> users = new HashMap<>();
+        for (long userId = 0; userId < USERS; userId++) {
+            users.merge(ring.shardFor(userId), 1, Integer::sum);
+        }
+
+        assertEquals(4, users.size());
+        users.values().forEach(count -> assertTrue(Math.abs(count - USERS / 4) < USERS / 4 * 0.15, "unbalanced ring: " + users));
+    }
+
+    @Test
+    void shardFor_afterAddingShard_shouldOnlyMoveUsersToTheNewShard() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("a", "b", "c", "d", "e"), 128);
+
+        int moved = 0;
+        for (long userId = 0; userId < USERS; userId++) {
+            String owner = after.shardFor(userId);
+            if (!owner.equals(before.shardFor(userId))) {
+                assertEquals("e", owner);
+                moved++;
+            }
+        }
+
+        assertTrue(Math.abs(moved - USERS / 5) < USERS / 5 * 0.15, moved + " users moved");
+    }
+}
@@ -0,0 +1,106 @@
+package com.noom.interview.backend.sleep.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for comparing the platform-thread and virtual-thread modes: every client issues
+ * GET /v1/sleeplog and GET /v1/sleeplog/last-x-days back to back for a random user. Only 200 responses count towards
+ * the throughput and latencies; 503s from the concurrency limit are reported as rejected, anything else as errors.
+ * Run with {@code ./gradlew loadTest -PloadArgs="http://localhost:8080 1000 30"} against a running instance.
+ */
+public class SleepLogLoadDriver {
+
+    public static void main(String[] args) throws InterruptedException {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int users = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+
+        HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+        ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.submit(() -> latencies.add(runClient(httpClient, baseUrl, users, deadline, rejected, errors)));
+            }
+        }
+
+        List<Long> all = new ArrayList<>();
+        latencies.forEach(client -> {
+            for (long latency : client) {
+                all.add(latency);
+            }
+        });
+        all.sort(null);
+
+        System.out.printf("clients=%d duration=%ds ok=%d rejected=%d errors=%d throughput=%.0f req/s p50=%.1fms p99=%.1fms max=%.1fms%n",
+            clients, durationSeconds, all.size(), rejected.get(), errors.get(), all.size() / (double) durationSeconds,
+            percentile(all, 0.50), percentile(all, 0.99), percentile(all, 1.0));
+    }
+
+    private static long[] runClient(HttpClient httpClient, String baseUrl, int users, long deadline, AtomicLong rejected,
+                                    AtomicLong errors) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        int sent = 0;
+        while (System.nanoTime() < deadline) {
+            long userId = ThreadLocalRandom.current().nextInt(users) + 1;
+            String path = sent % 2 == 0 ? "/v1/sleeplog" : "/v1/sleeplog/last-x-days";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("userId", Long.toString(userId))
+                .header("numberOfDays", "30")
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+
+            long startedAt = System.nanoTime();
+            int status;
+            try {
+                status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (Exception e) {
+                status = -1;
+            }
+            sent++;
+
+            if (status == 503) {
+                rejected.incrementAndGet();
+            } else if (status != 200) {
+                errors.incrementAndGet();
+            } else {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - startedAt;
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.size() - 1, Math.ceil(quantile * sorted.size()) - 1);
+        return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,134 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.noom.interview.backend.sleep.config.SleepLogReportProperties;
+import com.noom.interview.backend.sleep.config.SleepLogShardingProperties;
+import com.noom.interview.backend.sleep.db.repository.SleepLogReportRepository;
+import com.noom.interview.backend.sleep.db.repository.SleepLogShardRepository;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.dto.SleepLogCohortReport;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+/**
+ * Builds the population report from rollups in an in-memory H2 database.
+ */
+class BuildSleepLogPopulationReportTest {
+
+    private static final String SCHEMA = """
+        CREATE TABLE daily_sleep_log_rollup (
+            user_id INT NOT NULL, sleep_date DATE NOT NULL, log_count INT NOT NULL, bad_count INT NOT NULL,
+            ok_count INT NOT NULL, good_count INT NOT NULL, sleep_start_seconds_sum BIGINT NOT NULL,
+            sleep_end_seconds_sum BIGINT NOT NULL, sleep_duration_sum BIGINT NOT NULL,
+            modified_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY (user_id, sleep_date));
+        CREATE TABLE sleep_log_user_shard (
+            user_id INT PRIMARY KEY, shard VARCHAR(64) NOT NULL,
+            moved_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, purged BOOLEAN NOT NULL DEFAULT FALSE);
+        CREATE TABLE sleep_log_population_report (
+            report_date DATE NOT NULL, cohort_month DATE NOT NULL, window_start DATE NOT NULL, window_end DATE NOT NULL,
+            user_count BIGINT NOT NULL, log_count BIGINT NOT NULL, bad_count BIGINT NOT NULL, ok_count BIGINT NOT NULL,
+            good_count BIGINT NOT NULL, sleep_start_seconds_sum BIGINT NOT NULL, sleep_end_seconds_sum BIGINT NOT NULL,
+            sleep_duration_sum BIGINT NOT NULL, avg_sleep_start TIME NOT NULL, avg_sleep_end TIME NOT NULL,
+            created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY (report_date, cohort_month));
+        """;
+
+    private final LocalDate REPORT_DATE = LocalDate.of(2025, 5, 16);
+
+    private JdbcTemplate jdbcTemplate;
+    private SleepLogReportRepository reportRepository;
+    private SleepLogReportProperties properties;
+    private BuildSleepLogPopulationReport buildSleepLogPopulationReport;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:report-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(SCHEMA);
+
+        NamedParameterJdbcTemplate namedJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        reportRepository = new SleepLogReportRepository(namedJdbcTemplate);
+        properties = new SleepLogReportProperties();
+        properties.setParallelism(4);
+        properties.setChunkSize(3);
+        properties.setWindowDays(30);
+        ShardRouter shardRouter = new ShardRouter(new SleepLogShardingProperties(), new SleepLogShardRepository(namedJdbcTemplate));
+        buildSleepLogPopulationReport = new BuildSleepLogPopulationReport(reportRepository, new DataSourceTransactionManager(dataSource),
+            properties, shardRouter);
+    }
+
+    private void insertRollup(long userId, LocalDate date, int quality, LocalTime sleepStart, LocalTime sleepEnd) {
+        jdbcTemplate.update(
+            "INSERT INTO daily_sleep_log_rollup (user_id, sleep_date, log_count, bad_count, ok_count, good_count, " +
+            "sleep_start_seconds_sum, sleep_end_seconds_sum, sleep_duration_sum) VALUES (?, ?, 1, ?, ?, ?, ?, ?, 480)",
+            userId, date, quality == 0 ? 1 : 0, quality == 1 ? 1 : 0, quality == 2 ? 1 : 0,
+            sleepStart.toSecondOfDay(), sleepEnd.toSecondOfDay());
+    }
+
+    private void seedPopulation() {
+        for (long userId = 1; userId <= 20; userId++) {
+            LocalDate firstNight = userId % 2 == 0 ? LocalDate.of(2025, 1, 10) : LocalDate.of(2025, 3, 5);
+            insertRollup(userId, firstNight, 1, LocalTime.of(23, 0), LocalTime.of(7, 0));
+            for (int night = 1; night <= userId % 5; night++) {
+                insertRollup(userId, REPORT_DATE.minusDays(night), (int) (userId % 3), LocalTime.of(22, 0), LocalTime.of(6, 0));
+            }
+        }
+    }
+
+    @Test
+    void execute_shouldAggregateWindowPerCohort() {
+        seedPopulation();
+        insertRollup(40, REPORT_DATE, 2, LocalTime.of(22, 0), LocalTime.of(6, 0));
+
+        List<SleepLogCohortReport> reports = buildSleepLogPopulationReport.execute(REPORT_DATE);
+
+        assertEquals(2, reports.size());
+        SleepLogCohortReport january = reports.get(0);
+        assertEquals(LocalDate.of(2025, 1, 1), january.getCohortMonth());
+        assertEquals(8, january.getUserCount());
+        assertEquals(20, january.getLogCount());
+        assertEquals(january.getLogCount(), january.getBadCount() + january.getOkCount() + january.getGoodCount());
+        assertEquals(LocalTime.of(22, 0), january.getAvgSleepStart());
+        assertEquals(LocalTime.of(6, 0), january.getAvgSleepEnd());
+        assertEquals(LocalDate.of(2025, 3, 1), reports.get(1).getCohortMonth());
+        assertEquals(8, reports.get(1).getUserCount());
+        assertEquals(REPORT_DATE.minusDays(30), january.getWindowStart());
+        assertEquals(REPORT_DATE.minusDays(1), january.getWindowEnd());
+        assertEquals(reports, reportRepository.findReport(REPORT_DATE));
+    }
+
+    @Test
+    void findUserIdRanges_withSparseIds_shouldSplitByUserCount() {
+        for (long userId : List.of(1L, 2L, 3L, 1_000_000L, 1_000_001L, 2_000_000_000L, 2_000_000_001L)) {
+            insertRollup(userId, REPORT_DATE.minusDays(1), 1, LocalTime.of(23, 0), LocalTime.of(7, 0));
+        }
+
+        List<SleepLogReportRepository.UserIdBounds> ranges = reportRepository.findUserIdRanges(3);
+
+        assertEquals(List.of(new SleepLogReportRepository.UserIdBounds(1, 3),
+            new SleepLogReportRepository.UserIdBounds(1_000_000, 2_000_000_000),
+            new SleepLogReportRepository.UserIdBounds(2_000_000_001, 2_000_000_001)), ranges);
+    }
+
+    @Test
+    void execute_inParallel_shouldMatchSingleRangeScan() {
+        seedPopulation();
+        List<SleepLogCohortReport> parallel = buildSleepLogPopulationReport.execute(REPORT_DATE);
+
+        properties.setParallelism(1);
+        properties.setChunkSize(1_000);
+        List<SleepLogCohortReport> sequential = buildSleepLogPopulationReport.execute(REPORT_DATE);
+
+        assertEquals(sequential, parallel);
+        assertEquals(sequential, reportRepository.findReport(REPORT_DATE));
+    }
+}
@@ -0,0 +1,94 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.noom.interview.backend.sleep.config.SleepLogColdProperties;
+import com.noom.interview.backend.sleep.config.SleepLogShardingProperties;
+import com.noom.interview.backend.sleep.db.cold.SleepLogColdCodec;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogJdbcRepository;
+import com.noom.interview.backend.sleep.db.repository.SleepLogColdRepository;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogColdMonth;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+@ExtendWith(MockitoExtension.class)
+class CompactColdSleepLogsTest {
+
+    @Mock
+    private SleepLogColdRepository coldRepository;
+
+    @Mock
+    private DailySleepLogJdbcRepository jdbcRepository;
+
+    private final YearMonth MONTH = YearMonth.of(2025, 1);
+    private final LocalDateTime BEFORE = LocalDate.of(2025, 3, 1).atStartOfDay();
+
+    private CompactColdSleepLogs compactColdSleepLogs;
+
+    @BeforeEach
+    void setUp() {
+        compactColdSleepLogs = new CompactColdSleepLogs(coldRepository, jdbcRepository, TransactionOperations.withoutTransaction(),
+            new ShardRouter(new SleepLogShardingProperties(), null), new SleepLogMetrics(new SimpleMeterRegistry()),
+            new SleepLogColdProperties());
+    }
+
+    private DailySleepLog createSleepLog(Long userId, LocalDate date, SleepQuality sleepQuality) {
+        return DailySleepLog.builder()
+          .id(UUID.randomUUID())
+          .userId(userId)
+          .sleepStart(LocalDateTime.of(date.minusDays(1), LocalTime.of(23, 0)))
+          .sleepEnd(LocalDateTime.of(date, LocalTime.of(7, 0)))
+          .sleepQuality(sleepQuality)
+          .build();
+    }
+
+    @Test
+    void execute_shouldMergeHotLogsIntoPackedMonthAndDeleteThem() {
+        DailySleepLog packed = createSleepLog(1L, MONTH.atDay(3), SleepQuality.BAD);
+        List<DailySleepLog> hot = List.of(createSleepLog(1L, MONTH.atDay(10), SleepQuality.GOOD),
+            createSleepLog(1L, MONTH.atDay(11), SleepQuality.OK));
+        when(coldRepository.findCompactableMonths(any(), any(), anyInt()))
+            .thenReturn(List.of(new SleepLogColdRepository.UserMonth(1L, MONTH)));
+        when(coldRepository.findHotLogs(1L, MONTH)).thenReturn(hot);
+        when(coldRepository.findMonth(1L, MONTH)).thenReturn(Optional.of(SleepLogColdMonth.builder()
+            .userId(1L)
+            .month(MONTH)
+            .payload(SleepLogColdCodec.encode(MONTH, List.of(packed)))
+            .build()));
+
+        CompactColdSleepLogs.Result result = compactColdSleepLogs.execute(BEFORE);
+
+        assertEquals(new CompactColdSleepLogs.Result(1, 2, result.payloadBytes()), result);
+        ArgumentCaptor<SleepLogColdMonth> saved = ArgumentCaptor.forClass(SleepLogColdMonth.class);
+        verify(coldRepository).saveMonth(saved.capture());
+        assertEquals(3, saved.getValue().getLogCount());
+        assertEquals(packed.getSleepStart(), saved.getValue().getFirstSleepStart());
+        assertEquals(hot.get(1).getSleepEnd(), saved.getValue().getLastSleepEnd());
+        assertEquals(List.of(SleepQuality.BAD, SleepQuality.GOOD, SleepQuality.OK),
+            SleepLogColdCodec.decode(1L, MONTH, saved.getValue().getPayload()).stream().map(DailySleepLog::getSleepQuality).toList());
+        verify(coldRepository).deleteHotLogs(1L, MONTH, hot.stream().map(DailySleepLog::getId).toList());
+        verify(jdbcRepository).lockUser(1L);
+        verify(jdbcRepository).bumpUserVersions(Set.of(1L));
+    }
+}
@@ -0,0 +1,85 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.SleepLogExportFormat;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ExportSleepLogsTest {
+
+    @Mock
+    private DailySleepLogService service;
+
+    private ExportSleepLogs exportSleepLogs;
+
+    private final Long DEFAULT_USER_ID = 1L;
+    private final UUID FIRST_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private final UUID SECOND_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @BeforeEach
+    void setUp() {
+        exportSleepLogs = new ExportSleepLogs(service, new ObjectMapper(), ReplicaReads.disabled());
+        List<DailySleepLog> history = List.of(
+          createSleepLog(FIRST_ID, LocalDateTime.of(2025, 5, 13, 23, 0), LocalDateTime.of(2025, 5, 14, 7, 0), SleepQuality.OK),
+          createSleepLog(SECOND_ID, LocalDateTime.of(2025, 5, 14, 22, 30), LocalDateTime.of(2025, 5, 15, 6, 15), SleepQuality.GOOD));
+        doAnswer(invocation -> {
+            Consumer<DailySleepLog> action = invocation.getArgument(1);
+            history.forEach(action);
+            return null;
+        }).when(service).forEachByUserId(eq(DEFAULT_USER_ID), any());
+    }
+
+    private DailySleepLog createSleepLog(UUID id, LocalDateTime start, LocalDateTime end, SleepQuality quality) {
+        return DailySleepLog.builder()
+          .id(id)
+          .userId(DEFAULT_USER_ID)
+          .sleepStart(start)
+          .sleepEnd(end)
+          .sleepQuality(quality)
+          .build();
+    }
+
+    @Test
+    void execute_asNdjson_shouldWriteOneObjectPerLine() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        exportSleepLogs.execute(DEFAULT_USER_ID, SleepLogExportFormat.NDJSON, outputStream);
+
+        assertEquals(
+          "{\"id\":\"" + FIRST_ID + "\",\"userId\":1,\"sleepStart\":\"2025-05-13T23:00\",\"sleepEnd\":\"2025-05-14T07:00\",\"sleepQuality\":\"OK\"}\n" +
+          "{\"id\":\"" + SECOND_ID + "\",\"userId\":1,\"sleepStart\":\"2025-05-14T22:30\",\"sleepEnd\":\"2025-05-15T06:15\",\"sleepQuality\":\"GOOD\"}\n",
+          outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void execute_asCsv_shouldWriteHeaderAndOneRowPerLog() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        exportSleepLogs.execute(DEFAULT_USER_ID, SleepLogExportFormat.CSV, outputStream);
+
+        assertEquals(
+          "id,user_id,sleep_start,sleep_end,sleep_quality\n" +
+          FIRST_ID + ",1,2025-05-13T23:00,2025-05-14T07:00,OK\n" +
+          SECOND_ID + ",1,2025-05-14T22:30,2025-05-15T06:15,GOOD\n",
+          outputStream.toString(StandardCharsets.UTF_8));
+    }
+}
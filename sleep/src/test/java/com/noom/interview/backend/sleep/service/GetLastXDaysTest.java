@@ -0,0 +1,80 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.dto.AvgSleepLog;
+import com.noom.interview.backend.sleep.dto.DailySleepLogRollup;
+import com.noom.interview.backend.sleep.dto.SleepLogAggregate;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class GetLastXDaysTest {
+
+    @Mock
+    private DailySleepLogService service;
+
+    private GetLastXDays getLastXDays;
+
+    private final Long DEFAULT_USER_ID = 1L;
+    private final LocalDate TODAY = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        getLastXDays = new GetLastXDays(service, ReplicaReads.disabled(), new SleepLogMetrics(new SimpleMeterRegistry()));
+    }
+
+    private DailySleepLogRollup createRollup(LocalDate date, int bad, int ok, int good, LocalTime start, LocalTime end) {
+        int logCount = bad + ok + good;
+        return DailySleepLogRollup.builder()
+          .userId(DEFAULT_USER_ID)
+          .sleepDate(date)
+          .logCount(logCount)
+          .badCount(bad)
+          .okCount(ok)
+          .goodCount(good)
+          .sleepStartSecondsSum((long) start.toSecondOfDay() * logCount)
+          .sleepEndSecondsSum((long) end.toSecondOfDay() * logCount)
+          .build();
+    }
+
+    @Test
+    void execute_shouldMatchAggregationOfDailyRollups() {
+        List<DailySleepLogRollup> rollups = List.of(
+          createRollup(TODAY, 0, 0, 1, LocalTime.of(1, 0), LocalTime.of(9, 0)),
+          createRollup(TODAY.minusDays(1), 1, 1, 0, LocalTime.of(23, 30), LocalTime.of(7, 30)),
+          createRollup(TODAY.minusDays(2), 0, 1, 0, LocalTime.of(22, 0), LocalTime.of(6, 0)));
+        when(service.aggregateByUserIdAndInterval(eq(DEFAULT_USER_ID), any(), any()))
+          .thenReturn(SleepLogAggregate.fromRollups(rollups));
+
+        AvgSleepLog result = getLastXDays.execute(DEFAULT_USER_ID, 7L);
+
+        assertEquals(GetLastXDays.summarize(DEFAULT_USER_ID, rollups), result);
+        assertEquals(Map.of(SleepQuality.BAD, 1, SleepQuality.OK, 2, SleepQuality.GOOD, 1), result.getSleepQualityCount());
+        assertEquals(LocalTime.of(17, 30), result.getAvgSleepStart());
+        assertEquals(LocalTime.of(7, 30), result.getAvgSleepEnd());
+    }
+
+    @Test
+    void execute_whenNoLogsInInterval_shouldReturnNull() {
+        when(service.aggregateByUserIdAndInterval(eq(DEFAULT_USER_ID), any(), any()))
+          .thenReturn(SleepLogAggregate.fromRollups(List.of()));
+
+        assertNull(getLastXDays.execute(DEFAULT_USER_ID, 7L));
+    }
+}
@@ -0,0 +1,229 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.noom.interview.backend.sleep.config.SleepLogImportProperties;
+import com.noom.interview.backend.sleep.config.SleepLogShardingProperties;
+import com.noom.interview.backend.sleep.db.cold.SleepLogColdCodec;
+import com.noom.interview.backend.sleep.db.repository.SleepLogImportRepository;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogColdMonth;
+import com.noom.interview.backend.sleep.dto.SleepLogImportJob;
+import com.noom.interview.backend.sleep.enums.SleepLogImportFormat;
+import com.noom.interview.backend.sleep.enums.SleepLogImportStatus;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+@ExtendWith(MockitoExtension.class)
+class ImportSleepLogsTest {
+
+    @Mock
+    private SleepLogImportRepository importRepository;
+
+    @Mock
+    private DailySleepLogService service;
+
+    @TempDir
+    private Path tempDir;
+
+    private ImportSleepLogs importSleepLogs;
+
+    private final List<List<DailySleepLog>> copiedChunks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        SleepLogImportProperties properties = new SleepLogImportProperties();
+        properties.setChunkSize(2);
+        UserWriteLocks userWriteLocks = new UserWriteLocks(4, TransactionOperations.withoutTransaction(), service, true);
+        importSleepLogs = new ImportSleepLogs(importRepository, userWriteLocks, service, Runnable::run,
+            new ObjectMapper().registerModule(new JavaTimeModule()), properties, new ShardRouter(new SleepLogShardingProperties(), null));
+    }
+
+    private SleepLogImportJob createJob(Path source, SleepLogImportFormat format, long rowsRead) {
+        return SleepLogImportJob.builder()
+          .id(UUID.randomUUID())
+          .source(source.toString())
+          .format(format)
+          .status(SleepLogImportStatus.FAILED)
+          .rowsRead(rowsRead)
+          .build();
+    }
+
+    private void recordCopiedChunks(UUID jobId) {
+        when(importRepository.copyToStaging(eq(jobId), anyList())).thenAnswer(invocation -> {
+            List<DailySleepLog> chunk = invocation.getArgument(1);
+            copiedChunks.add(List.copyOf(chunk));
+            return (long) chunk.size();
+        });
+    }
+
+    @Test
+    void run_withCsv_shouldLoadInChunksAndCheckpointEachChunk() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("history.csv"),
+          ImportSleepLogs.CSV_HEADER + "\n" +
+          "1,05/14/2025,23:00,07:00,OK\n" +
+          "1,05/15/2025,22:30,06:30,GOOD\n" +
+          "2,not-a-date,22:00,06:00,BAD\n");
+        SleepLogImportJob job = createJob(source, SleepLogImportFormat.CSV, 0);
+        when(importRepository.findJob(job.getId())).thenReturn(Optional.of(job));
+        recordCopiedChunks(job.getId());
+        when(importRepository.rejectOverlaps(job.getId())).thenReturn(1, 0);
+        when(importRepository.mergeStaged(job.getId())).thenReturn(1, 0);
+
+        importSleepLogs.run(job.getId());
+
+        assertEquals(1, copiedChunks.size());
+        assertEquals(LocalDateTime.of(2025, 5, 13, 23, 0), copiedChunks.get(0).get(0).getSleepStart());
+        assertEquals(LocalDateTime.of(2025, 5, 14, 7, 0), copiedChunks.get(0).get(0).getSleepEnd());
+        assertEquals(SleepQuality.GOOD, copiedChunks.get(0).get(1).getSleepQuality());
+        verify(importRepository).checkpoint(job.getId(), 2, 1, 1);
+        verify(importRepository).checkpoint(job.getId(), 3, 1, 2);
+        verify(importRepository).updateStatus(job.getId(), SleepLogImportStatus.COMPLETED, null);
+    }
+
+    @Test
+    void run_shouldLockTheChunksUsersInOrderBeforeTheOverlapCheckAndEvictThemAfter() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("history.csv"),
+          ImportSleepLogs.CSV_HEADER + "\n" +
+          "2,05/14/2025,23:00,07:00,OK\n" +
+          "1,05/14/2025,22:30,06:30,GOOD\n");
+        SleepLogImportJob job = createJob(source, SleepLogImportFormat.CSV, 0);
+        when(importRepository.findJob(job.getId())).thenReturn(Optional.of(job));
+        recordCopiedChunks(job.getId());
+        when(importRepository.mergeStaged(job.getId())).thenReturn(2);
+
+        importSleepLogs.run(job.getId());
+
+        InOrder inOrder = inOrder(service, importRepository);
+        inOrder.verify(service).lockUser(1L);
+        inOrder.verify(service).lockUser(2L);
+        inOrder.verify(importRepository).rejectOverlaps(job.getId());
+        inOrder.verify(importRepository).checkpoint(job.getId(), 2, 2, 0);
+        inOrder.verify(service).evictUsers(List.of(2L, 1L));
+    }
+
+    @Test
+    void run_withMoreUsersThanFitOneTransaction_shouldLoadTheChunkInBatchesKeepingEachUsersRowsTogether() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("history.csv"),
+          ImportSleepLogs.CSV_HEADER + "\n" +
+          "1,05/14/2025,23:00,07:00,OK\n" +
+          "2,05/14/2025,23:00,07:00,OK\n" +
+          "3,05/14/2025,23:00,07:00,OK\n" +
+          "1,05/15/2025,23:00,07:00,OK\n");
+        SleepLogImportJob job = createJob(source, SleepLogImportFormat.CSV, 0);
+        when(importRepository.findJob(job.getId())).thenReturn(Optional.of(job));
+        recordCopiedChunks(job.getId());
+        when(importRepository.mergeStaged(job.getId())).thenReturn(3, 1);
+        ImportSleepLogs batchedImport = new ImportSleepLogs(importRepository,
+            new UserWriteLocks(4, TransactionOperations.withoutTransaction(), service, true), service, Runnable::run,
+            new ObjectMapper().registerModule(new JavaTimeModule()), batchedProperties(), new ShardRouter(new SleepLogShardingProperties(), null));
+
+        batchedImport.run(job.getId());
+
+        assertEquals(2, copiedChunks.size());
+        assertEquals(List.of(1L, 1L, 2L), copiedChunks.get(0).stream().map(DailySleepLog::getUserId).toList());
+        assertEquals(List.of(3L), copiedChunks.get(1).stream().map(DailySleepLog::getUserId).toList());
+        verify(importRepository).checkpoint(job.getId(), 4, 4, 0);
+    }
+
+    private static SleepLogImportProperties batchedProperties() {
+        SleepLogImportProperties properties = new SleepLogImportProperties();
+        properties.setChunkSize(4);
+        properties.setUsersPerTransaction(2);
+        return properties;
+    }
+
+    @Test
+    void run_whenResumed_shouldSkipCheckpointedRows() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("history.ndjson"),
+          "{\"userId\":1,\"sleepDate\":\"05/14/2025\",\"sleepStart\":\"23:00\",\"sleepEnd\":\"07:00\",\"sleepQuality\":\"OK\"}\n" +
+          "{\"userId\":1,\"sleepDate\":\"05/15/2025\",\"sleepStart\":\"22:30\",\"sleepEnd\":\"06:30\",\"sleepQuality\":\"GOOD\"}\n" +
+          "{\"userId\":1,\"sleepDate\":\"05/16/2025\",\"sleepStart\":\"01:00\",\"sleepEnd\":\"08:00\",\"sleepQuality\":\"BAD\"}\n");
+        SleepLogImportJob job = createJob(source, SleepLogImportFormat.NDJSON, 2);
+        job.setRowsLoaded(2);
+        when(importRepository.findJob(job.getId())).thenReturn(Optional.of(job));
+        recordCopiedChunks(job.getId());
+        when(importRepository.mergeStaged(job.getId())).thenReturn(1);
+
+        importSleepLogs.run(job.getId());
+
+        assertEquals(1, copiedChunks.size());
+        assertEquals(1, copiedChunks.get(0).size());
+        assertEquals(LocalDateTime.of(2025, 5, 16, 1, 0), copiedChunks.get(0).get(0).getSleepStart());
+        verify(importRepository).checkpoint(job.getId(), 3, 3, 0);
+        verify(importRepository).updateStatus(job.getId(), SleepLogImportStatus.COMPLETED, null);
+    }
+
+    @Test
+    void run_shouldRejectOnlyRowsOverlappingADecodedColdNight() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("history.csv"),
+          ImportSleepLogs.CSV_HEADER + "\n" +
+          "1,04/15/2025,23:00,07:00,OK\n" +
+          "1,04/21/2025,05:00,09:00,OK\n");
+        SleepLogImportJob job = createJob(source, SleepLogImportFormat.CSV, 0);
+        when(importRepository.findJob(job.getId())).thenReturn(Optional.of(job));
+        recordCopiedChunks(job.getId());
+        YearMonth april = YearMonth.of(2025, 4);
+        List<DailySleepLog> coldNights = List.of(
+          DailySleepLog.builder().userId(1L).sleepStart(LocalDateTime.of(2025, 4, 1, 23, 0)).sleepEnd(LocalDateTime.of(2025, 4, 2, 7, 0))
+            .sleepQuality(SleepQuality.GOOD).build(),
+          DailySleepLog.builder().userId(1L).sleepStart(LocalDateTime.of(2025, 4, 20, 23, 0)).sleepEnd(LocalDateTime.of(2025, 4, 21, 6, 0))
+            .sleepQuality(SleepQuality.BAD).build());
+        when(importRepository.findOverlappingColdMonths(job.getId())).thenReturn(List.of(SleepLogColdMonth.builder()
+          .userId(1L)
+          .month(april)
+          .logCount(2)
+          .firstSleepStart(coldNights.get(0).getSleepStart())
+          .lastSleepEnd(coldNights.get(1).getSleepEnd())
+          .payload(SleepLogColdCodec.encode(april, coldNights))
+          .build()));
+        when(importRepository.rejectPositions(job.getId(), List.of(1))).thenReturn(1);
+        when(importRepository.mergeStaged(job.getId())).thenReturn(1);
+
+        importSleepLogs.run(job.getId());
+
+        verify(importRepository).rejectPositions(job.getId(), List.of(1));
+        verify(importRepository).checkpoint(job.getId(), 2, 1, 1);
+    }
+
+    @Test
+    void run_whenChunkFails_shouldMarkJobFailedWithoutCheckpoint() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("history.csv"),
+          ImportSleepLogs.CSV_HEADER + "\n" +
+          "1,05/14/2025,23:00,07:00,OK\n");
+        SleepLogImportJob job = createJob(source, SleepLogImportFormat.CSV, 0);
+        when(importRepository.findJob(job.getId())).thenReturn(Optional.of(job));
+        when(importRepository.copyToStaging(eq(job.getId()), anyList())).thenThrow(new IllegalStateException("connection lost"));
+
+        importSleepLogs.run(job.getId());
+
+        verify(importRepository, never()).checkpoint(any(), any(Long.class), any(Long.class), any(Long.class));
+        verify(importRepository).updateStatus(job.getId(), SleepLogImportStatus.FAILED, "connection lost");
+    }
+}
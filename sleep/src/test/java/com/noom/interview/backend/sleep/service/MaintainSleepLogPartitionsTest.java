@@ -0,0 +1,124 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.noom.interview.backend.sleep.config.SleepLogPartitionProperties;
+import com.noom.interview.backend.sleep.config.SleepLogShardingProperties;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogPartitionRepository;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogRollupRepository;
+import com.noom.interview.backend.sleep.db.repository.SleepLogColdRepository;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+@ExtendWith(MockitoExtension.class)
+class MaintainSleepLogPartitionsTest {
+
+    @Mock
+    private DailySleepLogPartitionRepository partitionRepository;
+
+    @Mock
+    private DailySleepLogRollupRepository rollupRepository;
+
+    @Mock
+    private SleepLogColdRepository coldRepository;
+
+    private final SleepLogPartitionProperties properties = new SleepLogPartitionProperties();
+
+    private MaintainSleepLogPartitions maintainSleepLogPartitions;
+
+    private final YearMonth CURRENT_MONTH = YearMonth.of(2025, 5);
+
+    @BeforeEach
+    void setUp() {
+        properties.setMonthsAhead(2);
+        maintainSleepLogPartitions = new MaintainSleepLogPartitions(partitionRepository, rollupRepository, coldRepository,
+            TransactionOperations.withoutTransaction(), properties, new ShardRouter(new SleepLogShardingProperties(), null));
+    }
+
+    @Test
+    void execute_withoutRetention_shouldOnlyCreateMissingFuturePartitions() {
+        when(partitionRepository.createMonthlyPartition(any())).thenAnswer(invocation -> !CURRENT_MONTH.equals(invocation.getArgument(0)));
+
+        MaintainSleepLogPartitions.Result result = maintainSleepLogPartitions.execute(CURRENT_MONTH);
+
+        assertEquals(List.of(YearMonth.of(2025, 6), YearMonth.of(2025, 7)), result.created());
+        assertEquals(List.of(), result.expired());
+        verify(partitionRepository, never()).findMonthlyPartitions();
+    }
+
+    @Test
+    void execute_withRowsInDefaultPartition_shouldCreateTheirMonthsSoRetentionExpiresThem() {
+        properties.setRetentionMonths(12);
+        when(partitionRepository.findDefaultPartitionMonths()).thenReturn(List.of(YearMonth.of(2023, 11), YearMonth.of(2024, 8)));
+        when(partitionRepository.createMonthlyPartition(any())).thenReturn(true);
+        when(partitionRepository.findMonthlyPartitions()).thenReturn(List.of(YearMonth.of(2023, 11), YearMonth.of(2024, 8), CURRENT_MONTH));
+
+        MaintainSleepLogPartitions.Result result = maintainSleepLogPartitions.execute(CURRENT_MONTH);
+
+        assertEquals(List.of(YearMonth.of(2023, 11), YearMonth.of(2024, 8), CURRENT_MONTH, YearMonth.of(2025, 6), YearMonth.of(2025, 7)),
+            result.created());
+        assertEquals(List.of(YearMonth.of(2023, 11)), result.expired());
+    }
+
+    @Test
+    void maintain_whileAnotherInstanceHoldsTheLock_shouldSkip() {
+        when(partitionRepository.isPartitioned()).thenReturn(true);
+        when(partitionRepository.tryLockMaintenance()).thenReturn(false);
+
+        maintainSleepLogPartitions.maintain();
+
+        verify(partitionRepository, never()).createMonthlyPartition(any());
+    }
+
+    @Test
+    void maintainOnStartup_whenMaintenanceFails_shouldNotFailStartup() {
+        when(partitionRepository.isPartitioned()).thenReturn(true);
+        when(partitionRepository.tryLockMaintenance()).thenReturn(true);
+        when(partitionRepository.createMonthlyPartition(any())).thenThrow(new IllegalStateException("lock timeout"));
+
+        assertDoesNotThrow(() -> maintainSleepLogPartitions.maintainOnStartup());
+    }
+
+    @Test
+    void execute_withRetention_shouldDetachExpiredPartitionsAndTheirRollups() {
+        properties.setRetentionMonths(12);
+        when(partitionRepository.findMonthlyPartitions())
+          .thenReturn(List.of(YearMonth.of(2024, 3), YearMonth.of(2024, 4), YearMonth.of(2024, 5), CURRENT_MONTH));
+
+        MaintainSleepLogPartitions.Result result = maintainSleepLogPartitions.execute(CURRENT_MONTH);
+
+        assertEquals(List.of(YearMonth.of(2024, 3), YearMonth.of(2024, 4)), result.expired());
+        verify(partitionRepository).detachMonthlyPartition(YearMonth.of(2024, 4));
+        verify(rollupRepository).deleteBySleepDateBetween(LocalDate.of(2024, 4, 1), LocalDate.of(2024, 4, 30));
+        verify(rollupRepository).bumpUserVersionsBySleepDateBetween(LocalDate.of(2024, 4, 1), LocalDate.of(2024, 4, 30));
+        verify(coldRepository).deleteMonth(YearMonth.of(2024, 4));
+        verify(partitionRepository, never()).detachMonthlyPartition(YearMonth.of(2024, 5));
+        verify(partitionRepository, never()).dropDetachedPartition(any());
+    }
+
+    @Test
+    void execute_withDropExpired_shouldDropDetachedPartitions() {
+        properties.setRetentionMonths(1);
+        properties.setDropExpired(true);
+        when(partitionRepository.findMonthlyPartitions()).thenReturn(List.of(YearMonth.of(2025, 3), YearMonth.of(2025, 4)));
+
+        maintainSleepLogPartitions.execute(CURRENT_MONTH);
+
+        verify(partitionRepository).detachMonthlyPartition(YearMonth.of(2025, 3));
+        verify(partitionRepository).dropDetachedPartition(YearMonth.of(2025, 3));
+        verify(partitionRepository, never()).detachMonthlyPartition(YearMonth.of(2025, 4));
+    }
+}
@@ -0,0 +1,104 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import com.noom.interview.backend.sleep.exception.SleepLogAlreadyExistsException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Shared fixture of the overlap stress tests: {@link #SAVES} random nights of {@link #USERS} users, most of them
+ * overlapping another, saved concurrently through SaveSleepLog.
+ */
+final class OverlappingSaves {
+
+    static final int USERS = 50;
+    static final int SAVES = 4_000;
+
+    private static final LocalDate FIRST_NIGHT = LocalDate.of(2025, 5, 15);
+
+    private OverlappingSaves() {
+    }
+
+    /**
+     * Saves all nights at once from {@code threads} threads, the i-th through {@code instance.apply(i)}.
+     */
+    static Counts run(int threads, IntFunction<SaveSleepLog> instance, Duration timeout) throws InterruptedException {
+        AtomicInteger saved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < SAVES; i++) {
+            SaveSleepLog saveSleepLog = instance.apply(i);
+            executor.submit(() -> {
+                DailySleepLog candidate = randomNight();
+                try {
+                    start.await();
+                    saveSleepLog.save(candidate);
+                    saved.incrementAndGet();
+                } catch (SleepLogAlreadyExistsException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS));
+        return new Counts(saved.get(), rejected.get());
+    }
+
+    static DailySleepLog randomNight() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate endDate = FIRST_NIGHT.plusDays(random.nextInt(10));
+        return DailySleepLog.builder()
+          .userId((long) random.nextInt(USERS))
+          .sleepStart(LocalDateTime.of(endDate.minusDays(1), LocalTime.of(20 + random.nextInt(4), 0)))
+          .sleepEnd(LocalDateTime.of(endDate, LocalTime.of(5 + random.nextInt(4), 0)))
+          .sleepQuality(SleepQuality.OK)
+          .build();
+    }
+
+    static long countOverlaps(Collection<? extends List<DailySleepLog>> nightsByUser) {
+        long overlaps = 0;
+        for (List<DailySleepLog> logs : nightsByUser) {
+            List<DailySleepLog> userLogs = new ArrayList<>(logs);
+            for (int i = 0; i < userLogs.size(); i++) {
+                for (int j = i + 1; j < userLogs.size(); j++) {
+                    DailySleepLog a = userLogs.get(i);
+                    DailySleepLog b = userLogs.get(j);
+                    if (!(a.getSleepEnd().isBefore(b.getSleepStart()) || a.getSleepStart().isAfter(b.getSleepEnd()))) {
+                        overlaps++;
+                    }
+                }
+            }
+        }
+        return overlaps;
+    }
+
+    static void assertNoOverlapsStored(Counts counts, long overlaps) {
+        assertEquals(0L, overlaps);
+        assertEquals(SAVES, counts.saved() + counts.rejected());
+        assertTrue(counts.saved() > 0);
+    }
+
+    record Counts(int saved, int rejected) {
+    }
+}
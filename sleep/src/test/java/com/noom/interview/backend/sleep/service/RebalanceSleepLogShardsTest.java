@@ -0,0 +1,260 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.config.SleepLogShardingProperties;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogJdbcRepository;
+import com.noom.interview.backend.sleep.db.repository.SleepLogShardRepository;
+import com.noom.interview.backend.sleep.db.shard.ShardContext;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.db.shard.ShardRoutingDataSource;
+import com.noom.interview.backend.sleep.enums.OverlapEnforcement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.LongStream;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+/**
+ * Runs the shard moves against in-memory H2 databases behind a {@link ShardRoutingDataSource}.
+ */
+class RebalanceSleepLogShardsTest {
+
+    private static final String SCHEMA = """
+        CREATE TABLE daily_sleep_log (
+            id UUID PRIMARY KEY, user_id INT NOT NULL, sleep_start TIMESTAMP NOT NULL, sleep_end TIMESTAMP NOT NULL,
+            sleep_quality INT NOT NULL, sleep_duration INT NOT NULL,
+            created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, modified_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP);
+        CREATE TABLE daily_sleep_log_rollup (
+            user_id INT NOT NULL, sleep_date DATE NOT NULL, log_count INT NOT NULL, bad_count INT NOT NULL,
+            ok_count INT NOT NULL, good_count INT NOT NULL, sleep_start_seconds_sum BIGINT NOT NULL,
+            sleep_end_seconds_sum BIGINT NOT NULL, sleep_duration_sum BIGINT NOT NULL,
+            modified_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY (user_id, sleep_date));
+        CREATE TABLE sleep_log_cold_month (
+            user_id INT NOT NULL, sleep_month DATE NOT NULL, log_count INT NOT NULL, first_sleep_start TIMESTAMP NOT NULL,
+            last_sleep_end TIMESTAMP NOT NULL, payload VARBINARY NOT NULL,
+            compacted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY (user_id, sleep_month));
+        CREATE TABLE sleep_log_user_shard (
+            user_id INT PRIMARY KEY, shard VARCHAR(64) NOT NULL,
+            moved_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, purged BOOLEAN NOT NULL DEFAULT FALSE);
+        CREATE TABLE sleep_log_user_version (
+            user_id INT PRIMARY KEY, version BIGINT NOT NULL, modified_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP);
+        """;
+
+    private final LocalDate TEST_DATE = LocalDate.of(2025, 5, 15);
+
+    private Map<String, JdbcTemplate> shards;
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private SleepLogShardingProperties properties;
+    private SleepLogShardRepository shardRepository;
+    private ShardRouter shardRouter;
+    private RebalanceSleepLogShards rebalanceSleepLogShards;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        shards = new LinkedHashMap<>();
+        for (String name : List.of("a", "b", "c")) {
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:shard-" + name + "-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+            JdbcTemplate shardTemplate = new JdbcTemplate(dataSource);
+            shardTemplate.execute(SCHEMA);
+            dataSources.put(name, dataSource);
+            shards.put(name, shardTemplate);
+        }
+
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource(dataSources);
+        routingDataSource.afterPropertiesSet();
+        jdbcTemplate = new NamedParameterJdbcTemplate(routingDataSource);
+        transactionManager = new DataSourceTransactionManager(routingDataSource);
+        shardRepository = new SleepLogShardRepository(jdbcTemplate);
+        useShards("a", "b");
+    }
+
+    /**
+     * Starts an instance configured with these shards on its hash ring, e.g. after a deploy adding one.
+     */
+    private void useShards(String... names) {
+        useShards(List.of(names), List.of());
+    }
+
+    private void useShards(List<String> names, List<String> joining) {
+        properties = new SleepLogShardingProperties();
+        properties.setEnabled(true);
+        for (String name : names) {
+            SleepLogShardingProperties.Shard shard = new SleepLogShardingProperties.Shard();
+            shard.setName(name);
+            properties.getShards().add(shard);
+        }
+        for (String name : joining) {
+            SleepLogShardingProperties.Shard shard = new SleepLogShardingProperties.Shard();
+            shard.setName(name);
+            shard.setJoining(true);
+            properties.getShards().add(shard);
+        }
+        shardRouter = new ShardRouter(properties, shardRepository);
+        rebalanceSleepLogShards = new RebalanceSleepLogShards(shardRouter, shardRepository, new DailySleepLogJdbcRepository(jdbcTemplate),
+            transactionManager, new OverlapEnforcementPolicy(OverlapEnforcement.APPLICATION, false), properties);
+    }
+
+    private long userOwnedBy(String shard) {
+        return LongStream.range(1, 1_000).filter(userId -> shard.equals(shardRouter.ringShardFor(userId))).findFirst().orElseThrow();
+    }
+
+    private void insertNights(String shard, long userId, int nights) {
+        for (int i = 0; i < nights; i++) {
+            LocalDate date = TEST_DATE.minusDays(i);
+            shards.get(shard).update(
+                "INSERT INTO daily_sleep_log (id, user_id, sleep_start, sleep_end, sleep_quality, sleep_duration) VALUES (?, ?, ?, ?, 1, 480)",
+                UUID.randomUUID(), userId, date.minusDays(1).atTime(23, 0), date.atTime(7, 0));
+            shards.get(shard).update(
+                "INSERT INTO daily_sleep_log_rollup (user_id, sleep_date, log_count, bad_count, ok_count, good_count, " +
+                "sleep_start_seconds_sum, sleep_end_seconds_sum, sleep_duration_sum) VALUES (?, ?, 1, 0, 1, 0, 82800, 25200, 480)",
+                userId, date);
+        }
+    }
+
+    private int countLogs(String shard, long userId) {
+        return shards.get(shard).queryForObject("SELECT COUNT(*) FROM daily_sleep_log WHERE user_id = ?", Integer.class, userId);
+    }
+
+    private long version(String shard, long userId) {
+        return shards.get(shard).queryForObject("SELECT version FROM sleep_log_user_version WHERE user_id = ?", Long.class, userId);
+    }
+
+    @Test
+    void move_shouldCopyRowsPinUserAndKeepSourceCopyUntilPurged() {
+        long userId = userOwnedBy("a");
+        insertNights("a", userId, 3);
+        shards.get("a").update(
+            "INSERT INTO sleep_log_cold_month (user_id, sleep_month, log_count, first_sleep_start, last_sleep_end, payload) VALUES (?, ?, 1, ?, ?, ?)",
+            userId, TEST_DATE.minusYears(1).withDayOfMonth(1), TEST_DATE.minusYears(1).atTime(23, 0), TEST_DATE.minusYears(1).atTime(23, 0).plusHours(8),
+            new byte[]{1, 1});
+
+        assertTrue(rebalanceSleepLogShards.move(userId, "b"));
+
+        assertEquals("b", shardRouter.shardFor(userId));
+        assertEquals(3, countLogs("b", userId));
+        assertEquals(3, shards.get("b").queryForObject("SELECT COUNT(*) FROM daily_sleep_log_rollup WHERE user_id = ?", Integer.class, userId));
+        assertEquals(1, shards.get("b").queryForObject("SELECT COUNT(*) FROM sleep_log_cold_month WHERE user_id = ?", Integer.class, userId));
+        assertEquals(3, countLogs("a", userId));
+        assertEquals("b", shards.get("a").queryForObject("SELECT shard FROM sleep_log_user_shard WHERE user_id = ?", String.class, userId));
+
+        ShardRouter otherReplica = new ShardRouter(properties, shardRepository);
+        assertEquals("b", otherReplica.shardFor(userId));
+
+        assertEquals(0, rebalanceSleepLogShards.purgeMovedBefore(LocalDateTime.now().minusMinutes(5)));
+        assertEquals(1, rebalanceSleepLogShards.purgeMovedBefore(LocalDateTime.now().plusMinutes(1)));
+        assertEquals(0, countLogs("a", userId));
+        assertEquals(0, shards.get("a").queryForObject("SELECT COUNT(*) FROM sleep_log_cold_month WHERE user_id = ?", Integer.class, userId));
+        assertEquals(3, countLogs("b", userId));
+        assertEquals(0, rebalanceSleepLogShards.purgeMovedBefore(LocalDateTime.now().plusMinutes(1)));
+    }
+
+    @Test
+    void move_backToFormerShard_shouldReplaceLeftoversAndNotBePurged() {
+        long userId = userOwnedBy("a");
+        insertNights("a", userId, 2);
+        shards.get("a").update("INSERT INTO sleep_log_user_version (user_id, version) VALUES (?, 5)", userId);
+
+        rebalanceSleepLogShards.move(userId, "b");
+        assertEquals(6, version("b", userId));
+        assertTrue(rebalanceSleepLogShards.move(userId, "a"));
+
+        assertEquals("a", shardRouter.shardFor(userId));
+        assertEquals(2, countLogs("a", userId));
+        assertEquals(7, version("a", userId));
+        assertEquals(1, rebalanceSleepLogShards.purgeMovedBefore(LocalDateTime.now().plusMinutes(1)));
+        assertEquals(2, countLogs("a", userId));
+        assertEquals(0, countLogs("b", userId));
+    }
+
+    @Test
+    void rebalance_shouldMoveUsersToTheirRingOwner() {
+        List<Long> userIds = LongStream.range(1, 41).boxed().toList();
+        userIds.forEach(userId -> insertNights("a", userId, 1));
+        long ownedByB = userIds.stream().filter(userId -> "b".equals(shardRouter.ringShardFor(userId))).count();
+        userIds.forEach(userId -> shardRouter.place(userId, "a"));
+        userIds.forEach(userId -> ShardContext.runOn("a", () -> shardRepository.placeUser(userId, "a")));
+
+        assertEquals(ownedByB, rebalanceSleepLogShards.rebalance("a"));
+
+        userIds.forEach(userId -> {
+            String owner = shardRouter.ringShardFor(userId);
+            assertEquals(owner, shardRouter.shardFor(userId));
+            assertEquals(1, countLogs(owner, userId));
+        });
+    }
+
+    @Test
+    void rebalance_toAJoiningShard_shouldMoveUsersWithTheirHistoryBeforeTheRingChanges() {
+        List<Long> userIds = LongStream.range(1, 61).boxed().toList();
+        userIds.forEach(userId -> insertNights(shardRouter.ringShardFor(userId), userId, 2));
+
+        useShards(List.of("a", "b"), List.of("c"));
+        List<Long> ownedByC = userIds.stream().filter(userId -> "c".equals(shardRouter.nextRingShardFor(userId))).toList();
+        assertTrue(!ownedByC.isEmpty());
+        ownedByC.forEach(userId -> assertEquals(2, countLogs(shardRouter.shardFor(userId), userId)));
+
+        assertEquals(ownedByC.size(), rebalanceSleepLogShards.rebalance("a") + rebalanceSleepLogShards.rebalance("b"));
+        ownedByC.forEach(userId -> assertEquals("c", new ShardRouter(properties, shardRepository).shardFor(userId)));
+
+        useShards("a", "b", "c");
+        userIds.forEach(userId -> {
+            String owner = shardRouter.ringShardFor(userId);
+            assertEquals(owner, shardRouter.shardFor(userId));
+            assertEquals(2, countLogs(owner, userId));
+        });
+        assertEquals(0, shards.get("a").queryForObject("SELECT COUNT(*) FROM sleep_log_user_shard WHERE shard = 'a'", Integer.class));
+    }
+
+    @Test
+    void shardFor_newUserWhileAShardIsJoining_shouldGoToTheJoiningShard() {
+        useShards(List.of("a", "b"), List.of("c"));
+        long userId = LongStream.range(1, 1_000)
+            .filter(candidate -> "c".equals(shardRouter.nextRingShardFor(candidate)))
+            .findFirst().orElseThrow();
+
+        assertEquals("c", shardRouter.shardFor(userId));
+    }
+
+    @Test
+    void move_awayFromANonOwner_shouldForwardTheRingOwner() {
+        useShards("a", "b", "c");
+        long userId = userOwnedBy("a");
+        insertNights("a", userId, 1);
+        rebalanceSleepLogShards.move(userId, "b");
+
+        assertTrue(rebalanceSleepLogShards.move(userId, "c"));
+
+        assertEquals("c", new ShardRouter(properties, shardRepository).shardFor(userId));
+        assertEquals("c", shards.get("a").queryForObject("SELECT shard FROM sleep_log_user_shard WHERE user_id = ?", String.class, userId));
+        assertEquals(1, countLogs("c", userId));
+    }
+
+    @Test
+    void move_fromAShardTheUserWasMovedAwayFrom_shouldDoNothing() {
+        useShards("a", "b", "c");
+        long userId = userOwnedBy("a");
+        insertNights("a", userId, 1);
+        rebalanceSleepLogShards.move(userId, "b");
+
+        assertFalse(rebalanceSleepLogShards.move(userId, "a", "c"));
+
+        assertEquals(0, countLogs("c", userId));
+        assertEquals("b", shardRouter.shardFor(userId));
+    }
+}
@@ -0,0 +1,75 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogJdbcRepository;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogRollupRepository;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.exception.SleepLogUserMovedException;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+@ExtendWith(MockitoExtension.class)
+class RebuildSleepLogRollupsTest {
+
+    @Mock
+    private DailySleepLogRollupRepository rollupRepository;
+
+    @Mock
+    private DailySleepLogJdbcRepository jdbcRepository;
+
+    @Mock
+    private DailySleepLogService service;
+
+    private final LocalDate START = LocalDate.of(2025, 5, 1);
+    private final LocalDate END = LocalDate.of(2025, 5, 31);
+
+    private RebuildSleepLogRollups rebuildSleepLogRollups;
+
+    @BeforeEach
+    void setUp() {
+        rebuildSleepLogRollups = new RebuildSleepLogRollups(rollupRepository, jdbcRepository,
+            new UserWriteLocks(0, TransactionOperations.withoutTransaction(), service, true));
+    }
+
+    @Test
+    void execute_shouldRebuildEachUserUnderItsLockAndBumpItsVersion() {
+        when(rollupRepository.findUserIdsBySleepDateBetween(START, END)).thenReturn(List.of(1L, 2L));
+        when(rollupRepository.insertFromLogsByUserIdAndSleepDateBetween(1L, START, END)).thenReturn(3);
+        when(rollupRepository.insertFromLogsByUserIdAndSleepDateBetween(2L, START, END)).thenReturn(4);
+
+        assertEquals(7, rebuildSleepLogRollups.execute(START, END));
+
+        InOrder inOrder = inOrder(service, rollupRepository, jdbcRepository);
+        for (Long userId : List.of(1L, 2L)) {
+            inOrder.verify(service).lockUser(userId);
+            inOrder.verify(rollupRepository).deleteUncompactedByUserIdAndSleepDateBetween(userId, START, END);
+            inOrder.verify(rollupRepository).insertFromLogsByUserIdAndSleepDateBetween(userId, START, END);
+            inOrder.verify(jdbcRepository).bumpUserVersions(List.of(userId));
+        }
+    }
+
+    @Test
+    void execute_whenAUserWasMovedToAnotherShard_shouldSkipOnlyThatUser() {
+        when(rollupRepository.findUserIdsBySleepDateBetween(START, END)).thenReturn(List.of(1L, 2L));
+        doThrow(new SleepLogUserMovedException(1L, "b")).when(service).lockUser(1L);
+        when(rollupRepository.insertFromLogsByUserIdAndSleepDateBetween(2L, START, END)).thenReturn(4);
+
+        assertEquals(4, rebuildSleepLogRollups.execute(START, END));
+
+        verify(rollupRepository, never()).deleteUncompactedByUserIdAndSleepDateBetween(1L, START, END);
+        verify(jdbcRepository).bumpUserVersions(List.of(2L));
+    }
+}
@@ -0,0 +1,176 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.repository.DailySleepLogJdbcRepository;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.OverlapEnforcement;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs concurrent, heavily overlapping saves through two SaveSleepLog instances that share one Postgres database but
+ * nothing in memory, like two replicas of the service, and checks that the advisory locks alone keep the stored
+ * nights of a user from overlapping. The no-overlap exclusion constraints are dropped first so they cannot hide a race.
+ * Enabled only when {@code SLEEP_PLAN_TEST_DB_URL} points at a local database, e.g. the docker-compose one.
+ */
+@EnabledIfEnvironmentVariable(named = "SLEEP_PLAN_TEST_DB_URL", matches = ".+")
+class SaveSleepLogAdvisoryLockStressTest {
+
+    private static final String SCHEMA = "sleep_lock_test";
+    private static final int THREADS_PER_INSTANCE = 16;
+
+    private static final String FIND_IN_INTERVAL = """
+        SELECT id, user_id, sleep_start, sleep_end, sleep_quality
+        FROM daily_sleep_log
+        WHERE user_id = :userId AND sleep_end BETWEEN :start AND :end
+        """;
+
+    private static final String INSERT_LOG = """
+        INSERT INTO daily_sleep_log (id, user_id, sleep_start, sleep_end, sleep_duration, sleep_quality)
+        VALUES (:id, :userId, :sleepStart, :sleepEnd, :sleepDuration, :sleepQuality)
+        """;
+
+    private static final String COUNT_OVERLAPS = """
+        SELECT COUNT(*)
+        FROM daily_sleep_log a
+        JOIN daily_sleep_log b ON a.user_id = b.user_id AND a.id < b.id
+            AND tsrange(a.sleep_start, a.sleep_end, '[]') && tsrange(b.sleep_start, b.sleep_end, '[]')
+        """;
+
+    private static HikariDataSource firstInstanceDataSource;
+    private static HikariDataSource secondInstanceDataSource;
+
+    @BeforeAll
+    static void migrate() {
+        String url = System.getenv("SLEEP_PLAN_TEST_DB_URL");
+        String user = Objects.requireNonNullElse(System.getenv("SLEEP_PLAN_TEST_DB_USER"), "user");
+        String password = Objects.requireNonNullElse(System.getenv("SLEEP_PLAN_TEST_DB_PASSWORD"), "password");
+
+        Flyway flyway = Flyway.configure()
+            .dataSource(url, user, password)
+            .schemas(SCHEMA)
+            .cleanDisabled(false)
+            .load();
+        flyway.clean();
+        flyway.migrate();
+
+        firstInstanceDataSource = dataSource(url, user, password);
+        secondInstanceDataSource = dataSource(url, user, password);
+        new NamedParameterJdbcTemplate(firstInstanceDataSource).getJdbcTemplate().execute("""
+            DO $$
+            DECLARE
+                constraint_row RECORD;
+            BEGIN
+                FOR constraint_row IN
+                    SELECT conrelid::regclass AS table_name, conname FROM pg_constraint
+                    WHERE conname LIKE 'daily_sleep_log%no_overlap' AND connamespace = current_schema()::regnamespace
+                LOOP
+                    EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', constraint_row.table_name, constraint_row.conname);
+                END LOOP;
+            END;
+            $$
+            """);
+    }
+
+    @AfterAll
+    static void close() {
+        if (firstInstanceDataSource != null) {
+            firstInstanceDataSource.close();
+        }
+        if (secondInstanceDataSource != null) {
+            secondInstanceDataSource.close();
+        }
+    }
+
+    @BeforeEach
+    void truncate() {
+        new NamedParameterJdbcTemplate(firstInstanceDataSource).getJdbcTemplate().execute("TRUNCATE daily_sleep_log");
+    }
+
+    @Test
+    void save_fromTwoInstancesSharingTheDatabase_shouldNeverStoreOverlappingNights() throws InterruptedException {
+        SaveSleepLog first = instance(firstInstanceDataSource);
+        SaveSleepLog second = instance(secondInstanceDataSource);
+
+        OverlappingSaves.Counts counts = OverlappingSaves.run(2 * THREADS_PER_INSTANCE, i -> i % 2 == 0 ? first : second,
+            Duration.ofMinutes(5));
+
+        Long overlaps = new NamedParameterJdbcTemplate(firstInstanceDataSource).getJdbcTemplate().queryForObject(COUNT_OVERLAPS, Long.class);
+        OverlappingSaves.assertNoOverlapsStored(counts, overlaps);
+    }
+
+    private static HikariDataSource dataSource(String url, String user, String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(user);
+        dataSource.setPassword(password);
+        dataSource.setSchema(SCHEMA);
+        dataSource.setMaximumPoolSize(THREADS_PER_INSTANCE / 2);
+        return dataSource;
+    }
+
+    /**
+     * One replica of the service: its own pool, striped locks and transactions, with the database as the only thing it
+     * shares with the other instance.
+     */
+    private static SaveSleepLog instance(HikariDataSource dataSource) {
+        NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        DailySleepLogService service = jdbcService(jdbcTemplate, new DailySleepLogJdbcRepository(jdbcTemplate));
+        UserWriteLocks userWriteLocks = new UserWriteLocks(256, new TransactionTemplate(new DataSourceTransactionManager(dataSource)), service, true);
+        return new SaveSleepLog(service, new OverlapEnforcementPolicy(OverlapEnforcement.APPLICATION, true), userWriteLocks,
+            ReplicaReads.disabled(), new SleepLogMetrics(new SimpleMeterRegistry()));
+    }
+
+    private static DailySleepLogService jdbcService(NamedParameterJdbcTemplate jdbcTemplate, DailySleepLogJdbcRepository jdbcRepository) {
+        DailySleepLogService service = mock(DailySleepLogService.class);
+        doAnswer(invocation -> {
+            jdbcRepository.lockUser(invocation.getArgument(0));
+            return null;
+        }).when(service).lockUser(any());
+        doAnswer(invocation -> jdbcTemplate.query(FIND_IN_INTERVAL, new MapSqlParameterSource()
+                .addValue("userId", invocation.getArgument(0))
+                .addValue("start", invocation.getArgument(1))
+                .addValue("end", invocation.getArgument(2)),
+            (resultSet, rowNum) -> DailySleepLog.builder()
+              .id(resultSet.getObject("id", UUID.class))
+              .userId(resultSet.getLong("user_id"))
+              .sleepStart(resultSet.getObject("sleep_start", LocalDateTime.class))
+              .sleepEnd(resultSet.getObject("sleep_end", LocalDateTime.class))
+              .sleepQuality(SleepQuality.values()[resultSet.getInt("sleep_quality")])
+              .build())).when(service).findByUserIdAndInterval(any(), any(), any());
+        doAnswer(invocation -> {
+            DailySleepLog dailySleepLog = invocation.getArgument(0);
+            dailySleepLog.setId(UUID.randomUUID());
+            jdbcTemplate.update(INSERT_LOG, new MapSqlParameterSource()
+                .addValue("id", dailySleepLog.getId())
+                .addValue("userId", dailySleepLog.getUserId())
+                .addValue("sleepStart", dailySleepLog.getSleepStart())
+                .addValue("sleepEnd", dailySleepLog.getSleepEnd())
+                .addValue("sleepDuration", Duration.between(dailySleepLog.getSleepStart(), dailySleepLog.getSleepEnd()).toMinutes())
+                .addValue("sleepQuality", dailySleepLog.getSleepQuality().ordinal()));
+            return dailySleepLog;
+        }).when(service).save(any());
+        return service;
+    }
+}
@@ -0,0 +1,77 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.dto.SleepLogBatchItem;
+import com.noom.interview.backend.sleep.enums.OverlapEnforcement;
+import com.noom.interview.backend.sleep.enums.SleepLogBatchItemStatus;
+import com.noom.interview.backend.sleep.exception.SleepLogAlreadyExistsException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+@ExtendWith(MockitoExtension.class)
+class SaveSleepLogBatchTest {
+
+    private static final Long USER_ID = 1L;
+    private static final LocalDate TEST_DATE = LocalDate.of(2025, 5, 15);
+
+    @Mock
+    private DailySleepLogService service;
+
+    private SaveSleepLogBatch saveSleepLogBatch;
+
+    @BeforeEach
+    void setUp() {
+        saveSleepLogBatch = new SaveSleepLogBatch(service, new OverlapEnforcementPolicy(OverlapEnforcement.DATABASE, false),
+            new UserWriteLocks(16, TransactionOperations.withoutTransaction(), service, false), ReplicaReads.disabled());
+    }
+
+    private DailySleepLog night(int dayOffset) {
+        LocalDate endDate = TEST_DATE.plusDays(dayOffset);
+        return DailySleepLog.builder()
+          .userId(USER_ID)
+          .sleepStart(LocalDateTime.of(endDate.minusDays(1), LocalTime.of(22, 0)))
+          .sleepEnd(LocalDateTime.of(endDate, LocalTime.of(6, 0)))
+          .build();
+    }
+
+    @Test
+    void execute_nightSavedConcurrently_shouldSweepAgainAndReportConflictPerItem() {
+        DailySleepLog first = night(0);
+        DailySleepLog second = night(1);
+        DailySleepLog concurrent = night(1);
+        concurrent.setId(UUID.randomUUID());
+        when(service.findByUserIdAndInterval(eq(USER_ID), any(LocalDateTime.class), any(LocalDateTime.class)))
+          .thenReturn(List.of())
+          .thenReturn(List.of(concurrent));
+        when(service.saveAll(anyList()))
+          .thenThrow(new SleepLogAlreadyExistsException("overlaps"))
+          .thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<SleepLogBatchItem> result = saveSleepLogBatch.execute(USER_ID, List.of(first, second));
+
+        assertEquals(SleepLogBatchItemStatus.SAVED, result.get(0).getStatus());
+        assertEquals(SleepLogBatchItemStatus.CONFLICT, result.get(1).getStatus());
+        verify(service).saveAll(List.of(first));
+        verify(service, times(2)).findByUserIdAndInterval(eq(USER_ID), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+}
@@ -0,0 +1,78 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.OverlapEnforcement;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Fires thousands of concurrent, heavily overlapping saves through SaveSleepLog in application-enforced mode against
+ * an in-memory store with simulated database latency, and checks that no two stored nights of a user overlap. The
+ * throughput of the lock variants is compared by {@code SaveSleepLogLockStripesBenchmark} in sleep-bench.
+ */
+class SaveSleepLogConcurrencyStressTest {
+
+    private static final int THREADS = 32;
+    private static final long DB_ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Test
+    void save_withStripedUserLocks_shouldNeverStoreOverlappingNights() throws InterruptedException {
+        run(256);
+    }
+
+    @Test
+    void save_withSingleGlobalLock_shouldNeverStoreOverlappingNights() throws InterruptedException {
+        run(1);
+    }
+
+    private static void run(int lockStripes) throws InterruptedException {
+        Map<Long, List<DailySleepLog>> store = new ConcurrentHashMap<>();
+        DailySleepLogService service = inMemoryService(store);
+        UserWriteLocks userWriteLocks = new UserWriteLocks(lockStripes, TransactionOperations.withoutTransaction(), service, false);
+        SaveSleepLog saveSleepLog = new SaveSleepLog(service, new OverlapEnforcementPolicy(OverlapEnforcement.APPLICATION, false), userWriteLocks,
+            ReplicaReads.disabled(), new SleepLogMetrics(new SimpleMeterRegistry()));
+
+        OverlappingSaves.Counts counts = OverlappingSaves.run(THREADS, i -> saveSleepLog, Duration.ofMinutes(2));
+
+        OverlappingSaves.assertNoOverlapsStored(counts, OverlappingSaves.countOverlaps(store.values()));
+    }
+
+    private static DailySleepLogService inMemoryService(Map<Long, List<DailySleepLog>> store) {
+        DailySleepLogService service = mock(DailySleepLogService.class);
+        doAnswer(invocation -> {
+            Long userId = invocation.getArgument(0);
+            LocalDateTime start = invocation.getArgument(1);
+            LocalDateTime end = invocation.getArgument(2);
+            LockSupport.parkNanos(DB_ROUND_TRIP_NANOS);
+            return store.getOrDefault(userId, List.of()).stream()
+              .filter(log -> !log.getSleepEnd().isBefore(start) && !log.getSleepEnd().isAfter(end))
+              .collect(Collectors.toList());
+        }).when(service).findByUserIdAndInterval(any(), any(), any());
+        doAnswer(invocation -> {
+            DailySleepLog dailySleepLog = invocation.getArgument(0);
+            LockSupport.parkNanos(DB_ROUND_TRIP_NANOS);
+            dailySleepLog.setId(UUID.randomUUID());
+            store.computeIfAbsent(dailySleepLog.getUserId(), userId -> new CopyOnWriteArrayList<>()).add(dailySleepLog);
+            return dailySleepLog;
+        }).when(service).save(any());
+        return service;
+    }
+}
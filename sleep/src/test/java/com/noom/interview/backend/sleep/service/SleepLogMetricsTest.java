@@ -0,0 +1,67 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.OverlapEnforcement;
+import com.noom.interview.backend.sleep.exception.SleepLogAlreadyExistsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+@ExtendWith(MockitoExtension.class)
+class SleepLogMetricsTest {
+
+    @Mock
+    private DailySleepLogService service;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Long DEFAULT_USER_ID = 1L;
+    private final LocalDate TEST_DATE = LocalDate.of(2025, 5, 15);
+
+    private DailySleepLog createSleepLog(UUID id, LocalDate date) {
+        return DailySleepLog.builder()
+          .id(id)
+          .userId(DEFAULT_USER_ID)
+          .sleepStart(LocalDateTime.of(date.minusDays(1), LocalTime.of(23, 0)))
+          .sleepEnd(LocalDateTime.of(date, LocalTime.of(7, 0)))
+          .build();
+    }
+
+    @Test
+    void daysBucket_shouldRoundUpToNextBound() {
+        assertEquals("le_1", SleepLogMetrics.daysBucket(1));
+        assertEquals("le_14", SleepLogMetrics.daysBucket(10));
+        assertEquals("le_30", SleepLogMetrics.daysBucket(30));
+        assertEquals("gt_365", SleepLogMetrics.daysBucket(1_000));
+    }
+
+    @Test
+    void save_overlappingLog_shouldCountRejectionAndCandidates() {
+        SaveSleepLog saveSleepLog = new SaveSleepLog(service, new OverlapEnforcementPolicy(OverlapEnforcement.APPLICATION, false),
+            new UserWriteLocks(0, TransactionOperations.withoutTransaction(), service, false), ReplicaReads.disabled(), new SleepLogMetrics(meterRegistry));
+        when(service.findByUserIdAndInterval(eq(DEFAULT_USER_ID), any(LocalDateTime.class), any(LocalDateTime.class)))
+          .thenReturn(List.of(createSleepLog(UUID.randomUUID(), TEST_DATE)));
+
+        assertThrows(SleepLogAlreadyExistsException.class, () -> saveSleepLog.save(createSleepLog(null, TEST_DATE)));
+
+        assertEquals(1, meterRegistry.get(SleepLogMetrics.OVERLAP_REJECTIONS).tag("enforcement", "application").counter().count());
+        assertEquals(1, meterRegistry.get(SleepLogMetrics.OVERLAP_CANDIDATES).summary().totalAmount());
+        assertEquals(1, meterRegistry.get(SleepLogMetrics.USE_CASE_TIMER).tag("use_case", "save").timer().count());
+    }
+}
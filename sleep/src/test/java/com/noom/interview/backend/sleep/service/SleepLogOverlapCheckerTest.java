@@ -9,6 +9,7 @@ import static org.mockito.Mockito.when;
 import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
 import com.noom.interview.backend.sleep.dto.DailySleepLog;
 import com.noom.interview.backend.sleep.exception.SleepLogAlreadyExistsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -20,6 +21,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +30,9 @@ class SleepLogOverlapCheckerTest {
     @Mock
     private DailySleepLogService mockSleepService;
 
+    @Spy
+    private SleepLogMetrics metrics = new SleepLogMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private SaveSleepLog overlapChecker;
 
@@ -304,4 +309,17 @@ class SleepLogOverlapCheckerTest {
         assertDoesNotThrow(() -> (overlapChecker).checkOverlaps(newLog));
     }
 
-}
\ No newline at end of file
+    @Test
+    void checkOverlaps_storedNightEndingInTheNextMonth_shouldThrowException() {
+        DailySleepLog stored = createSleepLog(UUID.randomUUID(),
+          LocalDateTime.of(2025, 1, 31, 22, 30),
+          LocalDateTime.of(2025, 2, 1, 6, 0));
+        DailySleepLog newLog = createSleepLog(UUID.randomUUID(),
+          LocalDateTime.of(2025, 1, 31, 22, 0),
+          LocalDateTime.of(2025, 1, 31, 23, 0));
+
+        mockServiceResponse(DEFAULT_USER_ID, newLog.getSleepStart(), newLog.getSleepEnd().plusDays(1), List.of(stored));
+
+        assertThrows(SleepLogAlreadyExistsException.class, () -> (overlapChecker).checkOverlaps(newLog));
+    }
+}
@@ -0,0 +1,131 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class SleepLogOverlapSweepTest {
+
+    private final LocalDate TEST_DATE = LocalDate.of(2025, 5, 15);
+
+    private DailySleepLog createSleepLog(LocalDateTime start, LocalDateTime end) {
+        return DailySleepLog.builder()
+          .id(UUID.randomUUID())
+          .userId(1L)
+          .sleepStart(start)
+          .sleepEnd(end)
+          .build();
+    }
+
+    private DailySleepLog night(int dayOffset, int startHour, int endHour) {
+        LocalDate endDate = TEST_DATE.plusDays(dayOffset);
+        LocalDate startDate = startHour > endHour ? endDate.minusDays(1) : endDate;
+        return createSleepLog(LocalDateTime.of(startDate, LocalTime.of(startHour, 0)), LocalDateTime.of(endDate, LocalTime.of(endHour, 0)));
+    }
+
+    @Test
+    void findConflicts_disjointNights_shouldAcceptAll() {
+        List<DailySleepLog> candidates = List.of(night(2, 22, 6), night(0, 23, 7), night(1, 22, 6));
+        List<DailySleepLog> stored = List.of(night(-1, 22, 6), night(3, 22, 6));
+
+        List<DailySleepLog> conflicts = SleepLogOverlapSweep.findConflicts(candidates, stored);
+
+        assertEquals(3, conflicts.size());
+        conflicts.forEach(conflict -> assertNull(conflict));
+    }
+
+    @Test
+    void findConflicts_candidateOverlapsStored_shouldReportStoredLog() {
+        DailySleepLog stored = night(0, 22, 6);
+        DailySleepLog candidate = night(0, 5, 9);
+
+        List<DailySleepLog> conflicts = SleepLogOverlapSweep.findConflicts(List.of(candidate), List.of(stored));
+
+        assertSame(stored, conflicts.get(0));
+    }
+
+    @Test
+    void findConflicts_candidatesOverlapEachOther_shouldAcceptEarliestStart() {
+        DailySleepLog first = night(0, 22, 6);
+        DailySleepLog second = night(0, 23, 7);
+
+        List<DailySleepLog> conflicts = SleepLogOverlapSweep.findConflicts(List.of(second, first), List.of());
+
+        assertSame(first, conflicts.get(0));
+        assertNull(conflicts.get(1));
+    }
+
+    @Test
+    void findConflicts_touchingBoundaries_shouldConflict() {
+        DailySleepLog stored = night(0, 22, 6);
+        DailySleepLog candidate = createSleepLog(stored.getSleepEnd(), stored.getSleepEnd().plusHours(1));
+
+        List<DailySleepLog> conflicts = SleepLogOverlapSweep.findConflicts(List.of(candidate), List.of(stored));
+
+        assertSame(stored, conflicts.get(0));
+    }
+
+    @Test
+    void findConflicts_longStoredLogBeforeShortOnes_shouldStillConflict() {
+        DailySleepLog longStored = createSleepLog(LocalDateTime.of(TEST_DATE, LocalTime.of(0, 0)), LocalDateTime.of(TEST_DATE, LocalTime.of(20, 0)));
+        DailySleepLog shortStored = createSleepLog(LocalDateTime.of(TEST_DATE, LocalTime.of(1, 0)), LocalDateTime.of(TEST_DATE, LocalTime.of(2, 0)));
+        DailySleepLog candidate = createSleepLog(LocalDateTime.of(TEST_DATE, LocalTime.of(10, 0)), LocalDateTime.of(TEST_DATE, LocalTime.of(11, 0)));
+
+        List<DailySleepLog> conflicts = SleepLogOverlapSweep.findConflicts(List.of(candidate), List.of(shortStored, longStored));
+
+        assertSame(longStored, conflicts.get(0));
+    }
+
+    @Test
+    void findConflicts_randomIntervals_shouldMatchPairwiseCheck() {
+        Random random = new Random(42);
+        List<DailySleepLog> stored = new ArrayList<>();
+        LocalDateTime cursor = LocalDateTime.of(TEST_DATE, LocalTime.MIDNIGHT);
+        for (int i = 0; i < 50; i++) {
+            LocalDateTime start = cursor.plusMinutes(random.nextInt(600) + 1);
+            cursor = start.plusMinutes(random.nextInt(600) + 1);
+            stored.add(createSleepLog(start, cursor));
+        }
+        List<DailySleepLog> candidates = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime start = LocalDateTime.of(TEST_DATE, LocalTime.MIDNIGHT).plusMinutes(random.nextInt(60 * 24 * 20));
+            candidates.add(createSleepLog(start, start.plusMinutes(random.nextInt(300) + 1)));
+        }
+
+        List<DailySleepLog> conflicts = SleepLogOverlapSweep.findConflicts(candidates, stored);
+
+        List<DailySleepLog> accepted = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            DailySleepLog candidate = candidates.get(i);
+            boolean overlapsStored = stored.stream().anyMatch(log -> overlaps(log, candidate));
+            if (overlapsStored) {
+                assertTrue(overlaps(conflicts.get(i), candidate));
+            } else if (conflicts.get(i) != null) {
+                assertTrue(overlaps(conflicts.get(i), candidate));
+            } else {
+                accepted.add(candidate);
+            }
+        }
+        for (int i = 0; i < accepted.size(); i++) {
+            for (int j = i + 1; j < accepted.size(); j++) {
+                assertFalse(overlaps(accepted.get(i), accepted.get(j)));
+            }
+        }
+    }
+
+    private static boolean overlaps(DailySleepLog a, DailySleepLog b) {
+        return !(a.getSleepEnd().isBefore(b.getSleepStart()) || a.getSleepStart().isAfter(b.getSleepEnd()));
+    }
+}
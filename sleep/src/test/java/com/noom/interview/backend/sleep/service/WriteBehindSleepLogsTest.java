@@ -0,0 +1,222 @@
+package com.noom.interview.backend.sleep.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.noom.interview.backend.sleep.config.OverlapEnforcementPolicy;
+import com.noom.interview.backend.sleep.config.SleepLogShardingProperties;
+import com.noom.interview.backend.sleep.config.SleepLogWriteBehindProperties;
+import com.noom.interview.backend.sleep.db.replica.ReplicaReads;
+import com.noom.interview.backend.sleep.db.service.DailySleepLogService;
+import com.noom.interview.backend.sleep.db.shard.ShardRouter;
+import com.noom.interview.backend.sleep.dto.DailySleepLog;
+import com.noom.interview.backend.sleep.enums.OverlapEnforcement;
+import com.noom.interview.backend.sleep.enums.SleepQuality;
+import com.noom.interview.backend.sleep.exception.SleepLogAlreadyExistsException;
+import com.noom.interview.backend.sleep.exception.SleepLogWriteRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.support.TransactionOperations;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindSleepLogsTest {
+
+    @Mock
+    private DailySleepLogService service;
+
+    private final LocalDate TEST_DATE = LocalDate.of(2025, 5, 15);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private SleepLogWriteBehindProperties properties;
+    private WriteBehindSleepLogs writeBehindSleepLogs;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SleepLogWriteBehindProperties();
+        properties.setQueues(1);
+        properties.setShutdownTimeout(Duration.ofSeconds(5));
+        lenient().when(service.findByUserIdAndInterval(any(), any(), any())).thenReturn(List.of());
+        lenient().when(service.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writeBehindSleepLogs != null) {
+            writeBehindSleepLogs.destroy();
+        }
+    }
+
+    private void start(boolean enabled) {
+        properties.setEnabled(enabled);
+        writeBehindSleepLogs = new WriteBehindSleepLogs(service, new OverlapEnforcementPolicy(OverlapEnforcement.APPLICATION, false),
+            new UserWriteLocks(0, TransactionOperations.withoutTransaction(), service, false), ReplicaReads.disabled(),
+            new ShardRouter(new SleepLogShardingProperties(), null), new SleepLogMetrics(meterRegistry), properties);
+    }
+
+    private DailySleepLog createSleepLog(Long userId, LocalDate date) {
+        return DailySleepLog.builder()
+          .userId(userId)
+          .sleepStart(LocalDateTime.of(date.minusDays(1), LocalTime.of(23, 0)))
+          .sleepEnd(LocalDateTime.of(date, LocalTime.of(7, 0)))
+          .sleepQuality(SleepQuality.GOOD)
+          .build();
+    }
+
+    private WriteBehindSleepLogs.Pending pending(DailySleepLog dailySleepLog) {
+        dailySleepLog.setId(UUID.randomUUID());
+        return new WriteBehindSleepLogs.Pending(dailySleepLog, new CompletableFuture<>());
+    }
+
+    @Test
+    void write_shouldCommitBatchInOneSaveAndRejectOverlaps() {
+        start(false);
+        DailySleepLog stored = createSleepLog(2L, TEST_DATE);
+        when(service.findByUserIdAndInterval(eq(2L), any(), any())).thenReturn(List.of(stored));
+        WriteBehindSleepLogs.Pending first = pending(createSleepLog(1L, TEST_DATE));
+        WriteBehindSleepLogs.Pending overlapping = pending(createSleepLog(2L, TEST_DATE));
+        WriteBehindSleepLogs.Pending second = pending(createSleepLog(1L, TEST_DATE.plusDays(1)));
+
+        writeBehindSleepLogs.write(List.of(first, overlapping, second));
+
+        verify(service).saveAll(List.of(first.log(), second.log()));
+        assertEquals(first.log(), first.result().join());
+        assertEquals(second.log(), second.result().join());
+        CompletionException e = assertThrows(CompletionException.class, () -> overlapping.result().join());
+        assertInstanceOf(SleepLogAlreadyExistsException.class, e.getCause());
+    }
+
+    @Test
+    void write_whenGroupCommitFails_shouldBisectDownToTheRejectedLog() {
+        start(false);
+        List<WriteBehindSleepLogs.Pending> batch = LongStream.rangeClosed(1, 8)
+            .mapToObj(userId -> pending(createSleepLog(userId, TEST_DATE)))
+            .toList();
+        WriteBehindSleepLogs.Pending rejected = batch.get(5);
+        when(service.saveAll(anyList())).thenAnswer(invocation -> {
+            List<DailySleepLog> logs = invocation.getArgument(0);
+            if (logs.contains(rejected.log())) {
+                throw new SleepLogAlreadyExistsException("overlaps");
+            }
+            return logs;
+        });
+
+        writeBehindSleepLogs.write(batch);
+
+        // 8 -> 4 + 4 -> 2 + 2 -> 1 + 1, instead of one save per log after the failed group commit
+        verify(service, times(7)).saveAll(anyList());
+        batch.stream()
+            .filter(pending -> pending != rejected)
+            .forEach(pending -> assertEquals(pending.log(), pending.result().join()));
+        CompletionException e = assertThrows(CompletionException.class, () -> rejected.result().join());
+        assertInstanceOf(SleepLogAlreadyExistsException.class, e.getCause());
+        assertEquals(1, meterRegistry.get(SleepLogMetrics.OVERLAP_REJECTIONS).tag("enforcement", "database").counter().count());
+    }
+
+    @Test
+    void write_whenGroupCommitFailsForAnotherReason_shouldFailTheBatchWithoutRetrying() {
+        start(false);
+        List<WriteBehindSleepLogs.Pending> batch = LongStream.rangeClosed(1, 8)
+            .mapToObj(userId -> pending(createSleepLog(userId, TEST_DATE)))
+            .toList();
+        when(service.saveAll(anyList())).thenThrow(new CannotGetJdbcConnectionException("Connection is not available"));
+
+        writeBehindSleepLogs.write(batch);
+
+        verify(service).saveAll(anyList());
+        batch.forEach(pending -> {
+            CompletionException e = assertThrows(CompletionException.class, () -> pending.result().join());
+            assertInstanceOf(CannotGetJdbcConnectionException.class, e.getCause());
+        });
+    }
+
+    @Test
+    void save_shouldRecordTheSaveAndOverlapCheckTimers() {
+        start(true);
+
+        writeBehindSleepLogs.save(createSleepLog(1L, TEST_DATE));
+
+        assertEquals(1, meterRegistry.get(SleepLogMetrics.USE_CASE_TIMER).tag("use_case", "save").timer().count());
+        assertEquals(1, meterRegistry.get(SleepLogMetrics.USE_CASE_TIMER).tag("use_case", "check_overlaps").timer().count());
+    }
+
+    @Test
+    void submit_whenQueueIsFull_shouldReject() throws Exception {
+        properties.setQueueCapacity(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(service.findByUserIdAndInterval(eq(1L), any(), any())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        start(true);
+
+        CompletableFuture<DailySleepLog> inFlight = writeBehindSleepLogs.submit(createSleepLog(1L, TEST_DATE));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<DailySleepLog> queued = writeBehindSleepLogs.submit(createSleepLog(2L, TEST_DATE));
+
+        assertThrows(SleepLogWriteRejectedException.class, () -> writeBehindSleepLogs.submit(createSleepLog(3L, TEST_DATE)));
+
+        release.countDown();
+        assertEquals(1L, inFlight.get(5, TimeUnit.SECONDS).getUserId());
+        assertEquals(2L, queued.get(5, TimeUnit.SECONDS).getUserId());
+    }
+
+    @Test
+    void save_whenCommitTakesLongerThanTheTimeout_shouldReject() {
+        properties.setCommitTimeout(Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        when(service.findByUserIdAndInterval(eq(1L), any(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        start(true);
+
+        try {
+            assertThrows(SleepLogWriteRejectedException.class, () -> writeBehindSleepLogs.save(createSleepLog(1L, TEST_DATE)));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void destroy_shouldDrainQueuedLogsAndRejectNewOnes() throws Exception {
+        properties.setMaxBatchDelay(Duration.ofMillis(200));
+        start(true);
+        List<CompletableFuture<DailySleepLog>> results = List.of(
+            writeBehindSleepLogs.submit(createSleepLog(1L, TEST_DATE)),
+            writeBehindSleepLogs.submit(createSleepLog(2L, TEST_DATE)));
+
+        writeBehindSleepLogs.destroy();
+
+        results.forEach(result -> assertTrue(result.isDone() && !result.isCompletedExceptionally()));
+        assertThrows(SleepLogWriteRejectedException.class, () -> writeBehindSleepLogs.submit(createSleepLog(3L, TEST_DATE)));
+    }
+}